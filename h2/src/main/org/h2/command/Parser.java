@@ -370,6 +370,7 @@
 import org.h2.schema.UserDefinedFunction;
 import org.h2.table.CTE;
 import org.h2.table.Column;
+import org.h2.table.ColumnStatistics;
 import org.h2.table.DataChangeDeltaTable;
 import org.h2.table.DataChangeDeltaTable.ResultOption;
 import org.h2.table.DualTable;
@@ -5656,6 +5657,10 @@ private Column parseColumnForTable(String columnName, boolean defaultNullable) {
         if (readIf("SELECTIVITY")) {
             column.setSelectivity(readNonNegativeInt());
         }
+        if (readIf("STATISTICS")) {
+            Value statistics = readExpression().optimize(session).getValue(session);
+            column.setStatistics(ColumnStatistics.fromValue(session, column.getType(), statistics));
+        }
         if (mode.mySqlTableOptions) {
             if (readIfCompat("CHARACTER")) {
                 readIf(SET);
@@ -5,7 +5,9 @@
  */
 package org.h2.command.ddl;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
 
 import org.h2.command.CommandInterface;
 import org.h2.engine.Constants;
@@ -16,10 +18,12 @@
 import org.h2.result.Row;
 import org.h2.schema.Schema;
 import org.h2.table.Column;
+import org.h2.table.ColumnStatistics;
 import org.h2.table.Table;
 import org.h2.table.TableType;
 import org.h2.value.DataType;
 import org.h2.value.Value;
+import org.h2.value.ValueNull;
 
 /**
  * This class represents the statements
@@ -126,6 +130,52 @@ private void rehash() {
 
     }
 
+    /**
+     * A reservoir sample of values of a column for {@link ColumnStatistics}.
+     */
+    private static final class StatisticsData {
+
+        /**
+         * The maximum number of non-NULL values to keep.
+         */
+        private static final int MAX_VALUES = 10_000;
+
+        private final ArrayList<Value> values = new ArrayList<>();
+
+        private long nullCount;
+
+        private long valueCount;
+
+        StatisticsData() {
+        }
+
+        void add(Value v) {
+            if (v == ValueNull.INSTANCE) {
+                nullCount++;
+                return;
+            }
+            long count = valueCount++;
+            if (count < MAX_VALUES) {
+                values.add(v);
+            } else {
+                long index = ThreadLocalRandom.current().nextLong(count + 1);
+                if (index < MAX_VALUES) {
+                    values.set((int) index, v);
+                }
+            }
+        }
+
+        ColumnStatistics getStatistics(SessionLocal session) {
+            long nulls = nullCount;
+            if (valueCount > MAX_VALUES) {
+                // scale the number of NULL values to the size of the sample
+                nulls = nulls * MAX_VALUES / valueCount;
+            }
+            return ColumnStatistics.create(session, values.toArray(new Value[0]), nulls);
+        }
+
+    }
+
     /**
      * The sample size.
      */
@@ -190,11 +240,16 @@ public static void analyzeTable(SessionLocal session, Table table, int sample, b
         Cursor cursor = table.getScanIndex(session).find(session, null, null, false);
         if (cursor.next()) {
             SelectivityData[] array = new SelectivityData[columnCount];
+            StatisticsData[] statistics = new StatisticsData[columnCount];
             for (int i = 0; i < columnCount; i++) {
                 Column col = columns[i];
-                if (!DataType.isLargeObject(col.getType().getValueType())) {
+                int valueType = col.getType().getValueType();
+                if (!DataType.isLargeObject(valueType)) {
                     array[i] = new SelectivityData();
                 }
+                if (ColumnStatistics.isSupported(valueType)) {
+                    statistics[i] = new StatisticsData();
+                }
             }
             long rowNumber = 0;
             do {
@@ -204,6 +259,10 @@ public static void analyzeTable(SessionLocal session, Table table, int sample, b
                     if (selectivity != null) {
                         selectivity.add(row.getValue(i));
                     }
+                    StatisticsData data = statistics[i];
+                    if (data != null) {
+                        data.add(row.getValue(i));
+                    }
                 }
                 rowNumber++;
             } while ((sample <= 0 || rowNumber < sample) && cursor.next());
@@ -212,10 +271,13 @@ public static void analyzeTable(SessionLocal session, Table table, int sample, b
                 if (selectivity != null) {
                     columns[i].setSelectivity(selectivity.getSelectivity(rowNumber));
                 }
+                StatisticsData data = statistics[i];
+                columns[i].setStatistics(data != null ? data.getStatistics(session) : null);
             }
         } else {
             for (int i = 0; i < columnCount; i++) {
                 columns[i].setSelectivity(0);
+                columns[i].setStatistics(null);
             }
         }
         session.getDatabase().updateMeta(session, table);
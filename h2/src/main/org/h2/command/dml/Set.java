@@ -74,6 +74,7 @@ public boolean isTransactional() {
         case SetTypes.TIME_ZONE:
         case SetTypes.VARIABLE_BINARY:
         case SetTypes.TRUNCATE_LARGE_LENGTH:
+        case SetTypes.MAX_PARALLEL_WORKERS:
         case SetTypes.WRITE_DELAY:
             return true;
         default:
@@ -555,6 +556,14 @@ public long update() {
         case SetTypes.TRUNCATE_LARGE_LENGTH:
             session.setTruncateLargeLength(expression.getBooleanValue(session));
             break;
+        case SetTypes.MAX_PARALLEL_WORKERS: {
+            int value = getIntValue();
+            if (value < 1) {
+                throw DbException.getInvalidValueException("MAX_PARALLEL_WORKERS", value);
+            }
+            session.setMaxParallelWorkers(value);
+            break;
+        }
         default:
             throw DbException.getInternalError("type="+type);
         }
@@ -5,10 +5,14 @@
  */
 package org.h2.command.query;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
+import java.util.List;
 import java.util.Random;
 import org.h2.engine.SessionLocal;
 import org.h2.expression.Expression;
+import org.h2.index.IndexCondition;
 import org.h2.table.Plan;
 import org.h2.table.PlanItem;
 import org.h2.table.TableFilter;
@@ -20,24 +24,25 @@
  */
 class Optimizer {
 
-    private static final int MAX_BRUTE_FORCE_FILTERS = 7;
+    /**
+     * The maximum number of tables to order with dynamic programming, the
+     * number of evaluated sub-plans grows exponentially with the number of
+     * tables.
+     */
+    private static final int MAX_DYNAMIC_PROGRAMMING_FILTERS = 15;
+
+    /**
+     * The maximum number of sub-plans to evaluate with dynamic programming.
+     * Dense join graphs need more, they are ordered with the greedy and
+     * genetic search instead.
+     */
+    private static final int MAX_DYNAMIC_PROGRAMMING = 10_000;
+
     private static final int MAX_BRUTE_FORCE = 2000;
     private static final int MAX_GENETIC = 500;
     private long startNs;
     private BitSet switched;
 
-    //  possible plans for filters, if using brute force:
-    //  1 filter 1 plan
-    //  2 filters 2 plans
-    //  3 filters 6 plans
-    //  4 filters 24 plans
-    //  5 filters 120 plans
-    //  6 filters 720 plans
-    //  7 filters 5040 plans
-    //  8 filters 40320 plan
-    //  9 filters 362880 plans
-    // 10 filters 3628800 filters
-
     private final TableFilter[] filters;
     private final Expression condition;
     private final SessionLocal session;
@@ -47,6 +52,7 @@ class Optimizer {
     private double cost;
     private Random random;
     private final AllColumnsForPlan allColumnsSet;
+    private String planCacheKey;
 
     Optimizer(TableFilter[] filters, Expression condition, SessionLocal session) {
         this.filters = filters;
@@ -55,6 +61,15 @@ class Optimizer {
         allColumnsSet = new AllColumnsForPlan(filters);
     }
 
+    /**
+     * Set the key of this query in the plan cache of the database.
+     *
+     * @param planCacheKey the key, or {@code null} to not use the cache
+     */
+    void setPlanCacheKey(String planCacheKey) {
+        this.planCacheKey = planCacheKey;
+    }
+
     /**
      * How many filter to calculate using brute force. The remaining filters are
      * selected using a greedy algorithm which has a runtime of (1 + 2 + ... +
@@ -79,17 +94,43 @@ private void calculateBestPlan(boolean isSelectCommand) {
         cost = -1;
         if (filters.length == 1) {
             testPlan(filters, isSelectCommand);
+            return;
+        }
+        PlanCache planCache = planCacheKey != null ? session.getDatabase().getPlanCache() : null;
+        long modificationMetaId = session.getDatabase().getModificationMetaId();
+        if (planCache != null) {
+            int[] order = planCache.get(planCacheKey, modificationMetaId);
+            if (order != null && order.length == filters.length) {
+                TableFilter[] list = new TableFilter[order.length];
+                for (int i = 0; i < order.length; i++) {
+                    list[i] = filters[order[i]];
+                }
+                testPlan(list, isSelectCommand);
+                if (cost < Double.POSITIVE_INFINITY) {
+                    return;
+                }
+                cost = -1;
+            }
+        }
+        int[] graph = filters.length <= MAX_DYNAMIC_PROGRAMMING_FILTERS ? getJoinGraph() : null;
+        if (graph != null && countSubPlans(graph) <= MAX_DYNAMIC_PROGRAMMING) {
+            calculateDynamicProgramming(graph, isSelectCommand);
         } else {
             startNs = System.nanoTime();
-            if (filters.length <= MAX_BRUTE_FORCE_FILTERS) {
-                RuleBasedJoinOrderPicker ruleBasedJoinOrderPicker = new RuleBasedJoinOrderPicker(session, filters);
-                TableFilter[] ruleBasedResult = ruleBasedJoinOrderPicker.bestOrder();
-                testPlan(ruleBasedResult, isSelectCommand);
-            } else {
-                calculateBruteForceSome(isSelectCommand);
-                random = new Random(0);
-                calculateGenetic(isSelectCommand);
+            // the cost of the rule-based order limits the time of the search
+            testPlan(new RuleBasedJoinOrderPicker(session, filters, condition).bestOrder(), isSelectCommand);
+            calculateBruteForceSome(isSelectCommand);
+            random = new Random(0);
+            calculateGenetic(isSelectCommand);
+        }
+        if (planCache != null) {
+            List<TableFilter> original = Arrays.asList(filters);
+            TableFilter[] list = bestPlan.getFilters();
+            int[] order = new int[list.length];
+            for (int i = 0; i < list.length; i++) {
+                order[i] = original.indexOf(list[i]);
             }
+            planCache.put(planCacheKey, modificationMetaId, order);
         }
     }
 
@@ -106,16 +147,143 @@ private boolean canStop(int x) {
                 && System.nanoTime() - startNs > cost * 100_000L;
     }
 
-    private void calculateBruteForceAll(boolean isSelectCommand) {
-        TableFilter[] list = new TableFilter[filters.length];
-        Permutations<TableFilter> p = Permutations.create(filters, list);
- 
-        p.next();
-        testPlan(list, isSelectCommand);
- 
-//        for (int x = 0; !canStop(x) && p.next(); x++) {
-//            testPlan(list, isSelectCommand);
-//        }
+    /**
+     * Find the best join order with dynamic programming. The best order and
+     * its cost are remembered for each set of tables, larger sets are built
+     * by appending one table to the best order of a smaller set. Only tables
+     * connected by a join condition with the set are appended, unless there
+     * are no such tables.
+     *
+     * @param graph the join graph
+     * @param isSelectCommand whether this is a SELECT command
+     */
+    private void calculateDynamicProgramming(int[] graph, boolean isSelectCommand) {
+        int length = filters.length, all = (1 << length) - 1;
+        TableFilter[][] orders = new TableFilter[all + 1][];
+        double[] costs = new double[all + 1];
+        // the plan items of the first tables
+        PlanItem[] firstItems = new PlanItem[all + 1];
+        for (int i = 0; i < length; i++) {
+            TableFilter[] order = { filters[i] };
+            Plan plan = new Plan(order, 1, condition);
+            orders[1 << i] = order;
+            costs[1 << i] = plan.calculateCost(session, allColumnsSet, isSelectCommand);
+            firstItems[1 << i] = plan.getItem(filters[i]);
+        }
+        // subsets of a set are always smaller numbers than the set itself
+        for (int set = 1; set < all; set++) {
+            TableFilter[] order = orders[set];
+            if (order == null) {
+                continue;
+            }
+            int candidates = getCandidates(graph, set, all);
+            int size = order.length;
+            double outerCost = costs[set];
+            for (int i = 0; i < length; i++) {
+                if ((candidates & 1 << i) == 0) {
+                    continue;
+                }
+                TableFilter[] list = Arrays.copyOf(order, size + 1);
+                list[size] = filters[i];
+                double costNow = new Plan(list, size + 1, condition).calculateLastCost(session, allColumnsSet,
+                        isSelectCommand, outerCost, firstItems[set]);
+                int next = set | 1 << i;
+                if (orders[next] == null || costNow < costs[next]) {
+                    orders[next] = list;
+                    costs[next] = costNow;
+                    firstItems[next] = firstItems[set];
+                }
+            }
+        }
+        testPlan(orders[all], isSelectCommand);
+    }
+
+    /**
+     * Returns the number of sub-plans evaluated by
+     * {@link #calculateDynamicProgramming(int[], boolean)}. Only the join
+     * graph is used, so this is much cheaper than the search itself.
+     *
+     * @param graph the join graph
+     * @return the number of sub-plans, or a larger number than
+     *         {@link #MAX_DYNAMIC_PROGRAMMING} if there are more
+     */
+    private int countSubPlans(int[] graph) {
+        int length = filters.length, all = (1 << length) - 1;
+        boolean[] reached = new boolean[all + 1];
+        for (int i = 0; i < length; i++) {
+            reached[1 << i] = true;
+        }
+        int count = 0;
+        for (int set = 1; set < all && count <= MAX_DYNAMIC_PROGRAMMING; set++) {
+            if (reached[set]) {
+                int candidates = getCandidates(graph, set, all);
+                count += Integer.bitCount(candidates);
+                for (int c = candidates; c != 0; c &= c - 1) {
+                    reached[set | Integer.lowestOneBit(c)] = true;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the tables that may be appended to the specified set of tables.
+     *
+     * @param graph the join graph
+     * @param set the set of tables
+     * @param all the set of all tables
+     * @return the tables connected with the set, or all remaining tables if
+     *         there are no such tables
+     */
+    private static int getCandidates(int[] graph, int set, int all) {
+        int candidates = 0;
+        for (int s = set; s != 0; s &= s - 1) {
+            candidates |= graph[Integer.numberOfTrailingZeros(s)];
+        }
+        candidates &= ~set;
+        if (candidates == 0) {
+            // a cartesian product can't be avoided
+            candidates = all & ~set;
+        }
+        return candidates;
+    }
+
+    /**
+     * Returns the join graph. Two tables are connected when an index condition
+     * of one of them can be evaluated with the rows of the other one.
+     *
+     * @return the bit set of connected tables for each table
+     */
+    private int[] getJoinGraph() {
+        int length = filters.length;
+        int[] graph = new int[length];
+        boolean[][] constant = new boolean[length][];
+        for (int j = 0; j < length; j++) {
+            ArrayList<IndexCondition> conditions = filters[j].getIndexConditions();
+            boolean[] c = new boolean[conditions.size()];
+            for (int k = 0; k < c.length; k++) {
+                c[k] = conditions.get(k).isEvaluatable();
+            }
+            constant[j] = c;
+        }
+        for (int i = 0; i < length; i++) {
+            filters[i].setEvaluatable(true);
+            for (int j = 0; j < length; j++) {
+                if (j == i) {
+                    continue;
+                }
+                ArrayList<IndexCondition> conditions = filters[j].getIndexConditions();
+                for (int k = 0; k < conditions.size(); k++) {
+                    if (!constant[j][k] && conditions.get(k).isEvaluatable()) {
+                        graph[i] |= 1 << j;
+                        graph[j] |= 1 << i;
+                        break;
+                    }
+                }
+            }
+            filters[i].setEvaluatable(false);
+        }
+        return graph;
     }
 
     private void calculateBruteForceSome(boolean isSelectCommand) {
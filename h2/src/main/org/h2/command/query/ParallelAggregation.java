@@ -0,0 +1,343 @@
+/*
+ * Copyright 2004-2025 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.command.query;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map.Entry;
+import java.util.concurrent.locks.LockSupport;
+
+import org.h2.engine.SessionLocal;
+import org.h2.expression.Expression;
+import org.h2.expression.ExpressionColumn;
+import org.h2.expression.aggregate.Aggregate;
+import org.h2.expression.vector.ValueVector;
+import org.h2.expression.vector.VectorBatch;
+import org.h2.expression.vector.VectorExpression;
+import org.h2.index.Cursor;
+import org.h2.message.DbException;
+import org.h2.mvstore.db.MVPrimaryIndex;
+import org.h2.result.Row;
+import org.h2.table.Column;
+import org.h2.table.TableFilter;
+import org.h2.util.Task;
+import org.h2.value.Value;
+import org.h2.value.ValueRow;
+
+/**
+ * Parallel execution of an aggregate query over a single table. The primary
+ * index of the table is split into ranges of keys, each range is scanned by a
+ * separate thread, and partial results of aggregates are merged into the group
+ * data of the query. The condition and arguments of aggregates are evaluated
+ * over vectors of values, rows may be grouped only by plain columns.
+ * <p>
+ * The session isn't thread-safe, so it is used only by the thread that
+ * executes the query. Cursors and vector expressions are created by this
+ * thread, other threads only read rows of their snapshot of the table and
+ * update their own partial results without the session. Partial results are
+ * merged into the group data by the thread of the session.
+ */
+final class ParallelAggregation {
+
+    /**
+     * The minimum number of rows for each thread.
+     */
+    private static final int MIN_ROWS_PER_WORKER = 4 * VectorBatch.SIZE;
+
+    /**
+     * A thread that scans a range of rows.
+     */
+    private final class Worker extends Task {
+
+        private final Cursor cursor;
+
+        /**
+         * Whether this worker is executed by the thread of the session.
+         */
+        private final boolean sessionThread;
+
+        private final VectorBatch batch;
+
+        private final VectorExpression condition;
+
+        private final VectorExpression[] arguments;
+
+        /**
+         * Partial results of groups. Keys that are different, but equal in
+         * the compare mode of the database, are merged later.
+         */
+        private final HashMap<ValueRow, Object[]> groups;
+
+        /**
+         * Whether all rows were processed.
+         */
+        boolean completed;
+
+        Worker(Cursor cursor, boolean sessionThread) {
+            this.cursor = cursor;
+            this.sessionThread = sessionThread;
+            batch = new VectorBatch(filter.getTable());
+            condition = ParallelAggregation.this.condition != null
+                    ? VectorExpression.get(session, ParallelAggregation.this.condition, filter) : null;
+            int count = aggregates.length;
+            arguments = new VectorExpression[count];
+            for (int i = 0; i < count; i++) {
+                Aggregate aggregate = aggregates[i];
+                if (aggregate.getSubexpressionCount() > 0) {
+                    arguments[i] = VectorExpression.get(session, aggregate.getSubexpression(0), filter);
+                }
+            }
+            groups = new HashMap<>();
+        }
+
+        @Override
+        public void call() {
+            int count = aggregates.length;
+            ValueVector[] values = new ValueVector[count];
+            int size;
+            do {
+                if (failed) {
+                    return;
+                }
+                if (sessionThread) {
+                    session.checkCanceled();
+                }
+                size = batch.next(cursor);
+                if (condition != null) {
+                    ValueVector v = condition.getValues(batch);
+                    if (v == null) {
+                        failed = true;
+                        return;
+                    }
+                    batch.select(v);
+                }
+                int rows = batch.getSize();
+                if (rows == 0) {
+                    continue;
+                }
+                for (int i = 0; i < count; i++) {
+                    VectorExpression argument = arguments[i];
+                    if (argument != null && (values[i] = argument.getValues(batch)) == null) {
+                        failed = true;
+                        return;
+                    }
+                }
+                if (keyColumns == null) {
+                    Object[] data = getGroup(ValueRow.EMPTY);
+                    for (int i = 0; i < count; i++) {
+                        aggregates[i].updatePartialData(data[i], values[i], rows);
+                    }
+                } else {
+                    for (int r = 0; r < rows; r++) {
+                        Object[] data = getGroup(getKey(batch.getRow(r)));
+                        for (int i = 0; i < count; i++) {
+                            ValueVector v = values[i];
+                            aggregates[i].updatePartialData(data[i], v != null ? v.getValue(r) : null);
+                        }
+                    }
+                }
+            } while (size == VectorBatch.SIZE);
+            completed = true;
+        }
+
+        private ValueRow getKey(Row row) {
+            int length = keyColumns.length;
+            Value[] key = new Value[length];
+            for (int i = 0; i < length; i++) {
+                key[i] = row.getValue(keyColumns[i]);
+            }
+            return ValueRow.get(key);
+        }
+
+        private Object[] getGroup(ValueRow key) {
+            Object[] data = groups.get(key);
+            if (data == null) {
+                int count = aggregates.length;
+                data = new Object[count];
+                for (int i = 0; i < count; i++) {
+                    data[i] = aggregates[i].createPartialData();
+                }
+                groups.put(key, data);
+            }
+            return data;
+        }
+
+    }
+
+    private final SessionLocal session;
+
+    private final TableFilter filter;
+
+    private final Expression condition;
+
+    private final Aggregate[] aggregates;
+
+    /**
+     * Column identifiers of grouping columns, or {@code null}.
+     */
+    private final int[] keyColumns;
+
+    private final int workers;
+
+    /**
+     * Whether some worker can't process its rows.
+     */
+    volatile boolean failed;
+
+    private ParallelAggregation(SessionLocal session, TableFilter filter, Expression condition,
+            Aggregate[] aggregates, int[] keyColumns, int workers) {
+        this.session = session;
+        this.filter = filter;
+        this.condition = condition;
+        this.aggregates = aggregates;
+        this.keyColumns = keyColumns;
+        this.workers = workers;
+    }
+
+    /**
+     * Creates parallel execution of an aggregate query.
+     *
+     * @param session
+     *            the session
+     * @param filter
+     *            the top table filter
+     * @param condition
+     *            the condition, or {@code null}
+     * @param expressions
+     *            the expressions of the query
+     * @param columnCount
+     *            the number of expressions
+     * @param groupIndex
+     *            indexes of grouping expressions, or {@code null}
+     * @param grouping
+     *            whether an expression is a grouping expression or its copy
+     * @param prepare
+     *            {@code true} to check only whether parallel execution is
+     *            possible, values of parameters aren't evaluated in this case
+     * @return the parallel execution, or {@code null} if it can't be used
+     */
+    static ParallelAggregation get(SessionLocal session, TableFilter filter, Expression condition,
+            ArrayList<Expression> expressions, int columnCount, int[] groupIndex, boolean[] grouping,
+            boolean prepare) {
+        int maxWorkers = session.getMaxParallelWorkers();
+        if (maxWorkers <= 1 || !VectorizedSelect.isSimpleFilter(filter)
+                || !(filter.getIndex() instanceof MVPrimaryIndex)) {
+            return null;
+        }
+        long rows = filter.getTable().getRowCountApproximation(session);
+        int workers = (int) Math.min(maxWorkers, rows / MIN_ROWS_PER_WORKER);
+        if (workers <= 1) {
+            return null;
+        }
+        SessionLocal s = prepare ? null : session;
+        if (condition != null && VectorExpression.get(s, condition, filter) == null) {
+            return null;
+        }
+        int[] keyColumns = null;
+        if (groupIndex != null) {
+            int length = groupIndex.length;
+            keyColumns = new int[length];
+            for (int i = 0; i < length; i++) {
+                Expression e = expressions.get(groupIndex[i]).getNonAliasExpression();
+                if (!(e instanceof ExpressionColumn) || ((ExpressionColumn) e).getTableFilter() != filter) {
+                    return null;
+                }
+                Column column = ((ExpressionColumn) e).getColumn();
+                int columnId = column.getColumnId();
+                if (columnId < 0) {
+                    return null;
+                }
+                keyColumns[i] = columnId;
+            }
+        }
+        IdentityHashMap<Aggregate, VectorExpression> map = new IdentityHashMap<>();
+        for (int i = 0; i < columnCount; i++) {
+            if ((grouping == null || !grouping[i])
+                    && !VectorizedSelect.addAggregates(s, filter, expressions.get(i), map)) {
+                return null;
+            }
+        }
+        Aggregate[] aggregates = new Aggregate[map.size()];
+        int i = 0;
+        for (Entry<Aggregate, VectorExpression> entry : map.entrySet()) {
+            aggregates[i++] = entry.getKey();
+        }
+        return new ParallelAggregation(session, filter, condition, aggregates, keyColumns, workers);
+    }
+
+    /**
+     * Returns the number of threads.
+     *
+     * @return the number of threads
+     */
+    int getWorkers() {
+        return workers;
+    }
+
+    /**
+     * Scan the table in parallel and merge partial results of aggregates into
+     * the group data.
+     *
+     * @param groupData
+     *            the group data
+     * @return {@code false} if some rows can't be processed in parallel, the
+     *         group data isn't modified in this case
+     */
+    boolean gather(SelectGroups groupData) {
+        Cursor[] cursors = ((MVPrimaryIndex) filter.getIndex()).findRanges(session, workers);
+        int count = cursors.length;
+        Worker[] tasks = new Worker[count];
+        for (int i = 0; i < count; i++) {
+            tasks[i] = new Worker(cursors[i], i == 0);
+        }
+        for (int i = 1; i < count; i++) {
+            tasks[i].execute("H2 Parallel Worker " + i);
+        }
+        RuntimeException exception = null;
+        try {
+            tasks[0].call();
+            // other workers can't check the session, the statement may be
+            // canceled while they are still running
+            for (int i = 1; i < count; i++) {
+                while (!tasks[i].isFinished()) {
+                    session.checkCanceled();
+                    LockSupport.parkNanos(1_000_000L);
+                }
+            }
+        } catch (RuntimeException e) {
+            failed = true;
+            exception = e;
+        }
+        for (int i = 1; i < count; i++) {
+            Exception e = tasks[i].getException();
+            if (e != null && exception == null) {
+                failed = true;
+                exception = DbException.convert(e);
+            }
+        }
+        if (exception != null) {
+            throw exception;
+        }
+        for (Worker task : tasks) {
+            if (!task.completed) {
+                return false;
+            }
+        }
+        int aggregateCount = aggregates.length;
+        for (Worker task : tasks) {
+            for (Entry<ValueRow, Object[]> entry : task.groups.entrySet()) {
+                groupData.nextSource(entry.getKey());
+                Object[] data = entry.getValue();
+                for (int i = 0; i < aggregateCount; i++) {
+                    aggregates[i].mergePartialData(session, groupData, data[i]);
+                }
+            }
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2004-2025 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.command.query;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A cache of join orders shared by all sessions of a database. Commands can't
+ * be shared between sessions, so each session still parses its statements,
+ * but the optimizer of a query with a cached join order only evaluates this
+ * order instead of searching for the best one. All entries are discarded when
+ * the metadata of the database is changed.
+ */
+public final class PlanCache {
+
+    private final Cache cache;
+
+    private long modificationMetaId;
+
+    private long hits, misses, evictions;
+
+    /**
+     * Creates a new plan cache.
+     *
+     * @param maxSize the maximum number of cached join orders
+     */
+    public PlanCache(int maxSize) {
+        cache = new Cache(maxSize);
+    }
+
+    /**
+     * Get a cached join order.
+     *
+     * @param key the key
+     * @param modificationMetaId the current modification id of metadata
+     * @return the indexes of table filters in the join order, or {@code null}
+     */
+    synchronized int[] get(String key, long modificationMetaId) {
+        checkModificationMetaId(modificationMetaId);
+        int[] order = cache.get(key);
+        if (order != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return order;
+    }
+
+    /**
+     * Add a join order to the cache.
+     *
+     * @param key the key
+     * @param modificationMetaId the modification id of metadata used by the
+     *            plan
+     * @param order the indexes of table filters in the join order
+     */
+    synchronized void put(String key, long modificationMetaId, int[] order) {
+        checkModificationMetaId(modificationMetaId);
+        if (modificationMetaId == this.modificationMetaId) {
+            cache.put(key, order);
+        }
+    }
+
+    private void checkModificationMetaId(long modificationMetaId) {
+        if (modificationMetaId > this.modificationMetaId) {
+            cache.clear();
+            this.modificationMetaId = modificationMetaId;
+        }
+    }
+
+    /**
+     * Returns the number of cached join orders.
+     *
+     * @return the number of cached join orders
+     */
+    public synchronized int getSize() {
+        return cache.size();
+    }
+
+    /**
+     * Returns the number of queries optimized with a cached join order.
+     *
+     * @return the number of cache hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of queries without a cached join order.
+     *
+     * @return the number of cache misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of join orders removed from the cache because it was
+     * full.
+     *
+     * @return the number of evictions
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    private final class Cache extends LinkedHashMap<String, int[]> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int maxSize;
+
+        Cache(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, int[]> eldest) {
+            if (size() > maxSize) {
+                evictions++;
+                return true;
+            }
+            return false;
+        }
+
+    }
+
+}
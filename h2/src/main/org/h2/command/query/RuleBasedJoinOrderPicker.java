@@ -1,3 +1,8 @@
+/*
+ * Copyright 2004-2025 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
 package org.h2.command.query;
 
 import org.h2.engine.SessionLocal;
@@ -8,101 +13,108 @@
 import org.h2.expression.condition.ConditionAndOrN;
 import org.h2.table.TableFilter;
 
-import java.util.*;
-import java.util.stream.Collectors;
-
 /**
- * Determines the best join order by following rules rather than considering every possible permutation.
+ * Determines a join order by following rules rather than by evaluating the
+ * costs of plans. The smallest table is joined first, each next table is the
+ * smallest table connected with the already joined tables by an equality
+ * condition, or the smallest remaining table if there is no such table.
  */
-public class RuleBasedJoinOrderPicker {
- final SessionLocal session;
- final TableFilter[] filters;
-
- public RuleBasedJoinOrderPicker(SessionLocal session, TableFilter[] filters) {
-  this.session = session;
-  this.filters = filters;
- }
-
- public TableFilter[] bestOrder() {
-  List<TableFilter> remaining = new ArrayList<>(List.of(filters));
-  List<TableFilter> result = new ArrayList<>();
-
-  Expression condition = filters[0].getFullCondition(); // assume same for all
-  Map<String, Set<String>> joinGraph = buildJoinGraph(condition);
+final class RuleBasedJoinOrderPicker {
 
-  TableFilter start = pickMinTableFilter(remaining);
-  result.add(start);
-  remaining.remove(start);
+    private final SessionLocal session;
+    private final TableFilter[] filters;
+    private final Expression condition;
 
-  while (!remaining.isEmpty()) {
-   TableFilter next = pickNextJoinable(result, remaining, joinGraph);
-   if (next == null) {
-    throw new RuntimeException("No valid join order found without cartesian product");
-   }
-   result.add(next);
-   remaining.remove(next);
-  }
+    /**
+     * The tables connected with each table.
+     */
+    private final boolean[][] joins;
 
-  return result.toArray(new TableFilter[0]);
- }
-
- private Map<String, Set<String>> buildJoinGraph(Expression condition) {
-  Map<String, Set<String>> graph = new HashMap<>();
-  if (condition == null) return graph;
+    RuleBasedJoinOrderPicker(SessionLocal session, TableFilter[] filters, Expression condition) {
+        this.session = session;
+        this.filters = filters;
+        this.condition = condition;
+        joins = new boolean[filters.length][filters.length];
+    }
 
-  List<Expression> comparisons = flattenAndConditions(condition);
-  for (Expression expr : comparisons) {
-   if (expr instanceof Comparison) {
-    Comparison cmp = (Comparison) expr;
-    Expression left = cmp.getSubexpression(0);
-    Expression right = cmp.getSubexpression(1);
-    if (left instanceof ExpressionColumn && right instanceof ExpressionColumn) {
-     String table1 = ((ExpressionColumn) left).getTableName();
-     String table2 = ((ExpressionColumn) right).getTableName();
-     if (table1 != null && table2 != null && !table1.equals(table2)) {
-      graph.computeIfAbsent(table1, k -> new HashSet<>()).add(table2);
-      graph.computeIfAbsent(table2, k -> new HashSet<>()).add(table1);
-     }
+    /**
+     * Returns the join order.
+     *
+     * @return the tables in join order
+     */
+    TableFilter[] bestOrder() {
+        if (condition != null) {
+            addJoins(condition);
+        }
+        int length = filters.length;
+        long[] rowCounts = new long[length];
+        for (int i = 0; i < length; i++) {
+            rowCounts[i] = filters[i].getTable().getRowCountApproximation(session);
+        }
+        boolean[] used = new boolean[length];
+        TableFilter[] order = new TableFilter[length];
+        for (int i = 0; i < length; i++) {
+            int next = -1;
+            boolean nextConnected = false;
+            for (int j = 0; j < length; j++) {
+                if (used[j]) {
+                    continue;
+                }
+                boolean connected = isConnected(j, used);
+                if (next < 0 || connected && !nextConnected
+                        || connected == nextConnected && rowCounts[j] < rowCounts[next]) {
+                    next = j;
+                    nextConnected = connected;
+                }
+            }
+            used[next] = true;
+            order[i] = filters[next];
+        }
+        return order;
     }
-   }
-  }
-  return graph;
- }
 
- private List<Expression> flattenAndConditions(Expression expr) {
-  List<Expression> result = new ArrayList<>();
-  if (expr instanceof ConditionAndOr) {
-   ConditionAndOr and = (ConditionAndOr) expr;
-   result.addAll(flattenAndConditions(and.getSubexpression(0)));
-   result.addAll(flattenAndConditions(and.getSubexpression(1)));
-  } else if (expr instanceof ConditionAndOrN) {
-   for (int i = 0; i < expr.getSubexpressionCount(); i++) {
-    result.addAll(flattenAndConditions(expr.getSubexpression(i)));
-   }
-  } else {
-   result.add(expr);
-  }
-  return result;
- }
+    private boolean isConnected(int filter, boolean[] used) {
+        boolean[] j = joins[filter];
+        for (int i = 0, length = j.length; i < length; i++) {
+            if (j[i] && used[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
 
- private TableFilter pickNextJoinable(List<TableFilter> current, List<TableFilter> remaining, Map<String, Set<String>> graph) {
-  Set<String> joined = current.stream()
-          .map(f -> f.getTable().getName())
-          .collect(Collectors.toSet());
+    private void addJoins(Expression e) {
+        if (e instanceof ConditionAndOr) {
+            if (((ConditionAndOr) e).getAndOrType() == ConditionAndOr.AND) {
+                addJoins(e.getSubexpression(0));
+                addJoins(e.getSubexpression(1));
+            }
+        } else if (e instanceof ConditionAndOrN) {
+            if (((ConditionAndOrN) e).getAndOrType() == ConditionAndOr.AND) {
+                for (int i = 0, count = e.getSubexpressionCount(); i < count; i++) {
+                    addJoins(e.getSubexpression(i));
+                }
+            }
+        } else if (e instanceof Comparison && ((Comparison) e).getCompareType() == Comparison.EQUAL) {
+            Expression left = e.getSubexpression(0), right = e.getSubexpression(1);
+            if (left instanceof ExpressionColumn && right instanceof ExpressionColumn) {
+                int a = indexOf(((ExpressionColumn) left).getTableFilter());
+                int b = indexOf(((ExpressionColumn) right).getTableFilter());
+                if (a >= 0 && b >= 0 && a != b) {
+                    joins[a][b] = true;
+                    joins[b][a] = true;
+                }
+            }
+        }
+    }
 
-  return remaining.stream()
-          .filter(f -> {
-           String name = f.getTable().getName();
-           Set<String> neighbors = graph.getOrDefault(name, Set.of());
-           return !Collections.disjoint(neighbors, joined);
-          })
-          .min(Comparator.comparingLong(f -> f.getTable().getRowCountApproximation(session)))
-          .orElse(null);
- }
+    private int indexOf(TableFilter filter) {
+        for (int i = 0, length = filters.length; i < length; i++) {
+            if (filters[i] == filter) {
+                return i;
+            }
+        }
+        return -1;
+    }
 
- private TableFilter pickMinTableFilter(List<TableFilter> filters) {
-  return filters.stream()
-          .min(Comparator.comparingLong(f -> f.getTable().getRowCountApproximation(session)))
-          .orElseThrow();
- }
 }
@@ -160,6 +160,12 @@ private enum QuickOffset { NO, YES, PARTIAL }
 
     private HashMap<String, Window> windows;
 
+    /**
+     * The last lazy result of this query, it releases the rows collected for
+     * joins when it is closed.
+     */
+    private LazyResultSelect openLazyResult;
+
     public Select(SessionLocal session, Select parentSelect) {
         super(session);
         this.parentSelect = parentSelect;
@@ -501,6 +507,21 @@ void setGroupData(final SelectGroups groupData) {
     }
 
     private void gatherGroup(int columnCount, int stage) {
+        if (stage == DataAnalysisOperation.STAGE_GROUP) {
+            ParallelAggregation parallel = getParallelAggregation(columnCount, false);
+            if (parallel != null && parallel.gather(groupData)) {
+                groupData.done();
+                return;
+            }
+        }
+        if (stage == DataAnalysisOperation.STAGE_GROUP && groupIndex == null && isVectorizedExecution()) {
+            VectorizedSelect vectorized = VectorizedSelect.getGroup(session, topTableFilter, condition, expressions,
+                    columnCount);
+            if (vectorized != null) {
+                gatherGroup(columnCount, vectorized);
+                return;
+            }
+        }
         long rowNumber = 0;
         setCurrentRowNumber(0);
         while (topTableFilter.next()) {
@@ -514,6 +535,49 @@ private void gatherGroup(int columnCount, int stage) {
         groupData.done();
     }
 
+    private void gatherGroup(int columnCount, VectorizedSelect vectorized) {
+        long rowNumber = 0;
+        setCurrentRowNumber(0);
+        while (vectorized.nextBatch()) {
+            int count = vectorized.updateAggregates(groupData);
+            if (count >= 0) {
+                rowNumber += count;
+                setCurrentRowNumber(rowNumber);
+                continue;
+            }
+            while (vectorized.nextRow()) {
+                setCurrentRowNumber(rowNumber + 1);
+                if (vectorized.isConditionMet()) {
+                    rowNumber++;
+                    groupData.nextSource();
+                    updateAgg(columnCount, DataAnalysisOperation.STAGE_GROUP);
+                }
+            }
+        }
+        groupData.done();
+    }
+
+    private boolean isVectorizedExecution() {
+        return forUpdate == null && !isWindowQuery && getDatabase().getSettings().vectorizedExecution;
+    }
+
+    private ParallelAggregation getParallelAggregation(int columnCount, boolean prepare) {
+        if (topTableFilter == null || forUpdate != null || isWindowQuery || !isGroupQuery || isGroupSortedQuery
+                || isQuickAggregateQuery) {
+            return null;
+        }
+        boolean[] grouping = null;
+        if (groupByExpression != null || groupByCopies != null) {
+            grouping = new boolean[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                grouping[i] = groupByExpression != null && groupByExpression[i]
+                        || groupByCopies != null && groupByCopies[i] >= 0;
+            }
+        }
+        return ParallelAggregation.get(getSession(), topTableFilter, condition, expressions, columnCount,
+                groupIndex, grouping, prepare);
+    }
+
 
     /**
      * Update any aggregate expressions with the query stage.
@@ -844,6 +908,7 @@ protected ResultInterface queryWithoutCache(long maxRows, ResultTarget target) {
         if (!lazy && (fetch >= 0 || offset > 0)) {
             result = createLocalResult(result);
         }
+        openLazyResult = null;
         topTableFilter.startQuery(session);
         topTableFilter.reset();
         topTableFilter.lock(session);
@@ -877,6 +942,11 @@ protected ResultInterface queryWithoutCache(long maxRows, ResultTarget target) {
             }
         }
         assert lazy == (lazyResult != null) : lazy;
+        if (lazyResult == null) {
+            topTableFilter.visit(TableFilter::endQuery);
+        } else {
+            openLazyResult = (LazyResultSelect) lazyResult;
+        }
         if (lazyResult != null) {
             if (fetch > 0) {
                 lazyResult.setLimit(fetch);
@@ -1303,6 +1373,11 @@ public void preparePlan() {
                 }
             }
         }
+        topTableFilter.visit(f -> f.checkMergeJoin(topTableFilter));
+        if (forUpdate == null) {
+            AllColumnsForPlan allColumnsSet = new AllColumnsForPlan(filters.toArray(new TableFilter[0]));
+            topTableFilter.visit(f -> f.setColumnsToRead(allColumnsSet));
+        }
         isPrepared = true;
     }
 
@@ -1357,6 +1432,9 @@ private double preparePlan(boolean parse) {
         }
 
         Optimizer optimizer = new Optimizer(topArray, condition, session);
+        if (!parse && topArray.length > 1) {
+            optimizer.setPlanCacheKey(getPlanCacheKey());
+        }
         optimizer.optimize(parse, /*isSelectCommand*/true);
         topTableFilter = optimizer.getTopFilter();
         double planCost = optimizer.getCost();
@@ -1369,6 +1447,32 @@ private double preparePlan(boolean parse) {
         return planCost;
     }
 
+    /**
+     * Returns the key of this query in the plan cache. The key contains the
+     * SQL text of the query, the current schema and the schema search path of
+     * the session, and the condition, because conditions may be added to
+     * queries of views and derived tables.
+     *
+     * @return the key, or {@code null} if the plan can't be cached
+     */
+    private String getPlanCacheKey() {
+        if (sqlStatement == null || session.getDatabase().getPlanCache() == null) {
+            return null;
+        }
+        StringBuilder builder = new StringBuilder(session.getCurrentSchemaName()).append('\n');
+        String[] schemaSearchPath = session.getSchemaSearchPath();
+        if (schemaSearchPath != null) {
+            for (String schemaName : schemaSearchPath) {
+                builder.append(schemaName).append(',');
+            }
+        }
+        builder.append('\n').append(sqlStatement);
+        if (condition != null) {
+            condition.getUnenclosedSQL(builder.append('\n'), DEFAULT_SQL_FLAGS);
+        }
+        return builder.toString();
+    }
+
     private void setEvaluatableRecursive(TableFilter f) {
         for (; f != null; f = f.getJoin()) {
             f.setEvaluatable(f, true);
@@ -1493,6 +1597,11 @@ public StringBuilder getPlanSQL(StringBuilder builder, int sqlFlags) {
             if (isGroupQuery) {
                 if (isGroupSortedQuery) {
                     builder.append("\n/* group sorted */");
+                } else {
+                    ParallelAggregation parallel = getParallelAggregation(expressions.size(), true);
+                    if (parallel != null) {
+                        builder.append("\n/* parallel: ").append(parallel.getWorkers()).append(" workers */");
+                    }
                 }
             }
             // builder.append("\n/* cost: " + cost + " */");
@@ -1846,6 +1955,16 @@ public void reset() {
             setCurrentRowNumber(0);
             rowNumber = 0;
         }
+
+        @Override
+        public void close() {
+            super.close();
+            // a newer result of the same query may use the filters already
+            if (openLazyResult == this) {
+                openLazyResult = null;
+                topTableFilter.visit(TableFilter::endQuery);
+            }
+        }
     }
 
     /**
@@ -1855,17 +1974,37 @@ private final class LazyResultQueryFlat extends LazyResultSelect {
 
         private final boolean forUpdate;
 
+        private final VectorizedSelect vectorized;
+
         LazyResultQueryFlat(Expression[] expressions, int columnCount, boolean forUpdate) {
             super(expressions, columnCount);
             this.forUpdate = forUpdate;
+            vectorized = isVectorizedExecution()
+                    ? VectorizedSelect.getFlat(getSession(), topTableFilter, condition) : null;
+        }
+
+        @Override
+        public void reset() {
+            super.reset();
+            if (vectorized != null) {
+                vectorized.reset();
+            }
+        }
+
+        private boolean nextSourceRow() {
+            return vectorized != null ? vectorized.next() : topTableFilter.next();
+        }
+
+        private boolean isSourceConditionMet() {
+            return vectorized != null ? vectorized.isConditionMet() : isConditionMet();
         }
 
         @Override
         protected Value[] fetchNextRow() {
-            while (topTableFilter.next()) {
+            while (nextSourceRow()) {
                 setCurrentRowNumber(rowNumber + 1);
                 // This method may lock rows
-                if (forUpdate ? isConditionMetForUpdate() : isConditionMet()) {
+                if (forUpdate ? isConditionMetForUpdate() : isSourceConditionMet()) {
                     ++rowNumber;
                     Value[] row = new Value[columnCount];
                     for (int i = 0; i < columnCount; i++) {
@@ -1880,10 +2019,10 @@ protected Value[] fetchNextRow() {
 
         @Override
         protected boolean skipNextRow() {
-            while (topTableFilter.next()) {
+            while (nextSourceRow()) {
                 setCurrentRowNumber(rowNumber + 1);
                 // This method does not lock rows
-                if (isConditionMet()) {
+                if (isSourceConditionMet()) {
                     ++rowNumber;
                     return true;
                 }
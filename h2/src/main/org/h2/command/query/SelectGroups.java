@@ -17,6 +17,7 @@
 import org.h2.expression.Expression;
 import org.h2.expression.analysis.DataAnalysisOperation;
 import org.h2.expression.analysis.PartitionData;
+import org.h2.message.DbException;
 import org.h2.value.Value;
 import org.h2.value.ValueRow;
 
@@ -79,8 +80,9 @@ public void reset() {
 
         @Override
         public void nextSource() {
+            ValueRow key;
             if (groupIndex == null) {
-                currentGroupsKey = ValueRow.EMPTY;
+                key = ValueRow.EMPTY;
             } else {
                 Value[] keyValues = new Value[groupIndex.length];
                 // update group
@@ -89,8 +91,14 @@ public void nextSource() {
                     Expression expr = expressions.get(idx);
                     keyValues[i] = expr.getValue(session);
                 }
-                currentGroupsKey = ValueRow.get(keyValues);
+                key = ValueRow.get(keyValues);
             }
+            nextSource(key);
+        }
+
+        @Override
+        void nextSource(ValueRow key) {
+            currentGroupsKey = key;
             Object[] values = groupByData.get(currentGroupsKey);
             if (values == null) {
                 values = createRow();
@@ -385,6 +393,18 @@ public void reset() {
      */
     public abstract void nextSource();
 
+    /**
+     * Setup all necessary data for aggregates of the group with the specified
+     * key. This method may be used only for grouped queries.
+     *
+     * @param key
+     *            the key of the group, {@link ValueRow#EMPTY} if there are no
+     *            grouping expressions
+     */
+    void nextSource(ValueRow key) {
+        throw DbException.getInternalError();
+    }
+
     /**
      * Invoked after all source rows are evaluated.
      */
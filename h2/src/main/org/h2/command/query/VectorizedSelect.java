@@ -0,0 +1,353 @@
+/*
+ * Copyright 2004-2025 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.command.query;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Map.Entry;
+
+import org.h2.engine.SessionLocal;
+import org.h2.expression.Alias;
+import org.h2.expression.Expression;
+import org.h2.expression.Operation0;
+import org.h2.expression.Operation1;
+import org.h2.expression.Operation1_2;
+import org.h2.expression.Operation2;
+import org.h2.expression.OperationN;
+import org.h2.expression.aggregate.Aggregate;
+import org.h2.expression.condition.Comparison;
+import org.h2.expression.condition.ConditionAndOr;
+import org.h2.expression.condition.ConditionAndOrN;
+import org.h2.expression.condition.ConditionNot;
+import org.h2.expression.vector.ValueVector;
+import org.h2.expression.vector.VectorBatch;
+import org.h2.expression.vector.VectorExpression;
+import org.h2.table.TableFilter;
+import org.h2.table.TableType;
+
+/**
+ * Batch-at-a-time execution of a simple query over a single table. Rows are
+ * read from the table filter in batches, conditions that can be evaluated over
+ * vectors of values are used to remove rows from the batch, and aggregates of
+ * an aggregate query without GROUP BY are updated with vectors of their
+ * arguments. If some batch can't be evaluated in this way, for example, due to
+ * an overflow, its rows are evaluated one by one.
+ */
+final class VectorizedSelect {
+
+    private final SessionLocal session;
+
+    private final TableFilter filter;
+
+    private final VectorBatch batch;
+
+    /**
+     * The full condition, used for batches evaluated row by row.
+     */
+    private final Expression condition;
+
+    /**
+     * Conjuncts of the condition evaluated over vectors.
+     */
+    private final VectorExpression[] conditions;
+
+    /**
+     * Remaining conjuncts of the condition.
+     */
+    private final Expression[] residualConditions;
+
+    private final Aggregate[] aggregates;
+
+    private final VectorExpression[] arguments;
+
+    private int index;
+
+    private boolean filtered;
+
+    private VectorizedSelect(SessionLocal session, TableFilter filter, Expression condition,
+            VectorExpression[] conditions, Expression[] residualConditions, Aggregate[] aggregates,
+            VectorExpression[] arguments) {
+        this.session = session;
+        this.filter = filter;
+        batch = new VectorBatch(filter);
+        this.condition = condition;
+        this.conditions = conditions;
+        this.residualConditions = residualConditions;
+        this.aggregates = aggregates;
+        this.arguments = arguments;
+    }
+
+    /**
+     * Creates batch-at-a-time execution of a flat query.
+     *
+     * @param session
+     *            the session
+     * @param filter
+     *            the top table filter
+     * @param condition
+     *            the condition, or {@code null}
+     * @return the batch-at-a-time execution, or {@code null} if it can't be
+     *         used
+     */
+    static VectorizedSelect getFlat(SessionLocal session, TableFilter filter, Expression condition) {
+        if (!isSimpleFilter(filter)) {
+            return null;
+        }
+        ArrayList<Expression> conjuncts = new ArrayList<>();
+        if (condition != null) {
+            addConjuncts(condition, conjuncts);
+        }
+        ArrayList<VectorExpression> conditions = new ArrayList<>();
+        ArrayList<Expression> residualConditions = new ArrayList<>();
+        for (Expression e : conjuncts) {
+            VectorExpression v = VectorExpression.get(session, e, filter);
+            if (v != null) {
+                conditions.add(v);
+            } else {
+                residualConditions.add(e);
+            }
+        }
+        return new VectorizedSelect(session, filter, condition, conditions.toArray(new VectorExpression[0]),
+                residualConditions.toArray(new Expression[0]), null, null);
+    }
+
+    /**
+     * Creates batch-at-a-time execution of an aggregate query without GROUP
+     * BY clause.
+     *
+     * @param session
+     *            the session
+     * @param filter
+     *            the top table filter
+     * @param condition
+     *            the condition, or {@code null}
+     * @param expressions
+     *            the expressions of the query
+     * @param columnCount
+     *            the number of expressions
+     * @return the batch-at-a-time execution, or {@code null} if it can't be
+     *         used
+     */
+    static VectorizedSelect getGroup(SessionLocal session, TableFilter filter, Expression condition,
+            ArrayList<Expression> expressions, int columnCount) {
+        if (!isSimpleFilter(filter)) {
+            return null;
+        }
+        VectorExpression[] conditions;
+        if (condition != null) {
+            VectorExpression v = VectorExpression.get(session, condition, filter);
+            if (v == null) {
+                return null;
+            }
+            conditions = new VectorExpression[] { v };
+        } else {
+            conditions = new VectorExpression[0];
+        }
+        IdentityHashMap<Aggregate, VectorExpression> map = new IdentityHashMap<>();
+        for (int i = 0; i < columnCount; i++) {
+            if (!addAggregates(session, filter, expressions.get(i), map)) {
+                return null;
+            }
+        }
+        int size = map.size();
+        Aggregate[] aggregates = new Aggregate[size];
+        VectorExpression[] arguments = new VectorExpression[size];
+        int i = 0;
+        for (Entry<Aggregate, VectorExpression> entry : map.entrySet()) {
+            aggregates[i] = entry.getKey();
+            arguments[i++] = entry.getValue();
+        }
+        return new VectorizedSelect(session, filter, condition, conditions, new Expression[0], aggregates,
+                arguments);
+    }
+
+    /**
+     * Check whether the specified table filter reads a plain table without
+     * joins and additional conditions.
+     *
+     * @param filter
+     *            the table filter
+     * @return whether rows of the table filter may be read in batches
+     */
+    static boolean isSimpleFilter(TableFilter filter) {
+        return filter.getJoin() == null && filter.getNestedJoin() == null && filter.getFilterCondition() == null
+                && filter.getJoinCondition() == null && filter.getTable().getTableType() == TableType.TABLE;
+    }
+
+    private static void addConjuncts(Expression condition, ArrayList<Expression> conjuncts) {
+        if (condition instanceof ConditionAndOr && ((ConditionAndOr) condition).getAndOrType() == ConditionAndOr.AND
+                || condition instanceof ConditionAndOrN
+                        && ((ConditionAndOrN) condition).getAndOrType() == ConditionAndOr.AND) {
+            for (int i = 0, l = condition.getSubexpressionCount(); i < l; i++) {
+                addConjuncts(condition.getSubexpression(i), conjuncts);
+            }
+        } else {
+            conjuncts.add(condition);
+        }
+    }
+
+    /**
+     * Collect aggregates of the specified expression together with vector
+     * expressions for their arguments.
+     *
+     * @param session
+     *            the session, or {@code null} to check only whether the
+     *            aggregates can be updated in batches
+     * @param filter
+     *            the top table filter
+     * @param e
+     *            the expression
+     * @param map
+     *            the map to add aggregates to
+     * @return {@code false} if the expression contains something that can't
+     *         be evaluated from vectorizable aggregates
+     */
+    static boolean addAggregates(SessionLocal session, TableFilter filter, Expression e,
+            IdentityHashMap<Aggregate, VectorExpression> map) {
+        if (e instanceof Aggregate) {
+            Aggregate aggregate = (Aggregate) e;
+            if (map.containsKey(aggregate)) {
+                return true;
+            }
+            if (!aggregate.isVectorizable()) {
+                return false;
+            }
+            VectorExpression argument = null;
+            if (aggregate.getSubexpressionCount() > 0) {
+                argument = VectorExpression.get(session, aggregate.getSubexpression(0), filter);
+                if (argument == null) {
+                    return false;
+                }
+            }
+            map.put(aggregate, argument);
+            return true;
+        } else if (e instanceof Alias) {
+            return addAggregates(session, filter, e.getNonAliasExpression(), map);
+        } else if (e instanceof Operation0) {
+            return true;
+        } else if (e instanceof Operation1 || e instanceof Operation1_2 || e instanceof Operation2
+                || e instanceof OperationN || e instanceof Comparison || e instanceof ConditionAndOr
+                || e instanceof ConditionAndOrN || e instanceof ConditionNot) {
+            for (int i = 0, l = e.getSubexpressionCount(); i < l; i++) {
+                if (!addAggregates(session, filter, e.getSubexpression(i), map)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        // Columns, subqueries, and other expressions
+        return false;
+    }
+
+    /**
+     * Read the next batch of rows and remove rows that don't match the
+     * conditions evaluated over vectors.
+     *
+     * @return {@code false} if there are no more rows
+     */
+    boolean nextBatch() {
+        while (batch.next() > 0) {
+            index = 0;
+            filtered = true;
+            for (VectorExpression c : conditions) {
+                ValueVector v = c.getValues(batch);
+                if (v == null) {
+                    filtered = false;
+                    break;
+                }
+                batch.select(v);
+            }
+            if (batch.getSize() > 0) {
+                return true;
+            }
+        }
+        index = 0;
+        return false;
+    }
+
+    /**
+     * Move the table filter to the next row of the current batch.
+     *
+     * @return {@code false} if there are no more rows in the current batch
+     */
+    boolean nextRow() {
+        if (index >= batch.getSize()) {
+            return false;
+        }
+        filter.set(batch.getRow(index++));
+        return true;
+    }
+
+    /**
+     * Move the table filter to the next row.
+     *
+     * @return {@code false} if there are no more rows
+     */
+    boolean next() {
+        while (!nextRow()) {
+            if (!nextBatch()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check whether the current row matches the remaining conditions.
+     *
+     * @return whether the current row matches the condition of the query
+     */
+    boolean isConditionMet() {
+        if (!filtered) {
+            return condition == null || condition.getBooleanValue(session);
+        }
+        for (Expression e : residualConditions) {
+            if (!e.getBooleanValue(session)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Update the aggregates with all rows of the current batch. The current
+     * batch must be filtered with the whole condition.
+     *
+     * @param groupData
+     *            the group data
+     * @return the number of rows, or {@code -1} if rows of this batch should
+     *         be processed one by one
+     */
+    int updateAggregates(SelectGroups groupData) {
+        if (!filtered) {
+            return -1;
+        }
+        int size = aggregates.length;
+        ValueVector[] values = new ValueVector[size];
+        for (int i = 0; i < size; i++) {
+            VectorExpression argument = arguments[i];
+            if (argument != null && (values[i] = argument.getValues(batch)) == null) {
+                return -1;
+            }
+        }
+        int count = batch.getSize();
+        groupData.nextSource();
+        for (int i = 0; i < size; i++) {
+            aggregates[i].updateVector(groupData, values[i], count);
+        }
+        index = count;
+        return count;
+    }
+
+    /**
+     * Discard the current batch.
+     */
+    void reset() {
+        batch.reset();
+        index = 0;
+    }
+
+}
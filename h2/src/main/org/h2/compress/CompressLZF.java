@@ -156,7 +156,26 @@ private static int hash(int h) {
 
     @Override
     public int compress(byte[] in, int inPos, int inLen, byte[] out, int outPos) {
-        int offset = inPos;
+        return compress(in, inPos, inPos, inLen, out, outPos);
+    }
+
+    /**
+     * Compress a number of bytes. The bytes before the input data, starting
+     * at the history position, are not compressed, but may be referenced by
+     * the compressed data. To expand the data, the same bytes need to precede
+     * the output area, see {@link #expand(byte[], int, int, byte[], int, int)}.
+     * Only the last 8 KB of the history are used.
+     *
+     * @param in the input data
+     * @param historyPos the position of the history in the input buffer
+     * @param inPos the offset at the input buffer
+     * @param inLen the number of bytes to compress
+     * @param out the output area
+     * @param outPos the offset at the output array
+     * @return the end position
+     */
+    public int compress(byte[] in, int historyPos, int inPos, int inLen, byte[] out, int outPos) {
+        int offset = historyPos;
         inLen += inPos;
         if (cachedHashTable == null) {
             cachedHashTable = new int[HASH_SIZE];
@@ -164,7 +183,13 @@ public int compress(byte[] in, int inPos, int inLen, byte[] out, int outPos) {
         int[] hashTab = cachedHashTable;
         int literals = 0;
         outPos++;
-        int future = first(in, inPos);
+        int p = Math.max(historyPos, inPos - MAX_OFF);
+        int future = first(in, p);
+        // add the history to the hash table, the same way as the input
+        for (; p < inPos && p < inLen - 2; p++) {
+            future = (future << 8) + (in[p + 2] & 255);
+            hashTab[hash(future)] = p;
+        }
         while (inPos < inLen - 4) {
             byte p2 = in[inPos + 2];
             // next
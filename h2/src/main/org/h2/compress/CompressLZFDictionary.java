@@ -0,0 +1,185 @@
+/*
+ * Copyright 2004-2025 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.compress;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * LZF compression with a preset dictionary. The dictionary precedes the data,
+ * so that back-references of the compressed data may point into it. This
+ * improves the compression ratio of small blocks of similar data, such as
+ * pages of the same map, because each block does not start with an empty
+ * history. The same dictionary is needed to expand the data.
+ * <p>
+ * A dictionary is trained from samples of the data. It consists of segments
+ * of the samples which contain the most frequent byte sequences; the most
+ * valuable segments are placed at the end, near the data, because LZF only
+ * references the last 8 KB.
+ * <p>
+ * Compression is not thread-safe, expansion is.
+ */
+public final class CompressLZFDictionary implements Compressor {
+
+    /**
+     * The length of byte sequences counted during training.
+     */
+    private static final int SEQUENCE_LENGTH = 6;
+
+    /**
+     * The length of segments copied from the samples into a dictionary.
+     */
+    private static final int SEGMENT_LENGTH = 64;
+
+    private static final int HASH_BITS = 16;
+
+    private final byte[] dictionary;
+
+    private final CompressLZF lzf = new CompressLZF();
+
+    /**
+     * The buffer with the dictionary followed by the data to compress.
+     */
+    private byte[] buffer;
+
+    /**
+     * Create a new compressor with the given dictionary.
+     *
+     * @param dictionary the dictionary, not copied
+     */
+    public CompressLZFDictionary(byte[] dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Get the dictionary.
+     *
+     * @return the dictionary, not copied
+     */
+    public byte[] getDictionary() {
+        return dictionary;
+    }
+
+    @Override
+    public int getAlgorithm() {
+        return Compressor.LZF_DICTIONARY;
+    }
+
+    @Override
+    public void setOptions(String options) {
+        // nothing to do
+    }
+
+    @Override
+    public int compress(byte[] in, int inPos, int inLen, byte[] out, int outPos) {
+        int dictionaryLength = dictionary.length;
+        int length = dictionaryLength + inLen;
+        byte[] buff = buffer;
+        if (buff == null || buff.length < length) {
+            buffer = buff = new byte[length];
+            System.arraycopy(dictionary, 0, buff, 0, dictionaryLength);
+        }
+        System.arraycopy(in, inPos, buff, dictionaryLength, inLen);
+        return lzf.compress(buff, 0, dictionaryLength, inLen, out, outPos);
+    }
+
+    @Override
+    public void expand(byte[] in, int inPos, int inLen, byte[] out, int outPos, int outLen) {
+        int dictionaryLength = dictionary.length;
+        byte[] buff = new byte[dictionaryLength + outLen];
+        System.arraycopy(dictionary, 0, buff, 0, dictionaryLength);
+        lzf.expand(in, inPos, inLen, buff, dictionaryLength, dictionaryLength + outLen);
+        System.arraycopy(buff, dictionaryLength, out, outPos, outLen);
+    }
+
+    /**
+     * Train a dictionary. Sequences of bytes are counted once per sample, so
+     * that sequences which are common to many samples are preferred.
+     * Segments of the samples with the highest count of such sequences are
+     * then added to the dictionary, the counts of sequences in a selected
+     * segment are cleared.
+     *
+     * @param samples the samples
+     * @param maxLength the maximum length of the dictionary
+     * @return the dictionary, may be shorter than the maximum length or empty
+     */
+    public static byte[] train(List<byte[]> samples, int maxLength) {
+        int sampleCount = samples.size();
+        int[][] hashes = new int[sampleCount][];
+        int[] counts = new int[1 << HASH_BITS];
+        int[] lastSample = new int[1 << HASH_BITS];
+        for (int i = 0; i < sampleCount; i++) {
+            byte[] sample = samples.get(i);
+            int[] h = hashes[i] = new int[Math.max(0, sample.length - SEQUENCE_LENGTH + 1)];
+            for (int p = 0; p < h.length; p++) {
+                int x = h[p] = hash(sample, p);
+                if (lastSample[x] != i + 1) {
+                    lastSample[x] = i + 1;
+                    counts[x]++;
+                }
+            }
+        }
+        // sequences that occur in one sample only are not useful
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] < 2) {
+                counts[i] = 0;
+            }
+        }
+        ArrayList<byte[]> segments = new ArrayList<>();
+        int length = 0;
+        // the sequences which start in a segment
+        int window = SEGMENT_LENGTH - SEQUENCE_LENGTH + 1;
+        while (length + SEGMENT_LENGTH <= maxLength) {
+            int best = -1, bestPos = 0;
+            long bestScore = 0;
+            for (int i = 0; i < sampleCount; i++) {
+                int[] h = hashes[i];
+                // the score of a segment is the sum of counts of its
+                // sequences, calculated using a sliding window
+                long score = 0;
+                for (int p = 0; p < h.length; p++) {
+                    score += counts[h[p]];
+                    if (p >= window) {
+                        score -= counts[h[p - window]];
+                    }
+                    if (p >= window - 1 && score > bestScore) {
+                        bestScore = score;
+                        best = i;
+                        bestPos = p - window + 1;
+                    }
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            byte[] segment = new byte[SEGMENT_LENGTH];
+            System.arraycopy(samples.get(best), bestPos, segment, 0, SEGMENT_LENGTH);
+            int[] h = hashes[best];
+            for (int p = bestPos; p < bestPos + window; p++) {
+                counts[h[p]] = 0;
+            }
+            segments.add(segment);
+            length += SEGMENT_LENGTH;
+        }
+        byte[] dictionary = new byte[length];
+        // the first segment is the best one and is placed at the end
+        int pos = length;
+        for (byte[] segment : segments) {
+            pos -= SEGMENT_LENGTH;
+            System.arraycopy(segment, 0, dictionary, pos, SEGMENT_LENGTH);
+        }
+        return dictionary;
+    }
+
+    private static int hash(byte[] data, int pos) {
+        int h = 0;
+        for (int i = 0; i < SEQUENCE_LENGTH; i++) {
+            h = h * 31 + data[pos + i];
+        }
+        return (h ^ h >>> HASH_BITS) & ((1 << HASH_BITS) - 1);
+    }
+
+}
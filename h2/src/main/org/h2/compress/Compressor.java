@@ -26,6 +26,11 @@ public interface Compressor {
      */
     int DEFLATE = 2;
 
+    /**
+     * The LZF compression algorithm with a preset dictionary is used.
+     */
+    int LZF_DICTIONARY = 3;
+
     /**
      * Get the compression algorithm type.
      *
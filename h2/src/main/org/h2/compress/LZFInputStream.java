@@ -5,6 +5,7 @@
  */
 package org.h2.compress;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import org.h2.mvstore.DataUtils;
@@ -66,6 +67,9 @@ private void readFully(byte[] buff, int len) throws IOException {
         int off = 0;
         while (len > 0) {
             int l = in.read(buff, off, len);
+            if (l < 0) {
+                throw new EOFException();
+            }
             len -= l;
             off += l;
         }
@@ -109,10 +113,24 @@ public int read(byte[] b, int off, int len) throws IOException {
             read += r;
             off += r;
             len -= r;
+            if (pos >= bufferLength && in.available() <= 0) {
+                // don't wait for the next block if the data is read from a
+                // socket
+                break;
+            }
         }
         return read == 0 ? -1 : read;
     }
 
+    @Override
+    public int available() throws IOException {
+        if (buffer != null && pos < bufferLength) {
+            return bufferLength - pos;
+        }
+        // the next block has started to arrive
+        return in.available();
+    }
+
     private int readBlock(byte[] b, int off, int len) throws IOException {
         fillBuffer();
         if (pos >= bufferLength) {
@@ -91,6 +91,7 @@ public void write(byte[] buff, int off, int len) throws IOException {
     public void flush() throws IOException {
         compressAndWrite(buffer, pos);
         pos = 0;
+        out.flush();
     }
 
     @Override
@@ -66,6 +66,12 @@ public class Constants {
      */
     public static final int TCP_PROTOCOL_VERSION_21 = 21;
 
+    /**
+     * The TCP protocol version number 22.
+     * @since 2.3.240 (TODO)
+     */
+    public static final int TCP_PROTOCOL_VERSION_22 = 22;
+
     /**
      * Minimum supported version of TCP protocol.
      */
@@ -74,7 +80,7 @@ public class Constants {
     /**
      * Maximum supported version of TCP protocol.
      */
-    public static final int TCP_PROTOCOL_VERSION_MAX_SUPPORTED = TCP_PROTOCOL_VERSION_21;
+    public static final int TCP_PROTOCOL_VERSION_MAX_SUPPORTED = TCP_PROTOCOL_VERSION_22;
 
     /**
      * The major version of this database.
@@ -433,6 +439,11 @@ public class Constants {
      */
     public static final String SUFFIX_MV_STORE_TEMP_FILE = ".tempFile";
 
+    /**
+     * The file name suffix of redo log files.
+     */
+    public static final String SUFFIX_REDO_FILE = ".redo.db";
+
     /**
      * The file name suffix of temporary files.
      */
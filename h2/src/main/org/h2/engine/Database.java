@@ -29,6 +29,7 @@
 import org.h2.command.Prepared;
 import org.h2.command.ddl.CreateTableData;
 import org.h2.command.dml.SetTypes;
+import org.h2.command.query.PlanCache;
 import org.h2.constraint.Constraint;
 import org.h2.constraint.Constraint.Type;
 import org.h2.engine.Mode.ModeEnum;
@@ -213,6 +214,7 @@ public final class Database implements DataHandler, CastDataProvider {
     private volatile boolean queryStatistics;
     private int queryStatisticsMaxEntries = Constants.QUERY_STATISTICS_MAX_ENTRIES;
     private final AtomicReference<QueryStatisticsData> queryStatisticsData = new AtomicReference<>();
+    private final PlanCache planCache;
     private RowFactory rowFactory = RowFactory.getRowFactory();
     private boolean ignoreCatalogs;
 
@@ -226,6 +228,7 @@ public Database(ConnectionInfo ci, String cipher) {
         }
         String databaseName = ci.getName();
         this.dbSettings = ci.getDbSettings();
+        this.planCache = dbSettings.planCacheSize > 0 ? new PlanCache(dbSettings.planCacheSize) : null;
         this.compareMode = CompareMode.getInstance(null, 0);
         this.persistent = ci.isPersistent();
         this.filePasswordHash = ci.getFilePasswordHash();
@@ -348,7 +351,7 @@ public Database(ConnectionInfo ci, String cipher) {
             systemSession = createSession(systemUser);
             lobSession = createSession(systemUser);
             Set<String> settingKeys = dbSettings.getSettings().keySet();
-            store.getTransactionStore().init(lobSession);
+            store.initTransactionStore(lobSession);
             settingKeys.removeIf(name -> name.startsWith("PAGE_STORE_"));
             CreateTableData data = createSysTableData();
             starting = true;
@@ -536,6 +539,12 @@ public void populateInfo(BiConsumer<String, String> consumer) {
         for (Map.Entry<String, String> entry : getSettings().getSortedSettings()) {
             consumer.accept(entry.getKey(), entry.getValue());
         }
+        if (planCache != null) {
+            consumer.accept("info.PLAN_CACHE_SIZE", Integer.toString(planCache.getSize()));
+            consumer.accept("info.PLAN_CACHE_HITS", Long.toString(planCache.getHits()));
+            consumer.accept("info.PLAN_CACHE_MISSES", Long.toString(planCache.getMisses()));
+            consumer.accept("info.PLAN_CACHE_EVICTIONS", Long.toString(planCache.getEvictions()));
+        }
         getStore().getMvStore().populateInfo(consumer);
     }
 
@@ -2075,6 +2084,15 @@ public QueryStatisticsData getQueryStatisticsData() {
         return statisticsData;
     }
 
+    /**
+     * Returns the plan cache shared by all sessions.
+     *
+     * @return the plan cache, or {@code null} if it is disabled
+     */
+    public PlanCache getPlanCache() {
+        return planCache;
+    }
+
     /**
      * Check if the database is currently opening. This is true until all stored
      * SQL statements have been executed.
@@ -65,6 +65,15 @@ public class DbSettings extends SettingsBase {
      */
     public final int autoCompactFillRate = get("AUTO_COMPACT_FILL_RATE", 90);
 
+    /**
+     * Database setting <code>AUTO_COMPACT_RATE</code>
+     * (default: 0, which means the rate is not limited).
+     * The maximum rate of background compaction in KB per second. If set,
+     * chunks are rewritten and moved in small steps spread over time.
+     * This setting only affects MVStore engine.
+     */
+    public final int autoCompactRate = get("AUTO_COMPACT_RATE", 0);
+
     /**
      * Database setting <code>DATABASE_TO_LOWER</code> (default: false).
      * When set to true unquoted identifiers and short name of database are
@@ -152,6 +161,26 @@ public class DbSettings extends SettingsBase {
      */
     public final int maxQueryTimeout = get("MAX_QUERY_TIMEOUT", 0);
 
+    /**
+     * Database setting <code>MEMORY_MAPPED</code> (default: false).
+     * If enabled, the database file is read through read-only memory mapped
+     * segments instead of the file channel, writes still use the file channel.
+     * This setting has no effect for encrypted databases and if the database is
+     * already open.
+     */
+    public final boolean memoryMapped = get("MEMORY_MAPPED", false);
+
+    /**
+     * Database setting <code>OFF_HEAP_CACHE_SIZE</code> (default: 0).
+     * The size of the second level cache of serialized pages in MB. This
+     * cache uses direct memory outside of the Java heap, the maximum amount
+     * of direct memory of the JVM may need to be increased. Pages that are
+     * not in the cache (see CACHE_SIZE) are read from this cache before they
+     * are read from the file. The default is 0, meaning this cache is not
+     * used. This setting has no effect if the database is already open.
+     */
+    public final int offHeapCacheSize = get("OFF_HEAP_CACHE_SIZE", 0);
+
     /**
      * Database setting <code>OPTIMIZE_DISTINCT</code> (default: true).
      * Improve the performance of simple DISTINCT queries if an index is
@@ -174,6 +203,13 @@ public class DbSettings extends SettingsBase {
     public final boolean optimizeEvaluatableSubqueries = get(
             "OPTIMIZE_EVALUATABLE_SUBQUERIES", true);
 
+    /**
+     * Database setting <code>OPTIMIZE_HASH_JOIN</code> (default: true).
+     * Allow the optimizer to use a hash join for equality join conditions
+     * when the joined table has no usable index.
+     */
+    public final boolean optimizeHashJoin = get("OPTIMIZE_HASH_JOIN", true);
+
     /**
      * Database setting <code>OPTIMIZE_INSERT_FROM_SELECT</code>
      * (default: true).
@@ -197,6 +233,14 @@ public class DbSettings extends SettingsBase {
      */
     public final boolean optimizeInSelect = get("OPTIMIZE_IN_SELECT", true);
 
+    /**
+     * Database setting <code>OPTIMIZE_MERGE_JOIN</code> (default: true).
+     * Allow the optimizer to use a merge join for equality join conditions
+     * when rows of the first table are sorted by the join key and the joined
+     * table has an index sorted by the join key.
+     */
+    public final boolean optimizeMergeJoin = get("OPTIMIZE_MERGE_JOIN", true);
+
     /**
      * Database setting <code>OPTIMIZE_OR</code> (default: true).
      * Convert (C=? OR C=?) to (C IN(?, ?)).
@@ -216,6 +260,14 @@ public class DbSettings extends SettingsBase {
      */
     public final boolean optimizeSimpleSingleRowSubqueries = get("OPTIMIZE_SIMPLE_SINGLE_ROW_SUBQUERIES", true);
 
+    /**
+     * Database setting <code>PLAN_CACHE_SIZE</code> (default: 256).
+     * The size of the plan cache, in number of cached join orders. The cache
+     * is shared by all sessions and is used for queries with the same SQL
+     * text, current schema, and schema search path. 0 disables the cache.
+     */
+    public final int planCacheSize = get("PLAN_CACHE_SIZE", 256);
+
     /**
      * Database setting <code>QUERY_CACHE_SIZE</code> (default: 8).
      * The size of the query cache, in number of cached statements. Each session
@@ -235,6 +287,16 @@ public class DbSettings extends SettingsBase {
      */
     public final boolean recompileAlways = get("RECOMPILE_ALWAYS", false);
 
+    /**
+     * Database setting <code>REDO_LOG</code> (default: false).
+     * If enabled, changes of committed transactions are appended to a redo
+     * log file, and a commit returns when the log is forced to the disk, one
+     * sync is shared by all transactions committed at the same time. Changes
+     * are still written to the database file in the background. This setting
+     * has no effect if the database is already open.
+     */
+    public final boolean redoLog = get("REDO_LOG", false);
+
     /**
      * Database setting <code>REUSE_SPACE</code> (default: true).
      * If disabled, all changes are appended to the database file, and existing
@@ -253,6 +315,25 @@ public class DbSettings extends SettingsBase {
     public final boolean shareLinkedConnections = get(
             "SHARE_LINKED_CONNECTIONS", true);
 
+    /**
+     * Database setting <code>VECTORIZED_EXECUTION</code>
+     * (default: false).
+     * Evaluate conditions and aggregates of simple queries over a single table
+     * in batches of rows.
+     */
+    public final boolean vectorizedExecution = get("VECTORIZED_EXECUTION", false);
+
+    /**
+     * Database setting <code>ZONE_MAPS</code>
+     * (default: false).
+     * Keep the minimum and the maximum values of columns of tables of the
+     * default engine for each range of 1024 row keys. The bounds are kept in
+     * memory, they are collected by the first scan of a table with comparison
+     * conditions on columns without an index, and such scans skip the ranges
+     * that can't contain matching rows.
+     */
+    public final boolean zoneMaps = get("ZONE_MAPS", false);
+
     /**
      * Database setting <code>DEFAULT_TABLE_ENGINE</code>
      * (default: null).
@@ -274,6 +355,16 @@ public class DbSettings extends SettingsBase {
      */
     public final boolean compressData = get("COMPRESS", false);
 
+    /**
+     * Database setting <code>COMPRESS_DICTIONARY</code>
+     * (default: false).
+     * Compress data using the LZF algorithm with a dictionary per table or
+     * index, trained from the data. This improves the compression ratio of
+     * small pages. Older versions can not read databases written with this
+     * setting.
+     */
+    public final boolean compressDictionary = get("COMPRESS_DICTIONARY", false);
+
     /**
      * Database setting <code>IGNORE_CATALOGS</code>
      * (default: false).
@@ -192,6 +192,7 @@ static Session getThreadLocalSession() {
     private volatile SmallLRUCache<Object, QueryExpressionIndex> viewIndexCache;
     private HashMap<Object, QueryExpressionIndex> derivedTableIndexCache;
     private boolean lazyQueryExecution;
+    private int maxParallelWorkers = 1;
 
     private BitSet nonKeywords;
 
@@ -283,6 +284,25 @@ public boolean isLazyQueryExecution() {
         return lazyQueryExecution;
     }
 
+    /**
+     * Set the maximum number of threads used by a query.
+     *
+     * @param maxParallelWorkers the maximum number of threads, {@code 1}
+     *            disables parallel execution
+     */
+    public void setMaxParallelWorkers(int maxParallelWorkers) {
+        this.maxParallelWorkers = maxParallelWorkers;
+    }
+
+    /**
+     * Get the maximum number of threads used by a query.
+     *
+     * @return the maximum number of threads
+     */
+    public int getMaxParallelWorkers() {
+        return maxParallelWorkers;
+    }
+
     /**
      * This method is called before and after parsing of view definition and may
      * be called recursively.
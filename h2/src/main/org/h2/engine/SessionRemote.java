@@ -9,6 +9,7 @@
 import java.net.Socket;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import org.h2.api.DatabaseEventListener;
 import org.h2.api.ErrorCode;
 import org.h2.api.JavaObjectSerializer;
@@ -25,6 +26,7 @@
 import org.h2.message.Trace;
 import org.h2.message.TraceSystem;
 import org.h2.result.ResultInterface;
+import org.h2.result.ResultRemote;
 import org.h2.store.DataHandler;
 import org.h2.store.FileStore;
 import org.h2.store.LobStorageFrontend;
@@ -110,6 +112,16 @@ public final class SessionRemote extends Session implements DataHandler {
 
     private volatile DynamicSettings dynamicSettings;
 
+    /**
+     * The result that has requested rows ahead, or null.
+     */
+    private ResultRemote prefetchingResult;
+
+    /**
+     * The transfer used by the prefetching result.
+     */
+    private Transfer prefetchingTransfer;
+
     public SessionRemote(ConnectionInfo ci) {
         this.connectionInfo = ci;
         oldInformationSchema = ci.getProperty("OLD_INFORMATION_SCHEMA", false);
@@ -140,7 +152,10 @@ private Transfer initTransfer(ConnectionInfo ci, String db, String server)
         trans.writeString(ci.getUserName());
         trans.writeBytes(ci.getUserPasswordHash());
         trans.writeBytes(ci.getFilePasswordHash());
-        String[] keys = ci.getKeys();
+        boolean compress = ci.getProperty("NETWORK_COMPRESSION", false);
+        // compression is negotiated below, older servers don't know the setting
+        String[] keys = Arrays.stream(ci.getKeys()).filter(key -> !"NETWORK_COMPRESSION".equals(key))
+                .toArray(String[]::new);
         trans.writeInt(keys.length);
         for (String key : keys) {
             trans.writeString(key).writeString(ci.getProperty(key));
@@ -149,6 +164,12 @@ private Transfer initTransfer(ConnectionInfo ci, String db, String server)
             done(trans);
             clientVersion = trans.readInt();
             trans.setVersion(clientVersion);
+            if (clientVersion >= Constants.TCP_PROTOCOL_VERSION_22) {
+                trans.writeBoolean(compress);
+                if (compress) {
+                    trans.setCompressed();
+                }
+            }
             if (ci.getFileEncryptionKey() != null) {
                 trans.writeBytes(ci.getFileEncryptionKey());
             }
@@ -511,6 +532,8 @@ private boolean autoReconnect(int count) {
             return false;
         }
         lastReconnect++;
+        prefetchingResult = null;
+        prefetchingTransfer = null;
         while (true) {
             try {
                 embedded = connectEmbeddedOrServer(false);
@@ -614,6 +637,7 @@ public int getCurrentId() {
      */
     public void done(Transfer transfer) throws IOException {
         transfer.flush();
+        readPrefetchedRows(transfer);
         int status = transfer.readInt();
         switch (status) {
         case STATUS_ERROR:
@@ -633,6 +657,36 @@ public void done(Transfer transfer) throws IOException {
         }
     }
 
+    /**
+     * Set the result that has sent a request for the next rows without
+     * waiting for the response. The response is read before the response to
+     * any later request sent with the same transfer.
+     *
+     * @param result the result
+     * @param transfer the transfer used for the request
+     */
+    public void setPrefetchingResult(ResultRemote result, Transfer transfer) {
+        prefetchingResult = result;
+        prefetchingTransfer = transfer;
+    }
+
+    /**
+     * Read the response to the pending request for rows ahead, if it was sent
+     * with the given transfer.
+     *
+     * @param transfer the transfer
+     * @throws IOException if there is a communication problem between client
+     *             and server
+     */
+    public void readPrefetchedRows(Transfer transfer) throws IOException {
+        ResultRemote result = prefetchingResult;
+        if (result != null && prefetchingTransfer == transfer) {
+            prefetchingResult = null;
+            prefetchingTransfer = null;
+            result.readPrefetchedRows();
+        }
+    }
+
     /**
      * Reads an exception.
      *
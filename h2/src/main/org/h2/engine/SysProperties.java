@@ -307,6 +307,28 @@ public class SysProperties {
     public static final int SERVER_RESULT_SET_FETCH_SIZE =
             Utils.getProperty("h2.serverResultSetFetchSize", 100);
 
+    /**
+     * System property <code>h2.serverResultSetFetchBytes</code>
+     * (default: 1048576).
+     * When using the server mode with the default fetch size, the number of
+     * rows fetched at once is doubled while the client waits for rows from
+     * the server, as long as a batch is estimated to use at most this many
+     * bytes. Use 0 to always fetch the configured number of rows.
+     */
+    public static final int SERVER_RESULT_SET_FETCH_BYTES =
+            Utils.getProperty("h2.serverResultSetFetchBytes", 1024 * 1024);
+
+    /**
+     * System property <code>h2.serverResultSetPrefetch</code>
+     * (default: true).
+     * When using the server mode, read the next rows of a result set ahead:
+     * the request for the next batch is sent while the client processes the
+     * current rows, so the round trip overlaps with the work of the client.
+     * At most one batch is requested ahead, other requests are not pipelined.
+     */
+    public static final boolean SERVER_RESULT_SET_PREFETCH =
+            Utils.getProperty("h2.serverResultSetPrefetch", true);
+
     /**
      * System property <code>h2.socketConnectRetry</code> (default: 16).
      * The number of times to retry opening a socket. Windows sometimes fails
@@ -20,6 +20,7 @@
 import org.h2.api.ErrorCode;
 import org.h2.command.query.QueryOrderBy;
 import org.h2.command.query.Select;
+import org.h2.command.query.SelectGroups;
 import org.h2.engine.Constants;
 import org.h2.engine.Database;
 import org.h2.engine.SessionLocal;
@@ -34,6 +35,7 @@
 import org.h2.expression.function.BitFunction;
 import org.h2.expression.function.GCDFunction;
 import org.h2.expression.function.JsonConstructorFunction;
+import org.h2.expression.vector.ValueVector;
 import org.h2.index.Cursor;
 import org.h2.index.Index;
 import org.h2.message.DbException;
@@ -417,6 +419,208 @@ protected void updateFromExpressions(SessionLocal session, Object aggregateData,
         }
     }
 
+    /**
+     * Returns whether this aggregate can be updated with
+     * {@link #updateVector(SelectGroups, ValueVector, int)} and
+     * whether its partial results can be merged.
+     *
+     * @return whether this aggregate can be updated with vectors of values
+     */
+    public boolean isVectorizable() {
+        if (distinct || filterCondition != null || over != null) {
+            return false;
+        }
+        switch (aggregateType) {
+        case COUNT_ALL:
+            return true;
+        case COUNT:
+        case MIN:
+        case MAX:
+            return ValueVector.isSupported(args[0].getType().getValueType());
+        case SUM:
+        case AVG:
+            switch (args[0].getType().getValueType()) {
+            case Value.TINYINT:
+            case Value.SMALLINT:
+            case Value.INTEGER:
+            case Value.BIGINT:
+            case Value.DOUBLE:
+                return true;
+            default:
+                return false;
+            }
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Update the current group of this aggregate with the specified number of
+     * rows.
+     *
+     * @param groupData
+     *            the group data
+     * @param argument
+     *            values of the argument, or {@code null} for COUNT(*)
+     * @param count
+     *            the number of rows
+     */
+    public void updateVector(SelectGroups groupData, ValueVector argument, int count) {
+        updatePartialData(getGroupData(groupData, false), argument, count);
+    }
+
+    /**
+     * Create a new partial result of this aggregate. Partial results may be
+     * computed concurrently in different threads and merged into the group
+     * data later.
+     *
+     * @return the new partial result
+     */
+    public Object createPartialData() {
+        return createAggregateData();
+    }
+
+    /**
+     * Update a partial result of this aggregate with a value of a vector. The
+     * session isn't used, so this method may be invoked by any thread.
+     *
+     * @param partialData
+     *            the partial result
+     * @param v
+     *            the value of the argument, or {@code null} for COUNT(*)
+     */
+    public void updatePartialData(Object partialData, Value v) {
+        AggregateData data = (AggregateData) partialData;
+        if (aggregateType == AggregateType.COUNT_ALL) {
+            ((AggregateDataCount) data).add(1L);
+        } else if (v != ValueNull.INSTANCE) {
+            if (aggregateType == AggregateType.COUNT) {
+                ((AggregateDataCount) data).add(1L);
+            } else {
+                addVectorValue(data, v);
+            }
+        }
+    }
+
+    /**
+     * Merge a partial result into the current group of this aggregate.
+     *
+     * @param session
+     *            the session
+     * @param groupData
+     *            the group data
+     * @param partialData
+     *            the partial result
+     */
+    public void mergePartialData(SessionLocal session, SelectGroups groupData, Object partialData) {
+        ((AggregateData) getGroupData(groupData, false)).merge(session, (AggregateData) partialData);
+    }
+
+    /**
+     * Update a partial result of this aggregate with the specified number of
+     * rows. The session isn't used, so this method may be invoked by any
+     * thread.
+     *
+     * @param partialData
+     *            the partial result
+     * @param argument
+     *            values of the argument, or {@code null} for COUNT(*)
+     * @param count
+     *            the number of rows
+     */
+    public void updatePartialData(Object partialData, ValueVector argument, int count) {
+        AggregateData data = (AggregateData) partialData;
+        switch (aggregateType) {
+        case COUNT_ALL:
+            ((AggregateDataCount) data).add(count);
+            return;
+        case COUNT: {
+            long c = count;
+            if (argument.hasNulls()) {
+                for (int i = 0; i < count; i++) {
+                    if (argument.isNull(i)) {
+                        c--;
+                    }
+                }
+            }
+            ((AggregateDataCount) data).add(c);
+            return;
+        }
+        case MIN:
+        case MAX:
+            updateVectorMinMax(data, argument, count);
+            return;
+        default:
+        }
+        if (argument.isDouble()) {
+            // Exact sums of DOUBLE values are computed as DECFLOAT values
+            for (int i = 0; i < count; i++) {
+                if (!argument.isNull(i)) {
+                    addVectorValue(data, ValueDouble.get(argument.getDouble(i)));
+                }
+            }
+            return;
+        }
+        long sum = 0L;
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            if (argument.isNull(i)) {
+                continue;
+            }
+            long v = argument.getLong(i);
+            long s = sum + v;
+            if (((sum ^ s) & (v ^ s)) < 0) {
+                // Overflow
+                updateVectorSum(data, sum, n);
+                s = v;
+                n = 0;
+            }
+            sum = s;
+            n++;
+        }
+        if (n > 0) {
+            updateVectorSum(data, sum, n);
+        }
+    }
+
+    private void updateVectorMinMax(AggregateData data, ValueVector argument, int count) {
+        boolean min = aggregateType == AggregateType.MIN;
+        int index = -1;
+        for (int i = 0; i < count; i++) {
+            if (argument.isNull(i)) {
+                continue;
+            }
+            if (index < 0) {
+                index = i;
+            } else {
+                int c = argument.isDouble() ? Double.compare(argument.getDouble(i), argument.getDouble(index))
+                        : Long.compare(argument.getLong(i), argument.getLong(index));
+                if (min ? c < 0 : c > 0) {
+                    index = i;
+                }
+            }
+        }
+        if (index >= 0) {
+            ((AggregateDataDefault) data).addVectorValue(argument.getValue(index));
+        }
+    }
+
+    private void updateVectorSum(AggregateData data, long sum, int count) {
+        if (aggregateType == AggregateType.AVG) {
+            ((AggregateDataAvg) data).add(ValueBigint.get(sum), count);
+        } else {
+            ((AggregateDataDefault) data).addVectorValue(ValueBigint.get(sum));
+        }
+    }
+
+    private void addVectorValue(AggregateData data, Value v) {
+        if (aggregateType == AggregateType.AVG) {
+            ((AggregateDataAvg) data).add(v, 1L);
+        } else {
+            ((AggregateDataDefault) data).addVectorValue(v);
+        }
+    }
+
     @Override
     protected Object createAggregateData() {
         switch (aggregateType) {
@@ -41,10 +41,19 @@ final class AggregateDataAvg extends AggregateData {
 
     @Override
     void add(SessionLocal session, Value v) {
-        if (v == ValueNull.INSTANCE) {
-            return;
+        if (v != ValueNull.INSTANCE) {
+            add(v, 1L);
         }
-        count++;
+    }
+
+    /**
+     * Add the sum of the specified number of values.
+     *
+     * @param v the sum of values
+     * @param count the number of values
+     */
+    void add(Value v, long count) {
+        this.count += count;
         switch (dataType.getValueType()) {
         case Value.DOUBLE:
             doubleValue += v.getDouble();
@@ -62,6 +71,19 @@ void add(SessionLocal session, Value v) {
         }
     }
 
+    @Override
+    void merge(SessionLocal session, AggregateData other) {
+        AggregateDataAvg o = (AggregateDataAvg) other;
+        count += o.count;
+        doubleValue += o.doubleValue;
+        if (o.decimalValue != null) {
+            decimalValue = decimalValue == null ? o.decimalValue : decimalValue.add(o.decimalValue);
+        }
+        if (o.integerValue != null) {
+            integerValue = integerValue == null ? o.integerValue : integerValue.add(o.integerValue);
+        }
+    }
+
     @Override
     Value getValue(SessionLocal session) {
         if (count == 0) {
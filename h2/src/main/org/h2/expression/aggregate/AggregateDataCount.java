@@ -30,6 +30,20 @@ void add(SessionLocal session, Value v) {
         }
     }
 
+    /**
+     * Add the specified number of rows.
+     *
+     * @param count the number of rows
+     */
+    void add(long count) {
+        this.count += count;
+    }
+
+    @Override
+    void merge(SessionLocal session, AggregateData other) {
+        count += ((AggregateDataCount) other).count;
+    }
+
     @Override
     Value getValue(SessionLocal session) {
         return ValueBigint.get(count);
@@ -38,12 +38,7 @@ void add(SessionLocal session, Value v) {
         }
         switch (aggregateType) {
         case SUM:
-            if (value == null) {
-                value = v.convertTo(dataType.getValueType());
-            } else {
-                v = v.convertTo(value.getValueType());
-                value = value.add(v);
-            }
+            addSum(v);
             break;
         case MIN:
             if (value == null || session.compare(v, value) < 0) {
@@ -100,6 +95,50 @@ void add(SessionLocal session, Value v) {
         }
     }
 
+    /**
+     * Add a value of a vector of values to a SUM, MIN, or MAX aggregate.
+     * Values of vectors are numbers, dates, or booleans, they are compared
+     * without a session, so this method may be used by any thread.
+     *
+     * @param v the value, not NULL
+     */
+    void addVectorValue(Value v) {
+        switch (aggregateType) {
+        case SUM:
+            addSum(v);
+            break;
+        case MIN:
+            if (value == null || v.compareTypeSafe(value, null, null) < 0) {
+                value = v;
+            }
+            break;
+        case MAX:
+            if (value == null || v.compareTypeSafe(value, null, null) > 0) {
+                value = v;
+            }
+            break;
+        default:
+            throw DbException.getInternalError("type=" + aggregateType);
+        }
+    }
+
+    private void addSum(Value v) {
+        if (value == null) {
+            value = v.convertTo(dataType.getValueType());
+        } else {
+            v = v.convertTo(value.getValueType());
+            value = value.add(v);
+        }
+    }
+
+    @Override
+    void merge(SessionLocal session, AggregateData other) {
+        Value v = ((AggregateDataDefault) other).value;
+        if (v != null) {
+            add(session, v);
+        }
+    }
+
     @SuppressWarnings("incomplete-switch")
     @Override
     Value getValue(SessionLocal session) {
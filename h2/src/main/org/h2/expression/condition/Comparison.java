@@ -124,6 +124,15 @@ public Comparison(int compareType, Expression left, Expression right, boolean wh
         this.whenOperand = whenOperand;
     }
 
+    /**
+     * Returns the type of this comparison.
+     *
+     * @return the type of this comparison
+     */
+    public int getCompareType() {
+        return compareType;
+    }
+
     @Override
     public boolean needParentheses() {
         return true;
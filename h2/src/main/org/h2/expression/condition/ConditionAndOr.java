@@ -49,7 +49,12 @@ public ConditionAndOr(int andOrType, Expression left, Expression right) {
         this.right = right;
     }
 
-    int getAndOrType() {
+    /**
+     * Returns the type of this condition.
+     *
+     * @return {@link #AND} or {@link #OR}
+     */
+    public int getAndOrType() {
         return this.andOrType;
     }
 
@@ -0,0 +1,286 @@
+/*
+ * Copyright 2004-2025 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.expression.vector;
+
+import java.util.Arrays;
+
+import org.h2.message.DbException;
+import org.h2.value.Value;
+import org.h2.value.ValueBigint;
+import org.h2.value.ValueBoolean;
+import org.h2.value.ValueDate;
+import org.h2.value.ValueDouble;
+import org.h2.value.ValueInteger;
+import org.h2.value.ValueNull;
+import org.h2.value.ValueSmallint;
+import org.h2.value.ValueTinyint;
+
+/**
+ * Values of an expression for a batch of rows. Values of BOOLEAN, TINYINT,
+ * SMALLINT, INTEGER, BIGINT, and DATE data types are stored in an array of
+ * long values, values of DOUBLE data type are stored in an array of double
+ * values.
+ */
+public final class ValueVector {
+
+    private final int valueType;
+
+    private final long[] longs;
+
+    private final double[] doubles;
+
+    private final boolean[] nulls;
+
+    private int size;
+
+    private boolean hasNulls;
+
+    /**
+     * Creates a new vector.
+     *
+     * @param valueType
+     *            the data type of values
+     * @param capacity
+     *            the maximum number of values
+     */
+    public ValueVector(int valueType, int capacity) {
+        this.valueType = valueType;
+        if (valueType == Value.DOUBLE) {
+            longs = null;
+            doubles = new double[capacity];
+        } else {
+            longs = new long[capacity];
+            doubles = null;
+        }
+        nulls = new boolean[capacity];
+    }
+
+    /**
+     * Check whether the specified data type can be stored in a vector.
+     *
+     * @param valueType
+     *            the data type
+     * @return whether the data type is supported
+     */
+    public static boolean isSupported(int valueType) {
+        switch (valueType) {
+        case Value.BOOLEAN:
+        case Value.TINYINT:
+        case Value.SMALLINT:
+        case Value.INTEGER:
+        case Value.BIGINT:
+        case Value.DOUBLE:
+        case Value.DATE:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Returns the data type of values.
+     *
+     * @return the data type of values
+     */
+    public int getValueType() {
+        return valueType;
+    }
+
+    /**
+     * Returns whether values are stored as double values.
+     *
+     * @return {@code true} for DOUBLE data type, {@code false} for other data
+     *         types
+     */
+    public boolean isDouble() {
+        return doubles != null;
+    }
+
+    /**
+     * Returns the number of values.
+     *
+     * @return the number of values
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns whether some values are NULL.
+     *
+     * @return whether some values are NULL
+     */
+    public boolean hasNulls() {
+        return hasNulls;
+    }
+
+    /**
+     * Remove all values and set the new number of values. All values are
+     * initially not NULL.
+     *
+     * @param size
+     *            the new number of values
+     */
+    void reset(int size) {
+        this.size = size;
+        if (hasNulls) {
+            Arrays.fill(nulls, false);
+            hasNulls = false;
+        }
+    }
+
+    /**
+     * Returns whether the specified value is NULL.
+     *
+     * @param index
+     *            the index of the value
+     * @return whether the value is NULL
+     */
+    public boolean isNull(int index) {
+        return hasNulls && nulls[index];
+    }
+
+    /**
+     * Mark the specified value as NULL.
+     *
+     * @param index
+     *            the index of the value
+     */
+    void setNull(int index) {
+        nulls[index] = true;
+        hasNulls = true;
+    }
+
+    /**
+     * Returns the specified value as long value. This method may not be used
+     * for DOUBLE values.
+     *
+     * @param index
+     *            the index of the value
+     * @return the value
+     */
+    public long getLong(int index) {
+        return longs[index];
+    }
+
+    /**
+     * Returns the specified value as double value.
+     *
+     * @param index
+     *            the index of the value
+     * @return the value
+     */
+    public double getDouble(int index) {
+        return doubles != null ? doubles[index] : longs[index];
+    }
+
+    /**
+     * Set the specified value. This method may not be used for DOUBLE vectors.
+     *
+     * @param index
+     *            the index of the value
+     * @param value
+     *            the value
+     */
+    void setLong(int index, long value) {
+        longs[index] = value;
+    }
+
+    /**
+     * Set the specified value. This method may be used only for DOUBLE
+     * vectors.
+     *
+     * @param index
+     *            the index of the value
+     * @param value
+     *            the value
+     */
+    void setDouble(int index, double value) {
+        doubles[index] = value;
+    }
+
+    /**
+     * Set the specified value.
+     *
+     * @param index
+     *            the index of the value
+     * @param value
+     *            the value, may be {@link ValueNull#INSTANCE}
+     */
+    void set(int index, Value value) {
+        if (value == ValueNull.INSTANCE) {
+            setNull(index);
+            return;
+        }
+        switch (valueType) {
+        case Value.BOOLEAN:
+            longs[index] = value.getBoolean() ? 1 : 0;
+            break;
+        case Value.TINYINT:
+        case Value.SMALLINT:
+        case Value.INTEGER:
+            longs[index] = value.getInt();
+            break;
+        case Value.BIGINT:
+            longs[index] = value.getLong();
+            break;
+        case Value.DOUBLE:
+            doubles[index] = value.getDouble();
+            break;
+        case Value.DATE:
+            longs[index] = ((ValueDate) value).getDateValue();
+            break;
+        default:
+            throw DbException.getInternalError("type=" + valueType);
+        }
+    }
+
+    /**
+     * Returns the specified value.
+     *
+     * @param index
+     *            the index of the value
+     * @return the value
+     */
+    public Value getValue(int index) {
+        if (isNull(index)) {
+            return ValueNull.INSTANCE;
+        }
+        return getValue(valueType, doubles != null ? Double.doubleToRawLongBits(doubles[index]) : longs[index]);
+    }
+
+    /**
+     * Converts a long value of a vector or raw bits of a double value to a
+     * value of the specified data type.
+     *
+     * @param valueType
+     *            the data type
+     * @param l
+     *            the long value or raw bits of a double value
+     * @return the value
+     */
+    public static Value getValue(int valueType, long l) {
+        switch (valueType) {
+        case Value.BOOLEAN:
+            return ValueBoolean.get(l != 0);
+        case Value.TINYINT:
+            return ValueTinyint.get((byte) l);
+        case Value.SMALLINT:
+            return ValueSmallint.get((short) l);
+        case Value.INTEGER:
+            return ValueInteger.get((int) l);
+        case Value.BIGINT:
+            return ValueBigint.get(l);
+        case Value.DOUBLE:
+            return ValueDouble.get(Double.longBitsToDouble(l));
+        case Value.DATE:
+            return ValueDate.fromDateValue(l);
+        default:
+            throw DbException.getInternalError("type=" + valueType);
+        }
+    }
+
+}
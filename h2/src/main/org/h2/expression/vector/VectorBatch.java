@@ -0,0 +1,179 @@
+/*
+ * Copyright 2004-2025 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.expression.vector;
+
+import org.h2.index.Cursor;
+import org.h2.result.Row;
+import org.h2.table.Column;
+import org.h2.table.Table;
+import org.h2.table.TableFilter;
+
+/**
+ * A batch of rows of a table filter or an index cursor. Values of columns are
+ * extracted into vectors on demand.
+ */
+public final class VectorBatch {
+
+    /**
+     * The maximum number of rows in a batch.
+     */
+    public static final int SIZE = 1024;
+
+    private final TableFilter filter;
+
+    private final Row[] rows = new Row[SIZE];
+
+    private final ValueVector[] columns;
+
+    private final boolean[] loaded;
+
+    private int size;
+
+    /**
+     * Creates a new batch.
+     *
+     * @param filter
+     *            the table filter
+     */
+    public VectorBatch(TableFilter filter) {
+        this(filter, filter.getTable());
+    }
+
+    /**
+     * Creates a new batch for rows read from index cursors.
+     *
+     * @param table
+     *            the table
+     */
+    public VectorBatch(Table table) {
+        this(null, table);
+    }
+
+    private VectorBatch(TableFilter filter, Table table) {
+        this.filter = filter;
+        int columnCount = table.getColumns().length;
+        columns = new ValueVector[columnCount];
+        loaded = new boolean[columnCount];
+    }
+
+    /**
+     * Returns the table filter.
+     *
+     * @return the table filter, or {@code null} if rows are read from index
+     *         cursors
+     */
+    public TableFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Read the next rows from the table filter.
+     *
+     * @return the number of rows, {@code 0} if there are no more rows
+     */
+    public int next() {
+        size = filter.nextBatch(rows);
+        clear();
+        return size;
+    }
+
+    /**
+     * Read the next rows from the specified cursor.
+     *
+     * @param cursor
+     *            the cursor
+     * @return the number of rows, it is less than {@link #SIZE} only if there
+     *         are no more rows
+     */
+    public int next(Cursor cursor) {
+        size = cursor.next(rows);
+        clear();
+        return size;
+    }
+
+    /**
+     * Discard all rows.
+     */
+    public void reset() {
+        for (int i = 0; i < size; i++) {
+            rows[i] = null;
+        }
+        size = 0;
+        clear();
+    }
+
+    /**
+     * Returns the number of rows.
+     *
+     * @return the number of rows
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the specified row.
+     *
+     * @param index
+     *            the index of the row
+     * @return the row
+     */
+    public Row getRow(int index) {
+        return rows[index];
+    }
+
+    /**
+     * Returns values of the specified column.
+     *
+     * @param column
+     *            the column
+     * @return values of the column
+     */
+    public ValueVector getColumn(Column column) {
+        int columnId = column.getColumnId();
+        ValueVector vector = columns[columnId];
+        if (!loaded[columnId]) {
+            if (vector == null) {
+                columns[columnId] = vector = new ValueVector(column.getType().getValueType(), SIZE);
+            }
+            vector.reset(size);
+            for (int i = 0; i < size; i++) {
+                vector.set(i, rows[i].getValue(columnId));
+            }
+            loaded[columnId] = true;
+        }
+        return vector;
+    }
+
+    /**
+     * Remove rows for which the specified condition is not {@code TRUE}.
+     *
+     * @param condition
+     *            the values of a condition
+     */
+    public void select(ValueVector condition) {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (!condition.isNull(i) && condition.getLong(i) != 0) {
+                rows[count++] = rows[i];
+            }
+        }
+        if (count != size) {
+            for (int i = count; i < size; i++) {
+                rows[i] = null;
+            }
+            size = count;
+            clear();
+        }
+    }
+
+    private void clear() {
+        for (int i = 0, l = loaded.length; i < l; i++) {
+            loaded[i] = false;
+        }
+    }
+
+}
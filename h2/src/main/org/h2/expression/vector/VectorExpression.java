@@ -0,0 +1,461 @@
+/*
+ * Copyright 2004-2025 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.expression.vector;
+
+import org.h2.engine.SessionLocal;
+import org.h2.expression.BinaryOperation;
+import org.h2.expression.Expression;
+import org.h2.expression.ExpressionColumn;
+import org.h2.expression.Parameter;
+import org.h2.expression.condition.Comparison;
+import org.h2.expression.condition.ConditionAndOr;
+import org.h2.expression.condition.ConditionAndOrN;
+import org.h2.expression.condition.ConditionNot;
+import org.h2.table.Column;
+import org.h2.table.TableFilter;
+import org.h2.value.Value;
+import org.h2.value.ValueNull;
+
+/**
+ * An expression evaluated for all rows of a batch at once.
+ */
+public abstract class VectorExpression {
+
+    /**
+     * Values of a column.
+     */
+    private static final class ColumnValues extends VectorExpression {
+
+        private final Column column;
+
+        ColumnValues(Column column) {
+            super(column.getType().getValueType());
+            this.column = column;
+        }
+
+        @Override
+        public ValueVector getValues(VectorBatch batch) {
+            return batch.getColumn(column);
+        }
+
+    }
+
+    /**
+     * A constant value.
+     */
+    private static final class ConstantValue extends VectorExpression {
+
+        private final Value value;
+
+        private int size = -1;
+
+        ConstantValue(int valueType, Value value) {
+            super(valueType);
+            this.value = value;
+        }
+
+        @Override
+        public ValueVector getValues(VectorBatch batch) {
+            int size = batch.getSize();
+            if (this.size != size) {
+                ValueVector result = getResult(size);
+                for (int i = 0; i < size; i++) {
+                    result.set(i, value);
+                }
+                this.size = size;
+            }
+            return result;
+        }
+
+    }
+
+    /**
+     * Addition, subtraction, or multiplication.
+     */
+    private static final class Arithmetic extends VectorExpression {
+
+        private final BinaryOperation.OpType opType;
+
+        private final VectorExpression left, right;
+
+        private final long min, max;
+
+        Arithmetic(int valueType, BinaryOperation.OpType opType, VectorExpression left, VectorExpression right) {
+            super(valueType);
+            this.opType = opType;
+            this.left = left;
+            this.right = right;
+            switch (valueType) {
+            case Value.TINYINT:
+                min = Byte.MIN_VALUE;
+                max = Byte.MAX_VALUE;
+                break;
+            case Value.SMALLINT:
+                min = Short.MIN_VALUE;
+                max = Short.MAX_VALUE;
+                break;
+            case Value.INTEGER:
+                min = Integer.MIN_VALUE;
+                max = Integer.MAX_VALUE;
+                break;
+            default:
+                min = Long.MIN_VALUE;
+                max = Long.MAX_VALUE;
+            }
+        }
+
+        @Override
+        public ValueVector getValues(VectorBatch batch) {
+            ValueVector l = left.getValues(batch);
+            if (l == null) {
+                return null;
+            }
+            ValueVector r = right.getValues(batch);
+            if (r == null) {
+                return null;
+            }
+            int size = batch.getSize();
+            ValueVector result = getResult(size);
+            if (result.isDouble()) {
+                for (int i = 0; i < size; i++) {
+                    if (l.isNull(i) || r.isNull(i)) {
+                        result.setNull(i);
+                        continue;
+                    }
+                    double a = l.getDouble(i), b = r.getDouble(i);
+                    result.setDouble(i, opType == BinaryOperation.OpType.PLUS ? a + b
+                            : opType == BinaryOperation.OpType.MINUS ? a - b : a * b);
+                }
+                return result;
+            }
+            try {
+                for (int i = 0; i < size; i++) {
+                    if (l.isNull(i) || r.isNull(i)) {
+                        result.setNull(i);
+                        continue;
+                    }
+                    long a = l.getLong(i), b = r.getLong(i);
+                    long v = opType == BinaryOperation.OpType.PLUS ? Math.addExact(a, b)
+                            : opType == BinaryOperation.OpType.MINUS ? Math.subtractExact(a, b)
+                                    : Math.multiplyExact(a, b);
+                    if (v < min || v > max) {
+                        // let the row mode raise an error
+                        return null;
+                    }
+                    result.setLong(i, v);
+                }
+            } catch (ArithmeticException e) {
+                return null;
+            }
+            return result;
+        }
+
+    }
+
+    /**
+     * A comparison.
+     */
+    private static final class Compare extends VectorExpression {
+
+        private final int compareType;
+
+        private final VectorExpression left, right;
+
+        Compare(int compareType, VectorExpression left, VectorExpression right) {
+            super(Value.BOOLEAN);
+            this.compareType = compareType;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public ValueVector getValues(VectorBatch batch) {
+            ValueVector l = left.getValues(batch);
+            if (l == null) {
+                return null;
+            }
+            ValueVector r = right.getValues(batch);
+            if (r == null) {
+                return null;
+            }
+            int size = batch.getSize();
+            ValueVector result = getResult(size);
+            boolean isDouble = l.isDouble() || r.isDouble();
+            for (int i = 0; i < size; i++) {
+                if (l.isNull(i) || r.isNull(i)) {
+                    result.setNull(i);
+                    continue;
+                }
+                int c = isDouble ? Double.compare(l.getDouble(i), r.getDouble(i))
+                        : Long.compare(l.getLong(i), r.getLong(i));
+                boolean b;
+                switch (compareType) {
+                case Comparison.EQUAL:
+                    b = c == 0;
+                    break;
+                case Comparison.NOT_EQUAL:
+                    b = c != 0;
+                    break;
+                case Comparison.SMALLER:
+                    b = c < 0;
+                    break;
+                case Comparison.BIGGER:
+                    b = c > 0;
+                    break;
+                case Comparison.SMALLER_EQUAL:
+                    b = c <= 0;
+                    break;
+                default:
+                    b = c >= 0;
+                }
+                result.setLong(i, b ? 1 : 0);
+            }
+            return result;
+        }
+
+    }
+
+    /**
+     * AND or OR condition.
+     */
+    private static final class AndOr extends VectorExpression {
+
+        private final boolean and;
+
+        private final VectorExpression[] conditions;
+
+        AndOr(boolean and, VectorExpression[] conditions) {
+            super(Value.BOOLEAN);
+            this.and = and;
+            this.conditions = conditions;
+        }
+
+        @Override
+        public ValueVector getValues(VectorBatch batch) {
+            int size = batch.getSize();
+            ValueVector[] values = new ValueVector[conditions.length];
+            for (int j = 0; j < conditions.length; j++) {
+                if ((values[j] = conditions[j].getValues(batch)) == null) {
+                    return null;
+                }
+            }
+            ValueVector result = getResult(size);
+            // FALSE for AND and TRUE for OR determine the result
+            long decisive = and ? 0 : 1;
+            loop: for (int i = 0; i < size; i++) {
+                boolean hasNull = false;
+                for (ValueVector v : values) {
+                    if (v.isNull(i)) {
+                        hasNull = true;
+                    } else if (v.getLong(i) == decisive) {
+                        result.setLong(i, decisive);
+                        continue loop;
+                    }
+                }
+                if (hasNull) {
+                    result.setNull(i);
+                } else {
+                    result.setLong(i, 1 - decisive);
+                }
+            }
+            return result;
+        }
+
+    }
+
+    /**
+     * NOT condition.
+     */
+    private static final class Not extends VectorExpression {
+
+        private final VectorExpression condition;
+
+        Not(VectorExpression condition) {
+            super(Value.BOOLEAN);
+            this.condition = condition;
+        }
+
+        @Override
+        public ValueVector getValues(VectorBatch batch) {
+            ValueVector v = condition.getValues(batch);
+            if (v == null) {
+                return null;
+            }
+            int size = batch.getSize();
+            ValueVector result = getResult(size);
+            for (int i = 0; i < size; i++) {
+                if (v.isNull(i)) {
+                    result.setNull(i);
+                } else {
+                    result.setLong(i, 1 - v.getLong(i));
+                }
+            }
+            return result;
+        }
+
+    }
+
+    /**
+     * The data type of values.
+     */
+    final int valueType;
+
+    /**
+     * The vector for results.
+     */
+    ValueVector result;
+
+    VectorExpression(int valueType) {
+        this.valueType = valueType;
+    }
+
+    /**
+     * Create a vector expression for the specified expression.
+     *
+     * @param session
+     *            the session, or {@code null} to check only whether the
+     *            expression can be evaluated in batches, values of constants
+     *            and parameters aren't evaluated in this case
+     * @param expression
+     *            the expression
+     * @param filter
+     *            the only table filter of the query
+     * @return the vector expression, or {@code null} if the expression can't
+     *         be evaluated in batches
+     */
+    public static VectorExpression get(SessionLocal session, Expression expression, TableFilter filter) {
+        if (expression instanceof ExpressionColumn) {
+            ExpressionColumn expressionColumn = (ExpressionColumn) expression;
+            Column column = expressionColumn.getColumn();
+            if (expressionColumn.getTableFilter() != filter || column.getColumnId() < 0
+                    || !ValueVector.isSupported(column.getType().getValueType())) {
+                return null;
+            }
+            return new ColumnValues(column);
+        }
+        int valueType = expression.getType().getValueType();
+        if (!ValueVector.isSupported(valueType)) {
+            return null;
+        }
+        if (expression.isConstant() || expression instanceof Parameter) {
+            return new ConstantValue(valueType,
+                    session != null ? expression.getValue(session).convertTo(valueType) : ValueNull.INSTANCE);
+        } else if (expression instanceof BinaryOperation) {
+            BinaryOperation.OpType opType = ((BinaryOperation) expression).getOperationType();
+            if (opType != BinaryOperation.OpType.PLUS && opType != BinaryOperation.OpType.MINUS
+                    && opType != BinaryOperation.OpType.MULTIPLY || !isNumeric(valueType)) {
+                return null;
+            }
+            VectorExpression left = get(session, expression.getSubexpression(0), filter);
+            if (left == null || !isNumeric(left.valueType)) {
+                return null;
+            }
+            VectorExpression right = get(session, expression.getSubexpression(1), filter);
+            if (right == null || !isNumeric(right.valueType)) {
+                return null;
+            }
+            if (valueType != Value.DOUBLE && (left.valueType == Value.DOUBLE || right.valueType == Value.DOUBLE)
+                    || !isExactDouble(left.valueType, right.valueType)) {
+                return null;
+            }
+            return new Arithmetic(valueType, opType, left, right);
+        } else if (expression instanceof Comparison) {
+            int compareType = ((Comparison) expression).getCompareType();
+            if (compareType > Comparison.BIGGER_EQUAL) {
+                return null;
+            }
+            VectorExpression left = get(session, expression.getSubexpression(0), filter);
+            if (left == null) {
+                return null;
+            }
+            VectorExpression right = get(session, expression.getSubexpression(1), filter);
+            if (right == null) {
+                return null;
+            }
+            int l = left.valueType, r = right.valueType;
+            if ((isNumeric(l) ? !isNumeric(r) : l != r) || !isExactDouble(l, r)) {
+                return null;
+            }
+            return new Compare(compareType, left, right);
+        } else if (expression instanceof ConditionAndOr || expression instanceof ConditionAndOrN) {
+            int count = expression.getSubexpressionCount();
+            VectorExpression[] conditions = new VectorExpression[count];
+            for (int i = 0; i < count; i++) {
+                VectorExpression condition = get(session, expression.getSubexpression(i), filter);
+                if (condition == null || condition.valueType != Value.BOOLEAN) {
+                    return null;
+                }
+                conditions[i] = condition;
+            }
+            int andOrType = expression instanceof ConditionAndOr ? ((ConditionAndOr) expression).getAndOrType()
+                    : ((ConditionAndOrN) expression).getAndOrType();
+            return new AndOr(andOrType == ConditionAndOr.AND, conditions);
+        } else if (expression instanceof ConditionNot) {
+            VectorExpression condition = get(session, expression.getSubexpression(0), filter);
+            if (condition == null || condition.valueType != Value.BOOLEAN) {
+                return null;
+            }
+            return new Not(condition);
+        }
+        return null;
+    }
+
+    private static boolean isNumeric(int valueType) {
+        switch (valueType) {
+        case Value.TINYINT:
+        case Value.SMALLINT:
+        case Value.INTEGER:
+        case Value.BIGINT:
+        case Value.DOUBLE:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * BIGINT values can't be converted to DOUBLE without loss of precision.
+     */
+    private static boolean isExactDouble(int l, int r) {
+        return !(l == Value.DOUBLE && r == Value.BIGINT || l == Value.BIGINT && r == Value.DOUBLE);
+    }
+
+    /**
+     * Returns the data type of values.
+     *
+     * @return the data type of values
+     */
+    public int getValueType() {
+        return valueType;
+    }
+
+    /**
+     * Returns the vector for results with the specified number of values.
+     *
+     * @param size
+     *            the number of values
+     * @return the vector for results
+     */
+    ValueVector getResult(int size) {
+        ValueVector result = this.result;
+        if (result == null) {
+            this.result = result = new ValueVector(valueType, VectorBatch.SIZE);
+        }
+        result.reset(size);
+        return result;
+    }
+
+    /**
+     * Evaluate this expression for all rows of the specified batch.
+     *
+     * @param batch
+     *            the batch of rows
+     * @return the values, or {@code null} if the batch should be evaluated
+     *         row by row, for example, due to an overflow
+     */
+    public abstract ValueVector getValues(VectorBatch batch);
+
+}
@@ -50,4 +50,30 @@ public interface Cursor {
      */
     boolean previous();
 
+    /**
+     * Skip to the next rows and fetch them into the specified array.
+     *
+     * @param rows the array to fill
+     * @return the number of fetched rows, it is less than the length of the
+     *         array only if there are no more rows
+     */
+    default int next(Row[] rows) {
+        int count = 0;
+        for (int length = rows.length; count < length && next(); count++) {
+            rows[count] = get();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of pages of rows that were skipped by this cursor
+     * without reading them, because they can't contain rows within the bounds
+     * of the search.
+     *
+     * @return the number of skipped pages
+     */
+    default long getSkippedPageCount() {
+        return 0L;
+    }
+
 }
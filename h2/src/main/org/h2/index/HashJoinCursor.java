@@ -0,0 +1,283 @@
+/*
+ * Copyright 2004-2025 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.index;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import org.h2.engine.Database;
+import org.h2.engine.SessionLocal;
+import org.h2.expression.Expression;
+import org.h2.expression.condition.Comparison;
+import org.h2.message.DbException;
+import org.h2.mvstore.db.MVHashJoinTempResult;
+import org.h2.result.Row;
+import org.h2.result.SearchRow;
+import org.h2.table.Column;
+import org.h2.table.Table;
+import org.h2.util.Utils;
+import org.h2.value.CompareMode;
+import org.h2.value.TypeInfo;
+import org.h2.value.Value;
+import org.h2.value.ValueBigint;
+import org.h2.value.ValueNull;
+import org.h2.value.ValueRow;
+
+/**
+ * The cursor used for the inner (build) side of a hash join. All rows of the
+ * table are read once with the scan index and grouped by the values of the
+ * join columns. Each lookup evaluates the join expressions of the outer tables
+ * and returns only the rows with the same values of the join columns. If the
+ * table contains more rows than allowed to keep in memory, the rows are moved
+ * into an external temporary storage.
+ */
+public class HashJoinCursor implements Cursor {
+
+    private final Index index;
+    private final Table table;
+    private final ArrayList<IndexCondition> conditions;
+    private final Column[] columns;
+    private final Expression[] expressions;
+
+    private SessionLocal session;
+    private boolean built;
+    private HashMap<Value, ArrayList<Row>> rows;
+    private MVHashJoinTempResult external;
+
+    private ArrayList<Row> bucket;
+    private int bucketIndex;
+    private boolean found;
+    private Row current;
+
+    /**
+     * Create a new hash join cursor.
+     *
+     * @param index the scan index of the table
+     * @param conditions the equality conditions used as join keys
+     */
+    public HashJoinCursor(Index index, ArrayList<IndexCondition> conditions) {
+        this.index = index;
+        this.table = index.getTable();
+        this.conditions = conditions;
+        int length = conditions.size();
+        columns = new Column[length];
+        expressions = new Expression[length];
+        for (int i = 0; i < length; i++) {
+            IndexCondition condition = conditions.get(i);
+            columns[i] = condition.getColumn();
+            expressions[i] = condition.getExpression();
+        }
+    }
+
+    /**
+     * Check whether the specified index condition can be used as a key of a
+     * hash join. Only equality conditions between values of the same data type
+     * are allowed, and only for data types where equality of values is the
+     * same as equality in comparison operations.
+     *
+     * @param database the database
+     * @param condition the index condition
+     * @return true if the condition can be used as a join key
+     */
+    public static boolean isHashJoinCondition(Database database, IndexCondition condition) {
+        if (condition.getCompareType() != Comparison.EQUAL || condition.isCompoundColumns()) {
+            return false;
+        }
+        Column column = condition.getColumn();
+        Expression expression = condition.getExpression();
+        if (column.getColumnId() < 0 || expression == null || expression.isConstant()) {
+            return false;
+        }
+        int valueType = column.getType().getValueType();
+        if (expression.getType().getValueType() != valueType) {
+            return false;
+        }
+        switch (valueType) {
+        case Value.VARCHAR:
+            return CompareMode.OFF.equals(database.getCompareMode().getName());
+        case Value.BOOLEAN:
+        case Value.TINYINT:
+        case Value.SMALLINT:
+        case Value.INTEGER:
+        case Value.BIGINT:
+        case Value.DATE:
+        case Value.TIME:
+        case Value.TIMESTAMP:
+        case Value.UUID:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Get the join conditions.
+     *
+     * @return the join conditions
+     */
+    public ArrayList<IndexCondition> getConditions() {
+        return conditions;
+    }
+
+    /**
+     * Discard the rows of the build side. They will be read again on the next
+     * lookup.
+     */
+    public void reset() {
+        built = false;
+        rows = null;
+        bucket = null;
+        found = false;
+        current = null;
+        if (external != null) {
+            external.close();
+            external = null;
+        }
+    }
+
+    /**
+     * Find the rows with the join key calculated from the current rows of the
+     * outer tables. The build side is read on the first invocation.
+     *
+     * @param s the session
+     */
+    public void find(SessionLocal s) {
+        session = s;
+        if (!built) {
+            build();
+        }
+        bucket = null;
+        found = false;
+        current = null;
+        int length = expressions.length;
+        Value[] key = new Value[length];
+        for (int i = 0; i < length; i++) {
+            Value v = expressions[i].getValue(s);
+            if (v == ValueNull.INSTANCE) {
+                return;
+            }
+            key[i] = v;
+        }
+        if (external != null) {
+            external.find(key);
+            found = true;
+        } else {
+            bucket = rows.get(length == 1 ? key[0] : ValueRow.get(key));
+            bucketIndex = 0;
+        }
+    }
+
+    private void build() {
+        Database database = session.getDatabase();
+        int maxMemoryRows = database.isPersistent() && !database.isReadOnly() ? database.getMaxMemoryRows()
+                : Integer.MAX_VALUE;
+        rows = new HashMap<>();
+        int rowCount = 0;
+        int length = columns.length;
+        Cursor cursor = index.find(session, null, null, false);
+        loop: while (cursor.next()) {
+            if ((rowCount & 4095) == 0) {
+                session.checkCanceled();
+            }
+            Row row = cursor.get();
+            Value[] key = new Value[length];
+            for (int i = 0; i < length; i++) {
+                Value v = row.getValue(columns[i].getColumnId());
+                if (v == ValueNull.INSTANCE) {
+                    // NULL never matches
+                    continue loop;
+                }
+                key[i] = v;
+            }
+            if (external != null) {
+                addExternal(key, row);
+            } else {
+                rows.computeIfAbsent(length == 1 ? key[0] : ValueRow.get(key), k -> Utils.newSmallArrayList())
+                        .add(row);
+                if (++rowCount > maxMemoryRows) {
+                    spill();
+                }
+            }
+        }
+        built = true;
+    }
+
+    private void spill() {
+        int length = columns.length;
+        TypeInfo[] keyTypes = new TypeInfo[length];
+        for (int i = 0; i < length; i++) {
+            keyTypes[i] = columns[i].getType();
+        }
+        Column[] tableColumns = table.getColumns();
+        int columnCount = tableColumns.length;
+        TypeInfo[] rowTypes = new TypeInfo[columnCount + 1];
+        for (int i = 0; i < columnCount; i++) {
+            rowTypes[i] = tableColumns[i].getType();
+        }
+        rowTypes[columnCount] = TypeInfo.TYPE_BIGINT;
+        external = new MVHashJoinTempResult(session.getDatabase(), keyTypes, rowTypes);
+        for (ArrayList<Row> list : rows.values()) {
+            for (Row row : list) {
+                Value[] key = new Value[length];
+                for (int i = 0; i < length; i++) {
+                    key[i] = row.getValue(columns[i].getColumnId());
+                }
+                addExternal(key, row);
+            }
+        }
+        rows = null;
+    }
+
+    private void addExternal(Value[] key, Row row) {
+        int columnCount = table.getColumns().length;
+        Value[] values = new Value[columnCount + 1];
+        for (int i = 0; i < columnCount; i++) {
+            values[i] = row.getValue(i);
+        }
+        values[columnCount] = ValueBigint.get(row.getKey());
+        external.addRow(key, values);
+    }
+
+    @Override
+    public Row get() {
+        return current;
+    }
+
+    @Override
+    public SearchRow getSearchRow() {
+        return current;
+    }
+
+    @Override
+    public boolean next() {
+        if (found) {
+            Value[] values = external.next();
+            if (values == null) {
+                found = false;
+                current = null;
+                return false;
+            }
+            int columnCount = values.length - 1;
+            Value[] data = new Value[columnCount];
+            System.arraycopy(values, 0, data, 0, columnCount);
+            current = Row.get(data, SearchRow.MEMORY_CALCULATE, values[columnCount].getLong());
+            return true;
+        }
+        if (bucket == null || bucketIndex >= bucket.size()) {
+            bucket = null;
+            current = null;
+            return false;
+        }
+        current = bucket.get(bucketIndex++);
+        return true;
+    }
+
+    @Override
+    public boolean previous() {
+        throw DbException.getInternalError(toString());
+    }
+
+}
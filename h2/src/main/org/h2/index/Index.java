@@ -15,6 +15,8 @@
 import org.h2.engine.DbObject;
 import org.h2.engine.NullsDistinct;
 import org.h2.engine.SessionLocal;
+import org.h2.expression.Expression;
+import org.h2.expression.condition.Comparison;
 import org.h2.message.DbException;
 import org.h2.message.Trace;
 import org.h2.mode.DefaultNullOrdering;
@@ -24,6 +26,7 @@
 import org.h2.result.SortOrder;
 import org.h2.schema.SchemaObject;
 import org.h2.table.Column;
+import org.h2.table.ColumnStatistics;
 import org.h2.table.IndexColumn;
 import org.h2.table.Table;
 import org.h2.table.TableFilter;
@@ -239,6 +242,21 @@ public boolean isFindUsingFullTableScan() {
         return false;
     }
 
+    /**
+     * Returns {@code true} if {@code find()} implementation performs scan over
+     * all index, but can skip parts of the index using bounds of any columns
+     * passed in the first and last rows. Such scan still may return rows
+     * outside of these bounds. The columnar index of
+     * {@code MVColumnarTableEngine} does it, the primary index of regular
+     * tables does it when the {@code ZONE_MAPS} setting is enabled.
+     *
+     * @return {@code true} if full table scan can use bounds of columns,
+     *         {@code false} otherwise
+     */
+    public boolean isFindSkippingByColumnBounds() {
+        return false;
+    }
+
     /**
      * Find a row or a list of rows and create a cursor to iterate over the
      * result.
@@ -587,6 +605,8 @@ protected final long getCostRangeIndex(int[] masks, long rowCount, TableFilter[]
                 Column column = columns[i++];
                 int index = column.getColumnId();
                 int mask = masks[index];
+                // the number of rows estimated with statistics of this column
+                long estimatedRows = mask != 0 ? estimateRowCount(filters, filter, column, rowCount) : -1L;
                 if ((mask & IndexCondition.EQUALITY) == IndexCondition.EQUALITY) {
                     if (i > 0 && i == uniqueColumnColumn) {
                         rowsCost = 3;
@@ -598,7 +618,25 @@ protected final long getCostRangeIndex(int[] masks, long rowCount, TableFilter[]
                     if (distinctRows <= 0) {
                         distinctRows = 1;
                     }
-                    rowsCost = 2 + Math.max(rowCount / distinctRows, 1);
+                    long rows = Math.max(rowCount / distinctRows, 1);
+                    if (estimatedRows >= 0) {
+                        // more columns can only reduce the number of rows
+                        rows = i == 1 ? Math.max(estimatedRows, 1) : Math.min(rows, Math.max(estimatedRows, 1));
+                    }
+                    rowsCost = 2 + rows;
+                } else if (estimatedRows >= 0 && (mask & (IndexCondition.RANGE
+                        | IndexCondition.START | IndexCondition.END)) != 0) {
+                    if (i == 1) {
+                        rowsCost = 2 + estimatedRows;
+                    } else {
+                        // values of different columns are assumed to be
+                        // independent, a condition on one more column is
+                        // never worse
+                        rowsCost = Math.min(rowsCost - 1,
+                                2 + Math.max((rowsCost - 2) * estimatedRows / rowCount, 1));
+                    }
+                    tryAdditional = true;
+                    break;
                 } else if ((mask & IndexCondition.RANGE) == IndexCondition.RANGE) {
                     rowsCost = 2 + rowsCost / 4;
                     tryAdditional = true;
@@ -637,7 +675,10 @@ protected final long getCostRangeIndex(int[] masks, long rowCount, TableFilter[]
         // it will be cheaper than another index, so adjust the cost
         // accordingly.
         long sortingCost = 0;
-        if (sortOrder != null) {
+        // Rows of joined tables are sorted only once, with the rows of the
+        // first table, the cost of lookups in other tables doesn't depend on
+        // the ORDER BY clause.
+        if (sortOrder != null && filter == 0) {
             sortingCost = 100 + rowCount / 10;
         }
         if (sortOrder != null && !isScanIndex && filters != null && filter == 0) {
@@ -750,6 +791,97 @@ protected final long getCostRangeIndex(int[] masks, long rowCount, TableFilter[]
         return rc;
     }
 
+    /**
+     * Estimate the number of rows matching the index conditions on the
+     * specified column with constant values using statistics collected by
+     * ANALYZE.
+     *
+     * @param filters all joined table filters
+     * @param filter the current table filter index
+     * @param column the column
+     * @param rowCount the number of rows in the index
+     * @return the estimated number of rows, or -1 if it is unknown
+     */
+    private static long estimateRowCount(TableFilter[] filters, int filter, Column column, long rowCount) {
+        ColumnStatistics statistics = column.getStatistics();
+        if (statistics == null || filters == null) {
+            return -1L;
+        }
+        TableFilter tableFilter = filters[filter];
+        if (tableFilter == null || tableFilter.getTable() != column.getTable()) {
+            return -1L;
+        }
+        SessionLocal session = tableFilter.getSession();
+        double fraction = -1d;
+        Value min = null, max = null;
+        boolean range = false;
+        for (IndexCondition condition : tableFilter.getIndexConditions()) {
+            if (condition.isCompoundColumns() || condition.getColumn() != column) {
+                continue;
+            }
+            double f = -1d;
+            switch (condition.getCompareType()) {
+            case Comparison.EQUAL:
+            case Comparison.EQUAL_NULL_SAFE: {
+                Value v = getConstantValue(session, condition.getExpression());
+                if (v == ValueNull.INSTANCE && condition.getCompareType() == Comparison.EQUAL_NULL_SAFE) {
+                    f = statistics.getNullFraction();
+                } else if (v != null) {
+                    f = statistics.getEqualFraction(session, v);
+                }
+                break;
+            }
+            case Comparison.IN_LIST:
+                f = 0d;
+                for (Expression e : condition.getExpressionList()) {
+                    Value v = getConstantValue(session, e);
+                    if (v == null) {
+                        f = -1d;
+                        break;
+                    }
+                    f += statistics.getEqualFraction(session, v);
+                }
+                f = Math.min(f, 1d);
+                break;
+            case Comparison.BIGGER_EQUAL:
+            case Comparison.BIGGER: {
+                Value v = getConstantValue(session, condition.getExpression());
+                if (v != null) {
+                    range = true;
+                    if (min == null || session.compare(v, min) > 0) {
+                        min = v;
+                    }
+                }
+                break;
+            }
+            case Comparison.SMALLER_EQUAL:
+            case Comparison.SMALLER: {
+                Value v = getConstantValue(session, condition.getExpression());
+                if (v != null) {
+                    range = true;
+                    if (max == null || session.compare(v, max) < 0) {
+                        max = v;
+                    }
+                }
+                break;
+            }
+            }
+            if (f >= 0d && (fraction < 0d || f < fraction)) {
+                fraction = f;
+            }
+        }
+        if (range) {
+            double f = statistics.getRangeFraction(session, min, max);
+            if (f >= 0d && (fraction < 0d || f < fraction)) {
+                fraction = f;
+            }
+        }
+        return fraction < 0d ? -1L : (long) Math.ceil(fraction * rowCount);
+    }
+
+    private static Value getConstantValue(SessionLocal session, Expression e) {
+        return e != null && e.isConstant() ? e.getValue(session) : null;
+    }
 
     /**
      * Check if this row needs to be checked for duplicates.
@@ -41,6 +41,18 @@ public class IndexCursor implements Cursor {
 
     private SearchRow start, end, intersects;
     private Cursor cursor;
+
+    /**
+     * The number of pages skipped by the previous cursors.
+     */
+    private long skippedPageCount;
+
+    /**
+     * The flags of columns to read if the index is a {@link ProjectionIndex},
+     * or {@code null} to read all columns.
+     */
+    private boolean[] projection;
+
     /**
      * Contains a {@link Column} or {@code Column[]} depending on the condition type.
      * @see IndexCondition#isCompoundColumns()
@@ -70,6 +82,16 @@ public void setIndex(Index index, boolean reverse) {
         }
     }
 
+    /**
+     * Set the columns to read if the index is a {@link ProjectionIndex}.
+     *
+     * @param projection the flags of columns to read, indexed by column id, or
+     *            {@code null} to read all columns
+     */
+    public void setProjection(boolean[] projection) {
+        this.projection = projection;
+    }
+
     /**
      * Prepare this index cursor to make a lookup in index.
      *
@@ -91,7 +113,9 @@ public void prepare(SessionLocal s, ArrayList<IndexCondition> indexConditions) {
             }
             // If index can perform only full table scan do not try to use it for regular
             // lookups, each such lookup will perform an own table scan.
-            if (index.isFindUsingFullTableScan()) {
+            // Such index may still use bounds of columns to skip some rows.
+            if (index.isFindUsingFullTableScan() && !(index.isFindSkippingByColumnBounds()
+                    && (condition.isStart() || condition.isEnd()))) {
                 continue;
             }
             if (condition.isCompoundColumns()) {
@@ -157,7 +181,9 @@ public void prepare(SessionLocal s, ArrayList<IndexCondition> indexConditions) {
                 }
                 // An X=? condition will produce less rows than
                 // an X IN(..) condition, unless the X IN condition can use the index.
-                if ((isStart || isEnd) && !canUseIndexFor((Column) inColumn)) {
+                // Bounds of columns that aren't in the index only allow to skip some rows.
+                if ((isStart || isEnd) && (columnId == SearchRow.ROWID_INDEX || indexColumns[columnId] != null)
+                        && !canUseIndexFor((Column) inColumn)) {
                     inColumn = null;
                     inList = null;
                     inResult = null;
@@ -202,13 +228,27 @@ public void find(SessionLocal s, ArrayList<IndexCondition> indexConditions) {
                 last = end;
             }
             if (intersects != null && index instanceof SpatialIndex) {
-                cursor = ((SpatialIndex) index).findByGeometry(session, first, last, reverse, intersects);
+                setCursor(((SpatialIndex) index).findByGeometry(session, first, last, reverse, intersects));
             } else if (index != null) {
-                cursor = index.find(session, first, last, reverse);
+                setCursor(find(first, last));
             }
         }
     }
 
+    private Cursor find(SearchRow first, SearchRow last) {
+        if (projection != null && index instanceof ProjectionIndex) {
+            return ((ProjectionIndex) index).find(session, first, last, reverse, projection);
+        }
+        return index.find(session, first, last, reverse);
+    }
+
+    private void setCursor(Cursor cursor) {
+        if (this.cursor != null) {
+            skippedPageCount += this.cursor.getSkippedPageCount();
+        }
+        this.cursor = cursor;
+    }
+
     private boolean canUseIndexForIn(Column column) {
         if (inColumn != null) {
             // only one IN(..) condition can be used at the same time
@@ -279,6 +319,10 @@ private SearchRow getSpatialSearchRow(SearchRow row, int columnId, Value v) {
     private SearchRow getSearchRow(SearchRow row, int columnId, Value v, boolean max) {
         if (row == null) {
             row = table.getTemplateRow();
+            if (index.isFindSkippingByColumnBounds()) {
+                // bounds of other columns must not limit the row keys
+                row.setKey(max ? Long.MIN_VALUE : Long.MAX_VALUE);
+            }
         } else {
             v = getMax(row.getValue(columnId), v, max);
         }
@@ -318,6 +362,15 @@ public boolean isAlwaysFalse() {
         return alwaysFalse;
     }
 
+    /**
+     * Check if the index is iterated in reverse order.
+     *
+     * @return true if it is
+     */
+    public boolean isReverse() {
+        return reverse;
+    }
+
     /**
      * Get start search row.
      *
@@ -361,7 +414,7 @@ public boolean next() {
             if (cursor.next()) {
                 return true;
             }
-            cursor = null;
+            setCursor(null);
         }
     }
 
@@ -405,7 +458,7 @@ private void find(Value v) {
             int id = column.getColumnId();
             start.setValue(id, v);
         }
-        cursor = index.find(session, start, start, reverse);
+        setCursor(find(start, start));
     }
 
     @Override
@@ -413,4 +466,17 @@ public boolean previous() {
         throw DbException.getInternalError(toString());
     }
 
+    @Override
+    public long getSkippedPageCount() {
+        return cursor != null ? skippedPageCount + cursor.getSkippedPageCount() : skippedPageCount;
+    }
+
+    /**
+     * Reset the number of skipped pages and release the current cursor.
+     */
+    public void resetSkippedPageCount() {
+        skippedPageCount = 0L;
+        cursor = null;
+    }
+
 }
@@ -5,6 +5,10 @@
  */
 package org.h2.index;
 
+import org.h2.result.SortOrder;
+import org.h2.table.Column;
+import org.h2.table.IndexColumn;
+
 /**
  * Index-sorting information.
  */
@@ -86,6 +90,31 @@ public boolean isReverse() {
         return reverse;
     }
 
+    /**
+     * Returns whether rows are returned by the index in this order sorted in
+     * ascending order by values of the specified column.
+     *
+     * @param column
+     *            the column
+     * @return {@code true} if rows are sorted by the specified column first
+     */
+    public boolean isAscending(Column column) {
+        IndexType indexType = index.getIndexType();
+        if (reverse || indexType.isHash() || indexType.isSpatial()) {
+            return false;
+        }
+        if (index.isRowIdIndex()
+                && (column.isRowId() || column.getColumnId() == index.getTable().getMainIndexColumn())) {
+            return true;
+        }
+        if (indexType.isScan()) {
+            return false;
+        }
+        IndexColumn[] indexColumns = index.getIndexColumns();
+        return indexColumns != null && indexColumns.length > 0 && indexColumns[0].column == column
+                && (indexColumns[0].sortType & SortOrder.DESCENDING) == 0;
+    }
+
     @Override
     public int compareTo(IndexSort o) {
         return o.sortedColumns - sortedColumns;
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2004-2025 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.index;
+
+import java.util.ArrayList;
+
+import org.h2.engine.SessionLocal;
+import org.h2.expression.Expression;
+import org.h2.expression.ExpressionColumn;
+import org.h2.expression.condition.Comparison;
+import org.h2.message.DbException;
+import org.h2.result.Row;
+import org.h2.result.SearchRow;
+import org.h2.table.Column;
+import org.h2.table.Table;
+import org.h2.table.TableFilter;
+import org.h2.util.Utils;
+import org.h2.value.Value;
+import org.h2.value.ValueNull;
+
+/**
+ * The cursor used for the inner side of a merge join. The rows of the outer
+ * tables are expected to be sorted by the join key, so the index of the inner
+ * table is read only once in ascending order, and rows with the same value of
+ * the join key are remembered for the next outer rows with the same key. If the
+ * join key of the outer rows decreases, a new index lookup is performed, so
+ * results are correct for any order of outer rows.
+ */
+public class MergeJoinCursor implements Cursor {
+
+    private final Index index;
+    private final Table table;
+    private final IndexCondition condition;
+    private final Column column;
+    private final int columnId;
+    private final Expression expression;
+
+    private SessionLocal session;
+    private Cursor cursor;
+    private boolean pending;
+    private long scanned;
+
+    private Value groupKey;
+    private final ArrayList<Row> group = Utils.newSmallArrayList();
+    private int groupIndex;
+    private boolean found;
+    private Row current;
+
+    /**
+     * Create a new merge join cursor.
+     *
+     * @param index the index sorted by the join column
+     * @param condition the equality condition on the join column
+     */
+    public MergeJoinCursor(Index index, IndexCondition condition) {
+        this.index = index;
+        this.table = index.getTable();
+        this.condition = condition;
+        column = condition.getColumn();
+        columnId = column.getColumnId();
+        expression = condition.getExpression();
+    }
+
+    /**
+     * Check whether the specified index condition can be used as a key of a
+     * merge join with the specified index. The index must be sorted in
+     * ascending order by the column of the condition, and the condition must
+     * compare this column with a column of the specified outer table filter of
+     * the same data type.
+     *
+     * @param index the index of the inner table
+     * @param condition the index condition
+     * @param outer the outer table filter
+     * @return true if the condition can be used as a join key
+     */
+    public static boolean isMergeJoinCondition(Index index, IndexCondition condition, TableFilter outer) {
+        if (condition.getCompareType() != Comparison.EQUAL || condition.isCompoundColumns()) {
+            return false;
+        }
+        Column column = condition.getColumn();
+        Expression expression = condition.getExpression();
+        if (!(expression instanceof ExpressionColumn) || ((ExpressionColumn) expression).getTableFilter() != outer
+                || expression.getType().getValueType() != column.getType().getValueType()) {
+            return false;
+        }
+        return !index.getIndexType().isScan() && new IndexSort(index, false).isAscending(column);
+    }
+
+    /**
+     * Get the column of the outer table used as a join key.
+     *
+     * @return the column of the outer table
+     */
+    public Column getOuterColumn() {
+        return ((ExpressionColumn) expression).getColumn();
+    }
+
+    /**
+     * Get the join condition.
+     *
+     * @return the join condition
+     */
+    public IndexCondition getCondition() {
+        return condition;
+    }
+
+    /**
+     * Close the index cursor and discard remembered rows.
+     */
+    public void reset() {
+        cursor = null;
+        pending = false;
+        groupKey = null;
+        group.clear();
+        found = false;
+        current = null;
+    }
+
+    /**
+     * Find the rows with the join key calculated from the current rows of the
+     * outer tables.
+     *
+     * @param s the session
+     */
+    public void find(SessionLocal s) {
+        session = s;
+        found = false;
+        current = null;
+        groupIndex = 0;
+        Value v = expression.getValue(s);
+        if (v == ValueNull.INSTANCE) {
+            return;
+        }
+        v = column.convert(s, v);
+        found = true;
+        if (groupKey != null) {
+            int c = table.compareValues(s, v, groupKey);
+            if (c == 0) {
+                return;
+            } else if (c > 0) {
+                read(v);
+                return;
+            }
+        }
+        SearchRow start = table.getTemplateRow();
+        start.setValue(columnId, v);
+        cursor = index.find(s, start, null, false);
+        pending = false;
+        read(v);
+    }
+
+    private void read(Value key) {
+        groupKey = key;
+        group.clear();
+        while (cursor != null) {
+            if (!pending) {
+                if ((++scanned & 4095) == 0) {
+                    session.checkCanceled();
+                }
+                if (!cursor.next()) {
+                    cursor = null;
+                    break;
+                }
+                pending = true;
+            }
+            Value v = cursor.getSearchRow().getValue(columnId);
+            if (v == ValueNull.INSTANCE) {
+                // NULL values are sorted after all other values
+                cursor = null;
+                break;
+            }
+            int c = table.compareValues(session, v, key);
+            if (c > 0) {
+                break;
+            }
+            if (c == 0) {
+                group.add(cursor.get());
+            }
+            pending = false;
+        }
+    }
+
+    @Override
+    public Row get() {
+        return current;
+    }
+
+    @Override
+    public SearchRow getSearchRow() {
+        return current;
+    }
+
+    @Override
+    public boolean next() {
+        if (!found || groupIndex >= group.size()) {
+            found = false;
+            current = null;
+            return false;
+        }
+        current = group.get(groupIndex++);
+        return true;
+    }
+
+    @Override
+    public boolean previous() {
+        throw DbException.getInternalError(toString());
+    }
+
+}
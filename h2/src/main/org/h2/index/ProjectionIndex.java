@@ -0,0 +1,30 @@
+/*
+ * Copyright 2004-2025 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.index;
+
+import org.h2.engine.SessionLocal;
+import org.h2.result.SearchRow;
+
+/**
+ * An index that can read only some columns of the rows. Values of other
+ * columns of the returned rows are read when they are requested.
+ */
+public interface ProjectionIndex {
+
+    /**
+     * Find a row or a list of rows and create a cursor to iterate over the
+     * result. Only the specified columns are read.
+     *
+     * @param session the session
+     * @param first the first row, or null for no limit
+     * @param last the last row, or null for no limit
+     * @param reverse if true, iterate in reverse (descending) order
+     * @param columns the flags of columns to read, indexed by column id
+     * @return the cursor to iterate over the results
+     */
+    Cursor find(SessionLocal session, SearchRow first, SearchRow last, boolean reverse, boolean[] columns);
+
+}
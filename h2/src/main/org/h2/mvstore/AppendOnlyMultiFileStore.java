@@ -7,66 +7,131 @@
 
 import org.h2.mvstore.cache.FilePathCache;
 import org.h2.store.fs.FilePath;
+import org.h2.store.fs.FileUtils;
 import org.h2.store.fs.encrypt.FileEncrypt;
 import org.h2.store.fs.encrypt.FilePathEncrypt;
+import org.h2.util.IOUtils;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
 import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.function.Function;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
 /**
- * Class AppendOnlyMultiFileStore.
+ * A file store that appends chunks to a sequence of files, instead of reusing
+ * the free space of a single file. When the current file reaches the maximum
+ * size, a new file is started. A file is deleted as soon as none of its chunks
+ * are used any more; compaction rewrites the live pages of sparsely used
+ * chunks to speed this up.
+ * <p>
+ * Optionally, the most recent files are kept next to the file name of the
+ * store, while older files are moved to a cold directory by the background
+ * thread. Files are never written after a new one was started, therefore they
+ * can be moved without coordination with writers. The cold directory is only
+ * known to the store itself: it is configured with the MVStore API, databases
+ * never use it, and tools that find files by the database name, such as
+ * {@code DeleteDbFiles} and {@code Backup}, ignore it.
+ * <p>
+ * The files are named after the store, with the id of the file appended, for
+ * example "test.mv.db.1". The position of a chunk contains the id of its file,
+ * so that data is read from the right file.
  *
  * @author <a href="mailto:andrei.tokar@gmail.com">Andrei Tokar</a>
  */
-@SuppressWarnings("unused")
 public final class AppendOnlyMultiFileStore extends FileStore<MFChunk>
 {
     /**
-     * Limit for the number of files used by this store
+     * The binary logarithm of the maximum size of a file (64 GB). Positions
+     * of data contain the file id in the bits above.
      */
-    @SuppressWarnings("FieldCanBeLocal")
-    private final int maxFileCount;
+    private static final int FILE_POS_SHIFT = 36;
+
+    private static final long FILE_POS_MASK = (1L << FILE_POS_SHIFT) - 1;
+
+    /**
+     * The maximum id of a file, so that positions of all files fit in a long.
+     */
+    private static final int MAX_FILE_ID = (1 << (63 - FILE_POS_SHIFT)) - 1;
+
+    /**
+     * The suffix of a file which is being copied to the cold directory.
+     */
+    private static final String TEMP_SUFFIX = ".temp";
+
+    /**
+     * The number of bytes copied to the cold directory at a time. With a
+     * limited compaction rate, each block is charged to the budget.
+     */
+    private static final int COPY_BLOCK_SIZE = 64 * 1024;
 
     /**
-     * The time the store was created, in milliseconds since 1970.
+     * The size of a file after which a new file is started.
      */
-    private long creationTime;
+    private final long maxFileSize;
 
-    private int volumeId;
+    /**
+     * The number of the most recent files that are not moved to the cold
+     * directory.
+     */
+    private final int hotFileCount;
+
+    /**
+     * The directory for older files, or null if files are not moved.
+     */
+    private final String coldDirectory;
+
+    /**
+     * All files currently used by this store, by id.
+     */
+    private final ConcurrentHashMap<Integer, Volume> volumes = new ConcurrentHashMap<>();
+
+    /**
+     * The file new chunks are appended to.
+     */
+    private volatile Volume currentVolume;
 
     /**
-     * Current number of files in use
+     * Whether the files are encrypted.
      */
-    private int fileCount;
+    private boolean encrypted;
 
     /**
-     * The current file. This is writable channel in append mode
+     * The encryption key, until the first file is opened. Other files are
+     * encrypted like an already open file.
      */
-    private FileChannel fileChannel;
+    private byte[] encryptionKey;
 
     /**
-     * The encrypted file (if encryption is used).
+     * Whether files without used chunks are deleted.
      */
-    private FileChannel originalFileChannel;
+    private volatile boolean reuseSpace = true;
+
+    private boolean stopIdleHousekeeping;
 
     /**
-     * All files currently used by this store. This includes current one at first position.
-     * Previous files are opened in read-only mode.
-     * Logical length of this array is defined by fileCount.
+     * The copy of a file to the cold directory that waits for more budget,
+     * or null. Only used under the cold copy lock.
      */
-    @SuppressWarnings("MismatchedReadAndWriteOfArray")
-    private final FileChannel[] fileChannels;
+    private ColdCopy coldCopy;
 
     /**
-     * The file lock.
+     * The lock for files being moved to the cold directory.
      */
-    private FileLock fileLock;
+    private final ReentrantLock coldCopyLock = new ReentrantLock();
 
     private final Map<String, Object> config;
 
@@ -74,12 +139,19 @@ public final class AppendOnlyMultiFileStore extends FileStore<MFChunk>
     public AppendOnlyMultiFileStore(Map<String, Object> config) {
         super(config);
         this.config = config;
-        maxFileCount = DataUtils.getConfigParam(config, "maxFileCount", 16);
-        fileChannels = new FileChannel[maxFileCount];
+        maxFileSize = Math.min(DataUtils.getConfigParam(config, "maxFileSize", 256 * 1024) * 1024L,
+                FILE_POS_MASK + 1 - BLOCK_SIZE);
+        hotFileCount = Math.max(1, DataUtils.getConfigParam(config, "hotFileCount", 2));
+        coldDirectory = (String) config.get("coldDirectory");
+    }
+
+    @Override
+    public String toString() {
+        return getFileName();
     }
 
     @Override
-    protected final MFChunk createChunk(int newChunkId) {
+    protected MFChunk createChunk(int newChunkId) {
         return new MFChunk(newChunkId);
     }
 
@@ -100,22 +172,22 @@ public boolean shouldSaveNow(int unsavedMemory, int autoCommitMemory) {
 
     @Override
     public void open(String fileName, boolean readOnly, char[] encryptionKey) {
-        open(fileName, readOnly,
-                encryptionKey == null ? null
-                        : fileChannel -> new FileEncrypt(fileName, FilePathEncrypt.getPasswordBytes(encryptionKey),
-                                fileChannel));
+        open(fileName, readOnly, encryptionKey == null ? null : FilePathEncrypt.getPasswordBytes(encryptionKey),
+                null);
     }
 
     @Override
     public AppendOnlyMultiFileStore open(String fileName, boolean readOnly) {
-        AppendOnlyMultiFileStore result = new AppendOnlyMultiFileStore(config);
-        result.open(fileName, readOnly, originalFileChannel == null ? null :
-                fileChannel -> new FileEncrypt(fileName, (FileEncrypt)this.fileChannel, fileChannel));
+        // the new store doesn't use a cold directory
+        Map<String, Object> c = new HashMap<>(config);
+        c.remove("coldDirectory");
+        AppendOnlyMultiFileStore result = new AppendOnlyMultiFileStore(c);
+        result.open(fileName, readOnly, null, encrypted ? currentVolume.file : null);
         return result;
     }
 
-    private void open(String fileName, boolean readOnly, Function<FileChannel,FileChannel> encryptionTransformer) {
-        if (fileChannel != null && fileChannel.isOpen()) {
+    private void open(String fileName, boolean readOnly, byte[] encryptionKey, FileChannel encryptionSource) {
+        if (!volumes.isEmpty()) {
             return;
         }
         // ensure the Cache file system is registered
@@ -126,100 +198,362 @@ private void open(String fileName, boolean readOnly, Function<FileChannel,FileCh
             throw DataUtils.newIllegalArgumentException(
                     "Directory does not exist: {0}", parent);
         }
-        if (f.exists() && !f.canWrite()) {
-            readOnly = true;
+        String directory = parent == null ? "." : parent.toString();
+        if (coldDirectory != null) {
+            if (!FileUtils.isDirectory(coldDirectory)) {
+                throw DataUtils.newIllegalArgumentException(
+                        "Directory does not exist: {0}", coldDirectory);
+            }
+            if (FilePath.get(coldDirectory).toRealPath().toString()
+                    .equals(FilePath.get(directory).toRealPath().toString())) {
+                throw DataUtils.newIllegalArgumentException(
+                        "The cold directory must not contain the store: {0}", coldDirectory);
+            }
         }
         init(fileName, readOnly);
+        this.encryptionKey = encryptionKey;
+        encrypted = encryptionKey != null || encryptionSource != null;
         try {
-            fileChannel = f.open(readOnly ? "r" : "rw");
-            if (encryptionTransformer != null) {
-                originalFileChannel = fileChannel;
-                fileChannel = encryptionTransformer.apply(fileChannel);
+            TreeMap<Integer, String> files = findFiles(directory);
+            TreeMap<Integer, String> coldFiles = coldDirectory == null ? new TreeMap<>() : findFiles(coldDirectory);
+            for (Map.Entry<Integer, String> e : coldFiles.entrySet()) {
+                String hotFileName = files.put(e.getKey(), e.getValue());
+                // the file was copied to the cold directory, but the
+                // original was not deleted yet
+                if (hotFileName != null && !readOnly) {
+                    FileUtils.delete(hotFileName);
+                }
+            }
+            if (files.isEmpty()) {
+                if (readOnly) {
+                    throw DataUtils.newMVStoreException(
+                            DataUtils.ERROR_READING_FAILED,
+                            "Could not open file {0}", fileName);
+                }
+                createVolume(1, encryptionSource);
+            } else {
+                for (Map.Entry<Integer, String> e : files.entrySet()) {
+                    Volume volume = openVolume(e.getKey(), e.getValue(), coldFiles.containsKey(e.getKey()),
+                            encryptionSource);
+                    if (encryptionSource == null && encrypted) {
+                        encryptionSource = volume.file;
+                    }
+                    volumes.put(volume.id, volume);
+                }
+                currentVolume = volumes.get(files.lastKey());
+            }
+            saveChunkLock.lock();
+            try {
+                updateSize();
+            } finally {
+                saveChunkLock.unlock();
+            }
+        } catch (IOException e) {
+            try { close(); } catch (Exception ignore) {}
+            throw DataUtils.newMVStoreException(
+                    DataUtils.ERROR_READING_FAILED,
+                    "Could not open file {0}", fileName, e);
+        } catch (RuntimeException e) {
+            try { close(); } catch (Exception ignore) {}
+            throw e;
+        }
+    }
+
+    /**
+     * Find the files of this store in a directory. Incomplete copies are
+     * deleted.
+     *
+     * @param directory the directory
+     * @return the file names by file id
+     */
+    private TreeMap<Integer, String> findFiles(String directory) {
+        TreeMap<Integer, String> files = new TreeMap<>();
+        String prefix = FileUtils.getName(getFileName()) + '.';
+        for (String name : FileUtils.newDirectoryStream(directory)) {
+            String s = FileUtils.getName(name);
+            if (s.startsWith(prefix)) {
+                s = s.substring(prefix.length());
+                if (s.endsWith(TEMP_SUFFIX)) {
+                    if (!isReadOnly()) {
+                        FileUtils.delete(name);
+                    }
+                } else if (!s.isEmpty() && s.length() < 10 && s.chars().allMatch(Character::isDigit)) {
+                    files.put(Integer.parseInt(s), name);
+                }
             }
+        }
+        return files;
+    }
+
+    private String getVolumeFileName(int id) {
+        return getFileName() + '.' + id;
+    }
+
+    private String getColdFileName(int id) {
+        return coldDirectory + '/' + FileUtils.getName(getVolumeFileName(id));
+    }
+
+    /**
+     * Open a file and lock it. Files in the cold directory are opened in
+     * read-only mode.
+     *
+     * @param id the file id
+     * @param fileName the file name
+     * @param cold whether the file is in the cold directory
+     * @param encryptionSource an encrypted file to encrypt this file the same
+     *            way, or null to use the encryption key, if any
+     * @return the file
+     */
+    private Volume openVolume(int id, String fileName, boolean cold, FileChannel encryptionSource)
+            throws IOException {
+        boolean readOnly = cold || isReadOnly();
+        FileChannel file = FilePath.get(fileName).open(readOnly ? "r" : "rw");
+        FileChannel originalFile = null;
+        try {
+            FileLock fileLock;
             try {
-                fileLock = fileChannel.tryLock(0L, Long.MAX_VALUE, readOnly);
+                fileLock = file.tryLock(0L, Long.MAX_VALUE, readOnly);
             } catch (OverlappingFileLockException e) {
                 throw DataUtils.newMVStoreException(
                         DataUtils.ERROR_FILE_LOCKED,
                         "The file is locked: {0}", fileName, e);
             }
             if (fileLock == null) {
-                try { close(); } catch (Exception ignore) {}
                 throw DataUtils.newMVStoreException(
                         DataUtils.ERROR_FILE_LOCKED,
                         "The file is locked: {0}", fileName);
             }
-            saveChunkLock.lock();
-            try {
-                setSize(fileChannel.size());
-            } finally {
-                saveChunkLock.unlock();
+            if (encryptionSource != null) {
+                originalFile = file;
+                file = new FileEncrypt(fileName, (FileEncrypt) encryptionSource, file);
+            } else if (encryptionKey != null) {
+                originalFile = file;
+                file = new FileEncrypt(fileName, encryptionKey, file);
+                encryptionKey = null;
             }
+            return new Volume(id, fileName, file, originalFile, fileLock, cold);
+        } catch (IOException | RuntimeException e) {
+            try { file.close(); } catch (Exception ignore) {}
+            throw e;
+        }
+    }
+
+    /**
+     * Start a new file, which becomes the current one.
+     *
+     * @param id the file id
+     * @param encryptionSource an encrypted file to encrypt this file the same
+     *            way, or null to use the encryption key, if any
+     */
+    private void createVolume(int id, FileChannel encryptionSource) {
+        if (id > MAX_FILE_ID) {
+            throw DataUtils.newMVStoreException(
+                    DataUtils.ERROR_WRITING_FAILED,
+                    "Too many files: {0}", id);
+        }
+        String fileName = getVolumeFileName(id);
+        try {
+            // a leftover of an incomplete write
+            FileUtils.delete(fileName);
+            Volume volume = openVolume(id, fileName, false, encryptionSource);
+            volumes.put(id, volume);
+            currentVolume = volume;
         } catch (IOException e) {
-            try { close(); } catch (Exception ignore) {}
             throw DataUtils.newMVStoreException(
-                    DataUtils.ERROR_READING_FAILED,
-                    "Could not open file {0}", fileName, e);
+                    DataUtils.ERROR_WRITING_FAILED,
+                    "Could not create file {0}", fileName, e);
         }
     }
 
+    private Volume getVolume(int id) {
+        Volume volume = volumes.get(id);
+        if (volume == null) {
+            throw DataUtils.newMVStoreException(
+                    DataUtils.ERROR_FILE_CORRUPT,
+                    "File {0} is missing", getVolumeFileName(id));
+        }
+        return volume;
+    }
+
     /**
      * Close this store.
      */
     @Override
     public void close() {
+        coldCopyLock.lock();
         try {
-            if(fileChannel.isOpen()) {
-                if (fileLock != null) {
-                    fileLock.release();
-                }
-                fileChannel.close();
+            if (coldCopy != null) {
+                coldCopy.abort();
+                coldCopy = null;
             }
-        } catch (Exception e) {
-            throw DataUtils.newMVStoreException(
-                    DataUtils.ERROR_WRITING_FAILED,
-                    "Closing failed for file {0}", getFileName(), e);
         } finally {
-            fileLock = null;
-            super.close();
+            coldCopyLock.unlock();
+        }
+        MVStoreException exception = null;
+        for (Volume volume : volumes.values()) {
+            try {
+                volume.close();
+            } catch (MVStoreException e) {
+                exception = e;
+            }
+        }
+        volumes.clear();
+        super.close();
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    /**
+     * Flush all changes.
+     */
+    @Override
+    public void sync() {
+        Volume volume = currentVolume;
+        if (volume != null) {
+            volume.sync();
         }
     }
 
+    private static long getPos(int volumeId, long filePos) {
+        return (long) volumeId << FILE_POS_SHIFT | filePos;
+    }
+
+    private static int getVolumeId(long pos) {
+        return (int) (pos >>> FILE_POS_SHIFT);
+    }
+
+    /**
+     * Get the id of the file of a chunk. The chunk headers do not contain it,
+     * so it is derived from the position.
+     *
+     * @param chunk the chunk
+     * @return the file id
+     */
+    private static int getVolumeId(MFChunk chunk) {
+        return getVolumeId(chunk.block * BLOCK_SIZE);
+    }
+
+    @Override
+    protected long getFirstChunkBlock(long block) {
+        return getPos(getVolumeId(block * BLOCK_SIZE), 2 * BLOCK_SIZE) / BLOCK_SIZE;
+    }
+
     @Override
     protected void writeFully(MFChunk chunk, long pos, ByteBuffer src) {
-        assert chunk.volumeId == volumeId;
         int len = src.remaining();
-        setSize(Math.max(super.size(), pos + len));
-        DataUtils.writeFully(fileChannels[volumeId], pos, src);
+        Volume volume = currentVolume;
+        assert getVolumeId(pos) == volume.id;
+        long filePos = pos & FILE_POS_MASK;
+        DataUtils.writeFully(volume.file, filePos, src);
+        volume.size = Math.max(volume.size, filePos + len);
+        updateSize();
         writeCount.incrementAndGet();
         writeBytes.addAndGet(len);
     }
 
     @Override
     public ByteBuffer readFully(MFChunk chunk, long pos, int len) {
-        int volumeId = chunk.volumeId;
-        return readFully(fileChannels[volumeId], pos, len);
+        int id = getVolumeId(pos);
+        assert chunk == null || getVolumeId(chunk) == id : chunk + " " + id;
+        while (true) {
+            Volume volume = getVolume(id);
+            try {
+                return readFully(volume.file, pos & FILE_POS_MASK, len);
+            } catch (MVStoreException e) {
+                // the file was moved to the cold directory concurrently
+                if (volumes.get(id) == volume) {
+                    throw e;
+                }
+            }
+        }
     }
 
     @Override
     protected void initializeStoreHeader(long time) {
+        initializeCommonHeaderAttributes(time);
+        writeStoreHeader(currentVolume);
+    }
+
+    /**
+     * Write the store header to a file. Each file starts with a copy of the
+     * store header, only the one of the newest file is updated.
+     *
+     * @param volume the file
+     */
+    private void writeStoreHeader(Volume volume) {
+        StringBuilder buff = new StringBuilder(112);
+        if (hasPersistentData()) {
+            storeHeader.put(HDR_BLOCK, lastChunk.block);
+            storeHeader.put(HDR_CHUNK, lastChunk.id);
+            storeHeader.put(HDR_VERSION, lastChunk.version);
+        }
+        DataUtils.appendMap(buff, storeHeader);
+        byte[] bytes = buff.toString().getBytes(StandardCharsets.ISO_8859_1);
+        int checksum = DataUtils.getFletcher32(bytes, 0, bytes.length);
+        DataUtils.appendMap(buff, HDR_FLETCHER, checksum);
+        buff.append('\n');
+        bytes = buff.toString().getBytes(StandardCharsets.ISO_8859_1);
+        ByteBuffer header = ByteBuffer.allocate(2 * BLOCK_SIZE);
+        header.put(bytes);
+        header.position(BLOCK_SIZE);
+        header.put(bytes);
+        header.rewind();
+        DataUtils.writeFully(volume.file, 0, header);
+        volume.size = Math.max(volume.size, 2 * BLOCK_SIZE);
+        updateSize();
+        writeCount.incrementAndGet();
+        writeBytes.addAndGet(2 * BLOCK_SIZE);
     }
 
     @Override
     protected void readStoreHeader(boolean recoveryMode) {
-        ByteBuffer fileHeaderBlocks = readFully(new MFChunk(""), 0, FileStore.BLOCK_SIZE);
-        byte[] buff = new byte[FileStore.BLOCK_SIZE];
-        fileHeaderBlocks.get(buff);
-        // the following can fail for various reasons
-        try {
-            HashMap<String, String> m = DataUtils.parseChecksummedMap(buff);
-            if (m == null) {
-                throw DataUtils.newMVStoreException(
-                        DataUtils.ERROR_FILE_CORRUPT,
-                        "Store header is corrupt: {0}", this);
+        MFChunk newest = null;
+        boolean assumeCleanShutdown = true;
+        boolean validStoreHeader = false;
+        List<Volume> list = new ArrayList<>(volumes.values());
+        list.sort((one, two) -> Integer.compare(two.id, one.id));
+        // read the store header of the newest file that has a valid one
+        byte[] buff = new byte[BLOCK_SIZE];
+        for (Volume volume : list) {
+            ByteBuffer fileHeaderBlocks;
+            try {
+                fileHeaderBlocks = readFully((MFChunk) null, getPos(volume.id, 0), 2 * BLOCK_SIZE);
+            } catch (MVStoreException e) {
+                assumeCleanShutdown = false;
+                continue;
             }
-            storeHeader.putAll(m);
-        } catch (Exception ignore) {
+            for (int i = 0; i <= BLOCK_SIZE; i += BLOCK_SIZE) {
+                fileHeaderBlocks.get(buff);
+                // the following can fail for various reasons
+                try {
+                    HashMap<String, String> m = DataUtils.parseChecksummedMap(buff);
+                    if (m == null) {
+                        assumeCleanShutdown = false;
+                        continue;
+                    }
+                    long version = DataUtils.readHexLong(m, HDR_VERSION, 0);
+                    assumeCleanShutdown = assumeCleanShutdown && (newest == null || version == newest.version);
+                    if (newest == null || version > newest.version) {
+                        validStoreHeader = true;
+                        storeHeader.putAll(m);
+                        int chunkId = DataUtils.readHexInt(m, HDR_CHUNK, 0);
+                        long block = DataUtils.readHexLong(m, HDR_BLOCK, 0);
+                        MFChunk test = block == 0 ? null : readChunkHeaderAndFooter(block, chunkId);
+                        if (test != null) {
+                            newest = test;
+                        }
+                    }
+                } catch (Exception ignore) {
+                    assumeCleanShutdown = false;
+                }
+            }
+            if (validStoreHeader) {
+                break;
+            }
+        }
+
+        if (!validStoreHeader) {
             throw DataUtils.newMVStoreException(
                     DataUtils.ERROR_FILE_CORRUPT,
                     "Store header is corrupt: {0}", this);
@@ -227,57 +561,467 @@ protected void readStoreHeader(boolean recoveryMode) {
 
         processCommonHeaderAttributes();
 
-        long fileSize = size();
-        long blocksInVolume = fileSize / FileStore.BLOCK_SIZE;
+        assumeCleanShutdown = assumeCleanShutdown && newest != null && !recoveryMode;
+        if (assumeCleanShutdown) {
+            assumeCleanShutdown = DataUtils.readHexInt(storeHeader, HDR_CLEAN, 0) != 0;
+        }
+
+        Comparator<MFChunk> chunkComparator = (one, two) -> {
+            int result = Long.compare(two.version, one.version);
+            if (result == 0) {
+                result = Long.compare(one.block, two.block);
+            }
+            return result;
+        };
+
+        Map<Long, MFChunk> validChunksByLocation = new HashMap<>();
+        int missingVolumeId = 0;
+        if (assumeCleanShutdown) {
+            // quickly check latest 20 chunks referenced in meta table,
+            // and that the files of all live chunks exist
+            Queue<MFChunk> chunksToVerify = new PriorityQueue<>(20, Collections.reverseOrder(chunkComparator));
+            try {
+                setLastChunk(newest);
+                for (MFChunk c : getChunksFromLayoutMap()) {
+                    if (c.isAllocated() && !volumes.containsKey(getVolumeId(c))) {
+                        if (c.isLive()) {
+                            missingVolumeId = getVolumeId(c);
+                            break;
+                        }
+                        // the file was deleted before the chunk was removed
+                        // from the layout map
+                        c.block = 0;
+                        c.len = 0;
+                        continue;
+                    }
+                    chunksToVerify.offer(c);
+                    if (chunksToVerify.size() == 20) {
+                        chunksToVerify.poll();
+                    }
+                }
+                MFChunk c;
+                while (assumeCleanShutdown && (c = chunksToVerify.poll()) != null) {
+                    MFChunk test = readChunkHeaderAndFooter(c.block, c.id);
+                    assumeCleanShutdown = test != null;
+                    if (assumeCleanShutdown) {
+                        validChunksByLocation.put(test.block, test);
+                    }
+                }
+            } catch(IllegalStateException ignored) {
+                assumeCleanShutdown = false;
+            }
+        } else {
+            // the newest chunk is at the end of the newest file that has one
+            for (Volume volume : list) {
+                MFChunk tailChunk = discoverChunk(volume);
+                if (tailChunk != null) {
+                    validChunksByLocation.put(tailChunk.block, tailChunk);
+                    if (newest == null || tailChunk.version > newest.version) {
+                        newest = tailChunk;
+                    }
+                    break;
+                }
+            }
+            if (newest != null) {
+                validChunksByLocation.put(newest.block, newest);
+            }
+        }
+        if (missingVolumeId != 0) {
+            throw DataUtils.newMVStoreException(
+                    DataUtils.ERROR_FILE_CORRUPT,
+                    "File {0} is missing", getVolumeFileName(missingVolumeId));
+        }
 
-        MFChunk chunk = discoverChunk(blocksInVolume);
-        setLastChunk(chunk);
-        // load the chunk metadata: although meta's root page resides in the lastChunk,
-        // traversing meta map might recursively load another chunk(s)
-        for (MFChunk c : getChunksFromLayoutMap()) {
-            // might be there already, due to meta traversal
-            // see readPage() ... getChunkIfFound()
+        if (!assumeCleanShutdown) {
+            boolean quickRecovery = !recoveryMode &&
+                    findLastChunkWithCompleteValidChunkSet(chunkComparator, validChunksByLocation, false);
+            if (!quickRecovery) {
+                // scan all files and try to fetch chunk header and/or footer out of every block
+                for (Volume volume : list) {
+                    MFChunk tailChunk = discoverChunk(volume);
+                    while (tailChunk != null) {
+                        validChunksByLocation.put(tailChunk.block, tailChunk);
+                        tailChunk = discoverChunk(tailChunk.block);
+                    }
+                }
+                if (!findLastChunkWithCompleteValidChunkSet(chunkComparator, validChunksByLocation, true)
+                        && hasPersistentData()) {
+                    throw DataUtils.newMVStoreException(
+                            DataUtils.ERROR_FILE_CORRUPT,
+                            "File is corrupted - unable to recover a valid set of chunks");
+                }
+            }
+        }
+
+        for (Volume volume : volumes.values()) {
+            volume.chunkCount = 0;
+        }
+        for (MFChunk c : getChunks().values()) {
+            if (c.isAllocated()) {
+                Volume volume = volumes.get(getVolumeId(c));
+                if (volume != null) {
+                    volume.chunkCount++;
+                }
+            }
             if (!c.isLive()) {
                 registerDeadChunk(c);
             }
         }
+        if (!isReadOnly()) {
+            discardUnusedData();
+            deleteUnusedVolumes();
+        }
+    }
+
+    /**
+     * Search the given file backwards for a valid chunk.
+     *
+     * @param volume the file
+     * @return the last valid chunk, or null if none was found
+     */
+    private MFChunk discoverChunk(Volume volume) {
+        long size = volume.size;
+        return size <= 2 * BLOCK_SIZE ? null : discoverChunk(getPos(volume.id, size) / BLOCK_SIZE);
+    }
+
+    /**
+     * Remove the data after the last chunk, for example of an incomplete write
+     * or of versions that were rolled back. It would be found when searching
+     * for the newest chunk after a crash otherwise. The file of the last chunk
+     * becomes the current one, unless it was moved to the cold directory.
+     */
+    private void discardUnusedData() {
+        MFChunk last = lastChunk;
+        int lastId = last == null ? 0 : getVolumeId(last);
+        Volume current = currentVolume;
+        for (Volume volume : volumes.values()) {
+            if (volume.id > lastId && volume != current) {
+                deleteVolume(volume);
+            }
+        }
+        Volume volume = volumes.get(lastId);
+        if (volume != null && !volume.cold) {
+            if (volume != current) {
+                deleteVolume(current);
+                currentVolume = current = volume;
+            }
+        } else if (current.id <= lastId) {
+            createVolume(lastId + 1, encrypted ? volumes.get(lastId).file : null);
+            current = currentVolume;
+        }
+        long end = current.id == lastId ? (last.block + last.len) * BLOCK_SIZE & FILE_POS_MASK : 2 * BLOCK_SIZE;
+        if (current.size > end) {
+            current.truncate(end);
+        }
+        writeStoreHeader(current);
+        current.sync();
+        updateSize();
     }
 
     @Override
     protected void allocateChunkSpace(MFChunk chunk, WriteBuffer buff) {
-        chunk.block = size() / BLOCK_SIZE;
-        setSize((chunk.block + chunk.len) * BLOCK_SIZE);
+        Volume volume = currentVolume;
+        int length = buff.limit();
+        if (volume.size > 2 * BLOCK_SIZE && volume.size + length > maxFileSize) {
+            // the old file is not written any more
+            volume.sync();
+            createVolume(volume.id + 1, encrypted ? volume.file : null);
+            volume = currentVolume;
+            writeStoreHeader(volume);
+        }
+        chunk.volumeId = volume.id;
+        chunk.block = getPos(volume.id, volume.size) / BLOCK_SIZE;
+        chunk.next = 0;
+        volume.chunkCount++;
     }
 
     @Override
-    protected void writeChunk(MFChunk chunk, WriteBuffer buff) {
-        long filePos = chunk.block * BLOCK_SIZE;
-        writeFully(chunk, filePos, buff.getBuffer());
+    protected void writeChunk(MFChunk chunk, WriteBuffer buffer) {
+        writeFully(chunk, chunk.block * BLOCK_SIZE, buffer.getBuffer());
+        lastChunk = chunk;
+        if (storeHeader.remove(HDR_CLEAN) != null) {
+            writeStoreHeader(currentVolume);
+        }
     }
 
     @Override
     protected void writeCleanShutdownMark() {
-
+        storeHeader.put(HDR_CLEAN, 1);
+        writeStoreHeader(currentVolume);
     }
 
     @Override
     protected void adjustStoreToLastChunk() {
-
+        storeHeader.put(HDR_CLEAN, 1);
+        discardUnusedData();
+        readStoreHeader(false);
     }
 
     @Override
     protected void compactStore(int thresholdFillRate, long maxCompactTime, int maxWriteSize, MVStore mvStore) {
-
+        setRetentionTime(0);
+        long stopAt = System.nanoTime() + maxCompactTime * 1_000_000L;
+        while (compact(thresholdFillRate, maxWriteSize)) {
+            sync();
+            dropUnusedChunks();
+            if (System.nanoTime() - stopAt > 0L) {
+                break;
+            }
+        }
+        // files of chunks that became unused without being re-written
+        dropUnusedChunks();
+        moveColdFiles(false);
     }
 
     @Override
-    protected void doHousekeeping(MVStore mvStore) throws InterruptedException {}
+    protected void doHousekeeping(MVStore mvStore) throws InterruptedException {
+        boolean idle = isIdle();
+        int rewritableChunksFillRate = getRewritableChunksFillRate();
+        if (idle && stopIdleHousekeeping) {
+            return;
+        }
+        // if the rate is limited, each step may only write what the budget allows
+        long budget = getCompactBudget();
+        if (budget <= 0) {
+            return;
+        }
+        boolean rateLimited = budget != Long.MAX_VALUE;
+        long compactBytes = getCompactBytes();
+        int autoCommitMemory = mvStore.getAutoCommitMemory();
+        int chunksFillRate = getChunksFillRate();
+        int adjustedUpFillRate = 50 + rewritableChunksFillRate / 2;
+        int fillRateToCompare = idle ? rewritableChunksFillRate : adjustedUpFillRate;
+        if (fillRateToCompare < getTargetFillRate(idle)) {
+            int targetFillRate = idle ? adjustedUpFillRate : rewritableChunksFillRate;
+            mvStore.tryExecuteUnderStoreLock(() -> {
+                boolean rewritten;
+                if (rateLimited) {
+                    rewritten = rewriteChunkPages(targetFillRate, budget) > 0;
+                } else {
+                    rewritten = rewriteChunks(idle ? autoCommitMemory : autoCommitMemory / 4, targetFillRate);
+                }
+                if (rewritten) {
+                    dropUnusedChunks();
+                }
+                return true;
+            });
+            spendCompactBudget(getCompactBytes() - compactBytes);
+        }
+        if (getCompactBudget() > 0) {
+            moveColdFiles(rateLimited);
+        }
+        stopIdleHousekeeping = false;
+        if (idle && !(rateLimited && getCompactBytes() > compactBytes)) {
+            stopIdleHousekeeping = getChunksFillRate() <= chunksFillRate;
+        }
+    }
+
+    private int getTargetFillRate(boolean idle) {
+        int targetRate = getAutoCompactFillRate();
+        // use a lower fill rate if there were any file operations since the last time
+        if (!idle) {
+            targetRate = targetRate * targetRate / 100;
+        }
+        return targetRate;
+    }
+
+    /**
+     * Move the files that are older than the configured number of hot files to
+     * the cold directory. A file is copied first, and then the copy replaces
+     * the original, so that it can be read concurrently. If the rate is
+     * limited, each copied block is charged to the compaction budget, and the
+     * copy is continued by a later call when the budget is used up.
+     *
+     * @param rateLimited whether to copy only what the budget allows
+     */
+    private void moveColdFiles(boolean rateLimited) {
+        if (coldDirectory == null || isReadOnly()) {
+            return;
+        }
+        if (rateLimited) {
+            if (!coldCopyLock.tryLock()) {
+                return;
+            }
+        } else {
+            coldCopyLock.lock();
+        }
+        try {
+            while (true) {
+                ColdCopy copy = coldCopy;
+                if (copy == null) {
+                    Volume volume = getNextColdVolume();
+                    if (volume == null) {
+                        return;
+                    }
+                    copy = new ColdCopy(volume);
+                    coldCopy = copy;
+                } else if (volumes.get(copy.volume.id) != copy.volume) {
+                    // the file was deleted while the copy was waiting
+                    coldCopy = null;
+                    copy.abort();
+                    continue;
+                }
+                if (!copyToColdDirectory(copy, rateLimited)) {
+                    return;
+                }
+                coldCopy = null;
+                replaceWithColdFile(copy);
+            }
+        } finally {
+            coldCopyLock.unlock();
+        }
+    }
+
+    private Volume getNextColdVolume() {
+        int maxId = currentVolume.id - hotFileCount;
+        Volume next = null;
+        for (Volume volume : volumes.values()) {
+            if (volume.id <= maxId && !volume.cold && (next == null || volume.id < next.id)) {
+                next = volume;
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Copy the remaining blocks of a file to the cold directory.
+     *
+     * @param copy the copy
+     * @param rateLimited whether to stop when the budget is used up
+     * @return true if the file is copied completely
+     */
+    private boolean copyToColdDirectory(ColdCopy copy, boolean rateLimited) {
+        Volume volume = copy.volume;
+        FileChannel file = volume.originalFile != null ? volume.originalFile : volume.file;
+        try {
+            long size = file.size();
+            ByteBuffer buff = ByteBuffer.allocate(COPY_BLOCK_SIZE);
+            while (copy.pos < size) {
+                if (rateLimited && getCompactBudget() <= 0) {
+                    return false;
+                }
+                buff.clear();
+                buff.limit((int) Math.min(COPY_BLOCK_SIZE, size - copy.pos));
+                DataUtils.readFully(file, copy.pos, buff);
+                DataUtils.writeFully(copy.target, copy.pos, buff);
+                copy.pos += buff.limit();
+                if (rateLimited) {
+                    spendCompactBudget(buff.limit());
+                }
+            }
+            copy.target.force(true);
+            copy.target.close();
+            return true;
+        } catch (IOException | MVStoreException e) {
+            coldCopy = null;
+            copy.abort();
+            if (volumes.get(volume.id) != volume) {
+                // the file was deleted concurrently
+                return false;
+            }
+            throw DataUtils.newMVStoreException(
+                    DataUtils.ERROR_WRITING_FAILED,
+                    "Could not move file {0} to {1}", volume.fileName, coldDirectory, e);
+        }
+    }
+
+    private void replaceWithColdFile(ColdCopy copy) {
+        Volume volume = copy.volume;
+        String coldFileName = getColdFileName(volume.id);
+        Volume cold = null;
+        try {
+            FileUtils.move(copy.tempFileName, coldFileName);
+            cold = openVolume(volume.id, coldFileName, true, encrypted ? volume.file : null);
+            saveChunkLock.lock();
+            try {
+                cold.size = volume.size;
+                cold.chunkCount = volume.chunkCount;
+                if (!volumes.replace(volume.id, volume, cold)) {
+                    // the file is not used any more
+                    cold.close();
+                    FileUtils.delete(coldFileName);
+                    return;
+                }
+            } finally {
+                saveChunkLock.unlock();
+            }
+            volume.close();
+            FileUtils.delete(volume.fileName);
+        } catch (IOException | MVStoreException e) {
+            FileUtils.tryDelete(copy.tempFileName);
+            if (volumes.get(volume.id) != volume) {
+                // the file was deleted concurrently
+                return;
+            }
+            if (cold != null) {
+                cold.close();
+                FileUtils.tryDelete(coldFileName);
+            }
+            throw DataUtils.newMVStoreException(
+                    DataUtils.ERROR_WRITING_FAILED,
+                    "Could not move file {0} to {1}", volume.fileName, coldDirectory, e);
+        }
+    }
+
+    private void deleteVolume(Volume volume) {
+        if (volumes.remove(volume.id, volume)) {
+            volume.close();
+            FileUtils.delete(volume.fileName);
+        }
+    }
+
+    private void updateSize() {
+        long size = 0;
+        for (Volume volume : volumes.values()) {
+            size += volume.size;
+        }
+        setSize(size);
+    }
+
+    /**
+     * Get the number of files used by this store.
+     *
+     * @return the number of files
+     */
+    public int getFileCount() {
+        return volumes.size();
+    }
+
+    /**
+     * Get the number of files in the cold directory.
+     *
+     * @return the number of files
+     */
+    public int getColdFileCount() {
+        int count = 0;
+        for (Volume volume : volumes.values()) {
+            if (volume.cold) {
+                count++;
+            }
+        }
+        return count;
+    }
 
     @Override
     public int getFillRate() {
-        return 0;
+        long size = size();
+        if (size == 0) {
+            return 100;
+        }
+        long used = 0;
+        for (MFChunk c : getChunks().values()) {
+            if (c.isAllocated()) {
+                used += (long) c.len * BLOCK_SIZE;
+            }
+        }
+        return (int) Math.min(100, 100 * used / size);
     }
 
+    /**
+     * Nothing to do, as files are deleted when none of their chunks is used.
+     *
+     * @param minPercent the minimum percentage to save
+     */
     @Override
     protected void shrinkStoreIfPossible(int minPercent) {}
 
@@ -285,7 +1029,46 @@ protected void shrinkStoreIfPossible(int minPercent) {}
     public void markUsed(long pos, int length) {}
 
     @Override
-    protected void freeChunkSpace(Iterable<MFChunk> chunks) {}
+    protected void freeChunkSpace(Iterable<MFChunk> chunks) {
+        for (MFChunk chunk : chunks) {
+            Volume volume = volumes.get(getVolumeId(chunk));
+            if (volume != null) {
+                --volume.chunkCount;
+            }
+        }
+        if (reuseSpace) {
+            deleteUnusedVolumes();
+        }
+    }
+
+    private void deleteUnusedVolumes() {
+        assert saveChunkLock.isHeldByCurrentThread();
+        Volume current = currentVolume;
+        for (Volume volume : volumes.values()) {
+            if (volume.chunkCount <= 0 && volume != current) {
+                deleteVolume(volume);
+            }
+        }
+        updateSize();
+    }
+
+    @Override
+    public boolean isSpaceReused() {
+        return reuseSpace;
+    }
+
+    @Override
+    public void setReuseSpace(boolean reuseSpace) {
+        this.reuseSpace = reuseSpace;
+        if (reuseSpace && !isReadOnly()) {
+            saveChunkLock.lock();
+            try {
+                deleteUnusedVolumes();
+            } finally {
+                saveChunkLock.unlock();
+            }
+        }
+    }
 
     @Override
     protected boolean validateFileLength(String msg) {
@@ -294,6 +1077,164 @@ protected boolean validateFileLength(String msg) {
 
     @Override
     public void backup(ZipOutputStream out) throws IOException {
+        boolean before = isSpaceReused();
+        setReuseSpace(false);
+        try {
+            List<Volume> list = new ArrayList<>(volumes.values());
+            list.sort((one, two) -> Integer.compare(one.id, two.id));
+            for (Volume volume : list) {
+                String f = SingleFileStore.correctFileName(FileUtils.getName(getVolumeFileName(volume.id)));
+                out.putNextEntry(new ZipEntry(f));
+                IOUtils.copy(volume.originalFile != null ? volume.originalFile : volume.file, out);
+                out.closeEntry();
+            }
+        } finally {
+            setReuseSpace(before);
+        }
+    }
+
+    /**
+     * A file being copied to the cold directory.
+     */
+    private final class ColdCopy {
 
+        /**
+         * The file to copy.
+         */
+        final Volume volume;
+
+        /**
+         * The name of the copy while it is written.
+         */
+        final String tempFileName;
+
+        /**
+         * The copy.
+         */
+        final FileChannel target;
+
+        /**
+         * The number of bytes copied so far.
+         */
+        long pos;
+
+        ColdCopy(Volume volume) {
+            this.volume = volume;
+            tempFileName = getColdFileName(volume.id) + TEMP_SUFFIX;
+            try {
+                target = FilePath.get(tempFileName).open("rw");
+            } catch (IOException e) {
+                throw DataUtils.newMVStoreException(
+                        DataUtils.ERROR_WRITING_FAILED,
+                        "Could not move file {0} to {1}", volume.fileName, coldDirectory, e);
+            }
+        }
+
+        /**
+         * Close and delete the incomplete copy.
+         */
+        void abort() {
+            try {
+                target.close();
+            } catch (IOException e) {
+                // ignore
+            }
+            FileUtils.tryDelete(tempFileName);
+        }
+    }
+
+    /**
+     * A file of the store.
+     */
+    private static final class Volume {
+
+        /**
+         * The file id.
+         */
+        final int id;
+
+        final String fileName;
+
+        /**
+         * The file, possibly encrypted.
+         */
+        final FileChannel file;
+
+        /**
+         * The unencrypted file, or null if encryption is not used.
+         */
+        final FileChannel originalFile;
+
+        final FileLock fileLock;
+
+        /**
+         * Whether the file is in the cold directory.
+         */
+        final boolean cold;
+
+        /**
+         * The size of the file, or the position of the next chunk for the
+         * current file. Only changed under the save chunk lock.
+         */
+        volatile long size;
+
+        /**
+         * The number of chunks in this file that are not freed yet. Only used
+         * under the save chunk lock.
+         */
+        int chunkCount;
+
+        Volume(int id, String fileName, FileChannel file, FileChannel originalFile, FileLock fileLock,
+                boolean cold) throws IOException {
+            this.id = id;
+            this.fileName = fileName;
+            this.file = file;
+            this.originalFile = originalFile;
+            this.fileLock = fileLock;
+            this.cold = cold;
+            size = file.size();
+        }
+
+        void sync() {
+            if (file.isOpen()) {
+                try {
+                    file.force(true);
+                } catch (IOException e) {
+                    throw DataUtils.newMVStoreException(
+                            DataUtils.ERROR_WRITING_FAILED,
+                            "Could not sync file {0}", fileName, e);
+                }
+            }
+        }
+
+        void truncate(long size) {
+            try {
+                file.truncate(size);
+                this.size = size;
+            } catch (IOException e) {
+                throw DataUtils.newMVStoreException(
+                        DataUtils.ERROR_WRITING_FAILED,
+                        "Could not truncate file {0} to size {1}",
+                        fileName, size, e);
+            }
+        }
+
+        void close() {
+            try {
+                if (file.isOpen()) {
+                    fileLock.release();
+                    file.close();
+                }
+            } catch (Exception e) {
+                throw DataUtils.newMVStoreException(
+                        DataUtils.ERROR_WRITING_FAILED,
+                        "Closing failed for file {0}", fileName, e);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return fileName;
+        }
     }
 }
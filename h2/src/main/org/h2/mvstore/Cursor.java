@@ -15,6 +15,17 @@
  * @param <V> the value type
  */
 public final class Cursor<K,V> implements Iterator<K> {
+
+    /**
+     * The initial number of leaf pages to read ahead.
+     */
+    private static final int MIN_READ_AHEAD = 4;
+
+    /**
+     * The maximum number of leaf pages to read ahead.
+     */
+    private static final int MAX_READ_AHEAD = 32;
+
     private final boolean reverse;
     private final K to;
     private CursorPos<K,V> cursorPos;
@@ -24,6 +35,31 @@
     private V lastValue;
     private Page<K,V> lastPage;
 
+    /**
+     * The maximum number of child pages to read in one batch, or 0.
+     */
+    private final int readBatchSize;
+
+    /**
+     * The number of times this cursor moved to the next leaf page.
+     */
+    private int leafCount;
+
+    /**
+     * The number of child pages to read ahead, or 0 if sequential access was
+     * not detected yet.
+     */
+    private int readAheadWindow;
+
+    /**
+     * The parent of leaf pages whose children are read ahead.
+     */
+    private Page<K,V> readAheadParent;
+
+    /**
+     * The index of the next child of readAheadParent to read ahead.
+     */
+    private int readAheadIndex;
 
     public Cursor(RootReference<K,V> rootReference, K from, K to) {
         this(rootReference, from, to, false);
@@ -40,6 +76,7 @@ public Cursor(RootReference<K,V> rootReference, K from, K to, boolean reverse) {
         this.cursorPos = traverseDown(lastPage, from, reverse);
         this.to = to;
         this.reverse = reverse;
+        this.readBatchSize = lastPage.map.getStore().getReadBatchSize();
     }
 
     @Override
@@ -61,7 +98,15 @@ public boolean hasNext() {
                 } else {
                     // traverse down to the leaf taking the leftmost path
                     while (!page.isLeaf()) {
+                        if (readBatchSize > 0) {
+                            // following children are likely needed too
+                            page.readChildPages(index, readBatchSize, reverse);
+                        }
+                        Page<K,V> parent = page;
                         page = page.getChildPage(index);
+                        if (page.isLeaf()) {
+                            readAhead(parent, index);
+                        }
                         index = reverse ? upperBound(page) - 1 : 0;
                         if (keeper == null) {
                             cursorPos = new CursorPos<>(page, index, cursorPos);
@@ -179,6 +224,36 @@ static <K,V> CursorPos<K,V> traverseDown(Page<K,V> page, K key, boolean reverse)
         return cursorPos;
     }
 
+    /**
+     * Read following leaf pages ahead if this cursor visits leaves
+     * sequentially. The number of pages read ahead starts small and is
+     * doubled each time the cursor consumes half of them, up to a limit.
+     *
+     * @param parent the parent of the leaf
+     * @param index the index of the leaf in the parent
+     */
+    private void readAhead(Page<K,V> parent, int index) {
+        // a cursor that only crosses one leaf boundary does not need read-ahead
+        if (++leafCount < 2) {
+            return;
+        }
+        int increment = reverse ? -1 : 1;
+        if (parent != readAheadParent) {
+            readAheadParent = parent;
+            readAheadIndex = index + increment;
+        }
+        int ahead = (readAheadIndex - index) * increment - 1;
+        int window = readAheadWindow == 0 ? MIN_READ_AHEAD : readAheadWindow;
+        if (ahead <= window / 2) {
+            int from = ahead > 0 ? readAheadIndex : index + increment;
+            int count = window - Math.max(ahead, 0);
+            if (parent.readChildPagesAhead(from, count, reverse)) {
+                readAheadIndex = from + count * increment;
+                readAheadWindow = Math.min(window * 2, MAX_READ_AHEAD);
+            }
+        }
+    }
+
     private static <K,V> int upperBound(Page<K,V> page) {
         return page.isLeaf() ? page.getKeyCount() : page.map.getChildPageCount(page);
     }
@@ -18,6 +18,7 @@
 
 import org.h2.engine.Constants;
 import org.h2.jdbc.JdbcException;
+import org.h2.store.fs.FileBase;
 import org.h2.util.StringUtils;
 
 /**
@@ -134,6 +135,11 @@ public final class DataUtils {
      */
     public static final int PAGE_COMPRESSED_HIGH = 2 + 4;
 
+    /**
+     * The bit mask for pages compressed with the dictionary of the map.
+     */
+    public static final int PAGE_COMPRESSED_DICTIONARY = 2 + 8;
+
     /**
      * The maximum integer that needs less space when using variable size
      * encoding (only 3 bytes instead of 4).
@@ -165,6 +171,13 @@ public final class DataUtils {
      */
     public static final String LAYOUT_ROOT = "root.";
 
+    /**
+     * The prefix for compression dictionaries of maps ("dictionary."). This,
+     * plus the map id (hex encoded) is the key, and the dictionary (hex
+     * encoded) is the value.
+     */
+    public static final String LAYOUT_DICTIONARY = "dictionary.";
+
     // The following are key prefixes used in meta map
 
     /**
@@ -460,6 +473,36 @@ public static void readFully(FileChannel file, long pos, ByteBuffer dst) {
         }
     }
 
+    /**
+     * Read from a file channel at several positions until the buffers are
+     * full. The reads are performed concurrently if the file supports that.
+     * The buffers are rewind after reading.
+     *
+     * @param file the file channel
+     * @param positions the absolute positions within the file
+     * @param dst the byte buffers
+     * @throws MVStoreException if some data could not be read
+     */
+    public static void readFully(FileChannel file, long[] positions, ByteBuffer[] dst) {
+        if (!(file instanceof FileBase)) {
+            for (int i = 0; i < dst.length; i++) {
+                readFully(file, positions[i], dst[i]);
+            }
+            return;
+        }
+        try {
+            ((FileBase) file).readFully(positions, dst);
+            for (ByteBuffer buff : dst) {
+                buff.rewind();
+            }
+        } catch (IOException e) {
+            throw newMVStoreException(
+                    ERROR_READING_FAILED,
+                    "Reading from file {0} failed at {1} ({2} positions)",
+                    file, positions[0], positions.length, e);
+        }
+    }
+
     /**
      * Write to a file channel.
      *
@@ -5,11 +5,17 @@
  */
 package org.h2.mvstore;
 
+import org.h2.compress.CompressDeflate;
+import org.h2.compress.CompressLZF;
+import org.h2.compress.CompressLZFDictionary;
+import org.h2.compress.Compressor;
 import org.h2.engine.Constants;
 import static org.h2.mvstore.MVStore.INITIAL_VERSION;
 import org.h2.mvstore.cache.CacheLongKeyLIRS;
+import org.h2.mvstore.cache.CacheLongKeyOffHeap;
 import org.h2.mvstore.type.StringDataType;
 import org.h2.util.MathUtils;
+import org.h2.util.StringUtils;
 import org.h2.util.Utils;
 import java.io.IOException;
 import java.nio.ByteBuffer;
@@ -18,10 +24,12 @@
 import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -86,7 +94,7 @@
     private static final int FORMAT_READ_MAX = 3;
 
     MVStore mvStore;
-    private boolean closed;
+    private volatile boolean closed;
 
     /**
      * The number of read operations.
@@ -147,6 +155,21 @@
      */
     private ThreadPoolExecutor bufferSaveExecutor;
 
+    /**
+     * Executor for parallel serialization of page data, or null
+     */
+    private ThreadPoolExecutor pageSerializationExecutor;
+
+    /**
+     * The maximum total length of pages which are being read ahead
+     */
+    private final AtomicLong readAheadBytes = new AtomicLong();
+
+    /**
+     * The number of threads to serialize page data of a chunk
+     */
+    private final int serializationThreads;
+
 
     /**
      * The page cache. The default size is 16 MB, and the average size is 2 KB.
@@ -155,6 +178,24 @@
      */
     private final CacheLongKeyLIRS<Page<?,?>> cache;
 
+    /**
+     * The second level cache of serialized pages in direct memory, or null if
+     * not used. Pages which are not in the page cache are read from here
+     * before they are read from the file.
+     */
+    private final CacheLongKeyOffHeap offHeapCache;
+
+    /**
+     * The compression dictionaries of maps, keyed by map id. The dictionaries
+     * are also stored in the layout map, and loaded from there when needed.
+     */
+    private final ConcurrentHashMap<Integer, CompressLZFDictionary> dictionaries = new ConcurrentHashMap<>();
+
+    /**
+     * The samples to train compression dictionaries of maps, keyed by map id.
+     */
+    private final ConcurrentHashMap<Integer, DictionarySamples> dictionarySamples = new ConcurrentHashMap<>();
+
     /**
      * Cache for chunks "Table of Content" used to translate page's
      * sequential number within containing chunk into byte position
@@ -203,6 +244,34 @@
 
     private final int autoCompactFillRate;
 
+    /**
+     * The maximum number of bytes per second written by background
+     * compaction, or 0 if not limited.
+     */
+    private final long autoCompactRate;
+
+    /**
+     * The number of bytes background compaction may write now. It is negative
+     * if the last compaction step wrote more than that (used by the background
+     * thread only).
+     */
+    private long compactBudget;
+
+    /**
+     * The time the compaction budget was last refilled, in nanoseconds.
+     */
+    private long compactBudgetTime;
+
+    /**
+     * The number of bytes rewritten or moved by compaction.
+     */
+    private final AtomicLong compactBytes = new AtomicLong();
+
+    /**
+     * The time spent to rewrite or move chunks, in nanoseconds.
+     */
+    private final AtomicLong compactNanos = new AtomicLong();
+
     /**
      * The delay in milliseconds to automatically commit and write changes.
      */
@@ -216,12 +285,56 @@
 
     public static final int PIPE_LENGTH = 3;
 
+    /**
+     * The minimum number of pages serialized by one parallel task.
+     */
+    private static final int MIN_PAGES_PER_TASK = 64;
+
+    /**
+     * The maximum size of a compression dictionary.
+     */
+    private static final int DICTIONARY_SIZE = 4096;
+
+    /**
+     * The total size of samples used to train a compression dictionary.
+     */
+    private static final int DICTIONARY_SAMPLES_SIZE = 64 * 1024;
+
+    /**
+     * The maximum size of one sample, the rest of a page is not used.
+     */
+    private static final int DICTIONARY_SAMPLE_MAX_LENGTH = 4096;
+
+    /**
+     * The maximum number of pages read in one batch.
+     */
+    private static final int READ_BATCH_SIZE = 8;
+
+    /**
+     * The number of threads reading pages ahead of sequential scans.
+     */
+    private static final int READ_AHEAD_THREADS = 2;
+
+    /**
+     * Pages being read ahead may use this fraction of the cache size at most.
+     */
+    private static final int READ_AHEAD_CACHE_FRACTION = 16;
+
+    /**
+     * Executor for reading pages ahead of sequential scans, shared by all
+     * stores. Threads are only started when needed.
+     */
+    private static final ThreadPoolExecutor READ_AHEAD_EXECUTOR =
+            Utils.createThreadPool("H2-read-ahead", READ_AHEAD_THREADS);
+
 
 
 
     protected FileStore(Map<String, Object> config) {
         recoveryMode = config.containsKey("recoveryMode");
         autoCompactFillRate = DataUtils.getConfigParam(config, "autoCompactFillRate", 90);
+        autoCompactRate = DataUtils.getConfigParam(config, "autoCompactRate", 0) * 1024L;
+        compactBudgetTime = System.nanoTime();
         CacheLongKeyLIRS.Config cc = null;
         int mb = DataUtils.getConfigParam(config, "cacheSize", 16);
         if (mb > 0) {
@@ -233,6 +346,8 @@ protected FileStore(Map<String, Object> config) {
             }
         }
         cache = cc == null ? null : new CacheLongKeyLIRS<>(cc);
+        mb = DataUtils.getConfigParam(config, "offHeapCacheSize", 0);
+        offHeapCache = mb > 0 ? new CacheLongKeyOffHeap(mb * 1024L * 1024L) : null;
 
         CacheLongKeyLIRS.Config cc2 = new CacheLongKeyLIRS.Config();
         cc2.maxMemory = 1024L * 1024L;
@@ -248,6 +363,8 @@ protected FileStore(Map<String, Object> config) {
             }
         }
         this.maxPageSize = maxPageSize;
+        serializationThreads = DataUtils.getConfigParam(config, "serializationThreads",
+                Math.min(Runtime.getRuntime().availableProcessors(), 4));
     }
 
     public abstract void open(String fileName, boolean readOnly, char[] encryptionKey);
@@ -279,8 +396,18 @@ public final void stop(long allowedCompactionTime) {
     }
 
     public void close() {
-        layout.close();
         closed = true;
+        // wait for pages which are being read ahead, pending reads are skipped
+        synchronized (this) {
+            try {
+                while (readAheadBytes.get() != 0) {
+                    wait(100);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        layout.close();
         chunks.clear();
     }
 
@@ -337,9 +464,97 @@ public final long getRootPos(int mapId) {
      * @return true if root was removed, false if it is not there
      */
     public final boolean deregisterMapRoot(int mapId) {
+        layout.remove(getDictionaryKey(mapId));
+        dictionaries.remove(mapId);
+        dictionarySamples.remove(mapId);
         return layout.remove(MVMap.getMapRootKey(mapId)) != null;
     }
 
+    private static String getDictionaryKey(int mapId) {
+        return DataUtils.LAYOUT_DICTIONARY + Integer.toHexString(mapId);
+    }
+
+    /**
+     * Get the compression dictionary of a map, loading it from the layout map
+     * if needed.
+     *
+     * @param mapId the map id
+     * @return the dictionary, or null if the map does not have one
+     */
+    private CompressLZFDictionary getDictionary(int mapId) {
+        CompressLZFDictionary dictionary = dictionaries.get(mapId);
+        if (dictionary == null) {
+            String s = layout.get(getDictionaryKey(mapId));
+            if (s != null) {
+                dictionary = new CompressLZFDictionary(StringUtils.convertHexToBytes(s));
+                CompressLZFDictionary old = dictionaries.putIfAbsent(mapId, dictionary);
+                if (old != null) {
+                    dictionary = old;
+                }
+            }
+        }
+        return dictionary;
+    }
+
+    /**
+     * Get the compressor to expand pages of a map compressed with its
+     * dictionary.
+     *
+     * @param mapId the map id
+     * @return the compressor
+     * @throws MVStoreException if the map does not have a dictionary
+     */
+    CompressLZFDictionary getDictionaryCompressor(int mapId) {
+        CompressLZFDictionary dictionary = getDictionary(mapId);
+        if (dictionary == null) {
+            throw DataUtils.newMVStoreException(DataUtils.ERROR_FILE_CORRUPT,
+                    "Compression dictionary of map {0} not found", mapId);
+        }
+        return dictionary;
+    }
+
+    /**
+     * Add the serialized data of a page to the samples to train the
+     * compression dictionary of its map.
+     *
+     * @param mapId the map id
+     * @param data the data
+     * @param pos the start of the data
+     * @param length the length of the data
+     */
+    void addDictionarySample(int mapId, byte[] data, int pos, int length) {
+        DictionarySamples samples = dictionarySamples.get(mapId);
+        if (samples == null) {
+            if (getDictionary(mapId) != null) {
+                return;
+            }
+            samples = dictionarySamples.computeIfAbsent(mapId, k -> new DictionarySamples());
+        }
+        samples.add(data, pos, Math.min(length, DICTIONARY_SAMPLE_MAX_LENGTH));
+    }
+
+    /**
+     * Train the compression dictionaries of maps with enough samples, and
+     * store all dictionaries in the layout map. The dictionaries are stored
+     * again in case the layout map was rolled back.
+     */
+    private void updateDictionaries() {
+        for (Map.Entry<Integer, DictionarySamples> entry : dictionarySamples.entrySet()) {
+            DictionarySamples samples = entry.getValue();
+            if (samples.isComplete()) {
+                byte[] dictionary = CompressLZFDictionary.train(samples.samples, DICTIONARY_SIZE);
+                dictionaries.putIfAbsent(entry.getKey(), new CompressLZFDictionary(dictionary));
+                dictionarySamples.remove(entry.getKey());
+            }
+        }
+        for (Map.Entry<Integer, CompressLZFDictionary> entry : dictionaries.entrySet()) {
+            String key = getDictionaryKey(entry.getKey());
+            if (!layout.containsKey(key)) {
+                layout.put(key, StringUtils.convertBytesToHex(entry.getValue().getDictionary()));
+            }
+        }
+    }
+
     /**
      * Check whether there are any unsaved changes since specified version.
      *
@@ -429,6 +644,10 @@ public final void setAutoCommitDelay(int millis) {
                         t.start();
                         serializationExecutor = Utils.createSingleThreadExecutor("H2-serialization");
                         bufferSaveExecutor = Utils.createSingleThreadExecutor("H2-save");
+                        if (serializationThreads > 1) {
+                            pageSerializationExecutor = Utils.createThreadPool("H2-page-serialization",
+                                    serializationThreads);
+                        }
                     }
                 }
             }
@@ -600,15 +819,17 @@ private void scrubLayoutMap(MVMap<String, String> meta) {
             }
         }
 
-        // remove roots of non-existent maps (leftover after unfinished map removal)
-        for (Iterator<String> it = layout.keyIterator(DataUtils.LAYOUT_ROOT); it.hasNext();) {
-            String key = it.next();
-            if (!key.startsWith(DataUtils.LAYOUT_ROOT)) {
-                break;
-            }
-            String mapIdStr = key.substring(key.lastIndexOf('.') + 1);
-            if(!meta.containsKey(DataUtils.META_MAP + mapIdStr) && DataUtils.parseHexInt(mapIdStr) != meta.getId()) {
-                keysToRemove.add(key);
+        // remove roots and dictionaries of non-existent maps (leftover after unfinished map removal)
+        for (String prefix : new String[]{ DataUtils.LAYOUT_ROOT, DataUtils.LAYOUT_DICTIONARY }) {
+            for (Iterator<String> it = layout.keyIterator(prefix); it.hasNext();) {
+                String key = it.next();
+                if (!key.startsWith(prefix)) {
+                    break;
+                }
+                String mapIdStr = key.substring(key.lastIndexOf('.') + 1);
+                if(!meta.containsKey(DataUtils.META_MAP + mapIdStr) && DataUtils.parseHexInt(mapIdStr) != meta.getId()) {
+                    keysToRemove.add(key);
+                }
             }
         }
 
@@ -657,10 +878,15 @@ public final void dropUnusedChunks() {
                 if (chunks.remove(chunk.id) != null) {
                     // purge dead pages from cache
                     long[] toc = cleanToCCache(chunk);
-                    if (toc != null && cache != null) {
+                    if (toc != null) {
                         for (long tocElement : toc) {
                             long pagePos = DataUtils.composePagePos(chunk.id, tocElement);
-                            cache.remove(pagePos);
+                            if (cache != null) {
+                                cache.remove(pagePos);
+                            }
+                            if (offHeapCache != null) {
+                                offHeapCache.remove(pagePos);
+                            }
                         }
                     }
 
@@ -724,6 +950,57 @@ protected final ByteBuffer readFully(FileChannel file, long pos, int len) {
         return dst;
     }
 
+    /**
+     * Read data from the store at several positions. The default
+     * implementation reads them one after another.
+     *
+     * @param chunks the chunks that own data to be read
+     * @param positions the read "positions"
+     * @param lengths the numbers of bytes to read
+     * @return the byte buffers with data requested
+     */
+    protected ByteBuffer[] readFully(List<C> chunks, long[] positions, int[] lengths) {
+        int count = positions.length;
+        ByteBuffer[] buffers = new ByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            buffers[i] = readFully(chunks.get(i), positions[i], lengths[i]);
+        }
+        return buffers;
+    }
+
+    protected final ByteBuffer[] readFully(FileChannel file, long[] positions, int[] lengths) {
+        int count = positions.length;
+        ByteBuffer[] buffers = new ByteBuffer[count];
+        long bytes = 0;
+        for (int i = 0; i < count; i++) {
+            buffers[i] = ByteBuffer.allocate(lengths[i]);
+            bytes += lengths[i];
+        }
+        DataUtils.readFully(file, positions, buffers);
+        readCount.addAndGet(count);
+        readBytes.addAndGet(bytes);
+        return buffers;
+    }
+
+    /**
+     * Check whether the store reads data at several positions concurrently.
+     *
+     * @return true if concurrent reads are supported
+     */
+    protected boolean isConcurrentReadSupported() {
+        return false;
+    }
+
+    /**
+     * Get the maximum number of pages that should be read in one batch, when
+     * one of them is not in the cache.
+     *
+     * @return the number of pages, or 0 if pages should be read one by one
+     */
+    public int getReadBatchSize() {
+        return cache != null && isConcurrentReadSupported() ? READ_BATCH_SIZE : 0;
+    }
+
 
     /**
      * Allocate logical space and assign position of the buffer within the store.
@@ -953,13 +1230,14 @@ private MVStoreException getUnsupportedWriteFormatException(long format, int exp
      * @return valid chunk or null if none found
      */
     protected final C discoverChunk(long block) {
+        long firstBlock = getFirstChunkBlock(block);
         long candidateLocation = Long.MAX_VALUE;
         C candidate = null;
         while (true) {
             if (block == candidateLocation) {
                 return candidate;
             }
-            if (block == 2) { // number of blocks occupied by headers
+            if (block == firstBlock) {
                 return null;
             }
             C test = readChunkFooter(block);
@@ -985,6 +1263,17 @@ protected final C discoverChunk(long block) {
         }
     }
 
+    /**
+     * Get the first block of the file where chunks may be stored. The blocks
+     * before it are occupied by the store header.
+     *
+     * @param block any block of the file
+     * @return the first block
+     */
+    protected long getFirstChunkBlock(long block) {
+        return 2;
+    }
+
     protected final boolean findLastChunkWithCompleteValidChunkSet(Comparator<C> chunkComparator,
             Map<Long, C> validChunksByLocation, boolean afterFullScan) {
         // this collection will hold potential candidates for lastChunk to fall back to,
@@ -1232,6 +1521,78 @@ protected final int getAutoCompactFillRate() {
         return autoCompactFillRate;
     }
 
+    /**
+     * Get the maximum rate of background compaction.
+     *
+     * @return the rate in KB per second, or 0 if not limited
+     */
+    public int getAutoCompactRate() {
+        return (int) (autoCompactRate >> 10);
+    }
+
+    /**
+     * Get the number of bytes background compaction may write now. The budget
+     * is refilled at the auto-compact rate, up to the amount of one second, so
+     * that compaction is done in small steps spread over time. Only the
+     * background thread may call this method.
+     *
+     * @return the budget in bytes, Long.MAX_VALUE if the rate is not limited,
+     *         or a value below 1 if compaction has to wait
+     */
+    protected final long getCompactBudget() {
+        if (autoCompactRate <= 0) {
+            return Long.MAX_VALUE;
+        }
+        long now = System.nanoTime();
+        long budget = compactBudget + (long) ((now - compactBudgetTime) * 1e-9 * autoCompactRate);
+        compactBudget = Math.min(budget, autoCompactRate);
+        compactBudgetTime = now;
+        return compactBudget;
+    }
+
+    /**
+     * Reduce the budget of background compaction. Only the background thread
+     * may call this method.
+     *
+     * @param bytes the number of bytes written by compaction
+     */
+    protected final void spendCompactBudget(long bytes) {
+        if (autoCompactRate > 0) {
+            compactBudget -= bytes;
+        }
+    }
+
+    /**
+     * Count chunk data rewritten or moved by compaction.
+     *
+     * @param bytes the number of bytes
+     * @param nanos the time it took, in nanoseconds
+     */
+    protected final void countCompaction(long bytes, long nanos) {
+        compactBytes.addAndGet(bytes);
+        compactNanos.addAndGet(nanos);
+    }
+
+    /**
+     * Get the number of bytes rewritten or moved by compaction, including
+     * compaction requested by the application.
+     *
+     * @return the number of bytes
+     */
+    public long getCompactBytes() {
+        return compactBytes.get();
+    }
+
+    /**
+     * Get the average throughput of compaction while it was running.
+     *
+     * @return the throughput in KB per second
+     */
+    public long getCompactThroughput() {
+        long nanos = compactNanos.get();
+        return nanos == 0 ? 0 : (long) (compactBytes.get() / 1.024e-6 / nanos);
+    }
+
 
     public void sync() {}
 
@@ -1455,7 +1816,9 @@ private void serializeToBuffer(WriteBuffer buff, ArrayList<Page<?, ?>> changed,
         c.next = headerLength;
 
         long version = c.version;
+        updateDictionaries();
         PageSerializationManager pageSerializationManager = new PageSerializationManager(c, buff);
+        serializeDataInParallel(changed, pageSerializationManager);
         for (Page<?,?> p : changed) {
             String key = MVMap.getMapRootKey(p.getMapId());
             if (p.getTotalCount() == 0) {
@@ -1508,6 +1871,75 @@ private void serializeToBuffer(WriteBuffer buff, ArrayList<Page<?, ?>> changed,
         c.buffer = buff.getBuffer();
     }
 
+    /**
+     * Serialize keys and values of all unsaved pages in parallel, if there are
+     * enough of them. The pages are split into ranges, each range is
+     * serialized and compressed by a separate task into its own buffer. The
+     * results are copied into the chunk buffer when the pages are written,
+     * together with page headers and child page positions, which are not known
+     * in advance.
+     *
+     * @param changed the changed root pages
+     * @param pageSerializationManager the serialization manager of the chunk
+     */
+    private void serializeDataInParallel(ArrayList<Page<?, ?>> changed,
+            PageSerializationManager pageSerializationManager) {
+        ThreadPoolExecutor executor = pageSerializationExecutor;
+        if (executor == null) {
+            return;
+        }
+        ArrayList<Page<?, ?>> pages = new ArrayList<>();
+        for (Page<?, ?> p : changed) {
+            if (p.getTotalCount() > 0) {
+                p.collectUnsaved(pages);
+            }
+        }
+        int count = pages.size();
+        int tasks = Math.min(serializationThreads, count / MIN_PAGES_PER_TASK);
+        if (tasks < 2) {
+            return;
+        }
+        int compressionLevel = mvStore.getCompressionLevel();
+        byte[][] data = new byte[count][];
+        ArrayList<Future<?>> futures = new ArrayList<>(tasks);
+        try {
+            for (int i = 0; i < tasks; i++) {
+                int from = (int) ((long) count * i / tasks), to = (int) ((long) count * (i + 1) / tasks);
+                futures.add(executor.submit(() -> {
+                    // compressors are not thread-safe
+                    Compressors compressors = new Compressors(compressionLevel <= 0 ? null
+                            : compressionLevel == 1 ? new CompressLZF() : new CompressDeflate());
+                    WriteBuffer buff = new WriteBuffer();
+                    for (int j = from; j < to; j++) {
+                        // the first byte is reserved for the compression type
+                        buff.clear().put((byte) 0);
+                        Page<?, ?> page = pages.get(j);
+                        int compressType = page.writeData(buff, compressors.get(page.map));
+                        ByteBuffer byteBuffer = buff.getBuffer();
+                        byteBuffer.put(0, (byte) compressType).flip();
+                        byte[] bytes = new byte[byteBuffer.remaining()];
+                        byteBuffer.get(bytes);
+                        data[j] = bytes;
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (RejectedExecutionException | InterruptedException | ExecutionException e) {
+            // pages will be serialized sequentially
+            for (Future<?> future : futures) {
+                future.cancel(false);
+            }
+            return;
+        }
+        IdentityHashMap<Page<?, ?>, byte[]> serializedData = new IdentityHashMap<>(count);
+        for (int i = 0; i < count; i++) {
+            serializedData.put(pages.get(i), data[i]);
+        }
+        pageSerializationManager.serializedData = serializedData;
+    }
+
     private void storeBuffer(C c, WriteBuffer buff) {
         saveChunkLock.lock();
         try {
@@ -1719,6 +2151,14 @@ public void populateInfo(BiConsumer<String, String> consumer) {
         consumer.accept("info.CACHE_SIZE", Integer.toString(getCacheSizeUsed()));
         consumer.accept("info.CACHE_HIT_RATIO", Integer.toString(getCacheHitRatio()));
         consumer.accept("info.TOC_CACHE_HIT_RATIO", Integer.toString(getTocCacheHitRatio()));
+        consumer.accept("info.COMPACT_RATE", Integer.toString(getAutoCompactRate()));
+        consumer.accept("info.COMPACT_BYTES", Long.toString(getCompactBytes()));
+        consumer.accept("info.COMPACT_THROUGHPUT", Long.toString(getCompactThroughput()));
+        if (offHeapCache != null) {
+            consumer.accept("info.OFF_HEAP_CACHE_MAX_SIZE", Integer.toString(getOffHeapCacheSize()));
+            consumer.accept("info.OFF_HEAP_CACHE_SIZE", Integer.toString(getOffHeapCacheSizeUsed()));
+            consumer.accept("info.OFF_HEAP_CACHE_HIT_RATIO", Integer.toString(getOffHeapCacheHitRatio()));
+        }
     }
 
 
@@ -1730,12 +2170,52 @@ public int getTocCacheHitRatio() {
         return getCacheHitRatio(chunksToC);
     }
 
+    /**
+     * Get the hit ratio of the off-heap cache, in percent. Only reads of pages
+     * which are not in the page cache use the off-heap cache.
+     *
+     * @return the hit ratio
+     */
+    public int getOffHeapCacheHitRatio() {
+        if (offHeapCache == null) {
+            return 0;
+        }
+        return getHitRatio(offHeapCache.getHits(), offHeapCache.getMisses());
+    }
+
+    /**
+     * Get the maximum size of the off-heap cache, in MB.
+     *
+     * @return the off-heap cache size
+     */
+    public int getOffHeapCacheSize() {
+        if (offHeapCache == null) {
+            return 0;
+        }
+        return (int) (offHeapCache.getMaxMemory() >> 20);
+    }
+
+    /**
+     * Get the amount of direct memory used by the off-heap cache, in MB.
+     *
+     * @return the amount of memory used by the off-heap cache
+     */
+    public int getOffHeapCacheSizeUsed() {
+        if (offHeapCache == null) {
+            return 0;
+        }
+        return (int) (offHeapCache.getUsedMemory() >> 20);
+    }
+
     private static int getCacheHitRatio(CacheLongKeyLIRS<?> cache) {
         if (cache == null) {
             return 0;
         }
-        long hits = cache.getHits();
-        return (int) (100 * hits / (hits + cache.getMisses() + 1));
+        return getHitRatio(cache.getHits(), cache.getMisses());
+    }
+
+    private static int getHitRatio(long hits, long misses) {
+        return (int) (100 * hits / (hits + misses + 1));
     }
 
     boolean isBackgroundThread() {
@@ -1775,6 +2255,8 @@ private void shutdownExecutors() {
         serializationExecutor = null;
         Utils.shutdownExecutor(bufferSaveExecutor);
         bufferSaveExecutor = null;
+        Utils.shutdownExecutor(pageSerializationExecutor);
+        pageSerializationExecutor = null;
     }
 
     private Iterable<C> findOldChunks(int writeLimit, int targetFillRate) {
@@ -1858,8 +2340,13 @@ protected boolean rewriteChunks(int writeLimit, int targetFillRate) {
                 acceptChunkOccupancyChanges(getTimeSinceCreation(), mvStore.getCurrentVersion());
                 Iterable<C> old = findOldChunks(writeLimit, targetFillRate);
                 if (old != null) {
+                    long start = System.nanoTime();
                     HashSet<Integer> idSet = createIdSet(old);
-                    return !idSet.isEmpty() && compactRewrite(idSet) > 0;
+                    long bytes = idSet.isEmpty() ? 0 : compactRewrite(idSet);
+                    if (bytes > 0) {
+                        countCompaction(bytes, System.nanoTime() - start);
+                        return true;
+                    }
                 }
             } finally {
                 mvStore.deregisterVersionUsage(txCounter);
@@ -1870,6 +2357,50 @@ protected boolean rewriteChunks(int writeLimit, int targetFillRate) {
         }
     }
 
+    /**
+     * Rewrite live pages of the chunk which is the best candidate for
+     * compaction, up to the given amount of data. A chunk with more live data
+     * is rewritten in a number of steps, each time the pages which are still
+     * in this chunk.
+     *
+     * @param targetFillRate the maximum fill rate of a chunk to rewrite
+     * @param maxBytes the maximum number of bytes to rewrite
+     * @return the number of bytes rewritten
+     */
+    protected long rewriteChunkPages(int targetFillRate, long maxBytes) {
+        serializationLock.lock();
+        try {
+            MVStore.TxCounter txCounter = mvStore.registerVersionUsage();
+            try {
+                acceptChunkOccupancyChanges(getTimeSinceCreation(), mvStore.getCurrentVersion());
+                Iterable<C> old = findOldChunks(Integer.MAX_VALUE, targetFillRate);
+                if (old != null) {
+                    C best = null;
+                    for (C c : old) {
+                        if (best == null || c.collectPriority < best.collectPriority) {
+                            best = c;
+                        }
+                    }
+                    long start = System.nanoTime();
+                    Set<Integer> set = Collections.singleton(best.id);
+                    long bytes = rewriteChunks(set, false, maxBytes);
+                    if (bytes < maxBytes) {
+                        bytes += rewriteChunks(set, true, maxBytes - bytes);
+                    }
+                    if (bytes > 0) {
+                        countCompaction(bytes, System.nanoTime() - start);
+                    }
+                    return bytes;
+                }
+            } finally {
+                mvStore.deregisterVersionUsage(txCounter);
+            }
+            return 0;
+        } finally {
+            serializationLock.unlock();
+        }
+    }
+
     private static <C extends Chunk<C>> HashSet<Integer> createIdSet(Iterable<C> toCompact) {
         HashSet<Integer> set = new HashSet<>();
         for (C c : toCompact) {
@@ -1896,23 +2427,32 @@ public void executeFileStoreOperation(Runnable operation) {
         }
     }
 
-    private int compactRewrite(Set<Integer> set) {
+    private long compactRewrite(Set<Integer> set) {
         acceptChunkOccupancyChanges(getTimeSinceCreation(), mvStore.getCurrentVersion());
-        int rewrittenPageCount = rewriteChunks(set, false);
+        long rewrittenBytes = rewriteChunks(set, false, Long.MAX_VALUE);
         acceptChunkOccupancyChanges(getTimeSinceCreation(), mvStore.getCurrentVersion());
-        rewrittenPageCount += rewriteChunks(set, true);
-        return rewrittenPageCount;
+        rewrittenBytes += rewriteChunks(set, true, Long.MAX_VALUE);
+        return rewrittenBytes;
     }
 
-    private int rewriteChunks(Set<Integer> set, boolean secondPass) {
-        int rewrittenPageCount = 0;
+    /**
+     * Rewrite the live pages of chunks.
+     *
+     * @param set the ids of the chunks
+     * @param secondPass whether to rewrite all pages, or only leaf pages
+     * @param maxBytes the maximum number of bytes to rewrite
+     * @return the number of bytes rewritten, the maximum length of pages is used
+     */
+    private long rewriteChunks(Set<Integer> set, boolean secondPass, long maxBytes) {
+        long rewrittenBytes = 0;
         for (int chunkId : set) {
             C chunk = chunks.get(chunkId);
             // there is a chance for a chunk to be dropped after set of chunks to be rewritten has been determined
             if (chunk != null) {
                 long[] toc = getToC(chunk);
                 if (toc != null) {
-                    for (int pageNo = 0; (pageNo = chunk.occupancy.nextClearBit(pageNo)) < chunk.pageCount; ++pageNo) {
+                    for (int pageNo = 0; (pageNo = chunk.occupancy.nextClearBit(pageNo)) < chunk.pageCount
+                            && rewrittenBytes < maxBytes; ++pageNo) {
                         long tocElement = toc[pageNo];
                         int mapId = DataUtils.getPageMapId(tocElement);
                         MVMap<String, String> metaMap = mvStore.getMetaMap();
@@ -1925,7 +2465,7 @@ private int rewriteChunks(Set<Integer> set, boolean secondPass) {
                                 serializationLock.unlock();
                                 try {
                                     if (map.rewritePage(pagePos)) {
-                                        ++rewrittenPageCount;
+                                        rewrittenBytes += DataUtils.getPageMaxLength(pagePos);
                                         if (mapId == metaMap.getId()) {
                                             mvStore.markMetaChanged();
                                         }
@@ -1939,7 +2479,7 @@ private int rewriteChunks(Set<Integer> set, boolean secondPass) {
                 }
             }
         }
-        return rewrittenPageCount;
+        return rewrittenBytes;
     }
 
 
@@ -1965,7 +2505,7 @@ <K,V> Page<K,V> readPage(MVMap<K,V> map, long pos) {
                     ByteBuffer buff = chunk.buffer;
                     boolean alreadySaved = buff == null;
                     if (alreadySaved) {
-                        buff = chunk.readBufferForPage(this, pageOffset, pos);
+                        buff = readPageBuffer(chunk, pageOffset, pos);
                     } else {
 //                        System.err.println("Using unsaved buffer " + chunk.id + "/" + pageOffset);
                         buff = buff.duplicate();
@@ -1999,6 +2539,174 @@ <K,V> Page<K,V> readPage(MVMap<K,V> map, long pos) {
         }
     }
 
+    private ByteBuffer readPageBuffer(C chunk, int pageOffset, long pos) {
+        if (offHeapCache == null) {
+            return chunk.readBufferForPage(this, pageOffset, pos);
+        }
+        ByteBuffer buff = offHeapCache.get(pos);
+        if (buff == null) {
+            buff = chunk.readBufferForPage(this, pageOffset, pos);
+            cacheOffHeap(pos, buff);
+        }
+        return buff;
+    }
+
+    /**
+     * Put the serialized page in the off-heap cache.
+     *
+     * @param pos the page position
+     * @param buff the buffer, it may contain data after the end of the page
+     */
+    private void cacheOffHeap(long pos, ByteBuffer buff) {
+        int length = buff.remaining();
+        if (length > 4) {
+            // the page length does not include the page number, a variable
+            // size int of up to 5 bytes
+            int pageLength = buff.getInt(buff.position()) + 5;
+            if (pageLength > 4 && pageLength < length) {
+                buff = buff.duplicate();
+                buff.limit(buff.position() + pageLength);
+            }
+            offHeapCache.put(pos, buff);
+        }
+    }
+
+    /**
+     * Read the specified pages into the cache in one batch, if the first of
+     * them is not in the cache. Pages which are in the cache already, and pages
+     * which can not be read in a batch, are skipped. Errors are ignored, such
+     * pages are read again by {@link #readPage(MVMap, long)} when needed.
+     *
+     * @param map the map
+     * @param positions the page positions
+     * @param count the number of positions
+     */
+    <K,V> void readPages(MVMap<K,V> map, long[] positions, int count) {
+        if (count < 2 || !DataUtils.isPageSaved(positions[0]) || readPageFromCache(positions[0]) != null) {
+            return;
+        }
+        loadPages(map, positions, count, 2);
+    }
+
+    /**
+     * Asynchronously read the specified pages into the cache, unless too much
+     * data is being read ahead for this store already.
+     *
+     * @param map the map
+     * @param positions the page positions
+     * @param count the number of positions
+     * @return whether the pages are going to be read
+     */
+    <K,V> boolean readAhead(MVMap<K,V> map, long[] positions, int count) {
+        if (cache == null || closed) {
+            return false;
+        }
+        long bytes = 0;
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            long pos = positions[i];
+            int length = DataUtils.getPageMaxLength(pos);
+            if (DataUtils.isPageSaved(pos) && length != DataUtils.PAGE_LARGE && !cache.containsKey(pos)) {
+                positions[n++] = pos;
+                bytes += length;
+            }
+        }
+        if (n == 0) {
+            return true;
+        }
+        if (readAheadBytes.addAndGet(bytes) > cache.getMaxMemory() / READ_AHEAD_CACHE_FRACTION) {
+            readAheadBytes.addAndGet(-bytes);
+            return false;
+        }
+        long size = bytes;
+        int pageCount = n;
+        READ_AHEAD_EXECUTOR.execute(() -> {
+            try {
+                loadPages(map, positions, pageCount, 1);
+            } catch (Throwable ignore) {
+                // pages will be read again when needed
+            } finally {
+                readAheadBytes.addAndGet(-size);
+                if (closed) {
+                    synchronized (this) {
+                        notifyAll();
+                    }
+                }
+            }
+        });
+        return true;
+    }
+
+    private <K,V> void loadPages(MVMap<K,V> map, long[] positions, int count, int minCount) {
+        if (closed) {
+            return;
+        }
+        ArrayList<C> pageChunks = new ArrayList<>(count);
+        long[] pagePositions = new long[count];
+        long[] filePositions = new long[count];
+        long[] blocks = new long[count];
+        int[] lengths = new int[count];
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            long pos = positions[i];
+            int length = DataUtils.getPageMaxLength(pos);
+            if (!DataUtils.isPageSaved(pos) || length == DataUtils.PAGE_LARGE || cache.containsKey(pos)) {
+                continue;
+            }
+            if (offHeapCache != null) {
+                ByteBuffer buff = offHeapCache.get(pos);
+                if (buff != null) {
+                    try {
+                        cachePage(Page.read(buff, pos, map));
+                    } catch (Exception ignore) {/**/}
+                    continue;
+                }
+            }
+            C chunk;
+            try {
+                chunk = getChunk(pos);
+            } catch (MVStoreException e) {
+                continue;
+            }
+            long block = chunk.block;
+            if (chunk.buffer != null || !chunk.isAllocated()) {
+                continue;
+            }
+            long filePos = block * BLOCK_SIZE + DataUtils.getPageOffset(pos);
+            long maxPos = (block + chunk.len) * BLOCK_SIZE;
+            length = (int) Math.min(maxPos - filePos, length);
+            if (length <= 0) {
+                continue;
+            }
+            pageChunks.add(chunk);
+            pagePositions[n] = pos;
+            filePositions[n] = filePos;
+            blocks[n] = block;
+            lengths[n++] = length;
+        }
+        if (n < minCount) {
+            return;
+        }
+        ByteBuffer[] buffers;
+        try {
+            buffers = readFully(pageChunks, Arrays.copyOf(filePositions, n),
+                    Arrays.copyOf(lengths, n));
+        } catch (MVStoreException e) {
+            return;
+        }
+        for (int i = 0; i < n; i++) {
+            // the chunk could be moved while it was read
+            if (pageChunks.get(i).block == blocks[i]) {
+                if (offHeapCache != null) {
+                    cacheOffHeap(pagePositions[i], buffers[i]);
+                }
+                try {
+                    cachePage(Page.read(buffers[i], pagePositions[i], map));
+                } catch (Exception ignore) {/**/}
+            }
+        }
+    }
+
     /**
      * Get the chunk for the given position.
      *
@@ -2057,6 +2765,9 @@ private void clearCaches() {
         if (chunksToC != null) {
             chunksToC.clear();
         }
+        if (offHeapCache != null) {
+            offHeapCache.clear();
+        }
         removedPages.clear();
     }
 
@@ -2102,10 +2813,15 @@ public void accountForRemovedPage(long pos, long version, boolean pinned, int pa
         private final C chunk;
         private final WriteBuffer buff;
         private final List<Long> toc = new ArrayList<>();
+        private IdentityHashMap<Page<?, ?>, byte[]> serializedData;
+        private final Compressors compressors;
 
         PageSerializationManager(C chunk, WriteBuffer buff) {
             this.chunk = chunk;
             this.buff = buff;
+            int compressionLevel = mvStore.getCompressionLevel();
+            compressors = new Compressors(compressionLevel <= 0 ? null
+                    : compressionLevel == 1 ? mvStore.getCompressorFast() : mvStore.getCompressorHigh());
         }
 
         public WriteBuffer getBuffer() {
@@ -2116,6 +2832,27 @@ private int getChunkId() {
             return chunk.id;
         }
 
+        /**
+         * Get the keys and values of the page serialized in advance.
+         *
+         * @param page the page
+         * @return the compression type followed by the serialized data, or
+         *         null if the page was not serialized in advance
+         */
+        byte[] getSerializedData(Page<?, ?> page) {
+            return serializedData == null ? null : serializedData.get(page);
+        }
+
+        /**
+         * Get the compressor for pages of the map.
+         *
+         * @param map the map
+         * @return the compressor, or null if pages are not compressed
+         */
+        Compressor getCompressor(MVMap<?, ?> map) {
+            return compressors.get(map);
+        }
+
         public int getPageNo() {
             return toc.size();
         }
@@ -2159,6 +2896,76 @@ public void serializeToC() {
     }
 
 
+    /**
+     * The compressors used by one thread to write pages.
+     */
+    private final class Compressors {
+
+        /**
+         * The compressor of the store, or null.
+         */
+        private final Compressor compressor;
+
+        /**
+         * The dictionary compressors of maps, keyed by map id.
+         */
+        private final HashMap<Integer, CompressLZFDictionary> dictionaryCompressors = new HashMap<>();
+
+        Compressors(Compressor compressor) {
+            this.compressor = compressor;
+        }
+
+        /**
+         * Get the compressor for pages of the map. The compressor of the store
+         * is used until the dictionary of the map is trained.
+         *
+         * @param map the map
+         * @return the compressor, or null if pages are not compressed
+         */
+        Compressor get(MVMap<?, ?> map) {
+            if (map.isCompressDictionary()) {
+                int mapId = map.getId();
+                CompressLZFDictionary c = dictionaryCompressors.get(mapId);
+                if (c == null) {
+                    CompressLZFDictionary dictionary = getDictionary(mapId);
+                    if (dictionary != null) {
+                        // compression is not thread-safe
+                        c = new CompressLZFDictionary(dictionary.getDictionary());
+                        dictionaryCompressors.put(mapId, c);
+                    }
+                }
+                if (c != null) {
+                    return c;
+                }
+            }
+            return compressor;
+        }
+    }
+
+    /**
+     * The samples to train the compression dictionary of a map.
+     */
+    private static final class DictionarySamples {
+
+        final ArrayList<byte[]> samples = new ArrayList<>();
+
+        private int size;
+
+        DictionarySamples() {
+        }
+
+        synchronized void add(byte[] data, int pos, int length) {
+            if (size < DICTIONARY_SAMPLES_SIZE) {
+                samples.add(Arrays.copyOfRange(data, pos, pos + length));
+                size += length;
+            }
+        }
+
+        synchronized boolean isComplete() {
+            return size >= DICTIONARY_SAMPLES_SIZE;
+        }
+    }
+
     private static final class RemovedPageInfo implements Comparable<RemovedPageInfo> {
         final long version;
         final long removedPageInfo;
@@ -10,6 +10,7 @@
 import java.util.AbstractList;
 import java.util.AbstractMap;
 import java.util.AbstractSet;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
@@ -18,6 +19,7 @@
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 
 import org.h2.mvstore.type.DataType;
 import org.h2.mvstore.type.ObjectDataType;
@@ -50,12 +52,18 @@
     private final DataType<V> valueType;
     private final int keysPerPage;
     private final boolean singleWriter;
-    private final K[] keysBuffer;
+    private final boolean compressDictionary;
+    private final Object keysBuffer;
     private final V[] valuesBuffer;
 
     private final Object lock = new Object();
     private volatile boolean notificationRequested;
 
+    /**
+     * The operations of threads that wait for the root lock, newest first.
+     */
+    private final AtomicReference<PendingOperation<K,V>> pendingOperations = new AtomicReference<>();
+
     /**
      * Whether the map is closed. Volatile so we don't accidentally write to a
      * closed map in multithreaded mode.
@@ -72,7 +80,9 @@ protected MVMap(Map<String, Object> config, DataType<K> keyType, DataType<V> val
                 DataUtils.readHexLong(config, "createVersion", 0),
                 new AtomicReference<>(),
                 ((MVStore) config.get("store")).getKeysPerPage(),
-                config.containsKey("singleWriter") && (Boolean) config.get("singleWriter")
+                config.containsKey("singleWriter") && (Boolean) config.get("singleWriter"),
+                config.containsKey("compressDictionary") ? (Boolean) config.get("compressDictionary")
+                        : ((MVStore) config.get("store")).isCompressDictionary()
         );
         setInitialRoot(createEmptyLeaf(), store.getCurrentVersion());
     }
@@ -81,17 +91,21 @@ protected MVMap(Map<String, Object> config, DataType<K> keyType, DataType<V> val
     @SuppressWarnings("CopyConstructorMissesField")
     protected MVMap(MVMap<K, V> source) {
         this(source.store, source.keyType, source.valueType, source.id, source.createVersion,
-                new AtomicReference<>(source.root.get()), source.keysPerPage, source.singleWriter);
+                new AtomicReference<>(source.root.get()), source.keysPerPage, source.singleWriter,
+                source.compressDictionary);
     }
 
-    // meta map constructor
+    // meta map constructor; the layout and meta maps are never compressed
+    // with a dictionary, so the dictionaries can be loaded from the layout map
+    // and older versions can still read the list of maps
     MVMap(MVStore store, int id, DataType<K> keyType, DataType<V> valueType) {
-        this(store, keyType, valueType, id, 0, new AtomicReference<>(), store.getKeysPerPage(), false);
+        this(store, keyType, valueType, id, 0, new AtomicReference<>(), store.getKeysPerPage(), false, false);
         setInitialRoot(createEmptyLeaf(), store.getCurrentVersion());
     }
 
     private MVMap(MVStore store, DataType<K> keyType, DataType<V> valueType, int id, long createVersion,
-            AtomicReference<RootReference<K,V>> root, int keysPerPage, boolean singleWriter) {
+            AtomicReference<RootReference<K,V>> root, int keysPerPage, boolean singleWriter,
+            boolean compressDictionary) {
         this.store = store;
         this.id = id;
         this.createVersion = createVersion;
@@ -99,9 +113,10 @@ private MVMap(MVStore store, DataType<K> keyType, DataType<V> valueType, int id,
         this.valueType = valueType;
         this.root = root;
         this.keysPerPage = keysPerPage;
-        this.keysBuffer = singleWriter ? keyType.createStorage(keysPerPage) : null;
+        this.keysBuffer = singleWriter ? keyType.createKeyStorage(keysPerPage) : null;
         this.valuesBuffer = singleWriter ? valueType.createStorage(keysPerPage) : null;
         this.singleWriter = singleWriter;
+        this.compressDictionary = compressDictionary;
         this.avgKeySize = keyType.isMemoryEstimationAllowed() ? new AtomicLong() : null;
         this.avgValSize = valueType.isMemoryEstimationAllowed() ? new AtomicLong() : null;
 
@@ -622,6 +637,15 @@ boolean isSingleWriter() {
         return singleWriter;
     }
 
+    /**
+     * Whether pages of this map are compressed with a dictionary of the map.
+     *
+     * @return true if a dictionary is used
+     */
+    final boolean isCompressDictionary() {
+        return compressDictionary;
+    }
+
     /**
      * Read a page.
      *
@@ -1251,7 +1275,7 @@ private RootReference<K,V> flushAppendBuffer(RootReference<K,V> rootReference, b
                         p.expand(available, keysBuffer, valuesBuffer);
                         keyCount -= available;
                         if (fullFlush) {
-                            K[] keys = p.createKeyStorage(keyCount);
+                            Object keys = p.createKeyStorage(keyCount);
                             V[] values = p.createValueStorage(keyCount);
                             System.arraycopy(keysBuffer, available, keys, 0, keyCount);
                             if (valuesBuffer != null) {
@@ -1268,8 +1292,9 @@ private RootReference<K,V> flushAppendBuffer(RootReference<K,V> rootReference, b
                     }
                 } else {
                     tip = tip.parent;
-                    page = Page.createLeaf(this,
-                            Arrays.copyOf(keysBuffer, keyCount),
+                    Object keys = p.createKeyStorage(keyCount);
+                    System.arraycopy(keysBuffer, 0, keys, 0, keyCount);
+                    page = Page.createLeaf(this, keys,
                             valuesBuffer == null ? null : Arrays.copyOf(valuesBuffer, keyCount),
                             0);
                 }
@@ -1285,8 +1310,8 @@ private RootReference<K,V> flushAppendBuffer(RootReference<K,V> rootReference, b
                             if (p.getKeyCount() == 0) {
                                 p = page;
                             } else {
-                                K[] keys = p.createKeyStorage(1);
-                                keys[0] = key;
+                                Object keys = p.createKeyStorage(1);
+                                keyType.setKey(keys, 0, key);
                                 Page.PageReference<K,V>[] children = Page.createRefStorage(2);
                                 children[0] = new Page.PageReference<>(p);
                                 children[1] = new Page.PageReference<>(page);
@@ -1373,7 +1398,7 @@ public void append(K key, V value) {
                     appendCounter = rootReference.getAppendCounter();
                     assert appendCounter < keysPerPage;
                 }
-                keysBuffer[appendCounter] = key;
+                keyType.setKey(keysBuffer, appendCounter, key);
                 if (valuesBuffer != null) {
                     valuesBuffer[appendCounter] = value;
                 }
@@ -1463,6 +1488,7 @@ public final String toString() {
 
         private DataType<K> keyType;
         private DataType<V> valueType;
+        private Boolean compressDictionary;
 
         /**
          * Create a new builder with the default key and value data types.
@@ -1515,6 +1541,20 @@ public BasicBuilder<M, K, V> valueType(DataType<? super V> valueType) {
             return this;
         }
 
+        /**
+         * Set whether pages of the map are compressed using the LZF algorithm
+         * with a dictionary trained from pages of this map. If not set, the
+         * setting of the store is used.
+         *
+         * @param compressDictionary whether to compress with a dictionary
+         * @return this
+         * @see MVStore.Builder#compressDictionary()
+         */
+        public BasicBuilder<M, K, V> compressDictionary(boolean compressDictionary) {
+            this.compressDictionary = compressDictionary;
+            return this;
+        }
+
         @Override
         public M create(MVStore store, Map<String, Object> config) {
             if (getKeyType() == null) {
@@ -1528,6 +1568,9 @@ public M create(MVStore store, Map<String, Object> config) {
             config.put("store", store);
             config.put("key", keyType);
             config.put("val", valueType);
+            if (compressDictionary != null) {
+                config.put("compressDictionary", compressDictionary);
+            }
             return create(config);
         }
 
@@ -1563,6 +1606,12 @@ public Builder<K, V> valueType(DataType<? super V> dataType) {
             return this;
         }
 
+        @Override
+        public Builder<K, V> compressDictionary(boolean compressDictionary) {
+            super.compressDictionary(compressDictionary);
+            return this;
+        }
+
         /**
          * Set up this Builder to produce MVMap, which can be used in append mode
          * by a single thread.
@@ -1598,6 +1647,17 @@ public enum Decision { ABORT, REMOVE, PUT, REPEAT }
      * for insert/update/delete key is found.
      * Revised value for insert/update is also provided based on original input value
      * and value currently existing in the map.
+     * <p>
+     * If the map is modified concurrently, the methods may be invoked by the
+     * thread that holds the root lock of the map instead of the thread that
+     * called operate(). The calling thread waits until they return, and sees
+     * all their changes afterwards, so a decision maker is used by one thread
+     * at a time, but it must not depend on the current thread (for example,
+     * use thread locals). The decision makers of transactional maps only
+     * change the state and the undo log of their transaction, which is not
+     * used by other threads while the calling thread waits, and they already
+     * append to the undo log while the root of the map is locked if the map
+     * is modified concurrently.
      *
      * @param <V> value type of the map
      */
@@ -1736,13 +1796,27 @@ public V operate(K key, V value, DecisionMaker<? super V> decisionMaker) {
         while(true) {
             RootReference<K,V> rootReference = flushAndGetRoot();
             boolean locked = rootReference.isLockedByCurrentThread();
+            boolean combining = false;
             if (!locked) {
                 if (attempt++ == 0) {
                     beforeWrite();
                 }
-                if (attempt > 3 || rootReference.isLocked()) {
+                if (rootReference.isLocked()) {
+                    // another thread is modifying the map,
+                    // let it apply this change together with its own
+                    PendingOperation<K,V> operation = new PendingOperation<>(key, value, decisionMaker);
+                    if (combine(operation)) {
+                        if (isPersistent()) {
+                            registerUnsavedMemory(operation.unsavedMemory);
+                        }
+                        return operation.result;
+                    }
+                    decisionMaker.reset();
+                    continue;
+                }
+                if (attempt > 3) {
                     rootReference = lockRoot(rootReference, attempt);
-                    locked = true;
+                    locked = combining = true;
                 }
             }
             Page<K,V> rootPage = rootReference.root;
@@ -1751,15 +1825,12 @@ public V operate(K key, V value, DecisionMaker<? super V> decisionMaker) {
             V result;
             unsavedMemoryHolder.value = 0;
             try {
-                CursorPos<K,V> pos = CursorPos.traverseDown(rootPage, key);
+                tip = CursorPos.traverseDown(rootPage, key);
                 if (!locked && rootReference != getRoot()) {
                     continue;
                 }
-                Page<K,V> p = pos.page;
-                int index = pos.index;
-                tip = pos;
-                pos = pos.parent;
-                result = index < 0 ? null : p.getValue(index);
+                int index = tip.index;
+                result = index < 0 ? null : tip.page.getValue(index);
                 Decision decision = decisionMaker.decide(result, value, tip);
 
                 switch (decision) {
@@ -1772,7 +1843,7 @@ public V operate(K key, V value, DecisionMaker<? super V> decisionMaker) {
                             continue;
                         }
                         return result;
-                    case REMOVE: {
+                    case REMOVE:
                         if (index < 0) {
                             if (!locked && rootReference != getRoot()) {
                                 decisionMaker.reset();
@@ -1780,75 +1851,12 @@ public V operate(K key, V value, DecisionMaker<? super V> decisionMaker) {
                             }
                             return null;
                         }
-
-                        if (p.getTotalCount() == 1 && pos != null) {
-                            int keyCount;
-                            do {
-                                p = pos.page;
-                                index = pos.index;
-                                pos = pos.parent;
-                                keyCount = p.getKeyCount();
-                                // condition below should always be false, but older
-                                // versions (up to 1.4.197) may create
-                                // single-childed (with no keys) internal nodes,
-                                // which we skip here
-                            } while (keyCount == 0 && pos != null);
-
-                            if (keyCount <= 1) {
-                                if (keyCount == 1) {
-                                    assert index <= 1;
-                                    p = p.getChildPage(1 - index);
-                                } else {
-                                    // if root happens to be such single-childed
-                                    // (with no keys) internal node, then just
-                                    // replace it with empty leaf
-                                    p = Page.createEmptyLeaf(this);
-                                }
-                                break;
-                            }
-                        }
-                        p = p.copy();
-                        p.remove(index);
                         break;
-                    }
-                    case PUT: {
+                    case PUT:
                         value = decisionMaker.selectValue(result, value);
-                        p = p.copy();
-                        if (index < 0) {
-                            p.insertLeaf(-index - 1, key, value);
-                            int keyCount;
-                            while ((keyCount = p.getKeyCount()) > store.getKeysPerPage()
-                                    || p.getMemory() > store.getMaxPageSize()
-                                    && keyCount > (p.isLeaf() ? 1 : 2)) {
-                                long totalCount = p.getTotalCount();
-                                int at = keyCount >> 1;
-                                K k = p.getKey(at);
-                                Page<K,V> split = p.split(at);
-                                unsavedMemoryHolder.value += p.getMemory() + split.getMemory();
-                                if (pos == null) {
-                                    K[] keys = p.createKeyStorage(1);
-                                    keys[0] = k;
-                                    Page.PageReference<K,V>[] children = Page.createRefStorage(2);
-                                    children[0] = new Page.PageReference<>(p);
-                                    children[1] = new Page.PageReference<>(split);
-                                    p = Page.createNode(this, keys, children, totalCount, 0);
-                                    break;
-                                }
-                                Page<K,V> c = p;
-                                p = pos.page;
-                                index = pos.index;
-                                pos = pos.parent;
-                                p = p.copy();
-                                p.setChild(index, split);
-                                p.insertNode(index, k, c);
-                            }
-                        } else {
-                            p.setValue(index, value);
-                        }
                         break;
-                    }
                 }
-                rootPage = replacePage(pos, p, unsavedMemoryHolder);
+                rootPage = modify(tip, decision, key, value, unsavedMemoryHolder);
                 if (!locked) {
                     rootReference = rootReference.updateRootPage(rootPage, attempt);
                     if (rootReference == null) {
@@ -1862,10 +1870,253 @@ public V operate(K key, V value, DecisionMaker<? super V> decisionMaker) {
                 return result;
             } finally {
                 if(locked) {
+                    ArrayList<PendingOperation<K,V>> applied = null;
+                    if (combining && pendingOperations.get() != null) {
+                        applied = new ArrayList<>();
+                        rootPage = applyPendingOperations(rootPage, version, applied);
+                    }
                     unlockRoot(rootPage);
+                    if (applied != null) {
+                        complete(applied);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove the entry at the cursor position, or put the key-value pair
+     * there, splitting pages as needed.
+     *
+     * @param tip the cursor position of the key
+     * @param decision REMOVE or PUT
+     * @param key the key
+     * @param value the value to put
+     * @param unsavedMemoryHolder receives the memory of the new pages
+     * @return the new root page
+     */
+    private Page<K,V> modify(CursorPos<K,V> tip, Decision decision, K key, V value,
+            IntValueHolder unsavedMemoryHolder) {
+        Page<K,V> p = tip.page;
+        int index = tip.index;
+        CursorPos<K,V> pos = tip.parent;
+        if (decision == Decision.REMOVE) {
+            if (p.getTotalCount() == 1 && pos != null) {
+                int keyCount;
+                do {
+                    p = pos.page;
+                    index = pos.index;
+                    pos = pos.parent;
+                    keyCount = p.getKeyCount();
+                    // condition below should always be false, but older
+                    // versions (up to 1.4.197) may create
+                    // single-childed (with no keys) internal nodes,
+                    // which we skip here
+                } while (keyCount == 0 && pos != null);
+
+                if (keyCount <= 1) {
+                    if (keyCount == 1) {
+                        assert index <= 1;
+                        p = p.getChildPage(1 - index);
+                    } else {
+                        // if root happens to be such single-childed
+                        // (with no keys) internal node, then just
+                        // replace it with empty leaf
+                        p = Page.createEmptyLeaf(this);
+                    }
+                    return replacePage(pos, p, unsavedMemoryHolder);
+                }
+            }
+            p = p.copy();
+            p.remove(index);
+        } else {
+            p = p.copy();
+            if (index < 0) {
+                p.insertLeaf(-index - 1, key, value);
+                int keyCount;
+                while ((keyCount = p.getKeyCount()) > store.getKeysPerPage()
+                        || p.getMemory() > store.getMaxPageSize()
+                        && keyCount > (p.isLeaf() ? 1 : 2)) {
+                    long totalCount = p.getTotalCount();
+                    int at = keyCount >> 1;
+                    K k = p.getKey(at);
+                    Page<K,V> split = p.split(at);
+                    unsavedMemoryHolder.value += p.getMemory() + split.getMemory();
+                    if (pos == null) {
+                        Object keys = p.createKeyStorage(1);
+                        keyType.setKey(keys, 0, k);
+                        Page.PageReference<K,V>[] children = Page.createRefStorage(2);
+                        children[0] = new Page.PageReference<>(p);
+                        children[1] = new Page.PageReference<>(split);
+                        p = Page.createNode(this, keys, children, totalCount, 0);
+                        break;
+                    }
+                    Page<K,V> c = p;
+                    p = pos.page;
+                    index = pos.index;
+                    pos = pos.parent;
+                    p = p.copy();
+                    p.setChild(index, split);
+                    p.insertNode(index, k, c);
                 }
+            } else {
+                p.setValue(index, value);
             }
         }
+        return replacePage(pos, p, unsavedMemoryHolder);
+    }
+
+    /**
+     * Hand an operation over to the thread that holds the root lock, and wait
+     * until it is applied. If the lock is released before, this thread locks
+     * the root and applies all pending operations itself.
+     *
+     * @param operation the operation
+     * @return true if the operation was applied, false if it has to be
+     *         repeated by the caller
+     */
+    private boolean combine(PendingOperation<K,V> operation) {
+        PendingOperation<K,V> head;
+        do {
+            head = pendingOperations.get();
+            operation.next = head;
+        } while (!pendingOperations.compareAndSet(head, operation));
+        for (int attempt = 1;; attempt++) {
+            int state = operation.state;
+            if (state == PendingOperation.DONE) {
+                return true;
+            } else if (state == PendingOperation.REPEAT) {
+                return false;
+            } else if (state == PendingOperation.FAILED) {
+                Throwable e = operation.exception;
+                if (e instanceof Error) {
+                    throw (Error) e;
+                }
+                throw (RuntimeException) e;
+            }
+            RootReference<K,V> rootReference = flushAndGetRoot();
+            if (!rootReference.isLocked()) {
+                RootReference<K,V> lockedRootReference = rootReference.tryLock(attempt);
+                if (lockedRootReference != null) {
+                    Page<K,V> rootPage = lockedRootReference.root;
+                    ArrayList<PendingOperation<K,V>> applied = new ArrayList<>();
+                    try {
+                        rootPage = applyPendingOperations(rootPage, lockedRootReference.version, applied);
+                    } finally {
+                        unlockRoot(rootPage);
+                    }
+                    complete(applied);
+                }
+            } else if (attempt < 4) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(this, 100_000L);
+            }
+        }
+    }
+
+    /**
+     * Apply the operations that other threads handed over while the root is
+     * locked by the current thread, so that all of them are published with a
+     * single root update.
+     *
+     * The operations are completed only after the new root is published, so
+     * their threads see their own changes.
+     *
+     * @param rootPage the current root page
+     * @param version the current version
+     * @param applied receives the applied operations, they have to be
+     *            completed after the root is unlocked
+     * @return the new root page
+     */
+    private Page<K,V> applyPendingOperations(Page<K,V> rootPage, long version,
+            ArrayList<PendingOperation<K,V>> applied) {
+        // the number of batches is limited, so that the current thread
+        // is not kept busy forever
+        for (int batch = 0; batch < 4; batch++) {
+            PendingOperation<K,V> operation = pendingOperations.getAndSet(null);
+            if (operation == null) {
+                break;
+            }
+            // the stack holds the newest operation first
+            PendingOperation<K,V> first = null;
+            do {
+                PendingOperation<K,V> next = operation.next;
+                operation.next = first;
+                first = operation;
+                operation = next;
+            } while (operation != null);
+            for (operation = first; operation != null;) {
+                PendingOperation<K,V> next = operation.next;
+                int state;
+                try {
+                    Page<K,V> newRootPage = apply(rootPage, version, operation);
+                    if (newRootPage == null) {
+                        state = PendingOperation.REPEAT;
+                    } else {
+                        rootPage = newRootPage;
+                        state = PendingOperation.DONE;
+                    }
+                } catch (Throwable e) {
+                    operation.exception = e;
+                    state = PendingOperation.FAILED;
+                }
+                operation.outcome = state;
+                applied.add(operation);
+                operation = next;
+            }
+        }
+        return rootPage;
+    }
+
+    /**
+     * Wake up the threads of applied operations.
+     *
+     * @param applied the applied operations
+     */
+    private static <K,V> void complete(ArrayList<PendingOperation<K,V>> applied) {
+        for (PendingOperation<K,V> operation : applied) {
+            operation.complete();
+        }
+    }
+
+    /**
+     * Apply an operation of another thread.
+     *
+     * @param rootPage the current root page
+     * @param version the current version
+     * @param operation the operation
+     * @return the new root page, or null if the operation has to be repeated
+     */
+    private Page<K,V> apply(Page<K,V> rootPage, long version, PendingOperation<K,V> operation) {
+        DecisionMaker<? super V> decisionMaker = operation.decisionMaker;
+        K key = operation.key;
+        V value = operation.value;
+        CursorPos<K,V> tip = CursorPos.traverseDown(rootPage, key);
+        int index = tip.index;
+        V result = index < 0 ? null : tip.page.getValue(index);
+        operation.result = result;
+        Decision decision = decisionMaker.decide(result, value, tip);
+        switch (decision) {
+            case REPEAT:
+                return null;
+            case ABORT:
+                return rootPage;
+            case REMOVE:
+                if (index < 0) {
+                    return rootPage;
+                }
+                break;
+            case PUT:
+                value = decisionMaker.selectValue(result, value);
+                break;
+        }
+        IntValueHolder unsavedMemoryHolder = new IntValueHolder();
+        rootPage = modify(tip, decision, key, value, unsavedMemoryHolder);
+        if (isPersistent()) {
+            operation.unsavedMemory = unsavedMemoryHolder.value + tip.processRemovalInfo(version);
+        }
+        return rootPage;
     }
 
     private RootReference<K,V> lockRoot(RootReference<K,V> rootReference, int attempt) {
@@ -1976,11 +2227,16 @@ final boolean isMemoryEstimationAllowed() {
         return avgKeySize != null || avgValSize != null;
     }
 
-    final int evaluateMemoryForKeys(K[] storage, int count) {
+    @SuppressWarnings("unchecked")
+    final int evaluateMemoryForKeys(Object storage, int count) {
+        if (!(storage instanceof Object[])) {
+            // an array of primitive values
+            return count == 0 ? 0 : count * keyType.getMemory(keyType.getKey(storage, 0));
+        }
         if (avgKeySize == null) {
-            return calculateMemory(keyType, storage, count);
+            return calculateMemory(keyType, (K[]) storage, count);
         }
-        return MemoryEstimator.estimateMemory(avgKeySize, keyType, storage, count);
+        return MemoryEstimator.estimateMemory(avgKeySize, keyType, (K[]) storage, count);
     }
 
     final int evaluateMemoryForValues(V[] storage, int count) {
@@ -2105,4 +2361,48 @@ private static final class IntValueHolder {
 
         IntValueHolder() {}
     }
+
+    /**
+     * An operation of a thread that waits until the thread holding the root
+     * lock applies it.
+     */
+    private static final class PendingOperation<K,V> {
+
+        static final int PENDING = 0, DONE = 1, REPEAT = 2, FAILED = 3;
+
+        final K key;
+        final V value;
+        final DecisionMaker<? super V> decisionMaker;
+        final Thread thread = Thread.currentThread();
+
+        /**
+         * The next older operation while pending, the next newer one while
+         * being applied.
+         */
+        PendingOperation<K,V> next;
+
+        V result;
+        int unsavedMemory;
+        Throwable exception;
+
+        /**
+         * The state to set when the operation is completed.
+         */
+        int outcome;
+
+        volatile int state;
+
+        PendingOperation(K key, V value, DecisionMaker<? super V> decisionMaker) {
+            this.key = key;
+            this.value = value;
+            this.decisionMaker = decisionMaker;
+        }
+
+        void complete() {
+            // the volatile write publishes the result, and the changes of
+            // the decision maker, to the waiting thread
+            state = outcome;
+            LockSupport.unpark(thread);
+        }
+    }
 }
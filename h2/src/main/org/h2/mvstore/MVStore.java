@@ -191,6 +191,12 @@ public final class MVStore implements AutoCloseable {
      */
     private final int compressionLevel;
 
+    /**
+     * Whether pages of maps are compressed with a dictionary of the map by
+     * default.
+     */
+    private final boolean compressDictionary;
+
     private Compressor compressorFast;
 
     private Compressor compressorHigh;
@@ -250,12 +256,14 @@ public final class MVStore implements AutoCloseable {
      */
     MVStore(Map<String, Object> config) {
         compressionLevel = DataUtils.getConfigParam(config, "compress", 0);
+        compressDictionary = DataUtils.getConfigParam(config, "compressDictionary", 0) != 0;
         String fileName = (String) config.get("fileName");
         FileStore<?> fileStore = (FileStore<?>) config.get("fileStore");
         boolean fileStoreShallBeOpen = false;
         if (fileStore == null) {
             if (fileName != null) {
-                fileStore = new SingleFileStore(config);
+                fileStore = config.containsKey("maxFileSize") || config.containsKey("coldDirectory")
+                        ? new AppendOnlyMultiFileStore(config) : new SingleFileStore(config);
                 fileStoreShallBeOpen = true;
             }
             fileStoreShallBeClosed = true;
@@ -915,6 +923,26 @@ public boolean hasUnsavedChanges() {
         return fileStore != null && fileStore.hasChangesSince(lastStoredVersion);
     }
 
+    /**
+     * Check whether the metadata or any of the maps accepted by the filter were
+     * changed after the specified version, or have unsaved changes.
+     *
+     * @param version the version to check against
+     * @param filter the filter for maps to check
+     * @return if there are any such changes
+     */
+    public boolean hasChangesSince(long version, Predicate<MVMap<?, ?>> filter) {
+        if (meta.hasChangesSince(version)) {
+            return true;
+        }
+        for (MVMap<?, ?> m : maps.values()) {
+            if (!m.isClosed() && filter.test(m) && m.hasChangesSince(version)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public void executeFilestoreOperation(Runnable operation) {
         storeLock.lock();
         try {
@@ -1021,6 +1049,46 @@ <K,V> Page<K,V> readPage(MVMap<K,V> map, long pos) {
         return fileStore.readPage(map, pos);
     }
 
+    /**
+     * Read several pages into the cache in one batch, if the first of them is
+     * not in the cache.
+     *
+     * @param <K> key type
+     * @param <V> value type
+     *
+     * @param map the map
+     * @param positions the page positions
+     * @param count the number of positions
+     */
+    <K,V> void readPages(MVMap<K,V> map, long[] positions, int count) {
+        checkNotClosed();
+        fileStore.readPages(map, positions, count);
+    }
+
+    /**
+     * Asynchronously read several pages into the cache.
+     *
+     * @param <K> key type
+     * @param <V> value type
+     *
+     * @param map the map
+     * @param positions the page positions
+     * @param count the number of positions
+     * @return whether the pages are going to be read
+     */
+    <K,V> boolean readAhead(MVMap<K,V> map, long[] positions, int count) {
+        return fileStore != null && isOpen() && fileStore.readAhead(map, positions, count);
+    }
+
+    /**
+     * Get the maximum number of pages that should be read in one batch.
+     *
+     * @return the number of pages, or 0 if pages should be read one by one
+     */
+    int getReadBatchSize() {
+        return fileStore == null ? 0 : fileStore.getReadBatchSize();
+    }
+
     /**
      * Remove a page.
      *  @param pos the position of the page
@@ -1050,6 +1118,10 @@ int getCompressionLevel() {
         return compressionLevel;
     }
 
+    boolean isCompressDictionary() {
+        return compressDictionary;
+    }
+
     public int getKeysPerPage() {
         return keysPerPage;
     }
@@ -1872,6 +1944,20 @@ public Builder autoCompactFillRate(int percent) {
             return set("autoCompactFillRate", percent);
         }
 
+        /**
+         * Set the maximum rate at which the background thread rewrites and
+         * moves chunks to compact the file, in KB per second. Compaction is
+         * then done in small steps of at most one second worth of data, to
+         * avoid latency spikes. The default is 0, which means the rate is not
+         * limited.
+         *
+         * @param kb the rate in KB per second
+         * @return this
+         */
+        public Builder autoCompactRate(int kb) {
+            return set("autoCompactRate", kb);
+        }
+
         /**
          * Use the following file name. If the file does not exist, it is
          * automatically created. The parent directory already must exist.
@@ -1883,6 +1969,50 @@ public Builder fileName(String fileName) {
             return set("fileName", fileName);
         }
 
+        /**
+         * Store the data in a sequence of files instead of a single one, and
+         * start a new file when the current one reaches this size. The files
+         * are named after the file name, with a number appended. Old files
+         * are deleted once they do not contain live data any more.
+         *
+         * @param kb the maximum size of a file in KB
+         * @return this
+         */
+        public Builder maxFileSize(int kb) {
+            return set("maxFileSize", kb);
+        }
+
+        /**
+         * Store the data in a sequence of files, and move older files to the
+         * given directory. Only the most recent files stay in the directory of
+         * the file name. Files are moved by compaction, and by the background
+         * thread within the auto-compact rate. This is only available with the
+         * MVStore API; databases opened with a database URL always use a
+         * single file. The application is responsible for the files in the
+         * directory: file tools don't list, copy or delete them, only
+         * {@link FileStore#backup(java.util.zip.ZipOutputStream)} includes
+         * them.
+         *
+         * @param directory the directory for older files, must exist
+         * @return this
+         * @see #maxFileSize(int)
+         * @see #hotFileCount(int)
+         */
+        public Builder coldDirectory(String directory) {
+            return set("coldDirectory", directory);
+        }
+
+        /**
+         * Set the number of the most recent files that are not moved to the
+         * cold directory. The default is 2, including the current file.
+         *
+         * @param count the number of files
+         * @return this
+         */
+        public Builder hotFileCount(int count) {
+            return set("hotFileCount", count);
+        }
+
         /**
          * Encrypt / decrypt the file using the given password. This method has
          * no effect for in-memory stores. The password is passed as a
@@ -1943,6 +2073,21 @@ public Builder cacheSize(int mb) {
             return set("cacheSize", mb);
         }
 
+        /**
+         * Set the size of the second level cache of serialized pages, in MB.
+         * This cache uses direct memory outside of the Java heap, pages that
+         * are not in the read cache are read from this cache before they are
+         * read from the file. Please note the maximum amount of direct memory
+         * of the JVM may need to be increased. The default is 0, which means
+         * this cache is not used.
+         *
+         * @param mb the off-heap cache size in MB
+         * @return this
+         */
+        public Builder offHeapCacheSize(int mb) {
+            return set("offHeapCacheSize", mb);
+        }
+
         /**
          * Set the read cache concurrency. The default is 16, meaning 16
          * segments are used.
@@ -1984,6 +2129,23 @@ public Builder compressHigh() {
             return set("compress", 2);
         }
 
+        /**
+         * Compress pages of maps using the LZF algorithm with a dictionary per
+         * map. The dictionary is trained from samples of the first pages of a
+         * map and stored in the file. Pages written before that are compressed
+         * according to the compression level of the store. This improves the
+         * compression ratio of small pages at the speed of LZF. Individual maps
+         * may override this setting, see
+         * {@link MVMap.BasicBuilder#compressDictionary(boolean)}.
+         * <p>
+         * Older versions can not read pages compressed this way.
+         *
+         * @return this
+         */
+        public Builder compressDictionary() {
+            return set("compressDictionary", 1);
+        }
+
         /**
          * Set the amount of memory a page should contain at most, in bytes,
          * before it is split. The default is 16 KB for persistent stores and 4
@@ -1998,6 +2160,32 @@ public Builder pageSplitSize(int pageSplitSize) {
             return set("pageSplitSize", pageSplitSize);
         }
 
+        /**
+         * Set the number of threads used to serialize and compress pages of
+         * large chunks written in the background. The default is the number
+         * of available processors, but at most 4. The value 1 disables parallel
+         * serialization.
+         *
+         * @param threads the number of threads
+         * @return this
+         */
+        public Builder serializationThreads(int threads) {
+            return set("serializationThreads", threads);
+        }
+
+        /**
+         * Read the file through read-only memory mapped segments instead of the
+         * file channel. Pages are read from the operating system page cache
+         * without copying them to an intermediate buffer first. Writes still
+         * use the file channel. This option has no effect for encrypted files
+         * and for file systems other than the default one.
+         *
+         * @return this
+         */
+        public Builder memoryMapped() {
+            return set("memoryMapped", 1);
+        }
+
         /**
          * Set the listener to be used for exceptions that occur when writing in
          * the background thread.
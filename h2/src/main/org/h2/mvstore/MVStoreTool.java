@@ -13,12 +13,14 @@
 import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.sql.Timestamp;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.TreeMap;
 
 import org.h2.compress.CompressDeflate;
 import org.h2.compress.CompressLZF;
+import org.h2.compress.CompressLZFDictionary;
 import org.h2.compress.Compressor;
 import org.h2.engine.Constants;
 import org.h2.mvstore.tx.TransactionStore;
@@ -26,6 +28,7 @@
 import org.h2.mvstore.type.StringDataType;
 import org.h2.store.fs.FilePath;
 import org.h2.store.fs.FileUtils;
+import org.h2.util.StringUtils;
 import org.h2.util.Utils;
 
 /**
@@ -116,6 +119,8 @@ public static void dump(String fileName, Writer writer, boolean details) {
         TreeMap<Integer, Long> mapSizesTotal =
                 new TreeMap<>();
         long pageSizeTotal = 0;
+        // compression dictionaries found in the layout map so far
+        HashMap<Integer, CompressLZFDictionary> dictionaries = new HashMap<>();
         try (FileChannel file = FilePath.get(fileName).open("r")) {
             long fileSize = file.size();
             int len = Long.toHexString(fileSize).length();
@@ -201,7 +206,9 @@ public static void dump(String fileName, Writer writer, boolean details) {
                                         "x %s, map %x, %d entries, %d bytes, maxLen %x%n",
                                 p,
                                 (node ? "node" : "leaf") +
-                                        (compressed ? " compressed" : ""),
+                                        (!compressed ? "" : (type & DataUtils.PAGE_COMPRESSED_DICTIONARY) ==
+                                                DataUtils.PAGE_COMPRESSED_DICTIONARY ? " compressed with dictionary"
+                                                : " compressed"),
                                 mapId,
                                 node ? entries + 1 : entries,
                                 pageSize,
@@ -239,8 +246,19 @@ public static void dump(String fileName, Writer writer, boolean details) {
                     if (mapId == 0 && details) {
                         ByteBuffer data;
                         if (compressed) {
-                            boolean fast = (type & DataUtils.PAGE_COMPRESSED_HIGH) != DataUtils.PAGE_COMPRESSED_HIGH;
-                            Compressor compressor = getCompressor(fast);
+                            Compressor compressor;
+                            if ((type & DataUtils.PAGE_COMPRESSED_DICTIONARY) ==
+                                    DataUtils.PAGE_COMPRESSED_DICTIONARY) {
+                                compressor = dictionaries.get(mapId);
+                                if (compressor == null) {
+                                    pw.printf("    ERROR dictionary of map %x not found%n", mapId);
+                                    continue;
+                                }
+                            } else {
+                                boolean fast = (type & DataUtils.PAGE_COMPRESSED_HIGH) !=
+                                        DataUtils.PAGE_COMPRESSED_HIGH;
+                                compressor = getCompressor(fast);
+                            }
                             int lenAdd = DataUtils.readVarInt(chunk);
                             int compLen = pageSize + start - chunk.position();
                             byte[] comp = Utils.newBytes(compLen);
@@ -284,6 +302,12 @@ public static void dump(String fileName, Writer writer, boolean details) {
                             for (int i = 0; i < entries; i++) {
                                 pw.println("    " + keys[i] +
                                         " = " + values[i]);
+                                if (keys[i].startsWith(DataUtils.LAYOUT_DICTIONARY)) {
+                                    int id = DataUtils.parseHexInt(
+                                            keys[i].substring(DataUtils.LAYOUT_DICTIONARY.length()));
+                                    dictionaries.put(id, new CompressLZFDictionary(
+                                            StringUtils.convertHexToBytes(values[i])));
+                                }
                             }
                         }
                     } else {
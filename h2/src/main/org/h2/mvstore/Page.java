@@ -9,11 +9,14 @@
 import static org.h2.engine.Constants.MEMORY_OBJECT;
 import static org.h2.engine.Constants.MEMORY_POINTER;
 import static org.h2.mvstore.DataUtils.PAGE_TYPE_LEAF;
+import java.lang.reflect.Array;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import org.h2.compress.Compressor;
 import org.h2.mvstore.FileStore.PageSerializationManager;
+import org.h2.mvstore.type.DataType;
 import org.h2.util.Utils;
 
 /**
@@ -28,7 +31,7 @@
  * page number (0-based sequential number within a chunk): varInt
  * map id: varInt
  * number of keys: varInt
- * type: byte (0: leaf, 1: node; +2: compressed)
+ * type: byte (0: leaf, 1: node; +2: compressed; +4: high compression; +8: dictionary)
  * children of the non-leaf node (1 more than keys)
  * compressed: bytes saved (varInt)
  * keys
@@ -78,9 +81,10 @@
     private int diskSpaceUsed;
 
     /**
-     * The keys.
+     * The keys, an array of type K or an array of primitive values created by
+     * the key type.
      */
-    private K[] keys;
+    private Object keys;
 
     /**
      * Updater for pos field, which can be updated when page is saved,
@@ -100,7 +104,7 @@
     private static final int PAGE_MEMORY =
             MEMORY_OBJECT +           // this
             2 * MEMORY_POINTER +      // map, keys
-            MEMORY_ARRAY +            // Object[] keys
+            MEMORY_ARRAY +            // keys
             17;                       // pos, cachedCompare, memory, removedInMemory
     /**
      * The estimated number of bytes used per empty internal page object.
@@ -137,7 +141,7 @@
         memory = source.memory;
     }
 
-    Page(MVMap<K,V> map, K[] keys) {
+    Page(MVMap<K,V> map, Object keys) {
         this.map = map;
         this.keys = keys;
     }
@@ -152,7 +156,7 @@
      * @return the new page
      */
     static <K,V> Page<K,V> createEmptyLeaf(MVMap<K,V> map) {
-        return createLeaf(map, map.getKeyType().createStorage(0),
+        return createLeaf(map, map.getKeyType().createKeyStorage(0),
                 map.getValueType().createStorage(0), PAGE_LEAF_MEMORY);
     }
 
@@ -167,7 +171,7 @@ static <K,V> Page<K,V> createEmptyLeaf(MVMap<K,V> map) {
      */
     @SuppressWarnings("unchecked")
     static <K,V> Page<K,V> createEmptyNode(MVMap<K,V> map) {
-        return createNode(map, map.getKeyType().createStorage(0), SINGLE_EMPTY, 0,
+        return createNode(map, map.getKeyType().createKeyStorage(0), SINGLE_EMPTY, 0,
                             PAGE_NODE_MEMORY + MEMORY_POINTER + PAGE_MEMORY_CHILD); // there is always one child
     }
 
@@ -177,13 +181,13 @@ static <K,V> Page<K,V> createEmptyNode(MVMap<K,V> map) {
      * @param <K> the key class
      * @param <V> the value class
      * @param map the map
-     * @param keys the keys
+     * @param keys the keys created by {@link #createKeyStorage(int)}
      * @param children the child page positions
      * @param totalCount the total number of keys
      * @param memory the memory used in bytes
      * @return the page
      */
-    public static <K,V> Page<K,V> createNode(MVMap<K,V> map, K[] keys, PageReference<K,V>[] children,
+    public static <K,V> Page<K,V> createNode(MVMap<K,V> map, Object keys, PageReference<K,V>[] children,
                                     long totalCount, int memory) {
         assert keys != null;
         Page<K,V> page = new NonLeaf<>(map, keys, children, totalCount);
@@ -198,12 +202,12 @@ public static <K,V> Page<K,V> createNode(MVMap<K,V> map, K[] keys, PageReference
      * @param <V> value type
      *
      * @param map the map
-     * @param keys the keys
+     * @param keys the keys created by {@link #createKeyStorage(int)}
      * @param values the values
      * @param memory the memory used in bytes
      * @return the page
      */
-    static <K,V> Page<K,V> createLeaf(MVMap<K,V> map, K[] keys, V[] values, int memory) {
+    static <K,V> Page<K,V> createLeaf(MVMap<K,V> map, Object keys, V[] values, int memory) {
         assert keys != null;
         Page<K,V> page = new Leaf<>(map, keys, values);
         page.initMemoryAccount(memory);
@@ -291,7 +295,7 @@ public final int getMapId() {
      * @return the key
      */
     public K getKey(int index) {
-        return keys[index];
+        return map.getKeyType().getKey(keys, index);
     }
 
     /**
@@ -310,6 +314,30 @@ public K getKey(int index) {
      */
     public abstract long getChildPagePos(int index);
 
+    /**
+     * Read child pages that are not in memory into the cache in one batch,
+     * starting from the child at the given index, if that child is not in
+     * memory or in the cache.
+     *
+     * @param index the index of the first child
+     * @param count the maximum number of child pages to read
+     * @param reverse whether the following children are at lower indexes
+     */
+    void readChildPages(int index, int count, boolean reverse) {}
+
+    /**
+     * Asynchronously read child pages that are not in memory into the cache,
+     * starting from the child at the given index.
+     *
+     * @param index the index of the first child
+     * @param count the number of child pages to read
+     * @param reverse whether the following children are at lower indexes
+     * @return false if pages can not be read ahead at the moment
+     */
+    boolean readChildPagesAhead(int index, int count, boolean reverse) {
+        return true;
+    }
+
     /**
      * Get the value at the given index.
      *
@@ -324,7 +352,7 @@ public K getKey(int index) {
      * @return the number of keys
      */
     public final int getKeyCount() {
-        return keys.length;
+        return Array.getLength(keys);
     }
 
     /**
@@ -428,10 +456,10 @@ int binarySearch(K key) {
      * @param bCount size of the second array/
      * @return the second array.
      */
-    final K[] splitKeys(int aCount, int bCount) {
+    final Object splitKeys(int aCount, int bCount) {
         assert aCount + bCount <= getKeyCount();
-        K[] aKeys = createKeyStorage(aCount);
-        K[] bKeys = createKeyStorage(bCount);
+        Object aKeys = createKeyStorage(aCount);
+        Object bKeys = createKeyStorage(bCount);
         System.arraycopy(keys, 0, aKeys, 0, aCount);
         System.arraycopy(keys, getKeyCount() - bCount, bKeys, 0, bCount);
         keys = aKeys;
@@ -443,10 +471,10 @@ final K[] splitKeys(int aCount, int bCount) {
      * New mappings suppose to be in correct key order.
      *
      * @param extraKeyCount number of mappings to be added
-     * @param extraKeys to be added
+     * @param extraKeys to be added, created by {@link #createKeyStorage(int)}
      * @param extraValues to be added
      */
-    abstract void expand(int extraKeyCount, K[] extraKeys, V[] extraValues);
+    abstract void expand(int extraKeyCount, Object extraKeys, V[] extraValues);
 
     /**
      * Expand the keys array.
@@ -454,9 +482,9 @@ final K[] splitKeys(int aCount, int bCount) {
      * @param extraKeyCount number of extra key entries to create
      * @param extraKeys extra key values
      */
-    final void expandKeys(int extraKeyCount, K[] extraKeys) {
+    final void expandKeys(int extraKeyCount, Object extraKeys) {
         int keyCount = getKeyCount();
-        K[] newKeys = createKeyStorage(keyCount + extraKeyCount);
+        Object newKeys = createKeyStorage(keyCount + extraKeyCount);
         System.arraycopy(keys, 0, newKeys, 0, keyCount);
         System.arraycopy(extraKeys, 0, newKeys, keyCount, extraKeyCount);
         keys = newKeys;
@@ -492,9 +520,13 @@ final void expandKeys(int extraKeyCount, K[] extraKeys) {
      * @param key the new key
      */
     public final void setKey(int index, K key) {
-        keys = keys.clone();
+        int keyCount = getKeyCount();
+        Object newKeys = createKeyStorage(keyCount);
+        System.arraycopy(keys, 0, newKeys, 0, keyCount);
+        keys = newKeys;
+        DataType<K> keyType = map.getKeyType();
         if(isPersistent()) {
-            K old = keys[index];
+            K old = keyType.getKey(keys, index);
             if (!map.isMemoryEstimationAllowed() || old == null) {
                 int mem = map.evaluateMemoryForKey(key);
                 if (old != null) {
@@ -503,7 +535,7 @@ public final void setKey(int index, K key) {
                 addMemory(mem);
             }
         }
-        keys[index] = key;
+        keyType.setKey(keys, index, key);
     }
 
     /**
@@ -542,17 +574,29 @@ public final void setKey(int index, K key) {
     final void insertKey(int index, K key) {
         int keyCount = getKeyCount();
         assert index <= keyCount : index + " > " + keyCount;
-        K[] newKeys = createKeyStorage(keyCount + 1);
+        Object newKeys = createKeyStorage(keyCount + 1);
         DataUtils.copyWithGap(keys, newKeys, keyCount, index);
         keys = newKeys;
 
-        keys[index] = key;
+        map.getKeyType().setKey(keys, index, key);
 
         if (isPersistent()) {
-            addMemory(MEMORY_POINTER + map.evaluateMemoryForKey(key));
+            addMemory(getKeyMemory(key));
         }
     }
 
+    /**
+     * Returns the memory used by a key and its slot in the key array.
+     *
+     * @param key the key
+     * @return memory in bytes
+     */
+    private int getKeyMemory(K key) {
+        int mem = map.evaluateMemoryForKey(key);
+        // primitive values are stored in the array itself
+        return keys instanceof Object[] ? MEMORY_POINTER + mem : mem;
+    }
+
     /**
      * Remove the key and value (or child) at the given index.
      *
@@ -566,10 +610,10 @@ public void remove(int index) {
         if(isPersistent()) {
             if (!map.isMemoryEstimationAllowed()) {
                 K old = getKey(index);
-                addMemory(-MEMORY_POINTER - map.evaluateMemoryForKey(old));
+                addMemory(-getKeyMemory(old));
             }
         }
-        K[] newKeys = createKeyStorage(keyCount - 1);
+        Object newKeys = createKeyStorage(keyCount - 1);
         DataUtils.copyExcept(keys, newKeys, keyCount, index);
         keys = newKeys;
     }
@@ -632,7 +676,10 @@ private void read(ByteBuffer buff) {
         boolean compressed = (type & DataUtils.PAGE_COMPRESSED) != 0;
         if (compressed) {
             Compressor compressor;
-            if ((type & DataUtils.PAGE_COMPRESSED_HIGH) ==
+            if ((type & DataUtils.PAGE_COMPRESSED_DICTIONARY) ==
+                    DataUtils.PAGE_COMPRESSED_DICTIONARY) {
+                compressor = map.getStore().getFileStore().getDictionaryCompressor(map.getId());
+            } else if ((type & DataUtils.PAGE_COMPRESSED_HIGH) ==
                     DataUtils.PAGE_COMPRESSED_HIGH) {
                 compressor = map.getStore().getCompressorHigh();
             } else {
@@ -723,44 +770,16 @@ protected final int write(FileStore<?>.PageSerializationManager pageSerializatio
         buff.put((byte)type);
         int childrenPos = buff.position();
         writeChildren(buff, true);
-        int compressStart = buff.position();
-        map.getKeyType().write(buff, keys, keyCount);
-        writeValues(buff);
-        MVStore store = map.getStore();
-        int expLen = buff.position() - compressStart;
-        if (expLen > 16) {
-            int compressionLevel = store.getCompressionLevel();
-            if (compressionLevel > 0) {
-                Compressor compressor;
-                int compressType;
-                if (compressionLevel == 1) {
-                    compressor = store.getCompressorFast();
-                    compressType = DataUtils.PAGE_COMPRESSED;
-                } else {
-                    compressor = store.getCompressorHigh();
-                    compressType = DataUtils.PAGE_COMPRESSED_HIGH;
-                }
-                byte[] comp = new byte[expLen * 2];
-                ByteBuffer byteBuffer = buff.getBuffer();
-                int pos = 0;
-                byte[] exp;
-                if (byteBuffer.hasArray()) {
-                    exp = byteBuffer.array();
-                    pos = byteBuffer.arrayOffset()  + compressStart;
-                } else {
-                    exp = Utils.newBytes(expLen);
-                    buff.position(compressStart).get(exp);
-                }
-                int compLen = compressor.compress(exp, pos, expLen, comp, 0);
-                int plus = DataUtils.getVarIntLen(expLen - compLen);
-                if (compLen + plus < expLen) {
-                    buff.position(typePos)
-                        .put((byte) (type | compressType));
-                    buff.position(compressStart)
-                        .putVarInt(expLen - compLen)
-                        .put(comp, 0, compLen);
-                }
-            }
+        byte[] data = pageSerializationManager.getSerializedData(this);
+        int compressType;
+        if (data != null) {
+            compressType = data[0];
+            buff.put(data, 1, data.length - 1);
+        } else {
+            compressType = writeData(buff, pageSerializationManager.getCompressor(map));
+        }
+        if (compressType != 0) {
+            buff.getBuffer().put(typePos, (byte) (type | compressType));
         }
         int pageLength = buff.position() - start;
         long pagePos = pageSerializationManager.getPagePosition(getMapId(), start, pageLength, type);
@@ -780,6 +799,65 @@ protected final int write(FileStore<?>.PageSerializationManager pageSerializatio
         return childrenPos;
     }
 
+    /**
+     * Serializes keys and values of this page into provided buffer at its
+     * current position, compressed with the specified compressor if that
+     * makes the data shorter. If the map is compressed with a dictionary that
+     * is not trained yet, the data is added to the samples of the dictionary.
+     *
+     * @param buff the target buffer
+     * @param compressor the compressor to use, or null
+     * @return the compression type of the page, or 0 if data is not compressed
+     */
+    final int writeData(WriteBuffer buff, Compressor compressor) {
+        int compressStart = buff.position();
+        map.getKeyType().write(buff, keys, getKeyCount());
+        writeValues(buff);
+        int expLen = buff.position() - compressStart;
+        boolean sample = map.isCompressDictionary()
+                && (compressor == null || compressor.getAlgorithm() != Compressor.LZF_DICTIONARY);
+        if (expLen > 16 && (compressor != null || sample)) {
+            ByteBuffer byteBuffer = buff.getBuffer();
+            int pos = 0;
+            byte[] exp;
+            if (byteBuffer.hasArray()) {
+                exp = byteBuffer.array();
+                pos = byteBuffer.arrayOffset()  + compressStart;
+            } else {
+                exp = Utils.newBytes(expLen);
+                buff.position(compressStart).get(exp);
+            }
+            if (sample) {
+                map.getStore().getFileStore().addDictionarySample(map.getId(), exp, pos, expLen);
+            }
+            if (compressor != null) {
+                int algorithm = compressor.getAlgorithm();
+                int compressType = algorithm == Compressor.LZF ? DataUtils.PAGE_COMPRESSED
+                        : algorithm == Compressor.LZF_DICTIONARY ? DataUtils.PAGE_COMPRESSED_DICTIONARY
+                        : DataUtils.PAGE_COMPRESSED_HIGH;
+                byte[] comp = new byte[expLen * 2];
+                int compLen = compressor.compress(exp, pos, expLen, comp, 0);
+                int plus = DataUtils.getVarIntLen(expLen - compLen);
+                if (compLen + plus < expLen) {
+                    buff.position(compressStart)
+                        .putVarInt(expLen - compLen)
+                        .put(comp, 0, compLen);
+                    return compressType;
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Collect this page and all its children that are not saved yet, in the
+     * order they are written by {@link #writeUnsavedRecursive}. Only pages
+     * that are written themselves are collected.
+     *
+     * @param target the list to add pages to
+     */
+    abstract void collectUnsaved(List<Page<?, ?>> target);
+
     /**
      * Write values that the buffer contains to the buff.
      *
@@ -918,7 +996,7 @@ protected int calculateMemory() {
         int mem = keyCount * MEMORY_POINTER;
         DataType<K> keyType = map.getKeyType();
         for (int i = 0; i < keyCount; i++) {
-            mem += getMemory(keyType, keys[i]);
+            mem += getMemory(keyType, keyType.getKey(keys, i));
         }
         return mem;
 //*/
@@ -982,10 +1060,10 @@ public final int removePage(long version) {
      * Create array for keys storage.
      *
      * @param size number of entries
-     * @return values array
+     * @return keys array, an array of type K or an array of primitive values
      */
-    public final K[] createKeyStorage(int size) {
-        return map.getKeyType().createStorage(size);
+    public final Object createKeyStorage(int size) {
+        return map.getKeyType().createKeyStorage(size);
     }
 
     /**
@@ -1132,7 +1210,7 @@ public String toString() {
             this.totalCount = totalCount;
         }
 
-        NonLeaf(MVMap<K,V> map, K[] keys, PageReference<K,V>[] children, long totalCount) {
+        NonLeaf(MVMap<K,V> map, Object keys, PageReference<K,V>[] children, long totalCount) {
             super(map, keys);
             this.children = children;
             this.totalCount = totalCount;
@@ -1167,6 +1245,37 @@ public long getChildPagePos(int index) {
             return children[index].getPos();
         }
 
+        @Override
+        void readChildPages(int index, int count, boolean reverse) {
+            int len = map.getChildPageCount(this);
+            long[] positions = new long[count];
+            int n = 0;
+            for (int i = index; n < count && i >= 0 && i < len; i += reverse ? -1 : 1) {
+                PageReference<K,V> ref = children[i];
+                if (ref.getPage() == null) {
+                    positions[n++] = ref.getPos();
+                } else if (i == index) {
+                    return;
+                }
+            }
+            map.getStore().readPages(map, positions, n);
+        }
+
+        @Override
+        boolean readChildPagesAhead(int index, int count, boolean reverse) {
+            int len = map.getChildPageCount(this);
+            long[] positions = new long[count];
+            int n = 0;
+            for (int i = index, end = reverse ? index - count : index + count;
+                    i != end && i >= 0 && i < len; i += reverse ? -1 : 1) {
+                PageReference<K,V> ref = children[i];
+                if (ref.getPage() == null) {
+                    positions[n++] = ref.getPos();
+                }
+            }
+            return n == 0 || map.getStore().readAhead(map, positions, n);
+        }
+
         @Override
         public V getValue(int index) {
             throw new UnsupportedOperationException();
@@ -1176,7 +1285,7 @@ public V getValue(int index) {
         public Page<K,V> split(int at) {
             assert !isSaved();
             int b = getKeyCount() - at;
-            K[] bKeys = splitKeys(at, b - 1);
+            Object bKeys = splitKeys(at, b - 1);
             PageReference<K,V>[] aChildren = createRefStorage(at + 1);
             PageReference<K,V>[] bChildren = createRefStorage(b);
             System.arraycopy(children, 0, aChildren, 0, at + 1);
@@ -1200,7 +1309,7 @@ public Page<K,V> split(int at) {
         }
 
         @Override
-        public void expand(int keyCount, Object[] extraKeys, Object[] extraValues) {
+        public void expand(int keyCount, Object extraKeys, Object[] extraValues) {
             throw new UnsupportedOperationException();
         }
 
@@ -1369,6 +1478,24 @@ void writeUnsavedRecursive(PageSerializationManager pageSerializationManager) {
             }
         }
 
+        @Override
+        void collectUnsaved(List<Page<?, ?>> target) {
+            if (!isSaved()) {
+                target.add(this);
+                collectUnsavedChildren(target);
+            }
+        }
+
+        void collectUnsavedChildren(List<Page<?, ?>> target) {
+            int len = getRawChildPageCount();
+            for (int i = 0; i < len; i++) {
+                Page<K,V> p = children[i].getPage();
+                if (p != null) {
+                    p.collectUnsaved(target);
+                }
+            }
+        }
+
         void writeChildrenRecursive(PageSerializationManager pageSerializationManager) {
             int len = getRawChildPageCount();
             for (int i = 0; i < len; i++) {
@@ -1441,6 +1568,15 @@ void writeUnsavedRecursive(PageSerializationManager pageSerializationManager) {
             }
         }
 
+        @Override
+        void collectUnsaved(List<Page<?, ?>> target) {
+            if (complete) {
+                super.collectUnsaved(target);
+            } else if (!isSaved()) {
+                collectUnsavedChildren(target);
+            }
+        }
+
         @Override
         public boolean isComplete() {
             return complete;
@@ -1477,7 +1613,7 @@ private Leaf(MVMap<K,V> map, Leaf<K,V> source) {
             this.values = source.values;
         }
 
-        Leaf(MVMap<K,V> map, K[] keys, V[] values) {
+        Leaf(MVMap<K,V> map, Object keys, V[] values) {
             super(map, keys);
             this.values = values;
         }
@@ -1511,7 +1647,7 @@ public V getValue(int index) {
         public Page<K,V> split(int at) {
             assert !isSaved();
             int b = getKeyCount() - at;
-            K[] bKeys = splitKeys(at, b);
+            Object bKeys = splitKeys(at, b);
             V[] bValues = createValueStorage(b);
             if(values != null) {
                 V[] aValues = createValueStorage(at);
@@ -1527,7 +1663,7 @@ public Page<K,V> split(int at) {
         }
 
         @Override
-        public void expand(int extraKeyCount, K[] extraKeys, V[] extraValues) {
+        public void expand(int extraKeyCount, Object extraKeys, V[] extraValues) {
             int keyCount = getKeyCount();
             expandKeys(extraKeyCount, extraKeys);
             if(values != null) {
@@ -1653,6 +1789,13 @@ void writeUnsavedRecursive(PageSerializationManager pageSerializationManager) {
             }
         }
 
+        @Override
+        void collectUnsaved(List<Page<?, ?>> target) {
+            if (!isSaved()) {
+                target.add(this);
+            }
+        }
+
         @Override
         void releaseSavedPages() {}
 
@@ -533,6 +533,11 @@ private void compactMoveChunks(Iterable<SFChunk> move) {
             writeStoreHeader();
             sync();
 
+            long start = System.nanoTime();
+            long size = 0;
+            for (SFChunk chunk : move) {
+                size += chunk.len * (long) BLOCK_SIZE;
+            }
             Iterator<SFChunk> iterator = move.iterator();
             assert iterator.hasNext();
             long leftmostBlock = iterator.next().block;
@@ -586,6 +591,7 @@ private void compactMoveChunks(Iterable<SFChunk> move) {
 
             shrinkStoreIfPossible(0);
             sync();
+            countCompaction(size, System.nanoTime() - start);
         }
     }
 
@@ -656,6 +662,11 @@ private boolean moveChunk(SFChunk chunk, long reservedAreaLow, long reservedArea
         // block should always move closer to the beginning of the file
         assert reservedAreaHigh > 0 || block <= chunk.block : block + " " + chunk;
         ByteBuffer readBuff = readFully(chunk, start, length);
+        if (readBuff.isReadOnly()) {
+            // a mapped buffer, it may overlap with the new location
+            readBuff = ByteBuffer.allocate(length).put(readBuff);
+            readBuff.flip();
+        }
         writeFully(null, pos, readBuff);
         // can not set chunk's new block until it's fully written at new location,
         // because concurrent reader can pick it up prematurely,
@@ -707,38 +718,63 @@ protected void doHousekeeping(MVStore mvStore) throws InterruptedException {
         if (idle && stopIdleHousekeeping) {
             return;
         }
+        // if the rate is limited, each step may only write what the budget allows
+        long budget = getCompactBudget();
+        if (budget <= 0) {
+            return;
+        }
+        boolean rateLimited = budget != Long.MAX_VALUE;
+        long compactBytes = getCompactBytes();
         int autoCommitMemory = mvStore.getAutoCommitMemory();
         int fileFillRate = getFillRate();
         long chunksTotalSize = size() * fileFillRate / 100;
         if (isFragmented() && fileFillRate < getAutoCompactFillRate()) {
+            int moveSize = 2 * autoCommitMemory;
+            if (idle) {
+                moveSize *= 4;
+            }
+            long limit = Math.min(moveSize, budget);
             mvStore.tryExecuteUnderStoreLock(() -> {
-                int moveSize = 2 * autoCommitMemory;
-                if (idle) {
-                    moveSize *= 4;
-                }
-                compactMoveChunks(101, moveSize, mvStore);
+                compactMoveChunks(101, limit, mvStore);
                 return true;
             });
+            spendCompactBudget(getCompactBytes() - compactBytes);
+            budget = getCompactBudget();
         }
 
         int chunksFillRate = getChunksFillRate();
         int adjustedUpFillRate = 50 + rewritableChunksFillRate / 2;
         int fillRateToCompare = idle ? rewritableChunksFillRate : adjustedUpFillRate;
-        if (fillRateToCompare < getTargetFillRate(idle)) {
+        if (budget > 0 && fillRateToCompare < getTargetFillRate(idle)) {
             int targetFillRate = idle ? adjustedUpFillRate : rewritableChunksFillRate;
-            mvStore.tryExecuteUnderStoreLock(() -> {
-                int writeLimit = autoCommitMemory;
-                if (!idle) {
-                    writeLimit /= 4;
-                }
-                if (rewriteChunks(writeLimit, targetFillRate)) {
-                    dropUnusedChunks();
-                }
-                return true;
-            });
+            long written = getCompactBytes();
+            if (rateLimited) {
+                // rewrite the live pages of chunks a few at a time
+                long limit = budget;
+                mvStore.tryExecuteUnderStoreLock(() -> {
+                    if (rewriteChunkPages(targetFillRate, limit) > 0) {
+                        dropUnusedChunks();
+                    }
+                    return true;
+                });
+            } else {
+                mvStore.tryExecuteUnderStoreLock(() -> {
+                    int writeLimit = autoCommitMemory;
+                    if (!idle) {
+                        writeLimit /= 4;
+                    }
+                    if (rewriteChunks(writeLimit, targetFillRate)) {
+                        dropUnusedChunks();
+                    }
+                    return true;
+                });
+            }
+            spendCompactBudget(getCompactBytes() - written);
         }
         stopIdleHousekeeping = false;
-        if (idle) {
+        // if the rate is limited, continue as long as there is progress,
+        // because the fill rate only changes after the rewritten pages are stored
+        if (idle && !(rateLimited && getCompactBytes() > compactBytes)) {
             int currentChunksFillRate = getChunksFillRate();
             long currentTotalChunksSize = size() * getFillRate() / 100;
             stopIdleHousekeeping = currentTotalChunksSize > chunksTotalSize
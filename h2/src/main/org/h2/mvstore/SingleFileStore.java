@@ -7,14 +7,19 @@
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.nio.channels.FileLock;
 import java.nio.channels.OverlappingFileLockException;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 import org.h2.mvstore.cache.FilePathCache;
+import org.h2.store.fs.FileBase;
 import org.h2.store.fs.FilePath;
 import org.h2.store.fs.encrypt.FileEncrypt;
 import org.h2.store.fs.encrypt.FilePathEncrypt;
@@ -27,6 +32,21 @@
  */
 public class SingleFileStore extends RandomAccessStore {
 
+    /**
+     * The binary logarithm of the size of a mapped segment of the file.
+     */
+    private static final int SEGMENT_SHIFT = 30;
+
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+
+    /**
+     * The minimum number of unmapped bytes at the end of the file before the
+     * file is mapped again. Reads of the unmapped tail use the channel.
+     */
+    private static final long REMAP_SIZE = 16L << 20;
+
+    private static final MappedByteBuffer[] NO_SEGMENTS = new MappedByteBuffer[0];
+
     /**
      * The file.
      */
@@ -44,6 +64,12 @@ public class SingleFileStore extends RandomAccessStore {
 
     private final Map<String, Object> config;
 
+    /**
+     * The read-only mapped segments of the file, or null if reads use the
+     * channel. Each segment except the last one has the size of
+     * SEGMENT_SIZE.
+     */
+    private volatile MappedByteBuffer[] segments;
 
     public SingleFileStore(Map<String, Object> config) {
         super(config);
@@ -57,9 +83,99 @@ public String toString() {
 
     @Override
     public ByteBuffer readFully(SFChunk chunk, long pos, int len) {
+        MappedByteBuffer[] segments = this.segments;
+        if (segments != null) {
+            ByteBuffer buff = readMapped(segments, pos, len);
+            if (buff != null) {
+                return buff;
+            }
+        }
         return readFully(fileChannel, pos, len);
     }
 
+    /**
+     * Get a read-only slice of the mapped file. Writes to the file are visible
+     * in the returned buffer.
+     *
+     * @param segments the mapped segments
+     * @param pos the position
+     * @param len the number of bytes
+     * @return the slice, or null if the range is not mapped or crosses a
+     *         segment boundary
+     */
+    private ByteBuffer readMapped(MappedByteBuffer[] segments, long pos, int len) {
+        long end = pos + len;
+        long mappedSize = getMappedSize(segments);
+        if (end > mappedSize) {
+            if (mappedSize > 0 && super.size() - mappedSize < REMAP_SIZE) {
+                return null;
+            }
+            segments = map();
+            if (segments == null || end > getMappedSize(segments)) {
+                return null;
+            }
+        }
+        int index = (int) (pos >>> SEGMENT_SHIFT);
+        if (len == 0 || (int) ((end - 1) >>> SEGMENT_SHIFT) != index) {
+            return null;
+        }
+        int offset = (int) (pos & (SEGMENT_SIZE - 1));
+        ByteBuffer buff = segments[index].duplicate();
+        buff.limit(offset + len).position(offset);
+        readCount.incrementAndGet();
+        readBytes.addAndGet(len);
+        return buff.slice();
+    }
+
+    private static long getMappedSize(MappedByteBuffer[] segments) {
+        int count = segments.length;
+        return count == 0 ? 0L : ((long) (count - 1) << SEGMENT_SHIFT) + segments[count - 1].capacity();
+    }
+
+    /**
+     * Map the file up to its current size, if the unmapped tail of the file is
+     * large enough. Existing complete segments are reused. The file is never
+     * mapped beyond its end, because mapping would extend it.
+     *
+     * @return the mapped segments, or null if mapping is disabled
+     */
+    private synchronized MappedByteBuffer[] map() {
+        MappedByteBuffer[] segments = this.segments;
+        if (segments == null) {
+            return null;
+        }
+        try {
+            long mappedSize = getMappedSize(segments);
+            long size = fileChannel.size();
+            if (size <= mappedSize || mappedSize > 0 && size - mappedSize < REMAP_SIZE) {
+                return segments;
+            }
+            int count = (int) ((size + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT);
+            MappedByteBuffer[] result = Arrays.copyOf(segments, count);
+            for (int i = 0; i < count; i++) {
+                long start = (long) i << SEGMENT_SHIFT;
+                long length = Math.min(SEGMENT_SIZE, size - start);
+                if (result[i] == null || result[i].capacity() < length) {
+                    result[i] = fileChannel.map(MapMode.READ_ONLY, start, length);
+                }
+            }
+            return this.segments = result;
+        } catch (IOException | RuntimeException e) {
+            // for example, not enough address space; use the channel
+            return this.segments = null;
+        }
+    }
+
+    @Override
+    protected ByteBuffer[] readFully(List<SFChunk> chunks, long[] positions, int[] lengths) {
+        return readFully(fileChannel, positions, lengths);
+    }
+
+    @Override
+    protected boolean isConcurrentReadSupported() {
+        return fileChannel instanceof FileBase && ((FileBase) fileChannel).isConcurrentReadSupported();
+    }
+
     @Override
     protected void writeFully(SFChunk chunk, long pos, ByteBuffer src) {
         int len = src.remaining();
@@ -115,6 +231,10 @@ private void open(String fileName, boolean readOnly, Function<FileChannel,FileCh
                 fileChannel = encryptionTransformer.apply(fileChannel);
             }
             fileLock = lockFileChannel(fileChannel, readOnly, fileName);
+            // only channels of the default file system can be mapped
+            if (DataUtils.getConfigParam(config, "memoryMapped", 0) != 0 && !(fileChannel instanceof FileBase)) {
+                segments = NO_SEGMENTS;
+            }
             saveChunkLock.lock();
             try {
                 setSize(fileChannel.size());
@@ -165,6 +285,9 @@ public void close() {
                     "Closing failed for file {0}", getFileName(), e);
         } finally {
             fileLock = null;
+            // mapped segments are unmapped by the garbage collector, explicit
+            // unmapping would crash concurrent readers
+            segments = null;
             super.close();
         }
     }
@@ -197,6 +320,11 @@ public void truncate(long size) {
         while (true) {
             try {
                 writeCount.incrementAndGet();
+                if (segments != null) {
+                    // the mapped tail is no longer valid, and some systems
+                    // can't truncate a mapped file
+                    segments = NO_SEGMENTS;
+                }
                 fileChannel.truncate(size);
                 setSize(Math.min(super.size(), size));
                 return;
@@ -0,0 +1,275 @@
+/*
+ * Copyright 2004-2025 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.mvstore.cache;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A cache of byte arrays that uses keys of type long. The data is stored in
+ * direct memory outside of the Java heap, only a small index is kept in the
+ * heap. It is meant to be used beneath a cache of deserialized objects, to
+ * keep a large working set without increasing garbage collection pauses.
+ * <p>
+ * The memory is split into a number of segments of equal size. New entries
+ * are appended to the current segment. When it is full, the oldest segment is
+ * cleared and becomes the current one, so entries are evicted in the order
+ * they were added.
+ * <p>
+ * This implementation is multi-threading safe and supports concurrent access.
+ * Adding entries is synchronized, reads are not blocked. A read of an entry
+ * that is evicted concurrently is a miss.
+ */
+public class CacheLongKeyOffHeap {
+
+    /**
+     * The maximum size of a segment.
+     */
+    private static final int MAX_SEGMENT_SIZE = 32 << 20;
+
+    private static final int LENGTH_BITS = 26;
+
+    private static final int OFFSET_BITS = 25;
+
+    /**
+     * The maximum number of segments, limited by the remaining bits of the
+     * entry position.
+     */
+    private static final int MAX_SEGMENT_COUNT = 1 << (63 - OFFSET_BITS - LENGTH_BITS);
+
+    private final long maxMemory;
+
+    private final int segmentSize;
+
+    private final Segment[] segments;
+
+    /**
+     * The positions of entries, each position contains the segment, the
+     * offset within the segment, and the length.
+     */
+    private final ConcurrentHashMap<Long, Long> map = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * The index of the current segment.
+     */
+    private int current;
+
+    /**
+     * Create a new cache with the given memory size.
+     *
+     * @param maxMemory the maximum amount of direct memory, in bytes
+     */
+    public CacheLongKeyOffHeap(long maxMemory) {
+        int count = (int) Math.min(MAX_SEGMENT_COUNT,
+                Math.max(2, (maxMemory + MAX_SEGMENT_SIZE - 1) / MAX_SEGMENT_SIZE));
+        segmentSize = (int) Math.min(MAX_SEGMENT_SIZE, Math.max(1024, maxMemory / count));
+        this.maxMemory = (long) segmentSize * count;
+        segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    /**
+     * Get the data of an entry.
+     *
+     * @param key the key
+     * @return a heap buffer with a copy of the data, or null if not found
+     */
+    public ByteBuffer get(long key) {
+        Long position = map.get(key);
+        if (position != null) {
+            long p = position;
+            Segment segment = segments[(int) (p >>> (OFFSET_BITS + LENGTH_BITS))];
+            StampedLock lock = segment.lock;
+            long stamp = lock.tryOptimisticRead();
+            ByteBuffer buff = segment.buffer;
+            if (stamp != 0 && buff != null) {
+                byte[] data = new byte[(int) p & ((1 << LENGTH_BITS) - 1)];
+                buff = buff.duplicate();
+                buff.position((int) (p >>> LENGTH_BITS) & ((1 << OFFSET_BITS) - 1));
+                buff.get(data);
+                // the segment could be cleared and overwritten in the meantime,
+                // the entry is removed from the map in this case
+                if (lock.validate(stamp) && position.equals(map.get(key))) {
+                    hits.incrementAndGet();
+                    return ByteBuffer.wrap(data);
+                }
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Add an entry, unless an entry with this key exists or the data is too
+     * large. The cache does not keep a reference to the buffer.
+     *
+     * @param key the key
+     * @param data the data, the position of the buffer is not changed
+     */
+    public synchronized void put(long key, ByteBuffer data) {
+        int length = data.remaining();
+        if (length == 0 || length > segmentSize || map.containsKey(key)) {
+            return;
+        }
+        Segment segment = segments[current];
+        if (segment.buffer == null) {
+            segment.buffer = ByteBuffer.allocateDirect(segmentSize);
+        } else if (segment.size + length > segmentSize) {
+            current = (current + 1) % segments.length;
+            segment = segments[current];
+            if (segment.buffer == null) {
+                segment.buffer = ByteBuffer.allocateDirect(segmentSize);
+            } else {
+                clear(segment);
+            }
+        }
+        int offset = segment.size;
+        ByteBuffer buff = segment.buffer.duplicate();
+        buff.position(offset);
+        buff.put(data.duplicate());
+        long position = (long) current << (OFFSET_BITS + LENGTH_BITS) | (long) offset << LENGTH_BITS | length;
+        segment.add(key, position, length);
+        map.put(key, position);
+    }
+
+    /**
+     * Remove an entry. The memory of the entry is reused when its segment is
+     * cleared.
+     *
+     * @param key the key
+     */
+    public void remove(long key) {
+        map.remove(key);
+    }
+
+    /**
+     * Remove all entries.
+     */
+    public synchronized void clear() {
+        for (Segment segment : segments) {
+            clear(segment);
+        }
+        current = 0;
+    }
+
+    private void clear(Segment segment) {
+        StampedLock lock = segment.lock;
+        long stamp = lock.writeLock();
+        try {
+            long[] keys = segment.keys, positions = segment.positions;
+            for (int i = 0, count = segment.count; i < count; i++) {
+                // the key could be removed and added again to another segment
+                map.remove(keys[i], positions[i]);
+            }
+            segment.count = 0;
+            segment.size = 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Get the maximum amount of memory, in bytes.
+     *
+     * @return the maximum memory
+     */
+    public long getMaxMemory() {
+        return maxMemory;
+    }
+
+    /**
+     * Get the amount of memory used by entries, including removed entries
+     * which are not reused yet, in bytes.
+     *
+     * @return the used memory
+     */
+    public synchronized long getUsedMemory() {
+        long used = 0;
+        for (Segment segment : segments) {
+            used += segment.size;
+        }
+        return used;
+    }
+
+    /**
+     * Get the number of cache hits.
+     *
+     * @return the cache hits
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Get the number of cache misses.
+     *
+     * @return the cache misses
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * A segment of direct memory.
+     */
+    private static final class Segment {
+
+        /**
+         * Readers use optimistic reads, clearing of the segment requires the
+         * write lock.
+         */
+        final StampedLock lock = new StampedLock();
+
+        /**
+         * The memory, or null if not allocated yet.
+         */
+        ByteBuffer buffer;
+
+        /**
+         * The number of used bytes.
+         */
+        int size;
+
+        /**
+         * The keys of entries added to this segment.
+         */
+        long[] keys = new long[64];
+
+        /**
+         * The positions of entries added to this segment.
+         */
+        long[] positions = new long[64];
+
+        /**
+         * The number of entries added to this segment.
+         */
+        int count;
+
+        Segment() {
+        }
+
+        void add(long key, long position, int length) {
+            if (count == keys.length) {
+                keys = Arrays.copyOf(keys, count * 2);
+                positions = Arrays.copyOf(positions, count * 2);
+            }
+            keys[count] = key;
+            positions[count++] = position;
+            size += length;
+        }
+
+    }
+
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2004-2025 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.mvstore.db;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import org.h2.engine.Constants;
+import org.h2.mvstore.DataUtils;
+import org.h2.mvstore.WriteBuffer;
+import org.h2.mvstore.type.BasicDataType;
+import org.h2.value.TypeInfo;
+import org.h2.value.Value;
+import org.h2.value.ValueBigint;
+import org.h2.value.ValueDate;
+import org.h2.value.ValueInteger;
+import org.h2.value.ValueNull;
+import org.h2.value.ValueSmallint;
+import org.h2.value.ValueTinyint;
+
+/**
+ * A data type for segments of values of one column of a columnar table. Each
+ * segment is written with run-length, dictionary, delta, or plain encoding,
+ * whichever suits its values.
+ */
+final class ColumnSegmentDataType extends BasicDataType<Value[]> {
+
+    private static final byte PLAIN = 0, RUN_LENGTH = 1, DICTIONARY = 2, DELTA = 3;
+
+    /**
+     * The maximum number of distinct values for the dictionary encoding.
+     */
+    private static final int MAX_DICTIONARY_SIZE = 256;
+
+    private final ValueDataType valueDataType;
+
+    private final TypeInfo columnType;
+
+    private final int valueType;
+
+    ColumnSegmentDataType(ValueDataType valueDataType, TypeInfo columnType) {
+        this.valueDataType = valueDataType;
+        this.columnType = columnType;
+        valueType = columnType.getValueType();
+    }
+
+    @Override
+    public Value[][] createStorage(int size) {
+        return new Value[size][];
+    }
+
+    @Override
+    public int getMemory(Value[] values) {
+        int memory = Constants.MEMORY_ARRAY + values.length * Constants.MEMORY_POINTER;
+        Value last = null;
+        for (Value v : values) {
+            // repeated values usually share the same instance
+            if (v != last) {
+                memory += v.getMemory();
+                last = v;
+            }
+        }
+        return memory;
+    }
+
+    @Override
+    public void write(WriteBuffer buff, Value[] values) {
+        int length = values.length;
+        boolean exact = hasExactEquals();
+        if (exact && length > 0) {
+            int runs = 1;
+            for (int i = 1; i < length; i++) {
+                if (!values[i].equals(values[i - 1])) {
+                    runs++;
+                }
+            }
+            if (runs <= length >>> 2) {
+                writeRunLength(buff, values, runs);
+                return;
+            }
+        }
+        if (isDeltaType() && writeDelta(buff, values)) {
+            return;
+        }
+        if (exact && writeDictionary(buff, values)) {
+            return;
+        }
+        buff.put(PLAIN).putVarInt(length);
+        for (Value v : values) {
+            valueDataType.write(buff, v);
+        }
+    }
+
+    private void writeRunLength(WriteBuffer buff, Value[] values, int runs) {
+        int length = values.length;
+        buff.put(RUN_LENGTH).putVarInt(length).putVarInt(runs);
+        for (int i = 0; i < length;) {
+            Value v = values[i];
+            int j = i + 1;
+            while (j < length && values[j].equals(v)) {
+                j++;
+            }
+            buff.putVarInt(j - i);
+            valueDataType.write(buff, v);
+            i = j;
+        }
+    }
+
+    private boolean writeDelta(WriteBuffer buff, Value[] values) {
+        int length = values.length;
+        for (Value v : values) {
+            if (v == ValueNull.INSTANCE) {
+                return false;
+            }
+        }
+        buff.put(DELTA).putVarInt(length);
+        long last = 0L;
+        for (Value v : values) {
+            long x = toLong(v);
+            long delta = x - last;
+            // zigzag encoding keeps small negative deltas short
+            buff.putVarLong(delta << 1 ^ delta >> 63);
+            last = x;
+        }
+        return true;
+    }
+
+    private boolean writeDictionary(WriteBuffer buff, Value[] values) {
+        int length = values.length;
+        HashMap<Value, Integer> dictionary = new HashMap<>();
+        byte[] indexes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            Value v = values[i];
+            Integer index = dictionary.get(v);
+            if (index == null) {
+                int size = dictionary.size();
+                if (size >= MAX_DICTIONARY_SIZE || size >= length >>> 1) {
+                    return false;
+                }
+                dictionary.put(v, index = size);
+            }
+            indexes[i] = (byte) (int) index;
+        }
+        Value[] entries = new Value[dictionary.size()];
+        for (HashMap.Entry<Value, Integer> e : dictionary.entrySet()) {
+            entries[e.getValue()] = e.getKey();
+        }
+        buff.put(DICTIONARY).putVarInt(length).putVarInt(entries.length);
+        for (Value v : entries) {
+            valueDataType.write(buff, v);
+        }
+        buff.put(indexes);
+        return true;
+    }
+
+    @Override
+    public Value[] read(ByteBuffer buff) {
+        byte encoding = buff.get();
+        int length = DataUtils.readVarInt(buff);
+        Value[] values = new Value[length];
+        switch (encoding) {
+        case PLAIN:
+            for (int i = 0; i < length; i++) {
+                values[i] = valueDataType.readValue(buff, columnType);
+            }
+            break;
+        case RUN_LENGTH:
+            for (int runs = DataUtils.readVarInt(buff), i = 0; runs > 0; runs--) {
+                int count = DataUtils.readVarInt(buff);
+                Value v = valueDataType.readValue(buff, columnType);
+                for (int end = i + count; i < end; i++) {
+                    values[i] = v;
+                }
+            }
+            break;
+        case DICTIONARY: {
+            Value[] entries = new Value[DataUtils.readVarInt(buff)];
+            for (int i = 0; i < entries.length; i++) {
+                entries[i] = valueDataType.readValue(buff, columnType);
+            }
+            for (int i = 0; i < length; i++) {
+                values[i] = entries[buff.get() & 0xff];
+            }
+            break;
+        }
+        case DELTA: {
+            long last = 0L;
+            for (int i = 0; i < length; i++) {
+                long delta = DataUtils.readVarLong(buff);
+                last += delta >>> 1 ^ -(delta & 1);
+                values[i] = fromLong(last);
+            }
+            break;
+        }
+        default:
+            throw DataUtils.newMVStoreException(DataUtils.ERROR_FILE_CORRUPT,
+                    "Unknown column segment encoding {0}", encoding);
+        }
+        return values;
+    }
+
+    /**
+     * Returns whether {@link Value#equals(Object)} of values of the column
+     * returns {@code true} only for values with the same representation.
+     */
+    private boolean hasExactEquals() {
+        switch (valueType) {
+        case Value.VARCHAR_IGNORECASE:
+        case Value.ARRAY:
+        case Value.ROW:
+            return false;
+        default:
+            return true;
+        }
+    }
+
+    private boolean isDeltaType() {
+        switch (valueType) {
+        case Value.TINYINT:
+        case Value.SMALLINT:
+        case Value.INTEGER:
+        case Value.BIGINT:
+        case Value.DATE:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    private long toLong(Value v) {
+        return valueType == Value.DATE ? ((ValueDate) v).getDateValue() : v.getLong();
+    }
+
+    private Value fromLong(long x) {
+        switch (valueType) {
+        case Value.TINYINT:
+            return ValueTinyint.get((byte) x);
+        case Value.SMALLINT:
+            return ValueSmallint.get((short) x);
+        case Value.INTEGER:
+            return ValueInteger.get((int) x);
+        case Value.BIGINT:
+            return ValueBigint.get(x);
+        default:
+            return ValueDate.fromDateValue(x);
+        }
+    }
+
+}
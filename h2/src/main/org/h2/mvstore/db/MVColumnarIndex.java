@@ -0,0 +1,757 @@
+/*
+ * Copyright 2004-2025 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.mvstore.db;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.h2.api.ErrorCode;
+import org.h2.command.query.AllColumnsForPlan;
+import org.h2.engine.Constants;
+import org.h2.engine.SessionLocal;
+import org.h2.index.Cursor;
+import org.h2.index.Index;
+import org.h2.index.IndexType;
+import org.h2.index.ProjectionIndex;
+import org.h2.message.DbException;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.h2.mvstore.MVStoreException;
+import org.h2.mvstore.tx.Transaction;
+import org.h2.mvstore.tx.TransactionMap;
+import org.h2.mvstore.tx.TransactionMap.TMIterator;
+import org.h2.mvstore.type.DataType;
+import org.h2.mvstore.type.LongDataType;
+import org.h2.result.DefaultRow;
+import org.h2.result.Row;
+import org.h2.result.SearchRow;
+import org.h2.result.SortOrder;
+import org.h2.table.Column;
+import org.h2.table.IndexColumn;
+import org.h2.table.TableFilter;
+import org.h2.value.CompareMode;
+import org.h2.value.TypeInfo;
+import org.h2.value.Value;
+import org.h2.value.ValueNull;
+import org.h2.value.VersionedValue;
+
+/**
+ * The scan index of a columnar table. It owns the data of the table.
+ * <p>
+ * Rows are numbered in order of insertion. New rows are stored in a
+ * transactional row map. Once all rows of a segment of {@link #SEGMENT_ROWS}
+ * rows are committed, the segment is moved to the column maps, each column in
+ * its own map with a segment number as a key. Deleted rows of complete
+ * segments are recorded in a transactional map, so inserts and deletes are
+ * undone on rollback like changes of other tables. Complete segments are
+ * visible to all transactions, including transactions with an older
+ * snapshot.
+ * </p>
+ * <p>
+ * The number of complete segments is written after the data of a segment, so
+ * after an abnormal termination the data of an incompletely moved segment is
+ * ignored and its rows are read from the row map.
+ * </p>
+ * <p>
+ * The minimum and the maximum values of each column with an ordered data type
+ * are stored for each complete segment in a zone map. Scans with bounds of
+ * columns skip segments whose values are outside of these bounds.
+ * </p>
+ */
+public final class MVColumnarIndex extends Index implements ProjectionIndex {
+
+    /**
+     * The number of rows in a segment.
+     */
+    static final int SEGMENT_ROWS = 1024;
+
+    private final MVColumnarTable columnarTable;
+    private final Store store;
+    private final MVMap<Long, Value[]>[] columnMaps;
+
+    /**
+     * The zone maps with the minimum and the maximum values of columns in
+     * segments, {@code null} elements for columns without zone maps.
+     */
+    private final MVMap<Long, Value[]>[] zoneMaps;
+
+    /**
+     * The map with the number of complete segments under the key 0.
+     */
+    private final MVMap<Long, Long> segmentCountMap;
+    private final TransactionMap<Long, SearchRow> rowMap;
+    private final TransactionMap<Long, Value> deletedMap;
+
+    /**
+     * Changes of rows hold the read lock, segments are completed with the
+     * write lock.
+     */
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * The number of complete segments.
+     */
+    private volatile long segmentCount;
+
+    /**
+     * The position of the next row.
+     */
+    private final AtomicLong nextPosition = new AtomicLong();
+
+    MVColumnarIndex(MVColumnarTable table, Store store) {
+        super(table, table.getId(), table.getName() + "_DATA", IndexColumn.wrap(table.getColumns()), 0,
+                IndexType.createScan(table.isPersistData()));
+        columnarTable = table;
+        this.store = store;
+        MVStore mvStore = store.getMvStore();
+        String prefix = "columnar." + getId() + '.';
+        boolean isVolatile = !table.isPersistData();
+        ValueDataType valueDataType = new ValueDataType(database, null);
+        Column[] columns = table.getColumns();
+        int columnCount = columns.length;
+        columnMaps = newMapArray(columnCount);
+        zoneMaps = newMapArray(columnCount);
+        for (int i = 0; i < columnCount; i++) {
+            TypeInfo type = columns[i].getType();
+            ColumnSegmentDataType segmentDataType = new ColumnSegmentDataType(valueDataType, type);
+            columnMaps[i] = openMap(mvStore, prefix + i, segmentDataType, isVolatile);
+            if (isOrdered(type.getValueType())) {
+                zoneMaps[i] = openMap(mvStore, prefix + i + ".zone", segmentDataType, isVolatile);
+            }
+        }
+        segmentCountMap = openMap(mvStore, prefix + "segments", LongDataType.INSTANCE, isVolatile);
+        Transaction t = store.getTransactionStore().begin();
+        rowMap = t.openMap(prefix + "rows", LongDataType.INSTANCE, table.getRowFactory().getRowDataType());
+        rowMap.map.setVolatile(isVolatile);
+        deletedMap = t.openMap(prefix + "deleted", LongDataType.INSTANCE, NullValueDataType.INSTANCE);
+        deletedMap.map.setVolatile(isVolatile);
+        t.commit();
+        if (!database.isStarting()) {
+            clear();
+        }
+        Long count = segmentCountMap.get(0L);
+        segmentCount = count == null ? 0L : count;
+        removeIncompleteMove();
+        // include uncommitted rows as well
+        Long lastRow = rowMap.map.lastKey();
+        nextPosition.set(Math.max(segmentCount * SEGMENT_ROWS, lastRow == null ? 0L : lastRow + 1));
+    }
+
+    /**
+     * Remove the data left by a move of a segment that was interrupted by an
+     * abnormal termination.
+     */
+    private void removeIncompleteMove() {
+        for (MVMap<Long, Value[]> map : columnMaps) {
+            removeFrom(map, segmentCount);
+        }
+        for (MVMap<Long, Value[]> map : zoneMaps) {
+            if (map != null) {
+                removeFrom(map, segmentCount);
+            }
+        }
+        long first = segmentCount * SEGMENT_ROWS;
+        removeFrom(deletedMap.map, first);
+        for (Long position; (position = rowMap.map.lowerKey(first)) != null;) {
+            rowMap.map.remove(position);
+        }
+    }
+
+    private static void removeFrom(MVMap<Long, ?> map, long from) {
+        for (Long key; (key = map.ceilingKey(from)) != null;) {
+            map.remove(key);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static MVMap<Long, Value[]>[] newMapArray(int length) {
+        return new MVMap[length];
+    }
+
+    private static <V> MVMap<Long, V> openMap(MVStore store, String name, DataType<V> valueType,
+            boolean isVolatile) {
+        MVMap<Long, V> map = store.openMap(name,
+                new MVMap.Builder<Long, V>().keyType(LongDataType.INSTANCE).valueType(valueType));
+        map.setVolatile(isVolatile);
+        return map;
+    }
+
+    private TransactionMap<Long, SearchRow> getRowMap(SessionLocal session) {
+        return rowMap.getInstance(session.getTransaction());
+    }
+
+    private TransactionMap<Long, Value> getDeletedMap(SessionLocal session) {
+        return deletedMap.getInstance(session.getTransaction());
+    }
+
+    /**
+     * Returns whether values of the specified data type have a meaningful
+     * order and zone maps can be used for them.
+     */
+    static boolean isOrdered(int valueType) {
+        switch (valueType) {
+        case Value.JAVA_OBJECT:
+        case Value.GEOMETRY:
+        case Value.JSON:
+        case Value.ARRAY:
+        case Value.ROW:
+            return false;
+        default:
+            return true;
+        }
+    }
+
+    private void clear() {
+        lock.writeLock().lock();
+        try {
+            for (MVMap<Long, Value[]> map : columnMaps) {
+                map.clear();
+            }
+            for (MVMap<Long, Value[]> map : zoneMaps) {
+                if (map != null) {
+                    map.clear();
+                }
+            }
+            segmentCountMap.clear();
+            rowMap.clear();
+            deletedMap.clear();
+            segmentCount = 0L;
+            nextPosition.set(0L);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public String getCreateSQL() {
+        return null;
+    }
+
+    @Override
+    public String getPlanSQL() {
+        return table.getSQL(new StringBuilder(), TRACE_SQL_FLAGS).append(".tableScan").toString();
+    }
+
+    @Override
+    public void close(SessionLocal session) {
+        // ok
+    }
+
+    @Override
+    public void add(SessionLocal session, Row row) {
+        long position;
+        lock.readLock().lock();
+        try {
+            position = nextPosition.getAndIncrement();
+            row.setKey(position + 1);
+            getRowMap(session).put(position, row);
+        } catch (MVStoreException e) {
+            throw store.convertMVStoreException(e);
+        } finally {
+            lock.readLock().unlock();
+        }
+        if ((position + 1) % SEGMENT_ROWS == 0) {
+            completeSegments();
+        }
+    }
+
+    /**
+     * Move the segments whose rows are all committed from the row map to the
+     * column maps. Nothing is done if rows are being changed concurrently.
+     */
+    private void completeSegments() {
+        if (segmentCount >= nextPosition.get() / SEGMENT_ROWS || !lock.writeLock().tryLock()) {
+            return;
+        }
+        try {
+            while (segmentCount < nextPosition.get() / SEGMENT_ROWS && completeSegment(segmentCount)) {
+                // continue with the next segment
+            }
+        } catch (MVStoreException e) {
+            throw store.convertMVStoreException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Move rows of the specified segment from the row map to the column maps
+     * if they are all committed.
+     *
+     * @param segment the segment number
+     * @return whether the segment was completed
+     */
+    private boolean completeSegment(long segment) {
+        int columnCount = columnMaps.length;
+        Value[][] data = new Value[columnCount][SEGMENT_ROWS];
+        long first = segment * SEGMENT_ROWS, last = first + SEGMENT_ROWS - 1;
+        ArrayList<Long> positions = new ArrayList<>(SEGMENT_ROWS);
+        for (org.h2.mvstore.Cursor<Long, VersionedValue<SearchRow>> cursor = rowMap.map.cursor(first, last,
+                false); cursor.hasNext();) {
+            long position = cursor.next();
+            VersionedValue<SearchRow> value = cursor.getValue();
+            if (value.getOperationId() != 0L) {
+                // inserted or deleted by an open transaction
+                return false;
+            }
+            SearchRow row = value.getCurrentValue();
+            int offset = (int) (position - first);
+            for (int i = 0; i < columnCount; i++) {
+                data[i][offset] = row.getValue(i);
+            }
+            positions.add(position);
+        }
+        Transaction t = store.getTransactionStore().begin();
+        TransactionMap<Long, Value> deleted = deletedMap.getInstance(t);
+        for (int offset = 0; offset < SEGMENT_ROWS; offset++) {
+            if (data[0][offset] == null) {
+                deleted.putCommitted(first + offset, ValueNull.INSTANCE);
+                for (int i = 0; i < columnCount; i++) {
+                    data[i][offset] = ValueNull.INSTANCE;
+                }
+            }
+        }
+        t.commit();
+        for (int i = 0; i < columnCount; i++) {
+            columnMaps[i].put(segment, data[i]);
+            MVMap<Long, Value[]> zoneMap = zoneMaps[i];
+            if (zoneMap != null) {
+                zoneMap.put(segment, getZone(data[i]));
+            }
+        }
+        // the segment is complete when the count is stored, scans that start
+        // from now on read it from the column maps, running scans still see
+        // the rows in their snapshot of the row map
+        segmentCountMap.put(0L, segment + 1);
+        segmentCount = segment + 1;
+        for (Long position : positions) {
+            rowMap.map.remove(position);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the minimum and the maximum non-NULL values of a segment, or two
+     * NULL values if there are no such values.
+     *
+     * @param values the values of a column in the segment
+     * @return the minimum and the maximum values
+     */
+    private Value[] getZone(Value[] values) {
+        CompareMode compareMode = database.getCompareMode();
+        Value min = null, max = null;
+        for (Value v : values) {
+            if (v == ValueNull.INSTANCE) {
+                continue;
+            }
+            if (min == null) {
+                min = max = v;
+            } else if (v.compareTypeSafe(min, compareMode, database) < 0) {
+                min = v;
+            } else if (v.compareTypeSafe(max, compareMode, database) > 0) {
+                max = v;
+            }
+        }
+        if (min == null) {
+            min = max = ValueNull.INSTANCE;
+        }
+        return new Value[] { min, max };
+    }
+
+    @Override
+    public void remove(SessionLocal session, Row row) {
+        long position = row.getKey() - 1;
+        boolean removed;
+        lock.readLock().lock();
+        try {
+            if (position < 0L || position >= nextPosition.get()) {
+                removed = false;
+            } else if (position / SEGMENT_ROWS < segmentCount) {
+                removed = getDeletedMap(session).putIfAbsent(position, ValueNull.INSTANCE) == null;
+            } else {
+                removed = getRowMap(session).remove(position) != null;
+            }
+        } catch (MVStoreException e) {
+            throw store.convertMVStoreException(e);
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (!removed) {
+            StringBuilder builder = new StringBuilder();
+            getSQL(builder, TRACE_SQL_FLAGS).append(": ").append(row.getKey());
+            throw DbException.get(ErrorCode.ROW_NOT_FOUND_WHEN_DELETING_1, builder.toString());
+        }
+    }
+
+    @Override
+    public Cursor find(SessionLocal session, SearchRow first, SearchRow last, boolean reverse) {
+        return find(session, first, last, reverse, null);
+    }
+
+    @Override
+    public Cursor find(SessionLocal session, SearchRow first, SearchRow last, boolean reverse, boolean[] columns) {
+        if (reverse) {
+            throw DbException.getUnsupportedException("reverse scan of " + getTraceSQL());
+        }
+        completeSegments();
+        return new ColumnarCursor(session, first, last, columns, segmentCount);
+    }
+
+    /**
+     * Check whether the specified segment is complete and can't contain rows
+     * with values of columns within the specified bounds.
+     *
+     * @param session the session
+     * @param segment the segment number
+     * @param segments the number of complete segments when the scan was
+     *            started
+     * @param first the row with lower bounds of columns, or {@code null}
+     * @param last the row with upper bounds of columns, or {@code null}
+     * @return whether the segment can be skipped
+     */
+    boolean canSkip(SessionLocal session, long segment, long segments, SearchRow first, SearchRow last) {
+        if (segment >= segments) {
+            return false;
+        }
+        for (int i = 0, columnCount = zoneMaps.length; i < columnCount; i++) {
+            MVMap<Long, Value[]> zoneMap = zoneMaps[i];
+            if (zoneMap == null) {
+                continue;
+            }
+            Value min = getBound(first, i), max = getBound(last, i);
+            if (min == null && max == null) {
+                continue;
+            }
+            Value[] zone = zoneMap.get(segment);
+            if (zone == null) {
+                continue;
+            }
+            // comparison with NULL is never true
+            if (zone[0] == ValueNull.INSTANCE || min != null && session.compare(zone[1], min) < 0
+                    || max != null && session.compare(zone[0], max) > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Value getBound(SearchRow row, int column) {
+        if (row == null) {
+            return null;
+        }
+        Value v = row.getValue(column);
+        // IS NULL conditions are not used
+        return v == ValueNull.INSTANCE ? null : v;
+    }
+
+    /**
+     * Read rows starting from the specified position. Rows of a complete
+     * segment are read up to the end of the segment, up to
+     * {@link #SEGMENT_ROWS} rows are read from the row map.
+     *
+     * @param session the session
+     * @param position the position of the first row to read
+     * @param columns the flags of columns to read, or {@code null} to read all
+     *            columns; other columns are read when they are requested
+     * @param segments the number of complete segments when the scan was
+     *            started
+     * @param rows the list to add rows to
+     * @return the position to continue from, or -1 if there are no more rows
+     */
+    long read(SessionLocal session, long position, boolean[] columns, long segments, ArrayList<Row> rows) {
+        int columnCount = columnMaps.length;
+        long segment = position / SEGMENT_ROWS;
+        if (segment < segments) {
+            long first = segment * SEGMENT_ROWS, end = first + SEGMENT_ROWS;
+            Segment data = new Segment(segment, columnCount);
+            for (int i = 0; i < columnCount; i++) {
+                if (columns == null || columns[i]) {
+                    data.get(i);
+                }
+            }
+            TMIterator<Long, Value, Long> deleted = getDeletedMap(session).keyIterator(position, end - 1);
+            long nextDeleted = deleted.hasNext() ? deleted.next() : end;
+            for (; position < end; position++) {
+                if (position == nextDeleted) {
+                    nextDeleted = deleted.hasNext() ? deleted.next() : end;
+                    continue;
+                }
+                int offset = (int) (position - first);
+                Value[] values = new Value[columnCount];
+                for (int i = 0; i < columnCount; i++) {
+                    Value[] d = data.columns[i];
+                    if (d != null) {
+                        values[i] = d[offset];
+                    }
+                }
+                SegmentRow row = new SegmentRow(values, data, offset);
+                row.setKey(position + 1);
+                rows.add(row);
+            }
+            return end;
+        }
+        TMIterator<Long, SearchRow, Map.Entry<Long, SearchRow>> cursor = getRowMap(session)
+                .entryIterator(Math.max(position, segments * SEGMENT_ROWS), null);
+        for (int count = 0; count < SEGMENT_ROWS && cursor.hasNext(); count++) {
+            Map.Entry<Long, SearchRow> entry = cursor.next();
+            position = entry.getKey();
+            Value[] values = ((Row) entry.getValue()).getValueList().clone();
+            Row row = columnarTable.createRow(values, SearchRow.MEMORY_CALCULATE);
+            row.setKey(position + 1);
+            rows.add(row);
+        }
+        return rows.isEmpty() ? -1L : position + 1;
+    }
+
+    @Override
+    public double getCost(SessionLocal session, int[] masks, TableFilter[] filters, int filter,
+            SortOrder sortOrder, AllColumnsForPlan allColumnsSet, boolean isSelectCommand) {
+        double cost = 10 * (getRowCountApproximation(session) + Constants.COST_ROW_OFFSET);
+        if (allColumnsSet != null) {
+            // only the referenced columns are decoded
+            ArrayList<Column> referenced = allColumnsSet.get(table);
+            int count = referenced != null ? referenced.size() : 0;
+            cost = cost * (count + 1) / (columnMaps.length + 1);
+        }
+        return cost;
+    }
+
+    @Override
+    public int getColumnIndex(Column col) {
+        // can not use this index for lookups
+        return -1;
+    }
+
+    @Override
+    public boolean isFirstColumn(Column column) {
+        return false;
+    }
+
+    @Override
+    public boolean isFindUsingFullTableScan() {
+        return true;
+    }
+
+    @Override
+    public boolean isFindSkippingByColumnBounds() {
+        return true;
+    }
+
+    @Override
+    public void remove(SessionLocal session) {
+        MVStore mvStore = store.getMvStore();
+        if (!rowMap.isClosed()) {
+            for (MVMap<Long, Value[]> map : columnMaps) {
+                mvStore.removeMap(map);
+            }
+            for (MVMap<Long, Value[]> map : zoneMaps) {
+                if (map != null) {
+                    mvStore.removeMap(map);
+                }
+            }
+            mvStore.removeMap(segmentCountMap);
+            Transaction t = session.getTransaction();
+            t.removeMap(getRowMap(session));
+            t.removeMap(getDeletedMap(session));
+        }
+    }
+
+    @Override
+    public void truncate(SessionLocal session) {
+        clear();
+    }
+
+    @Override
+    public boolean needRebuild() {
+        return false;
+    }
+
+    @Override
+    public long getRowCount(SessionLocal session) {
+        lock.readLock().lock();
+        try {
+            return segmentCount * SEGMENT_ROWS - getDeletedMap(session).sizeAsLong()
+                    + getRowMap(session).sizeAsLong();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long getRowCountApproximation(SessionLocal session) {
+        return Math.max(segmentCount * SEGMENT_ROWS - deletedMap.map.sizeAsLong() + rowMap.map.sizeAsLong(), 0L);
+    }
+
+    @Override
+    public long getDiskSpaceUsed(boolean approximate) {
+        long size = rowMap.map.getRootPage().getDiskSpaceUsed(approximate)
+                + deletedMap.map.getRootPage().getDiskSpaceUsed(approximate)
+                + segmentCountMap.getRootPage().getDiskSpaceUsed(approximate);
+        for (MVMap<Long, Value[]> map : columnMaps) {
+            size += map.getRootPage().getDiskSpaceUsed(approximate);
+        }
+        for (MVMap<Long, Value[]> map : zoneMaps) {
+            if (map != null) {
+                size += map.getRootPage().getDiskSpaceUsed(approximate);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * The column data of a complete segment. Columns are read when they are
+     * first requested.
+     */
+    private final class Segment {
+
+        private final long segment;
+
+        final Value[][] columns;
+
+        Segment(long segment, int columnCount) {
+            this.segment = segment;
+            columns = new Value[columnCount][];
+        }
+
+        /**
+         * Get the values of the specified column, read them if necessary.
+         *
+         * @param column the column index
+         * @return the values
+         */
+        Value[] get(int column) {
+            Value[] values = columns[column];
+            if (values == null) {
+                values = columnMaps[column].get(segment);
+                if (values == null) {
+                    throw DbException.get(ErrorCode.FILE_CORRUPTED_1,
+                            "Missing segment " + segment + " of column " + column + " of " + getTraceSQL());
+                }
+                columns[column] = values;
+            }
+            return values;
+        }
+
+    }
+
+    /**
+     * A row of a complete segment. Values of columns that were not read with
+     * the segment are read when they are requested.
+     */
+    private static final class SegmentRow extends DefaultRow {
+
+        private final Segment segment;
+
+        private final int offset;
+
+        SegmentRow(Value[] data, Segment segment, int offset) {
+            super(data);
+            this.segment = segment;
+            this.offset = offset;
+        }
+
+        @Override
+        public Value getValue(int i) {
+            if (i >= 0) {
+                Value v = data[i];
+                if (v == null) {
+                    data[i] = v = segment.get(i)[offset];
+                }
+                return v;
+            }
+            return super.getValue(i);
+        }
+
+        @Override
+        public Value[] getValueList() {
+            for (int i = 0, l = data.length; i < l; i++) {
+                getValue(i);
+            }
+            return data;
+        }
+
+    }
+
+    /**
+     * A cursor over the rows of a columnar table.
+     */
+    private final class ColumnarCursor implements Cursor {
+
+        private final SessionLocal session;
+
+        private final SearchRow first, last;
+
+        private final boolean[] columns;
+
+        /**
+         * The number of complete segments when the scan was started.
+         */
+        private final long segments;
+
+        private final ArrayList<Row> rows = new ArrayList<>();
+
+        private long position;
+
+        private int index;
+
+        private Row current;
+
+        private long skippedPageCount;
+
+        ColumnarCursor(SessionLocal session, SearchRow first, SearchRow last, boolean[] columns,
+                long segments) {
+            this.session = session;
+            this.first = first;
+            this.last = last;
+            this.columns = columns;
+            this.segments = segments;
+        }
+
+        @Override
+        public Row get() {
+            return current;
+        }
+
+        @Override
+        public SearchRow getSearchRow() {
+            return current;
+        }
+
+        @Override
+        public boolean next() {
+            while (index >= rows.size()) {
+                if (position < 0L) {
+                    current = null;
+                    return false;
+                }
+                rows.clear();
+                index = 0;
+                long segment = position / SEGMENT_ROWS;
+                if ((first != null || last != null) && canSkip(session, segment, segments, first, last)) {
+                    position = (segment + 1) * SEGMENT_ROWS;
+                    skippedPageCount++;
+                    continue;
+                }
+                position = read(session, position, columns, segments, rows);
+            }
+            current = rows.get(index++);
+            return true;
+        }
+
+        @Override
+        public long getSkippedPageCount() {
+            return skippedPageCount;
+        }
+
+        @Override
+        public boolean previous() {
+            throw DbException.getInternalError(toString());
+        }
+
+    }
+
+}
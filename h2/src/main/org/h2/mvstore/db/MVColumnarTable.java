@@ -0,0 +1,167 @@
+/*
+ * Copyright 2004-2025 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.mvstore.db;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.h2.command.ddl.CreateTableData;
+import org.h2.engine.SessionLocal;
+import org.h2.index.Index;
+import org.h2.index.IndexType;
+import org.h2.message.DbException;
+import org.h2.result.Row;
+import org.h2.table.Column;
+import org.h2.table.IndexColumn;
+import org.h2.table.TableBase;
+import org.h2.table.TableType;
+import org.h2.util.Utils;
+import org.h2.value.DataType;
+
+/**
+ * A table stored in a MVStore column by column. Only the columns used by a
+ * query are read from the store. This table is intended for wide tables with
+ * mostly appended rows, such as fact tables of analytic workloads.
+ * <p>
+ * Inserted and deleted rows are isolated from other transactions and are
+ * undone on rollback. Once all rows of a segment are committed, the segment is
+ * stored column by column and its rows are visible to all transactions.
+ * Secondary indexes, constraints that need an index, columns of large object
+ * data types, and ALTER TABLE are not supported.
+ * </p>
+ */
+public class MVColumnarTable extends TableBase {
+
+    private final MVColumnarIndex scanIndex;
+    private final ArrayList<Index> indexes = Utils.newSmallArrayList();
+    private final AtomicLong lastModificationId = new AtomicLong();
+
+    public MVColumnarTable(CreateTableData data, Store store) {
+        super(data);
+        Column[] columns = getColumns();
+        if (columns.length == 0) {
+            throw DbException.getUnsupportedException("COLUMNAR TABLE without columns");
+        }
+        for (Column column : columns) {
+            if (DataType.isLargeObject(column.getType().getValueType())) {
+                throw DbException.getUnsupportedException("COLUMNAR TABLE with " + column.getCreateSQL());
+            }
+        }
+        scanIndex = new MVColumnarIndex(this, store);
+        indexes.add(scanIndex);
+    }
+
+    @Override
+    public void close(SessionLocal session) {
+        // ignore
+    }
+
+    @Override
+    public Index addIndex(SessionLocal session, String indexName, int indexId, IndexColumn[] cols,
+            int uniqueColumnCount, IndexType indexType, boolean create, String indexComment) {
+        throw DbException.getUnsupportedException("COLUMNAR TABLE index");
+    }
+
+    @Override
+    public void removeRow(SessionLocal session, Row row) {
+        scanIndex.remove(session, row);
+        syncLastModificationIdWithDatabase();
+    }
+
+    @Override
+    public long truncate(SessionLocal session) {
+        long result = scanIndex.getRowCountApproximation(session);
+        scanIndex.truncate(session);
+        syncLastModificationIdWithDatabase();
+        return result;
+    }
+
+    @Override
+    public void addRow(SessionLocal session, Row row) {
+        scanIndex.add(session, row);
+        syncLastModificationIdWithDatabase();
+    }
+
+    private void syncLastModificationIdWithDatabase() {
+        long nextModificationDataId = database.getNextModificationDataId();
+        long currentId;
+        do {
+            currentId = lastModificationId.get();
+        } while (nextModificationDataId > currentId &&
+                !lastModificationId.compareAndSet(currentId, nextModificationDataId));
+    }
+
+    @Override
+    public void checkSupportAlter() {
+        throw DbException.getUnsupportedException("COLUMNAR TABLE");
+    }
+
+    @Override
+    public TableType getTableType() {
+        return TableType.TABLE;
+    }
+
+    @Override
+    public Index getScanIndex(SessionLocal session) {
+        return scanIndex;
+    }
+
+    @Override
+    public List<Index> getIndexes() {
+        return indexes;
+    }
+
+    @Override
+    public long getMaxDataModificationId() {
+        return lastModificationId.get();
+    }
+
+    @Override
+    public boolean isDeterministic() {
+        return true;
+    }
+
+    @Override
+    public boolean canGetRowCount(SessionLocal session) {
+        return true;
+    }
+
+    @Override
+    public boolean canTruncate() {
+        // referential constraints need indexes, so there are no references
+        return true;
+    }
+
+    @Override
+    public boolean canDrop() {
+        return true;
+    }
+
+    @Override
+    public long getRowCount(SessionLocal session) {
+        return scanIndex.getRowCount(session);
+    }
+
+    @Override
+    public long getRowCountApproximation(SessionLocal session) {
+        return scanIndex.getRowCountApproximation(session);
+    }
+
+    @Override
+    public long getDiskSpaceUsed(boolean total, boolean approximate) {
+        return scanIndex.getDiskSpaceUsed(approximate);
+    }
+
+    @Override
+    public void removeChildrenAndResources(SessionLocal session) {
+        super.removeChildrenAndResources(session);
+        scanIndex.remove(session);
+        indexes.clear();
+        close(session);
+        invalidate();
+    }
+
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2004-2025 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.mvstore.db;
+
+import org.h2.api.TableEngine;
+import org.h2.command.ddl.CreateTableData;
+import org.h2.mvstore.MVStoreException;
+
+/**
+ * A table engine that stores tables in the MVStore of the database column by
+ * column, see {@link MVColumnarTable}. Usage:
+ *
+ * <pre>
+ * CREATE TABLE FACT(...) ENGINE "org.h2.mvstore.db.MVColumnarTableEngine";
+ * </pre>
+ */
+public final class MVColumnarTableEngine implements TableEngine {
+
+    @Override
+    public MVColumnarTable createTable(CreateTableData data) {
+        Store store = data.session.getDatabase().getStore();
+        try {
+            return new MVColumnarTable(data, store);
+        } catch (MVStoreException e) {
+            throw store.convertMVStoreException(e);
+        }
+    }
+
+}
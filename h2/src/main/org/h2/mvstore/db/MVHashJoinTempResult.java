@@ -0,0 +1,163 @@
+/*
+ * Copyright 2004-2025 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.mvstore.db;
+
+import java.util.Arrays;
+
+import org.h2.engine.Database;
+import org.h2.message.DbException;
+import org.h2.mvstore.Cursor;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVMap.Builder;
+import org.h2.result.ResultExternal;
+import org.h2.result.RowFactory.DefaultRowFactory;
+import org.h2.value.TypeInfo;
+import org.h2.value.Value;
+import org.h2.value.ValueBigint;
+import org.h2.value.ValueRow;
+
+/**
+ * Temporary storage for the build side of a hash join.
+ *
+ * <p>
+ * This result is used when the build side of a hash join does not fit into
+ * the memory. Rows are stored with their join key and a sequence number, so
+ * rows with the same join key are returned in the order they were added.
+ * </p>
+ */
+public final class MVHashJoinTempResult extends MVTempResult {
+
+    /**
+     * Map with join keys followed by sequence numbers as keys and rows as
+     * values.
+     */
+    private final MVMap<ValueRow, ValueRow> map;
+
+    /**
+     * The number of columns in the join key.
+     */
+    private final int keyLength;
+
+    /**
+     * Counter for the sequence numbers of rows.
+     */
+    private long counter;
+
+    /**
+     * The first key of the current lookup.
+     */
+    private ValueRow from;
+
+    /**
+     * The last key of the current lookup.
+     */
+    private ValueRow to;
+
+    /**
+     * Cursor for the {@link #next()} method.
+     */
+    private Cursor<ValueRow, ValueRow> cursor;
+
+    /**
+     * Creates a new temporary storage for the build side of a hash join.
+     *
+     * @param database
+     *            database
+     * @param keyTypes
+     *            data types of the join key columns
+     * @param rowTypes
+     *            data types of the stored rows
+     */
+    public MVHashJoinTempResult(Database database, TypeInfo[] keyTypes, TypeInfo[] rowTypes) {
+        super(database, null, rowTypes.length, rowTypes.length);
+        keyLength = keyTypes.length;
+        TypeInfo[] types = Arrays.copyOf(keyTypes, keyLength + 1);
+        types[keyLength] = TypeInfo.TYPE_BIGINT;
+        ValueDataType keyType = new ValueDataType(database, new int[keyLength + 1]);
+        keyType.setRowFactory(DefaultRowFactory.INSTANCE.createRowFactory(database, database.getCompareMode(),
+                database, types, null, false));
+        ValueDataType valueType = new ValueDataType(database, new int[rowTypes.length]);
+        valueType.setRowFactory(DefaultRowFactory.INSTANCE.createRowFactory(database, database.getCompareMode(),
+                database, rowTypes, null, false));
+        Builder<ValueRow, ValueRow> builder = new MVMap.Builder<ValueRow, ValueRow>().keyType(keyType)
+                .valueType(valueType).singleWriter();
+        map = store.openMap("tmp", builder);
+    }
+
+    /**
+     * Add a row with the specified join key.
+     *
+     * @param key
+     *            the join key
+     * @param values
+     *            the row values
+     * @return the number of stored rows
+     */
+    public int addRow(Value[] key, Value[] values) {
+        map.put(getKey(key, counter++), ValueRow.get(values));
+        return ++rowCount;
+    }
+
+    /**
+     * Position this result before the first row with the specified join key.
+     * Rows are returned by the {@link #next()} method.
+     *
+     * @param key
+     *            the join key
+     */
+    public void find(Value[] key) {
+        from = getKey(key, Long.MIN_VALUE);
+        to = getKey(key, Long.MAX_VALUE);
+        cursor = null;
+    }
+
+    private ValueRow getKey(Value[] key, long sequence) {
+        Value[] values = Arrays.copyOf(key, keyLength + 1);
+        values[keyLength] = ValueBigint.get(sequence);
+        return ValueRow.get(values);
+    }
+
+    @Override
+    public int addRow(Value[] values) {
+        throw DbException.getUnsupportedException("addRow()");
+    }
+
+    @Override
+    public boolean contains(Value[] values) {
+        throw DbException.getUnsupportedException("contains()");
+    }
+
+    @Override
+    public ResultExternal createShallowCopy() {
+        throw DbException.getUnsupportedException("createShallowCopy()");
+    }
+
+    @Override
+    public Value[] next() {
+        if (from == null) {
+            return null;
+        }
+        if (cursor == null) {
+            cursor = map.cursor(from, to, false);
+        }
+        if (!cursor.hasNext()) {
+            return null;
+        }
+        cursor.next();
+        return cursor.getValue().getList();
+    }
+
+    @Override
+    public int removeRow(Value[] values) {
+        throw DbException.getUnsupportedException("removeRow()");
+    }
+
+    @Override
+    public void reset() {
+        cursor = null;
+    }
+
+}
@@ -6,6 +6,7 @@
 package org.h2.mvstore.db;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.concurrent.atomic.AtomicLong;
@@ -32,6 +33,7 @@
 import org.h2.value.Value;
 import org.h2.value.ValueDecfloat;
 import org.h2.value.ValueLob;
+import org.h2.value.ValueNull;
 import org.h2.value.VersionedValue;
 
 /**
@@ -45,6 +47,12 @@ public final class MVPrimaryIndex extends MVIndex<Long, SearchRow> {
     private final AtomicLong lastKey = new AtomicLong();
     private int mainIndexColumn = SearchRow.ROWID_INDEX;
 
+    /**
+     * The bounds of values of columns in ranges of row keys, or {@code null}
+     * if they aren't collected yet.
+     */
+    private volatile ZoneMap zoneMap;
+
     public MVPrimaryIndex(Database db, MVTable table, int id, IndexColumn[] columns, IndexType indexType) {
         super(table, id, table.getName() + "_DATA", columns, 0, indexType);
         this.mvTable = table;
@@ -126,6 +134,7 @@ public void add(SessionLocal session, Row row) {
         } catch (MVStoreException e) {
             throw mvTable.convertException(e);
         }
+        addToZoneMap(rowKey, row);
         // because it's possible to directly update the key using the _rowid_
         // syntax
         long last;
@@ -196,7 +205,7 @@ public void update(SessionLocal session, Row oldRow, Row newRow) {
         } catch (MVStoreException e) {
             throw mvTable.convertException(e);
         }
-
+        addToZoneMap(key, newRow);
 
         // because it's possible to directly update the key using the _rowid_
         // syntax
@@ -323,14 +332,115 @@ public Cursor find(SessionLocal session, SearchRow first, SearchRow last, boolea
         if (min != null && max != null && min.longValue() == max.longValue()) {
             return new SingleRowCursor(setRowKey((Row) map.getFromSnapshot(min), min));
         }
+        if (!reverse) {
+            ZoneMap zoneMap = getZoneMap(session, first, last);
+            if (zoneMap != null) {
+                return new ZoneCursor(session, map, zoneMap, first, last, min, max);
+            }
+        }
         return new MVStoreCursor(map.entryIterator(min, max, reverse));
     }
 
+    /**
+     * Returns the zone map to skip ranges of rows with the specified bounds of
+     * columns. The zone map is built if necessary.
+     *
+     * @param session the session
+     * @param first the row with lower bounds of columns, or {@code null}
+     * @param last the row with upper bounds of columns, or {@code null}
+     * @return the zone map, or {@code null} if it can't be used
+     */
+    private ZoneMap getZoneMap(SessionLocal session, SearchRow first, SearchRow last) {
+        if (!isFindSkippingByColumnBounds() || !hasBounds(first) && !hasBounds(last)) {
+            return null;
+        }
+        ZoneMap zoneMap = this.zoneMap;
+        if (zoneMap == null) {
+            zoneMap = buildZoneMap();
+        }
+        return zoneMap.isUsable(session.getTransaction().getSequenceNum()) && zoneMap.hasBounds(first, last)
+                ? zoneMap : null;
+    }
+
+    private static boolean hasBounds(SearchRow row) {
+        if (row != null) {
+            for (int i = 0, columnCount = row.getColumnCount(); i < columnCount; i++) {
+                Value v = row.getValue(i);
+                if (v != null && v != ValueNull.INSTANCE) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private synchronized ZoneMap buildZoneMap() {
+        ZoneMap zoneMap = this.zoneMap;
+        if (zoneMap != null) {
+            return zoneMap;
+        }
+        zoneMap = new ZoneMap(database, table.getColumns());
+        // changes made from now on are added by their writers
+        this.zoneMap = zoneMap;
+        zoneMap.build(dataMap.map);
+        // transactions started before may see values that were replaced
+        // before the zone map was published
+        Transaction t = mvTable.getTransactionBegin();
+        zoneMap.setBuilt(t.getSequenceNum());
+        t.commit();
+        return zoneMap;
+    }
+
+    private void addToZoneMap(long key, Row row) {
+        ZoneMap zoneMap = this.zoneMap;
+        if (zoneMap != null) {
+            zoneMap.add(key, row);
+        }
+    }
+
+    /**
+     * Create cursors over disjoint ranges of keys. Together they return all
+     * rows returned by a full scan. Ranges contain approximately the same
+     * number of rows. Cursors are created in the current thread, but may be
+     * iterated concurrently in different threads.
+     *
+     * @param session the session
+     * @param count the desired number of ranges
+     * @return the cursors
+     */
+    public Cursor[] findRanges(SessionLocal session, int count) {
+        TransactionMap<Long,SearchRow> map = getMap(session);
+        MVMap<Long, VersionedValue<SearchRow>> mvMap = dataMap.map;
+        long size = mvMap.sizeAsLong();
+        ArrayList<Long> bounds = new ArrayList<>(count);
+        for (int i = 1; i < count; i++) {
+            Long key = mvMap.getKey(size * i / count);
+            if (key != null && (bounds.isEmpty() || key > bounds.get(bounds.size() - 1))) {
+                bounds.add(key);
+            }
+        }
+        int n = bounds.size();
+        Cursor[] cursors = new Cursor[n + 1];
+        Long min = null;
+        for (int i = 0; i < n; i++) {
+            long bound = bounds.get(i);
+            cursors[i] = new MVStoreCursor(map.entryIterator(min, bound - 1, false));
+            min = bound;
+        }
+        cursors[n] = new MVStoreCursor(map.entryIterator(min, null, false));
+        return cursors;
+    }
+
     @Override
     public MVTable getTable() {
         return mvTable;
     }
 
+    @Override
+    public boolean isFindSkippingByColumnBounds() {
+        return mainIndexColumn == SearchRow.ROWID_INDEX && database.getSettings().zoneMaps;
+    }
+
     @Override
     public Row getRow(SessionLocal session, long key) {
         TransactionMap<Long,SearchRow> map = getMap(session);
@@ -379,6 +489,7 @@ public void truncate(SessionLocal session) {
             database.getLobStorage().removeAllForTable(table.getId());
         }
         getMap(session).clear();
+        zoneMap = null;
     }
 
     @Override
@@ -463,6 +574,95 @@ private static Row setRowKey(Row row, long key) {
         return row;
     }
 
+    /**
+     * A cursor that skips ranges of rows that can't contain values of columns
+     * within the bounds of the search.
+     */
+    private final class ZoneCursor implements Cursor {
+
+        private final SessionLocal session;
+
+        private final TransactionMap<Long, SearchRow> map;
+
+        private final ZoneMap zoneMap;
+
+        private final SearchRow first, last;
+
+        private final long max;
+
+        /**
+         * The first key of the next range to read, or {@code null} if there
+         * are no more ranges.
+         */
+        private Long next;
+
+        private MVStoreCursor cursor;
+
+        private long skippedPageCount;
+
+        ZoneCursor(SessionLocal session, TransactionMap<Long, SearchRow> map, ZoneMap zoneMap,
+                SearchRow first, SearchRow last, Long min, Long max) {
+            this.session = session;
+            this.map = map;
+            this.zoneMap = zoneMap;
+            this.first = first;
+            this.last = last;
+            this.max = max != null ? max : Long.MAX_VALUE;
+            next = min != null ? min : Long.MIN_VALUE;
+        }
+
+        @Override
+        public Row get() {
+            return cursor != null ? cursor.get() : null;
+        }
+
+        @Override
+        public SearchRow getSearchRow() {
+            return get();
+        }
+
+        @Override
+        public boolean next() {
+            for (;;) {
+                if (cursor != null) {
+                    if (cursor.next()) {
+                        return true;
+                    }
+                    cursor = null;
+                }
+                if (next == null) {
+                    return false;
+                }
+                // uncommitted keys of other transactions are only used to
+                // find the next range
+                Long key = dataMap.map.ceilingKey(next);
+                if (key == null || key > max) {
+                    next = null;
+                    return false;
+                }
+                long range = key >> ZoneMap.SHIFT;
+                long end = Math.min(range << ZoneMap.SHIFT | (1 << ZoneMap.SHIFT) - 1, max);
+                next = end < Long.MAX_VALUE ? end + 1 : null;
+                if (zoneMap.canSkip(session, range, first, last)) {
+                    skippedPageCount++;
+                } else {
+                    cursor = new MVStoreCursor(map.entryIterator(key, end, false));
+                }
+            }
+        }
+
+        @Override
+        public boolean previous() {
+            throw DbException.getUnsupportedException("previous");
+        }
+
+        @Override
+        public long getSkippedPageCount() {
+            return skippedPageCount;
+        }
+
+    }
+
     /**
      * A cursor.
      */
@@ -25,6 +25,7 @@
 import org.h2.mvstore.MVStoreTool;
 import org.h2.mvstore.tx.Transaction;
 import org.h2.mvstore.tx.TransactionStore;
+import org.h2.mvstore.tx.TransactionStore.RollbackListener;
 import org.h2.mvstore.type.MetaType;
 import org.h2.store.InDoubtTransaction;
 import org.h2.store.fs.FileUtils;
@@ -78,6 +79,14 @@ static char[] decodePassword(byte[] key) {
 
     private final String fileName;
 
+    /**
+     * The file name of the redo log, or {@code null} for in-memory and
+     * read-only databases.
+     */
+    private final String redoLogFileName;
+
+    private final boolean redoLog;
+
     /**
      * Creates the store.
      *
@@ -88,6 +97,7 @@ public Store(Database db, byte[] key) {
         String dbPath = db.getDatabasePath();
         MVStore.Builder builder = new MVStore.Builder();
         boolean encrypted = false;
+        String redoLogFileName = null;
         if (dbPath != null) {
             String fileName = dbPath + Constants.SUFFIX_MV_FILE;
             this.fileName = fileName;
@@ -97,6 +107,7 @@ public Store(Database db, byte[] key) {
             if (db.isReadOnly()) {
                 builder.readOnly();
             } else {
+                redoLogFileName = dbPath + Constants.SUFFIX_REDO_FILE;
                 // possibly create the directory
                 boolean exists = FileUtils.exists(fileName);
                 if (exists && !FileUtils.canWrite(fileName)) {
@@ -109,16 +120,30 @@ public Store(Database db, byte[] key) {
                 if (autoCompactFillRate <= 100) {
                     builder.autoCompactFillRate(autoCompactFillRate);
                 }
+                int autoCompactRate = db.getSettings().autoCompactRate;
+                if (autoCompactRate > 0) {
+                    builder.autoCompactRate(autoCompactRate);
+                }
             }
             if (key != null) {
                 encrypted = true;
                 builder.encryptionKey(decodePassword(key));
             }
+            if (db.getSettings().memoryMapped) {
+                builder.memoryMapped();
+            }
+            int offHeapCacheSize = db.getSettings().offHeapCacheSize;
+            if (offHeapCacheSize > 0) {
+                builder.offHeapCacheSize(offHeapCacheSize);
+            }
             if (db.getSettings().compressData) {
                 builder.compress();
                 // use a larger page split size to improve the compression ratio
                 builder.pageSplitSize(64 * 1024);
             }
+            if (db.getSettings().compressDictionary) {
+                builder.compressDictionary();
+            }
             builder.backgroundExceptionHandler((t, e) -> db.setBackgroundException(DbException.convert(e)));
             // always start without background thread first, and if necessary,
             // it will be set up later, after db has been fully started,
@@ -129,6 +154,8 @@ public Store(Database db, byte[] key) {
             fileName = null;
         }
         this.encrypted = encrypted;
+        this.redoLogFileName = redoLogFileName;
+        redoLog = db.getSettings().redoLog;
         try {
             this.mvStore = builder.open();
             if (!db.getSettings().reuseSpace) {
@@ -195,6 +222,28 @@ public TransactionStore getTransactionStore() {
         return transactionStore;
     }
 
+    /**
+     * Initialize the transaction store. If the redo log is enabled, or if it
+     * was left after an abnormal termination, changes from the log are
+     * applied.
+     *
+     * @param listener to notify about transaction rollback
+     */
+    public void initTransactionStore(RollbackListener listener) {
+        transactionStore.init(listener);
+        if (redoLogFileName != null && !mvStore.isReadOnly()
+                && (redoLog || FileUtils.exists(redoLogFileName))) {
+            try {
+                transactionStore.openRedoLog(redoLogFileName);
+                if (!redoLog) {
+                    transactionStore.closeRedoLog();
+                }
+            } catch (MVStoreException e) {
+                throw convertMVStoreException(e);
+            }
+        }
+    }
+
     /**
      * Get MVTable by table name.
      *
@@ -247,6 +296,7 @@ public void flush() {
      * Close the store, without persisting changes.
      */
     public void closeImmediately() {
+        transactionStore.closeImmediately();
         mvStore.closeImmediately();
     }
 
@@ -264,6 +314,12 @@ public void removeTemporaryMaps(BitSet objectIds) {
                 if (!objectIds.get(id)) {
                     mvStore.removeMap(mapName);
                 }
+            } else if (mapName.startsWith("columnar.")) {
+                int start = mapName.indexOf('.') + 1;
+                int id = StringUtils.parseUInt31(mapName, start, mapName.indexOf('.', start));
+                if (!objectIds.get(id)) {
+                    mvStore.removeMap(mapName);
+                }
             }
         }
     }
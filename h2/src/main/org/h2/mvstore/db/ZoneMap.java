@@ -0,0 +1,229 @@
+/*
+ * Copyright 2004-2025 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.mvstore.db;
+
+import java.util.concurrent.ConcurrentHashMap;
+import org.h2.engine.Database;
+import org.h2.engine.SessionLocal;
+import org.h2.mvstore.Cursor;
+import org.h2.mvstore.MVMap;
+import org.h2.result.SearchRow;
+import org.h2.table.Column;
+import org.h2.value.CompareMode;
+import org.h2.value.Value;
+import org.h2.value.ValueNull;
+import org.h2.value.VersionedValue;
+
+/**
+ * The minimum and the maximum values of columns of a primary index for each
+ * range of {@code 1 << SHIFT} row keys, kept in memory.
+ * <p>
+ * Bounds are widened by every change, including changes of uncommitted
+ * transactions, and they are never narrowed. So they contain all values of
+ * rows in all versions created after the zone map was built. Values of rows
+ * that were overwritten before may still be visible to older transactions,
+ * only transactions started after the zone map was built may use it.
+ * </p>
+ */
+final class ZoneMap {
+
+    /**
+     * The number of bits of a row key within its range.
+     */
+    static final int SHIFT = 10;
+
+    private final Database database;
+
+    /**
+     * Whether columns have bounds.
+     */
+    private final boolean[] ordered;
+
+    /**
+     * The minimum and the maximum non-NULL values of each column for each
+     * range, {@code null} elements if the range doesn't have such values.
+     * Arrays are never modified after they are put into this map.
+     */
+    private final ConcurrentHashMap<Long, Value[]> zones = new ConcurrentHashMap<>();
+
+    /**
+     * The sequence number of a transaction started after this zone map was
+     * built, or -1 if it is not built yet.
+     */
+    private volatile long sequenceNum = -1L;
+
+    ZoneMap(Database database, Column[] columns) {
+        this.database = database;
+        int columnCount = columns.length;
+        ordered = new boolean[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            int valueType = columns[i].getType().getValueType();
+            ordered[i] = valueType != Value.BLOB && valueType != Value.CLOB && MVColumnarIndex.isOrdered(valueType);
+        }
+    }
+
+    /**
+     * Add the values of all rows of the specified map, including the values
+     * of uncommitted changes and the values replaced by them. Changes made
+     * after this zone map is visible to writers must be added by them.
+     *
+     * @param map the map of the primary index
+     */
+    void build(MVMap<Long, VersionedValue<SearchRow>> map) {
+        for (Cursor<Long, VersionedValue<SearchRow>> cursor = map.cursor(null); cursor.hasNext();) {
+            long key = cursor.next();
+            VersionedValue<SearchRow> value = cursor.getValue();
+            SearchRow row = value.getCurrentValue();
+            if (row != null) {
+                add(key, row);
+            }
+            row = value.getCommittedValue();
+            if (row != null) {
+                add(key, row);
+            }
+        }
+    }
+
+    /**
+     * Allow transactions with the larger sequence numbers to use this zone
+     * map.
+     *
+     * @param sequenceNum the sequence number of a transaction started after
+     *            the zone map was built
+     */
+    void setBuilt(long sequenceNum) {
+        this.sequenceNum = sequenceNum;
+    }
+
+    /**
+     * Check whether the specified transaction may use this zone map.
+     *
+     * @param sequenceNum the sequence number of the transaction
+     * @return whether the zone map may be used
+     */
+    boolean isUsable(long sequenceNum) {
+        long built = this.sequenceNum;
+        return built >= 0L && sequenceNum > built;
+    }
+
+    /**
+     * Widen the bounds of the range of the specified row to include its
+     * values.
+     *
+     * @param key the row key
+     * @param row the row
+     */
+    void add(long key, SearchRow row) {
+        Long range = key >> SHIFT;
+        for (;;) {
+            Value[] zone = zones.get(range);
+            if (zone == null) {
+                if (zones.putIfAbsent(range, widen(null, row)) == null) {
+                    return;
+                }
+            } else if (isWithin(zone, row) || zones.replace(range, zone, widen(zone, row))) {
+                return;
+            }
+        }
+    }
+
+    private boolean isWithin(Value[] zone, SearchRow row) {
+        CompareMode compareMode = database.getCompareMode();
+        for (int i = 0, columnCount = ordered.length; i < columnCount; i++) {
+            if (ordered[i]) {
+                Value v = row.getValue(i);
+                if (v != null && v != ValueNull.INSTANCE) {
+                    Value min = zone[2 * i];
+                    if (min == null || v.compareTypeSafe(min, compareMode, database) < 0
+                            || v.compareTypeSafe(zone[2 * i + 1], compareMode, database) > 0) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    private Value[] widen(Value[] zone, SearchRow row) {
+        CompareMode compareMode = database.getCompareMode();
+        int columnCount = ordered.length;
+        Value[] result = zone == null ? new Value[2 * columnCount] : zone.clone();
+        for (int i = 0; i < columnCount; i++) {
+            if (ordered[i]) {
+                Value v = row.getValue(i);
+                if (v != null && v != ValueNull.INSTANCE) {
+                    Value min = result[2 * i];
+                    if (min == null) {
+                        result[2 * i] = result[2 * i + 1] = v;
+                    } else if (v.compareTypeSafe(min, compareMode, database) < 0) {
+                        result[2 * i] = v;
+                    } else if (v.compareTypeSafe(result[2 * i + 1], compareMode, database) > 0) {
+                        result[2 * i + 1] = v;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Check whether the specified range can't contain rows with values of
+     * columns within the specified bounds.
+     *
+     * @param session the session
+     * @param range the range
+     * @param first the row with lower bounds of columns, or {@code null}
+     * @param last the row with upper bounds of columns, or {@code null}
+     * @return whether the range can be skipped
+     */
+    boolean canSkip(SessionLocal session, long range, SearchRow first, SearchRow last) {
+        Value[] zone = zones.get(range);
+        if (zone == null) {
+            return false;
+        }
+        for (int i = 0, columnCount = ordered.length; i < columnCount; i++) {
+            if (!ordered[i]) {
+                continue;
+            }
+            Value min = getBound(first, i), max = getBound(last, i);
+            if (min == null && max == null) {
+                continue;
+            }
+            // comparison with NULL is never true
+            if (zone[2 * i] == null || min != null && session.compare(zone[2 * i + 1], min) < 0
+                    || max != null && session.compare(zone[2 * i], max) > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check whether the specified rows have bounds of columns with zones.
+     *
+     * @param first the row with lower bounds of columns, or {@code null}
+     * @param last the row with upper bounds of columns, or {@code null}
+     * @return whether there are such bounds
+     */
+    boolean hasBounds(SearchRow first, SearchRow last) {
+        for (int i = 0, columnCount = ordered.length; i < columnCount; i++) {
+            if (ordered[i] && (getBound(first, i) != null || getBound(last, i) != null)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Value getBound(SearchRow row, int column) {
+        if (row == null) {
+            return null;
+        }
+        Value v = row.getValue(column);
+        // IS NULL conditions are not used
+        return v == ValueNull.INSTANCE ? null : v;
+    }
+
+}
@@ -141,9 +141,9 @@ public V operate(Spatial key, V value, DecisionMaker<? super V> decisionMaker) {
                 Page<Spatial,V> split = split(p);
                 Spatial k1 = getBounds(p);
                 Spatial k2 = getBounds(split);
-                Spatial[] keys = p.createKeyStorage(2);
-                keys[0] = k1;
-                keys[1] = k2;
+                Object keys = p.createKeyStorage(2);
+                keyType.setKey(keys, 0, k1);
+                keyType.setKey(keys, 1, k2);
                 Page.PageReference<Spatial,V>[] children = Page.createRefStorage(3);
                 children[0] = new Page.PageReference<>(p);
                 children[1] = new Page.PageReference<>(split);
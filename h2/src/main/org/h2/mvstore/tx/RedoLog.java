@@ -0,0 +1,315 @@
+/*
+ * Copyright 2004-2025 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.mvstore.tx;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import org.h2.mvstore.DataUtils;
+import org.h2.mvstore.WriteBuffer;
+import org.h2.store.fs.FileUtils;
+
+/**
+ * An append-only log with changes of committed transactions.
+ * <p>
+ * Each entry has a header with the length and the checksum of its data. A
+ * committing transaction appends its record to the buffer and waits until the
+ * record is forced to the disk. Only one thread writes the buffer and syncs the
+ * file at any time, records appended by other threads in the meantime are
+ * written together by the next one (group commit).
+ * <p>
+ * After the changes of a record are applied to the maps, a marker with the
+ * current version of the store is appended. It is written with a later record
+ * or before a checkpoint. If that version is older than the version of the
+ * stored data found on recovery, the changes are known to be stored, and the
+ * record is skipped. All records can be discarded after a checkpoint, when all
+ * changes are stored in the store.
+ */
+final class RedoLog {
+
+    /**
+     * The size of the log after which a checkpoint should be made.
+     */
+    static final long MAX_SIZE = 16L << 20;
+
+    private static final int HEADER_LENGTH = 8;
+
+    /**
+     * The type of a record with changes.
+     */
+    private static final byte TYPE_RECORD = 0;
+
+    /**
+     * The type of a marker for applied changes of a record.
+     */
+    private static final byte TYPE_APPLIED = 1;
+
+    private final String fileName;
+
+    private final FileChannel file;
+
+    /**
+     * The checkpoint lock. A transaction holds the read lock while its changes
+     * are logged and committed, a checkpoint requires the write lock.
+     */
+    private final ReentrantReadWriteLock checkpointLock = new ReentrantReadWriteLock();
+
+    private final Object syncLock = new Object();
+
+    /**
+     * The records that are not written to the file yet.
+     */
+    private WriteBuffer buffer = new WriteBuffer();
+
+    /**
+     * The position after the last appended record.
+     */
+    private long appendPosition;
+
+    /**
+     * The position after the last record that was forced to the disk.
+     */
+    private volatile long syncedPosition;
+
+    /**
+     * Open the log.
+     *
+     * @param fileName the file name
+     */
+    RedoLog(String fileName) {
+        this.fileName = fileName;
+        try {
+            file = FileUtils.open(fileName, "rw");
+        } catch (IOException e) {
+            throw DataUtils.newMVStoreException(DataUtils.ERROR_READING_FAILED,
+                    "Could not open redo log {0}", fileName, e);
+        }
+    }
+
+    /**
+     * Read the records of the log that may be not stored yet. Reading stops at
+     * the first incomplete or corrupt entry, such entries may be left by an
+     * abnormal termination during write. Leading records with changes that are
+     * stored in a version older than the specified one are skipped, all
+     * records after the first other record are returned, because their
+     * changes may depend on each other.
+     *
+     * @param storedVersion the version of the stored data
+     * @param consumer the consumer of records
+     * @return the number of returned records
+     */
+    int read(long storedVersion, Consumer<ByteBuffer> consumer) {
+        long size = size();
+        // start and end positions of records
+        ArrayList<long[]> records = new ArrayList<>();
+        HashMap<Long, Long> applied = new HashMap<>();
+        for (long pos = 0;;) {
+            ByteBuffer data = readEntry(pos, size);
+            if (data == null) {
+                break;
+            }
+            long end = pos + HEADER_LENGTH + data.limit();
+            if (data.get() == TYPE_RECORD) {
+                records.add(new long[] { pos, end });
+            } else {
+                applied.put(data.getLong(), data.getLong());
+            }
+            pos = end;
+        }
+        int first = 0;
+        for (int count = records.size(); first < count; first++) {
+            Long version = applied.get(records.get(first)[1]);
+            if (version == null || version >= storedVersion) {
+                break;
+            }
+        }
+        for (int i = first, count = records.size(); i < count; i++) {
+            ByteBuffer data = readEntry(records.get(i)[0], size);
+            data.get();
+            consumer.accept(data.slice());
+        }
+        return records.size() - first;
+    }
+
+    /**
+     * Read the data of an entry.
+     *
+     * @param pos the position of the entry
+     * @param size the size of the file
+     * @return the data, or {@code null} if the entry is incomplete or corrupt
+     */
+    private ByteBuffer readEntry(long pos, long size) {
+        if (pos + HEADER_LENGTH > size) {
+            return null;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+        DataUtils.readFully(file, pos, header);
+        int length = header.getInt(), checksum = header.getInt();
+        if (length <= 0 || pos + HEADER_LENGTH + length > size) {
+            return null;
+        }
+        ByteBuffer data = ByteBuffer.allocate(length);
+        DataUtils.readFully(file, pos + HEADER_LENGTH, data);
+        if (DataUtils.getFletcher32(data.array(), 0, length) != checksum) {
+            return null;
+        }
+        return data;
+    }
+
+    /**
+     * Create a buffer for a new record.
+     *
+     * @return the buffer
+     */
+    static WriteBuffer createRecord() {
+        return new WriteBuffer().put(TYPE_RECORD);
+    }
+
+    /**
+     * Append a record to the log.
+     *
+     * @param record the buffer with data of the record
+     * @return the position to sync for this record
+     */
+    synchronized long append(WriteBuffer record) {
+        int length = record.position();
+        byte[] data = record.getBuffer().array();
+        buffer.putInt(length).putInt(DataUtils.getFletcher32(data, 0, length)).put(data, 0, length);
+        return appendPosition += HEADER_LENGTH + length;
+    }
+
+    /**
+     * Append a marker for a record with changes that are applied to the maps.
+     * The marker is not forced to the disk by this method.
+     *
+     * @param position the position returned when the record was appended
+     * @param version the current version of the store after the changes were
+     *            applied
+     */
+    void appendApplied(long position, long version) {
+        append(new WriteBuffer().put(TYPE_APPLIED).putLong(position).putLong(version));
+    }
+
+    /**
+     * Force all appended entries to the disk.
+     */
+    void flush() {
+        long position;
+        synchronized (this) {
+            position = appendPosition;
+        }
+        sync(position);
+    }
+
+    /**
+     * Wait until the log is forced to the disk up to the specified position.
+     * If no other thread writes the log at the moment, all appended records are
+     * written and forced by the current thread.
+     *
+     * @param position the position
+     */
+    void sync(long position) {
+        if (syncedPosition >= position) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (syncedPosition >= position) {
+                return;
+            }
+            ByteBuffer data;
+            long end;
+            synchronized (this) {
+                data = buffer.getBuffer();
+                data.flip();
+                buffer = new WriteBuffer();
+                end = appendPosition;
+            }
+            DataUtils.writeFully(file, end - data.remaining(), data);
+            try {
+                file.force(false);
+            } catch (IOException e) {
+                throw DataUtils.newMVStoreException(DataUtils.ERROR_WRITING_FAILED,
+                        "Could not sync redo log {0}", fileName, e);
+            }
+            syncedPosition = end;
+        }
+    }
+
+    /**
+     * Discard all records. Must be called with the write lock, when all
+     * appended records are synced.
+     */
+    void truncate() {
+        synchronized (syncLock) {
+            synchronized (this) {
+                try {
+                    file.truncate(0L);
+                    file.force(false);
+                } catch (IOException e) {
+                    throw DataUtils.newMVStoreException(DataUtils.ERROR_WRITING_FAILED,
+                            "Could not truncate redo log {0}", fileName, e);
+                }
+                buffer.clear();
+                appendPosition = 0L;
+                syncedPosition = 0L;
+            }
+        }
+    }
+
+    /**
+     * Check whether the log is large enough for a checkpoint.
+     *
+     * @return whether a checkpoint should be made
+     */
+    synchronized boolean isFull() {
+        return appendPosition > MAX_SIZE;
+    }
+
+    /**
+     * Returns the size of the log file.
+     *
+     * @return the size of the log file
+     */
+    long size() {
+        try {
+            return file.size();
+        } catch (IOException e) {
+            throw DataUtils.newMVStoreException(DataUtils.ERROR_READING_FAILED,
+                    "Could not read redo log {0}", fileName, e);
+        }
+    }
+
+    /**
+     * Returns the checkpoint lock.
+     *
+     * @return the checkpoint lock
+     */
+    ReentrantReadWriteLock getCheckpointLock() {
+        return checkpointLock;
+    }
+
+    /**
+     * Close the log.
+     *
+     * @param delete whether the file should be deleted
+     */
+    void close(boolean delete) {
+        try {
+            file.close();
+        } catch (IOException e) {
+            throw DataUtils.newMVStoreException(DataUtils.ERROR_WRITING_FAILED,
+                    "Could not close redo log {0}", fileName, e);
+        }
+        if (delete) {
+            FileUtils.delete(fileName);
+        }
+    }
+
+}
@@ -129,6 +129,12 @@ public final class Transaction {
      */
     boolean wasStored;
 
+    /**
+     * Indicates whether this transaction changed maps without undo log
+     * records, such changes are not written to the redo log
+     */
+    boolean hasUnloggedChanges;
+
     /**
      * How long to wait for blocking transaction to commit or rollback.
      */
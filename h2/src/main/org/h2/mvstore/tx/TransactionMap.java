@@ -340,6 +340,7 @@ public V lock(K key, int timeoutMillis) {
     public V putCommitted(K key, V value) {
         DataUtils.checkArgument(value != null, "The value may not be null");
         VersionedValue<V> newValue = VersionedValueCommitted.getInstance(value);
+        transaction.store.beforeUnloggedChange(transaction);
         VersionedValue<V> oldValue = map.put(key, newValue);
         V result = oldValue == null ? null : oldValue.getCurrentValue();
         return result;
@@ -634,6 +635,7 @@ public boolean isClosed() {
     @Override
     public void clear() {
         // TODO truncate transactionally?
+        transaction.store.beforeUnloggedChange(transaction);
         map.clear();
         hasChanges = true;
     }
@@ -5,6 +5,7 @@
  */
 package org.h2.mvstore.tx;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.Iterator;
@@ -13,12 +14,14 @@
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Lock;
 import org.h2.engine.IsolationLevel;
 import org.h2.mvstore.Cursor;
 import org.h2.mvstore.DataUtils;
 import org.h2.mvstore.MVMap;
 import org.h2.mvstore.MVStore;
 import org.h2.mvstore.RootReference;
+import org.h2.mvstore.WriteBuffer;
 import org.h2.mvstore.rtree.MVRTreeMap;
 import org.h2.mvstore.rtree.SpatialDataType;
 import org.h2.mvstore.type.DataType;
@@ -86,6 +89,22 @@ public class TransactionStore {
 
     private boolean init;
 
+    /**
+     * The redo log, or {@code null} if changes of transactions are not logged.
+     */
+    private volatile RedoLog redoLog;
+
+    /**
+     * The version of the store at the last checkpoint of the redo log. Changes
+     * made in older versions are forced to the disk.
+     */
+    private long checkpointVersion;
+
+    /**
+     * The version of the stored data when the store was opened.
+     */
+    private final long storedVersion;
+
     /**
      * Soft limit on the number of concurrently opened transactions.
      * Not really needed but used by some test.
@@ -152,6 +171,7 @@ public TransactionStore(MVStore store, DataType<?> dataType) {
      */
     public TransactionStore(MVStore store, MetaType<?> metaDataType, DataType<?> dataType, int timeoutMillis) {
         this.store = store;
+        storedVersion = store.getCurrentVersion();
         this.dataType = dataType;
         this.timeoutMillis = timeoutMillis;
         this.typeRegistry = openTypeRegistry(store, metaDataType);
@@ -358,11 +378,61 @@ public List<Transaction> getOpenTransactions() {
         return list;
     }
 
+    /**
+     * Open the redo log. If the log has records left after an abnormal
+     * termination, leftover transactions of the store are ended, changes from
+     * the log are applied to the maps and stored.
+     *
+     * @param fileName the file name of the log
+     */
+    public synchronized void openRedoLog(String fileName) {
+        if (!init) {
+            init();
+        }
+        RedoLog log = new RedoLog(fileName);
+        try {
+            if (log.size() > 0L) {
+                endLeftoverTransactions();
+                log.read(storedVersion, this::redo);
+            }
+            checkpoint(log, null);
+        } catch (Throwable e) {
+            log.close(false);
+            throw e;
+        }
+        redoLog = log;
+    }
+
+    /**
+     * Store all changes and delete the redo log, if any.
+     */
+    public synchronized void closeRedoLog() {
+        RedoLog log = redoLog;
+        if (log != null) {
+            redoLog = null;
+            checkpoint(log, null);
+            log.close(true);
+        }
+    }
+
     /**
      * Close the transaction store.
      */
     public synchronized void close() {
         store.commit();
+        closeRedoLog();
+    }
+
+    /**
+     * Close the redo log, if any, without storing the changes. The log will be
+     * applied when the store is opened next time.
+     */
+    public void closeImmediately() {
+        RedoLog log = redoLog;
+        if (log != null) {
+            redoLog = null;
+            log.close(false);
+        }
     }
 
     /**
@@ -466,6 +536,23 @@ long addUndoLogRecord(int transactionId, long logId, Record<?,?> record) {
         return undoKey;
     }
 
+    /**
+     * Called before a transaction changes a map without undo log records. The
+     * redo log is forced to the disk, so that it is not replayed over this
+     * change after an abnormal termination.
+     *
+     * @param t the transaction
+     */
+    void beforeUnloggedChange(Transaction t) {
+        if (!t.hasUnloggedChanges) {
+            t.hasUnloggedChanges = true;
+            RedoLog log = redoLog;
+            if (log != null) {
+                log.flush();
+            }
+        }
+    }
+
     /**
      * Remove an undo log entry.
      * @param transactionId id of the transaction
@@ -491,46 +578,176 @@ void removeMap(TransactionMap<?,?> map) {
      */
     void commit(Transaction t, boolean recovery) {
         if (!store.isClosed()) {
-            int transactionId = t.transactionId;
-            // First, mark log as "committed".
-            // It does not change the way this transaction is treated by others,
-            // but preserves fact of commit in case of abrupt termination.
-            MVMap<Long,Record<?,?>> undoLog = undoLogs[transactionId];
-            Cursor<Long,Record<?,?>> cursor;
-            if(recovery) {
-                removeUndoLogRecord(transactionId);
-                cursor = undoLog.cursor(null);
-            } else {
-                cursor = undoLog.cursor(null);
-                markUndoLogAsCommitted(transactionId);
+            RedoLog log = redoLog;
+            if (log == null || recovery) {
+                commitChanges(t, recovery);
+                return;
             }
+            boolean logged = false;
+            Lock lock = log.getCheckpointLock().readLock();
+            lock.lock();
+            try {
+                // changes of other maps can't be restored from the redo log,
+                // so they need to be forced to the disk by a checkpoint first
+                if (!t.hasUnloggedChanges
+                        && !store.hasChangesSince(checkpointVersion - 1, TransactionStore::isNotLogged)) {
+                    long position = log.append(createRedoRecord(t.transactionId));
+                    log.sync(position);
+                    commitChanges(t, false);
+                    log.appendApplied(position, store.getCurrentVersion());
+                    logged = true;
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (!logged) {
+                checkpoint(log, t);
+                // the checkpoint has already stored them
+                t.hasUnloggedChanges = false;
+            } else if (log.isFull()) {
+                checkpoint(log, null);
+            }
+        }
+    }
 
-            // this is an atomic action that causes all changes
-            // made by this transaction, to be considered as "committed"
-            flipCommittingTransactionsBit(transactionId, true);
+    private void commitChanges(Transaction t, boolean recovery) {
+        int transactionId = t.transactionId;
+        // First, mark log as "committed".
+        // It does not change the way this transaction is treated by others,
+        // but preserves fact of commit in case of abrupt termination.
+        MVMap<Long,Record<?,?>> undoLog = undoLogs[transactionId];
+        Cursor<Long,Record<?,?>> cursor;
+        if(recovery) {
+            removeUndoLogRecord(transactionId);
+            cursor = undoLog.cursor(null);
+        } else {
+            cursor = undoLog.cursor(null);
+            markUndoLogAsCommitted(transactionId);
+        }
 
-            CommitDecisionMaker<Object> commitDecisionMaker = new CommitDecisionMaker<>();
+        // this is an atomic action that causes all changes
+        // made by this transaction, to be considered as "committed"
+        flipCommittingTransactionsBit(transactionId, true);
+
+        CommitDecisionMaker<Object> commitDecisionMaker = new CommitDecisionMaker<>();
+        try {
+            while (cursor.hasNext()) {
+                Long undoKey = cursor.next();
+                Record<?,?> op = cursor.getValue();
+                int mapId = op.mapId;
+                MVMap<Object, VersionedValue<Object>> map = openMap(mapId);
+                if (map != null && !map.isClosed()) { // might be null if map was removed later
+                    Object key = op.key;
+                    commitDecisionMaker.setUndoKey(undoKey);
+                    // second parameter (value) is not really
+                    // used by CommitDecisionMaker
+                    map.operate(key, null, commitDecisionMaker);
+                }
+            }
+        } finally {
             try {
-                while (cursor.hasNext()) {
-                    Long undoKey = cursor.next();
-                    Record<?,?> op = cursor.getValue();
-                    int mapId = op.mapId;
-                    MVMap<Object, VersionedValue<Object>> map = openMap(mapId);
-                    if (map != null && !map.isClosed()) { // might be null if map was removed later
-                        Object key = op.key;
-                        commitDecisionMaker.setUndoKey(undoKey);
-                        // second parameter (value) is not really
-                        // used by CommitDecisionMaker
-                        map.operate(key, null, commitDecisionMaker);
+                undoLog.clear();
+            } finally {
+                flipCommittingTransactionsBit(transactionId, false);
+            }
+        }
+    }
+
+    /**
+     * Make a checkpoint: store all changes, force them to the disk and discard
+     * the redo log. The markers of applied records are forced to the disk
+     * first, so that the log is not replayed over the stored changes if the
+     * log is not discarded because of an abnormal termination.
+     *
+     * @param log the redo log
+     * @param t the transaction to commit before the checkpoint, or
+     *            {@code null}
+     */
+    private void checkpoint(RedoLog log, Transaction t) {
+        Lock lock = log.getCheckpointLock().writeLock();
+        lock.lock();
+        try {
+            log.flush();
+            if (t != null) {
+                commitChanges(t, false);
+            }
+            store.commit();
+            store.sync();
+            log.truncate();
+            checkpointVersion = store.getCurrentVersion();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static boolean isNotLogged(MVMap<?, ?> map) {
+        DataType<?> valueType = map.getValueType();
+        return !(valueType instanceof VersionedValueType) && !(valueType instanceof Record.Type);
+    }
+
+    /**
+     * Create a record for the redo log with the final values of keys changed by
+     * the specified transaction.
+     *
+     * @param transactionId the id of the transaction
+     * @return the buffer with data of the record
+     */
+    private WriteBuffer createRedoRecord(int transactionId) {
+        WriteBuffer buff = RedoLog.createRecord();
+        Cursor<Long, Record<?, ?>> cursor = undoLogs[transactionId].cursor(null);
+        while (cursor.hasNext()) {
+            long undoKey = cursor.next();
+            Record<?, ?> op = cursor.getValue();
+            int mapId = op.mapId;
+            MVMap<Object, VersionedValue<Object>> map = openMap(mapId);
+            if (map != null && !map.isClosed()) {
+                Object key = op.key;
+                VersionedValue<Object> value = map.get(key);
+                // only the last change of each key is logged
+                if (value != null && value.getOperationId() == undoKey) {
+                    buff.putVarInt(mapId);
+                    int start = buff.position();
+                    buff.putInt(0);
+                    map.getKeyType().write(buff, key);
+                    Object currentValue = value.getCurrentValue();
+                    if (currentValue == null) {
+                        buff.put((byte) 0);
+                    } else {
+                        buff.put((byte) 1);
+                        map.getValueType().write(buff, VersionedValueCommitted.getInstance(currentValue));
                     }
+                    buff.putInt(start, buff.position() - start - 4);
                 }
-            } finally {
-                try {
-                    undoLog.clear();
-                } finally {
-                    flipCommittingTransactionsBit(transactionId, false);
+            }
+        }
+        return buff;
+    }
+
+    /**
+     * Apply a record of the redo log.
+     *
+     * @param buff the data of the record
+     */
+    private void redo(ByteBuffer buff) {
+        while (buff.hasRemaining()) {
+            int mapId = DataUtils.readVarInt(buff);
+            int length = buff.getInt();
+            int end = buff.position() + length;
+            MVMap<Object, VersionedValue<Object>> map = openMap(mapId);
+            // the map might be removed later
+            if (map != null) {
+                Object key = map.getKeyType().read(buff);
+                VersionedValue<Object> existing = map.get(key);
+                // an uncommitted value of a prepared transaction is newer
+                if (existing == null || existing.getOperationId() == 0L) {
+                    if (buff.get() == 0) {
+                        map.remove(key);
+                    } else {
+                        map.put(key, map.getValueType().read(buff));
+                    }
                 }
             }
+            buff.position(end);
         }
     }
 
@@ -629,7 +846,7 @@ void endTransaction(Transaction t, boolean hasChanges) {
             }
 
             if (store.isVersioningRequired()) {
-                if (wasStored || store.getAutoCommitDelay() == 0) {
+                if (wasStored || store.getAutoCommitDelay() == 0 && redoLog == null) {
                     store.commit();
                 } else {
                     if (isUndoEmpty()) {
@@ -646,6 +863,10 @@ void endTransaction(Transaction t, boolean hasChanges) {
                 }
             }
         }
+        RedoLog log = redoLog;
+        if (log != null && t.hasUnloggedChanges) {
+            checkpoint(log, null);
+        }
     }
 
     /**
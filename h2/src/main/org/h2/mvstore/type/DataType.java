@@ -91,5 +91,43 @@
      * @return storage object
      */
     T[] createStorage(int size);
+
+    /**
+     * Create storage object to hold keys of a page. Data types of fixed-width
+     * primitive values may return an array of primitive values instead of an
+     * array of type T to avoid boxed keys in cached pages.
+     *
+     * @param size number of keys to hold
+     * @return storage object
+     */
+    default Object createKeyStorage(int size) {
+        return createStorage(size);
+    }
+
+    /**
+     * Get a key from the storage object created by
+     * {@link #createKeyStorage(int)}.
+     *
+     * @param storage the storage object
+     * @param index the index
+     * @return the key
+     */
+    @SuppressWarnings("unchecked")
+    default T getKey(Object storage, int index) {
+        return ((T[]) storage)[index];
+    }
+
+    /**
+     * Set a key in the storage object created by
+     * {@link #createKeyStorage(int)}.
+     *
+     * @param storage the storage object
+     * @param index the index
+     * @param key the key
+     */
+    @SuppressWarnings("unchecked")
+    default void setKey(Object storage, int index, T key) {
+        ((T[]) storage)[index] = key;
+    }
 }
 
@@ -23,6 +23,8 @@ public class LongDataType extends BasicDataType<Long> {
 
     private static final Long[] EMPTY_LONG_ARR = new Long[0];
 
+    private static final long[] EMPTY_KEYS = new long[0];
+
     private LongDataType() {}
 
     @Override
@@ -45,6 +47,54 @@ public Long[] createStorage(int size) {
         return size == 0 ? EMPTY_LONG_ARR : new Long[size];
     }
 
+    /**
+     * Keys are stored as an array of primitive values.
+     */
+    @Override
+    public long[] createKeyStorage(int size) {
+        return size == 0 ? EMPTY_KEYS : new long[size];
+    }
+
+    @Override
+    public Long getKey(Object storage, int index) {
+        return ((long[]) storage)[index];
+    }
+
+    @Override
+    public void setKey(Object storage, int index, Long key) {
+        ((long[]) storage)[index] = key;
+    }
+
+    @Override
+    public boolean isMemoryEstimationAllowed() {
+        // fixed size
+        return false;
+    }
+
+    @Override
+    public void write(WriteBuffer buff, Object storage, int len) {
+        if (storage instanceof long[]) {
+            long[] keys = (long[]) storage;
+            for (int i = 0; i < len; i++) {
+                buff.putVarLong(keys[i]);
+            }
+        } else {
+            super.write(buff, storage, len);
+        }
+    }
+
+    @Override
+    public void read(ByteBuffer buff, Object storage, int len) {
+        if (storage instanceof long[]) {
+            long[] keys = (long[]) storage;
+            for (int i = 0; i < len; i++) {
+                keys[i] = DataUtils.readVarLong(buff);
+            }
+        } else {
+            super.read(buff, storage, len);
+        }
+    }
+
     @Override
     public int compare(Long one, Long two) {
         return Long.compare(one, two);
@@ -53,7 +103,6 @@ public int compare(Long one, Long two) {
     @Override
     public int binarySearch(Long keyObj, Object storageObj, int size, int initialGuess) {
         long key = keyObj;
-        Long[] storage = cast(storageObj);
         int low = 0;
         int high = size - 1;
         // the cached index minus one, so that
@@ -63,7 +112,25 @@ public int binarySearch(Long keyObj, Object storageObj, int size, int initialGue
         if (x < 0 || x > high) {
             x = high >>> 1;
         }
-        return binarySearch(key, storage, low, high, x);
+        if (storageObj instanceof long[]) {
+            return binarySearch(key, (long[]) storageObj, low, high, x);
+        }
+        return binarySearch(key, cast(storageObj), low, high, x);
+    }
+
+    private static int binarySearch(long key, long[] storage, int low, int high, int x) {
+        while (low <= high) {
+            long midVal = storage[x];
+            if (key > midVal) {
+                low = x + 1;
+            } else if (key < midVal) {
+                high = x - 1;
+            } else {
+                return x;
+            }
+            x = (low + high) >>> 1;
+        }
+        return ~low;
     }
 
     private static int binarySearch(long key, Long[] storage, int low, int high, int x) {
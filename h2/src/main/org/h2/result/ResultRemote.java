@@ -9,6 +9,7 @@
 import java.util.ArrayList;
 
 import org.h2.api.ErrorCode;
+import org.h2.engine.Constants;
 import org.h2.engine.SessionRemote;
 import org.h2.engine.SysProperties;
 import org.h2.message.DbException;
@@ -34,6 +35,47 @@ public final class ResultRemote extends FetchedResult {
     private ArrayList<Value[]> result;
     private final Trace trace;
 
+    /**
+     * The number of rows requested ahead, or 0 if there is no pending request.
+     */
+    private int prefetchSize;
+
+    /**
+     * The index of the first row requested ahead.
+     */
+    private long prefetchOffset;
+
+    /**
+     * The rows fetched ahead, or null.
+     */
+    private ArrayList<Value[]> prefetched;
+
+    /**
+     * The exception thrown by the server while fetching rows ahead, or null.
+     */
+    private DbException prefetchException;
+
+    /**
+     * The number of rows to fetch at once. It starts with the fetch size and
+     * grows while the client waits for rows, see {@link #adaptBatchSize(long)}.
+     */
+    private int batchSize;
+
+    /**
+     * The estimated memory of the rows fetched so far.
+     */
+    private long fetchedMemory;
+
+    /**
+     * The number of rows fetched so far.
+     */
+    private long fetchedRows;
+
+    /**
+     * The time when the current rows became available.
+     */
+    private long batchStart;
+
     public ResultRemote(SessionRemote session, Transfer transfer, int id,
             int columnCount, int fetchSize) throws IOException {
         this.session = session;
@@ -47,6 +89,7 @@ public ResultRemote(SessionRemote session, Transfer transfer, int id,
         }
         rowId = -1;
         this.fetchSize = fetchSize;
+        batchSize = fetchSize;
         if (rowCount >= 0) {
             fetchSize = (int) Math.min(rowCount, fetchSize);
             result = new ArrayList<>(fetchSize);
@@ -56,9 +99,10 @@ public ResultRemote(SessionRemote session, Transfer transfer, int id,
         session.lock();
         try {
             try {
-                if (fetchRows(fetchSize)) {
+                if (fetchRows(result, 0L, fetchSize)) {
                     rowCount = result.size();
                 }
+                batchStart = System.nanoTime();
             } catch (IOException e) {
                 throw DbException.convertIOException(e, null);
             }
@@ -124,6 +168,9 @@ public void reset() {
         try {
             session.checkClosed();
             try {
+                session.readPrefetchedRows(transfer);
+                prefetched = null;
+                prefetchException = null;
                 session.traceOperation("RESULT_RESET", id);
                 transfer.writeInt(SessionRemote.RESULT_RESET).writeInt(id).flush();
             } catch (IOException e) {
@@ -157,9 +204,9 @@ public boolean hasNext() {
                 long nextRowId = rowId + 1;
                 if (session != null) {
                     remapIfOld();
-                    if (nextRowId - rowOffset >= result.size()) {
-                        fetchAdditionalRows();
-                    }
+                }
+                if (nextRowId - rowOffset >= result.size() && (session != null || prefetched != null)) {
+                    fetchAdditionalRows();
                 }
                 int index = (int) (nextRowId - rowOffset);
                 nextRow = index < result.size() ? result.get(index) : null;
@@ -176,6 +223,13 @@ private void sendClose() {
         // TODO result sets: no reset possible for larger remote result sets
         session.lock();
         try {
+            if (prefetchSize > 0) {
+                session.readPrefetchedRows(transfer);
+                if (this.session == null) {
+                    // closed by the server after the last rows
+                    return;
+                }
+            }
             session.traceOperation("RESULT_CLOSE", id);
             transfer.writeInt(SessionRemote.RESULT_CLOSE).writeInt(id);
         } catch (IOException e) {
@@ -191,6 +245,7 @@ private void sendClose() {
     public void close() {
         result = null;
         sendClose();
+        prefetched = null;
     }
 
     private void remapIfOld() {
@@ -211,23 +266,33 @@ private void remapIfOld() {
     }
 
     private void fetchAdditionalRows() {
+        rowOffset += result.size();
         final SessionRemote session = this.session;
+        if (session == null) {
+            // closed after the last rows were fetched ahead
+            takePrefetchedRows();
+            return;
+        }
         session.lock();
         try {
             session.checkClosed();
             try {
-                rowOffset += result.size();
-                result.clear();
-                int fetch = fetchSize;
-                if (rowCount >= 0) {
-                    fetch = (int) Math.min(fetch, rowCount - rowOffset);
-                } else if (fetch == Integer.MAX_VALUE) {
-                    fetch = SysProperties.SERVER_RESULT_SET_FETCH_SIZE;
+                long start = System.nanoTime();
+                if (prefetchSize > 0) {
+                    session.readPrefetchedRows(transfer);
+                }
+                if (prefetched != null) {
+                    takePrefetchedRows();
+                } else {
+                    result.clear();
+                    int fetch = getNextFetchSize(rowOffset);
+                    session.traceOperation("RESULT_FETCH_ROWS", id);
+                    transfer.writeInt(SessionRemote.RESULT_FETCH_ROWS).writeInt(id).writeInt(fetch);
+                    session.done(transfer);
+                    fetchRows(result, rowOffset, fetch);
                 }
-                session.traceOperation("RESULT_FETCH_ROWS", id);
-                transfer.writeInt(SessionRemote.RESULT_FETCH_ROWS).writeInt(id).writeInt(fetch);
-                session.done(transfer);
-                fetchRows(fetch);
+                adaptBatchSize(start);
+                prefetchRows();
             } catch (IOException e) {
                 throw DbException.convertIOException(e, null);
             }
@@ -236,8 +301,104 @@ private void fetchAdditionalRows() {
         }
     }
 
-    private boolean fetchRows(int fetch) throws IOException {
+    /**
+     * Double the batch size if the client waited for the current rows for a
+     * significant part of the time since the previous rows became available.
+     * The batch size is limited by the estimated memory of the fetched rows.
+     *
+     * @param start the time when the client started to wait
+     */
+    private void adaptBatchSize(long start) {
+        long now = System.nanoTime();
+        long consumed = start - batchStart, waited = now - start;
+        batchStart = now;
+        if (isAdaptive() && fetchedRows > 0L) {
+            long rowMemory = Math.max(1L, fetchedMemory / fetchedRows);
+            long limit = Math.max(fetchSize, SysProperties.SERVER_RESULT_SET_FETCH_BYTES / rowMemory);
+            long size = batchSize;
+            if (waited * 4 > consumed) {
+                size *= 2;
+            }
+            batchSize = (int) Math.min(size, limit);
+        }
+    }
+
+    private boolean isAdaptive() {
+        return SysProperties.SERVER_RESULT_SET_FETCH_BYTES > 0
+                && fetchSize == SysProperties.SERVER_RESULT_SET_FETCH_SIZE;
+    }
+
+    private int getNextFetchSize(long offset) {
+        int fetch = batchSize;
+        if (rowCount >= 0) {
+            fetch = (int) Math.min(fetch, rowCount - offset);
+        } else if (fetch == Integer.MAX_VALUE) {
+            fetch = SysProperties.SERVER_RESULT_SET_FETCH_SIZE;
+        }
+        return fetch;
+    }
+
+    /**
+     * Request the rows after the current ones without waiting for the
+     * response, so that the server sends them while the client processes the
+     * current rows.
+     */
+    private void prefetchRows() throws IOException {
+        if (!SysProperties.SERVER_RESULT_SET_PREFETCH || session == null) {
+            return;
+        }
+        long offset = rowOffset + result.size();
+        int fetch = getNextFetchSize(offset);
+        if (fetch <= 0) {
+            return;
+        }
+        // only one request for rows ahead may be pending per transfer
+        session.readPrefetchedRows(transfer);
+        session.traceOperation("RESULT_FETCH_ROWS", id);
+        transfer.writeInt(SessionRemote.RESULT_FETCH_ROWS).writeInt(id).writeInt(fetch).flush();
+        prefetchOffset = offset;
+        prefetchSize = fetch;
+        session.setPrefetchingResult(this, transfer);
+    }
+
+    /**
+     * Read the response to the request for rows ahead. This method is called
+     * by the session before it reads the response to a later request.
+     *
+     * @throws IOException if there is a communication problem between client
+     *             and server
+     */
+    public void readPrefetchedRows() throws IOException {
+        int fetch = prefetchSize;
+        prefetchSize = 0;
+        ArrayList<Value[]> rows = new ArrayList<>(fetch);
+        try {
+            session.done(transfer);
+            fetchRows(rows, prefetchOffset, fetch);
+        } catch (DbException e) {
+            prefetchException = e;
+        }
+        prefetched = rows;
+    }
+
+    private void takePrefetchedRows() {
+        ArrayList<Value[]> rows = prefetched;
+        if (rows == null) {
+            result.clear();
+            return;
+        }
+        result = rows;
+        prefetched = null;
+        DbException e = prefetchException;
+        if (e != null) {
+            prefetchException = null;
+            throw e;
+        }
+    }
+
+    private boolean fetchRows(ArrayList<Value[]> result, long offset, int fetch) throws IOException {
         int len = columns.length;
+        boolean adaptive = isAdaptive();
         for (int r = 0; r < fetch; r++) {
             switch (transfer.readByte()) {
             case 1: {
@@ -246,6 +407,14 @@ private boolean fetchRows(int fetch) throws IOException {
                     values[i] = transfer.readValue(columns[i].columnType);
                 }
                 result.add(values);
+                if (adaptive) {
+                    long memory = Constants.MEMORY_ARRAY + len * Constants.MEMORY_POINTER;
+                    for (Value v : values) {
+                        memory += v.getMemory();
+                    }
+                    fetchedMemory += memory;
+                    fetchedRows++;
+                }
                 break;
             }
             case 0:
@@ -257,7 +426,7 @@ private boolean fetchRows(int fetch) throws IOException {
                 throw DbException.getInternalError();
             }
         }
-        if (rowCount >= 0L && rowOffset + result.size() >= rowCount) {
+        if (rowCount >= 0L && offset + result.size() >= rowCount) {
             sendClose();
         }
         return false;
@@ -276,6 +445,7 @@ public int getFetchSize() {
     @Override
     public void setFetchSize(int fetchSize) {
         this.fetchSize = fetchSize;
+        batchSize = fetchSize;
     }
 
     @Override
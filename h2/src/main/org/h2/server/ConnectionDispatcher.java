@@ -0,0 +1,459 @@
+/*
+ * Copyright 2004-2025 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.server;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.h2.message.DbException;
+import org.h2.util.IOUtils;
+
+/**
+ * Serves the connections of a server with a pool of worker threads instead of
+ * one thread per connection. Idle connections wait in a selector. When data
+ * arrives on a connection, it is handed to a worker that processes all
+ * requests that have arrived and then returns the connection to the selector.
+ * <p>
+ * The first request of a new connection is read by a separate connector
+ * thread. Control requests, such as a request to cancel a statement, are
+ * served there, so that they don't need a worker or a free connection slot.
+ * Other connections are then admitted while the number of open connections is
+ * below the limit. Until then, they wait without a thread.
+ * </p>
+ * <p>
+ * A statement that waits for a lock keeps its worker. If the queued
+ * connections make no progress for a while, another worker is started, so
+ * that the statement that holds the lock can complete. The additional workers
+ * stop when the queue is empty again.
+ * </p>
+ */
+public final class ConnectionDispatcher implements Runnable {
+
+    /**
+     * A connection served by the dispatcher.
+     */
+    public interface Connection {
+
+        /**
+         * Read the first request of the connection. A control request is
+         * served and the connection is closed. This method is called by a
+         * connector thread before the connection is admitted.
+         *
+         * @return whether the connection is still open and needs to be
+         *         admitted
+         */
+        boolean handshake();
+
+        /**
+         * Process the requests that have arrived. The channel is in blocking
+         * mode while this method runs, so that a request that has only
+         * partially arrived can be read to the end. After the connection was
+         * admitted, this method is called once even if no data has arrived,
+         * because the handshake may have read ahead.
+         *
+         * @return whether the connection is still open
+         */
+        boolean processAvailable();
+
+    }
+
+    /**
+     * The timeout in milliseconds to read the rest of a request that has
+     * partially arrived.
+     */
+    static final int REQUEST_TIMEOUT = 60_000;
+
+    /**
+     * The maximum number of accepted connections that are not admitted yet.
+     */
+    private static final int MAX_PENDING = 64;
+
+    /**
+     * The time in milliseconds the queued connections may make no progress
+     * before another worker is started.
+     */
+    private static final int STALL_MILLIS = 100;
+
+    private static final int STATE_HANDSHAKE = 0, STATE_ADMITTED = 1, STATE_CONNECTED = 2;
+
+    private final ServerSocketChannel serverChannel;
+    private final Function<Socket, Connection> factory;
+    private final int workerThreads;
+    private final int maxConnections;
+    private final Selector selector;
+    private final ThreadPoolExecutor workers;
+    private final ExecutorService connectors;
+
+    /**
+     * The connections that were processed by a worker and wait to be
+     * registered with the selector again.
+     */
+    private final ConcurrentLinkedQueue<Entry> idle = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The connections that completed the handshake and wait for admission.
+     */
+    private final ConcurrentLinkedQueue<Entry> handshaken = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The connections that wait for admission, in the order of arrival. Only
+     * used by the selector thread.
+     */
+    private final ArrayDeque<Entry> waiting = new ArrayDeque<>();
+
+    private final AtomicInteger connectionCount = new AtomicInteger();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicInteger maxQueueSize = new AtomicInteger();
+    private final AtomicLong dispatchCount = new AtomicLong();
+    private final AtomicLong completedCount = new AtomicLong();
+    private boolean queued;
+    private long lastCompletedCount;
+    private long lastProgressNs;
+    private volatile String threadName;
+    private volatile boolean stopAccepting;
+    private volatile boolean stop;
+
+    /**
+     * Create a new dispatcher.
+     *
+     * @param serverChannel the bound server socket channel
+     * @param factory creates a connection for an accepted socket, or returns
+     *            null if the socket was rejected and closed
+     * @param workerThreads the number of worker threads
+     * @param maxConnections the maximum number of open connections
+     * @param daemon whether the worker threads are daemon threads
+     * @throws IOException on failure
+     */
+    public ConnectionDispatcher(ServerSocketChannel serverChannel, Function<Socket, Connection> factory,
+            int workerThreads, int maxConnections, boolean daemon) throws IOException {
+        this.serverChannel = serverChannel;
+        this.factory = factory;
+        this.workerThreads = workerThreads;
+        this.maxConnections = maxConnections > 0 ? maxConnections : Integer.MAX_VALUE;
+        selector = Selector.open();
+        AtomicInteger threadId = new AtomicInteger();
+        // the queue is unbounded, so threads above the core size are only
+        // started when the core size is raised
+        workers = new ThreadPoolExecutor(workerThreads, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread thread = new Thread(r, threadName + " worker-" + threadId.incrementAndGet());
+                    thread.setDaemon(daemon);
+                    return thread;
+                });
+        connectors = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), r -> {
+                    Thread thread = new Thread(r, threadName + " connector-" + threadId.incrementAndGet());
+                    thread.setDaemon(daemon);
+                    return thread;
+                });
+    }
+
+    /**
+     * Accept and serve connections until the dispatcher is stopped. The
+     * worker threads are named after the thread that runs this method.
+     */
+    @Override
+    public void run() {
+        threadName = Thread.currentThread().getName();
+        ArrayList<Entry> ready = new ArrayList<>();
+        try {
+            serverChannel.configureBlocking(false);
+            SelectionKey acceptKey = serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+            while (!stop && (!stopAccepting || connectionCount.get() > 0 || pendingCount.get() > 0)) {
+                if (acceptKey.isValid()) {
+                    if (stopAccepting) {
+                        acceptKey.cancel();
+                        IOUtils.closeSilently(serverChannel);
+                    } else {
+                        acceptKey.interestOps(pendingCount.get() < MAX_PENDING ? SelectionKey.OP_ACCEPT : 0);
+                    }
+                }
+                // keys that were already selected are not reported again by
+                // select(), so they must not wait for new events
+                if (!selector.selectedKeys().isEmpty()) {
+                    selector.selectNow();
+                } else if (workers.getQueue().isEmpty()) {
+                    selector.select();
+                } else {
+                    selector.select(STALL_MILLIS);
+                }
+                for (Entry e; (e = idle.poll()) != null;) {
+                    if (!register(e)) {
+                        ready.add(e);
+                    }
+                }
+                for (Entry e; (e = handshaken.poll()) != null;) {
+                    waiting.add(e);
+                }
+                admit();
+                for (Iterator<SelectionKey> it = selector.selectedKeys().iterator(); it.hasNext();) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    try {
+                        if (key == acceptKey) {
+                            accept();
+                        } else if (key.isReadable()) {
+                            key.cancel();
+                            ready.add((Entry) key.attachment());
+                        }
+                    } catch (CancelledKeyException e) {
+                        // the channel was closed
+                    }
+                }
+                if (!ready.isEmpty()) {
+                    // deregister the cancelled keys, otherwise the channels
+                    // can't be switched to blocking mode
+                    selector.selectNow();
+                    for (Entry e : ready) {
+                        dispatch(e);
+                    }
+                    ready.clear();
+                }
+                checkStalled();
+            }
+        } catch (IOException | ClosedSelectorException | CancelledKeyException e) {
+            if (!stop) {
+                DbException.traceThrowable(e);
+            }
+        } finally {
+            workers.shutdown();
+            connectors.shutdown();
+            IOUtils.closeSilently(selector);
+            IOUtils.closeSilently(serverChannel);
+        }
+    }
+
+    private void accept() throws IOException {
+        while (pendingCount.get() < MAX_PENDING) {
+            SocketChannel channel = serverChannel.accept();
+            if (channel == null) {
+                break;
+            }
+            Connection connection = factory.apply(channel.socket());
+            if (connection != null) {
+                pendingCount.incrementAndGet();
+                Entry e = new Entry(channel, connection);
+                try {
+                    channel.socket().setSoTimeout(REQUEST_TIMEOUT);
+                } catch (IOException ex) {
+                    // see register
+                }
+                if (!register(e)) {
+                    dispatch(e);
+                }
+            }
+        }
+    }
+
+    private void admit() {
+        while (!waiting.isEmpty() && connectionCount.get() < maxConnections) {
+            Entry e = waiting.poll();
+            connectionCount.incrementAndGet();
+            pendingCount.decrementAndGet();
+            e.state = STATE_ADMITTED;
+            dispatch(e);
+        }
+    }
+
+    private boolean register(Entry e) {
+        try {
+            e.channel.configureBlocking(false);
+            e.channel.register(selector, SelectionKey.OP_READ, e);
+            return true;
+        } catch (IOException ex) {
+            // the connection notices that the channel is closed when it
+            // tries to read from it
+            return false;
+        }
+    }
+
+    private void dispatch(Entry e) {
+        try {
+            e.channel.configureBlocking(true);
+        } catch (IOException ex) {
+            // see register
+        }
+        if (e.state != STATE_CONNECTED) {
+            connectors.execute(e);
+            return;
+        }
+        workers.execute(e);
+        dispatchCount.incrementAndGet();
+        maxQueueSize.accumulateAndGet(workers.getQueue().size(), Math::max);
+    }
+
+    /**
+     * Start another worker if the queued connections made no progress for a
+     * while, because all workers may wait for a lock that is held by a queued
+     * connection. Remove the additional workers when the queue is empty.
+     */
+    private void checkStalled() {
+        int core = workers.getCorePoolSize();
+        if (workers.getQueue().isEmpty()) {
+            if (core > workerThreads) {
+                workers.setCorePoolSize(workerThreads);
+            }
+            queued = false;
+            return;
+        }
+        long now = System.nanoTime(), completed = completedCount.get();
+        if (!queued || completed != lastCompletedCount) {
+            queued = true;
+            lastCompletedCount = completed;
+            lastProgressNs = now;
+        } else if (now - lastProgressNs >= TimeUnit.MILLISECONDS.toNanos(STALL_MILLIS)) {
+            // the blocked workers may exceed the core size already
+            workers.setCorePoolSize(Math.max(core, workers.getPoolSize()) + 1);
+            lastProgressNs = now;
+        }
+    }
+
+    /**
+     * Stop accepting new connections. The dispatcher keeps serving the open
+     * connections and stops when the last one is closed.
+     */
+    public void stopAccepting() {
+        stopAccepting = true;
+        selector.wakeup();
+    }
+
+    /**
+     * Stop the dispatcher. Open connections are not closed.
+     */
+    public void stop() {
+        stop = true;
+        selector.wakeup();
+    }
+
+    /**
+     * Get the number of open connections.
+     *
+     * @return the number of connections
+     */
+    public int getConnectionCount() {
+        return connectionCount.get();
+    }
+
+    /**
+     * Get the number of accepted connections that are not admitted yet.
+     *
+     * @return the number of pending connections
+     */
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    /**
+     * Get the number of connections that have requests and wait for a
+     * worker thread.
+     *
+     * @return the queue size
+     */
+    public int getQueueSize() {
+        return workers.getQueue().size();
+    }
+
+    /**
+     * Get the highest number of connections that were waiting for a worker
+     * thread at the same time.
+     *
+     * @return the maximum queue size
+     */
+    public int getMaxQueueSize() {
+        return maxQueueSize.get();
+    }
+
+    /**
+     * Get the approximate number of worker threads that are processing
+     * requests.
+     *
+     * @return the number of busy worker threads
+     */
+    public int getActiveCount() {
+        return workers.getActiveCount();
+    }
+
+    /**
+     * Get the current number of worker threads, including the workers that
+     * were started because the others were blocked.
+     *
+     * @return the number of worker threads
+     */
+    public int getWorkerCount() {
+        return workers.getPoolSize();
+    }
+
+    /**
+     * Get the number of times a connection was handed to a worker thread.
+     *
+     * @return the number of dispatched connections
+     */
+    public long getDispatchCount() {
+        return dispatchCount.get();
+    }
+
+    /**
+     * A connection with its channel.
+     */
+    private final class Entry implements Runnable {
+
+        final SocketChannel channel;
+
+        final Connection connection;
+
+        volatile int state;
+
+        Entry(SocketChannel channel, Connection connection) {
+            this.channel = channel;
+            this.connection = connection;
+        }
+
+        @Override
+        public void run() {
+            int state = this.state;
+            boolean open;
+            try {
+                open = state == STATE_HANDSHAKE ? connection.handshake() : connection.processAvailable();
+            } catch (Throwable e) {
+                DbException.traceThrowable(e);
+                IOUtils.closeSilently(channel);
+                open = false;
+            }
+            if (!open) {
+                (state == STATE_HANDSHAKE ? pendingCount : connectionCount).decrementAndGet();
+            } else if (state == STATE_HANDSHAKE) {
+                handshaken.add(this);
+            } else {
+                this.state = STATE_CONNECTED;
+                idle.add(this);
+            }
+            if (state == STATE_CONNECTED) {
+                completedCount.incrementAndGet();
+            }
+            selector.wakeup();
+        }
+
+    }
+
+}
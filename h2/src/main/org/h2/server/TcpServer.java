@@ -65,6 +65,9 @@ public class TcpServer implements Service {
     private boolean isDaemon;
     private boolean ifExists = true;
     private boolean virtualThreads;
+    private int workerThreads;
+    private int maxConnections;
+    private volatile ConnectionDispatcher dispatcher;
     private JdbcConnection managementDb;
     private PreparedStatement managementDbAdd;
     private PreparedStatement managementDbRemove;
@@ -187,6 +190,10 @@ public void init(String... args) {
                 isDaemon = true;
             } else if (Tool.isOption(a,  "-tcpVirtualThreads")) {
                 virtualThreads = Utils.parseBoolean(args[++i], virtualThreads, true);
+            } else if (Tool.isOption(a, "-tcpWorkerThreads")) {
+                workerThreads = Integer.decode(args[++i]);
+            } else if (Tool.isOption(a, "-tcpMaxConnections")) {
+                maxConnections = Integer.decode(args[++i]);
             } else if (Tool.isOption(a, "-ifExists")) {
                 ifExists = true;
             } else if (Tool.isOption(a, "-ifNotExists")) {
@@ -238,29 +245,69 @@ boolean allow(Socket socket) {
     public synchronized void start() throws SQLException {
         stop = false;
         try {
-            serverSocket = NetUtils.createServerSocket(port, ssl);
+            serverSocket = createServerSocket(port);
         } catch (DbException e) {
             if (!portIsSet) {
-                serverSocket = NetUtils.createServerSocket(0, ssl);
+                serverSocket = createServerSocket(0);
             } else {
                 throw e;
             }
         }
         port = serverSocket.getLocalPort();
+        if (isDispatched()) {
+            try {
+                dispatcher = new ConnectionDispatcher(serverSocket.getChannel(),
+                        s -> createConnection(s, nextThreadId++), workerThreads, maxConnections, isDaemon);
+            } catch (IOException e) {
+                serverSocket = NetUtils.closeSilently(serverSocket);
+                throw DbException.convertIOException(e, null);
+            }
+        }
         initManagementDb();
     }
 
+    private ServerSocket createServerSocket(int port) {
+        if (isDispatched()) {
+            return NetUtils.createServerSocketChannel(port).socket();
+        }
+        return NetUtils.createServerSocket(port, ssl);
+    }
+
+    /**
+     * Check whether the connections are served by a selector and a pool of
+     * worker threads. This is not supported for SSL connections.
+     *
+     * @return whether a dispatcher is used
+     */
+    private boolean isDispatched() {
+        return workerThreads > 0 && !ssl;
+    }
+
+    private TcpServerThread createConnection(Socket s, int id) {
+        Utils10.setTcpQuickack(s, true);
+        TcpServerThread c = new TcpServerThread(s, this, id);
+        running.add(c);
+        return c;
+    }
+
     @Override
     public void listen() {
         listenerThread = Thread.currentThread();
         String threadName = listenerThread.getName();
+        ConnectionDispatcher dispatcher = this.dispatcher;
+        if (dispatcher != null) {
+            if (!stop) {
+                dispatcher.run();
+            }
+            serverSocket = NetUtils.closeSilently(serverSocket);
+            stopManagementDb();
+            return;
+        }
         try {
             while (!stop) {
                 Socket s = serverSocket.accept();
-                Utils10.setTcpQuickack(s, true);
                 int id = nextThreadId++;
-                TcpServerThread c = new TcpServerThread(s, this, id);
-                running.add(c);
+                TcpServerThread c = createConnection(s, id);
                 Thread thread;
                 if (virtualThreads) {
                     thread = Utils21.newVirtualThread(c);
@@ -281,6 +328,16 @@ public void listen() {
         stopManagementDb();
     }
 
+    /**
+     * Get the dispatcher that serves the connections, or {@code null} if each
+     * connection is served by its own thread.
+     *
+     * @return the dispatcher, or {@code null}
+     */
+    public ConnectionDispatcher getDispatcher() {
+        return dispatcher;
+    }
+
     @Override
     public synchronized boolean isRunning(boolean traceError) {
         if (serverSocket == null) {
@@ -307,6 +364,10 @@ public void stop() {
         if (!stop) {
             stopManagementDb();
             stop = true;
+            ConnectionDispatcher dispatcher = this.dispatcher;
+            if (dispatcher != null) {
+                dispatcher.stop();
+            }
             if (serverSocket != null) {
                 try {
                     serverSocket.close();
@@ -330,7 +391,10 @@ public void stop() {
             if (c != null) {
                 c.close();
                 try {
-                    c.getThread().join(100);
+                    Thread t = c.getThread();
+                    if (t != null) {
+                        t.join(100);
+                    }
                 } catch (Exception e) {
                     DbException.traceThrowable(e);
                 }
@@ -365,6 +429,10 @@ public static void stopServer(int port, String password, int shutdownMode) {
         if (shutdownMode == SHUTDOWN_NORMAL) {
             server.stopManagementDb();
             server.stop = true;
+            ConnectionDispatcher dispatcher = server.dispatcher;
+            if (dispatcher != null) {
+                dispatcher.stopAccepting();
+            }
             try {
                 Socket s = NetUtils.createLoopbackSocket(port, false);
                 s.close();
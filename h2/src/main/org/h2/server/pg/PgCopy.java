@@ -0,0 +1,846 @@
+/*
+ * Copyright 2004-2025 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.server.pg;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+
+import org.h2.api.ErrorCode;
+import org.h2.message.DbException;
+import org.h2.util.StringUtils;
+import org.h2.util.Utils;
+
+/**
+ * A COPY FROM STDIN or COPY TO STDOUT statement of the PostgreSQL protocol,
+ * with the text, CSV and binary formats of the copied data.
+ */
+final class PgCopy {
+
+    /**
+     * The text format, one line per row with tab separated escaped values.
+     */
+    static final int FORMAT_TEXT = 0;
+
+    /**
+     * The comma separated values format.
+     */
+    static final int FORMAT_CSV = 1;
+
+    /**
+     * The binary format.
+     */
+    static final int FORMAT_BINARY = 2;
+
+    /**
+     * The signature at the start of the binary format.
+     */
+    static final byte[] BINARY_SIGNATURE = { 'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xff, '\r', '\n', 0 };
+
+    private final String sql;
+    private int parseIndex;
+
+    private String table;
+    private String columns;
+    private String query;
+    private boolean from;
+    private int format = FORMAT_TEXT;
+    private char delimiter;
+    private String nullString;
+    private boolean header;
+    private char quote = '"';
+    private char escape;
+    private Charset encoding;
+
+    private Reader reader;
+    private final char[] buffer = new char[8192];
+    private int bufferPos, bufferEnd;
+    private final StringBuilder field = new StringBuilder();
+
+    private PgCopy(String sql) {
+        this.sql = sql;
+    }
+
+    /**
+     * Check whether the statement is a COPY statement.
+     *
+     * @param sql the SQL statement
+     * @return true if it starts with the COPY keyword
+     */
+    static boolean isCopy(String sql) {
+        int i = 0, length = sql.length();
+        while (i < length && Character.isWhitespace(sql.charAt(i))) {
+            i++;
+        }
+        return sql.regionMatches(true, i, "COPY", 0, 4)
+                && (i + 4 == length || !Character.isJavaIdentifierPart(sql.charAt(i + 4)));
+    }
+
+    /**
+     * Parse a COPY statement. Both the current syntax with an option list in
+     * parentheses and the older syntax with BINARY, CSV, HEADER, DELIMITER,
+     * NULL, QUOTE and ESCAPE keywords are supported.
+     *
+     * @param sql the SQL statement
+     * @return the parsed statement
+     * @throws DbException on syntax errors or unsupported options
+     */
+    static PgCopy parse(String sql) {
+        PgCopy copy = new PgCopy(sql);
+        copy.parse();
+        return copy;
+    }
+
+    private void parse() {
+        read("COPY");
+        if (readIf('(')) {
+            query = readParenthesized();
+        } else {
+            table = readName();
+            if (readIf('(')) {
+                columns = readParenthesized();
+            }
+        }
+        if (readIf("FROM")) {
+            from = true;
+            if (query != null) {
+                throw getSyntaxError();
+            }
+            if (!readIf("STDIN")) {
+                throw DbException.getUnsupportedException("COPY FROM a file or program");
+            }
+        } else {
+            read("TO");
+            if (!readIf("STDOUT")) {
+                throw DbException.getUnsupportedException("COPY TO a file or program");
+            }
+        }
+        readIf("WITH");
+        if (readIf('(')) {
+            do {
+                readOption();
+            } while (readIf(','));
+            read(')');
+        } else {
+            readLegacyOptions();
+        }
+        skipWhitespace();
+        if (parseIndex < sql.length()) {
+            throw getSyntaxError();
+        }
+        if (delimiter == 0) {
+            delimiter = format == FORMAT_CSV ? ',' : '\t';
+        }
+        if (nullString == null) {
+            nullString = format == FORMAT_CSV ? "" : "\\N";
+        }
+        if (escape == 0) {
+            escape = quote;
+        }
+    }
+
+    private void readOption() {
+        String name = StringUtils.toUpperEnglish(readWord());
+        switch (name) {
+        case "FORMAT":
+            setFormat(readWord());
+            break;
+        case "DELIMITER":
+            delimiter = readCharacter();
+            break;
+        case "NULL":
+            nullString = readLiteral();
+            break;
+        case "HEADER":
+            header = readOptionalBoolean();
+            break;
+        case "QUOTE":
+            quote = readCharacter();
+            break;
+        case "ESCAPE":
+            escape = readCharacter();
+            break;
+        case "ENCODING":
+            encoding = Charset.forName(readLiteral());
+            break;
+        case "FREEZE":
+            readOptionalBoolean();
+            break;
+        default:
+            throw DbException.getUnsupportedException("COPY option " + name);
+        }
+    }
+
+    private void readLegacyOptions() {
+        while (true) {
+            if (readIf("BINARY")) {
+                format = FORMAT_BINARY;
+            } else if (readIf("CSV")) {
+                format = FORMAT_CSV;
+            } else if (readIf("HEADER")) {
+                header = true;
+            } else if (readIf("DELIMITER")) {
+                readIf("AS");
+                delimiter = readCharacter();
+            } else if (readIf("NULL")) {
+                readIf("AS");
+                nullString = readLiteral();
+            } else if (readIf("QUOTE")) {
+                readIf("AS");
+                quote = readCharacter();
+            } else if (readIf("ESCAPE")) {
+                readIf("AS");
+                escape = readCharacter();
+            } else {
+                break;
+            }
+        }
+    }
+
+    private void setFormat(String name) {
+        switch (StringUtils.toUpperEnglish(name)) {
+        case "TEXT":
+            format = FORMAT_TEXT;
+            break;
+        case "CSV":
+            format = FORMAT_CSV;
+            break;
+        case "BINARY":
+            format = FORMAT_BINARY;
+            break;
+        default:
+            throw DbException.getUnsupportedException("COPY format " + name);
+        }
+    }
+
+    private boolean readOptionalBoolean() {
+        skipWhitespace();
+        if (parseIndex >= sql.length() || sql.charAt(parseIndex) == ',' || sql.charAt(parseIndex) == ')') {
+            return true;
+        }
+        String value = sql.charAt(parseIndex) == '\'' ? readLiteral() : readWord();
+        switch (StringUtils.toUpperEnglish(value)) {
+        case "TRUE":
+        case "ON":
+        case "1":
+            return true;
+        case "FALSE":
+        case "OFF":
+        case "0":
+            return false;
+        default:
+            throw DbException.getInvalidValueException("COPY option", value);
+        }
+    }
+
+    private void skipWhitespace() {
+        int length = sql.length();
+        while (parseIndex < length && Character.isWhitespace(sql.charAt(parseIndex))) {
+            parseIndex++;
+        }
+    }
+
+    private boolean readIf(char c) {
+        skipWhitespace();
+        if (parseIndex < sql.length() && sql.charAt(parseIndex) == c) {
+            parseIndex++;
+            return true;
+        }
+        return false;
+    }
+
+    private void read(char c) {
+        if (!readIf(c)) {
+            throw getSyntaxError();
+        }
+    }
+
+    private boolean readIf(String keyword) {
+        skipWhitespace();
+        int length = keyword.length(), end = parseIndex + length;
+        if (sql.regionMatches(true, parseIndex, keyword, 0, length)
+                && (end == sql.length() || !Character.isJavaIdentifierPart(sql.charAt(end)))) {
+            parseIndex = end;
+            return true;
+        }
+        return false;
+    }
+
+    private void read(String keyword) {
+        if (!readIf(keyword)) {
+            throw getSyntaxError();
+        }
+    }
+
+    private String readWord() {
+        skipWhitespace();
+        int start = parseIndex, length = sql.length();
+        while (parseIndex < length && Character.isJavaIdentifierPart(sql.charAt(parseIndex))) {
+            parseIndex++;
+        }
+        if (start == parseIndex) {
+            throw getSyntaxError();
+        }
+        return sql.substring(start, parseIndex);
+    }
+
+    /**
+     * Read a possibly qualified and quoted name, as it is written in the
+     * statement.
+     */
+    private String readName() {
+        skipWhitespace();
+        int start = parseIndex;
+        do {
+            skipWhitespace();
+            if (parseIndex < sql.length() && sql.charAt(parseIndex) == '"') {
+                skipQuoted('"');
+            } else {
+                readWord();
+            }
+        } while (readIf('.'));
+        return sql.substring(start, parseIndex);
+    }
+
+    /**
+     * Read the text up to the closing parenthesis, which is consumed but not
+     * returned.
+     */
+    private String readParenthesized() {
+        int start = parseIndex, level = 1, length = sql.length();
+        while (parseIndex < length) {
+            char c = sql.charAt(parseIndex);
+            if (c == '\'' || c == '"') {
+                skipQuoted(c);
+                continue;
+            }
+            parseIndex++;
+            if (c == '(') {
+                level++;
+            } else if (c == ')' && --level == 0) {
+                return sql.substring(start, parseIndex - 1);
+            }
+        }
+        throw getSyntaxError();
+    }
+
+    private void skipQuoted(char q) {
+        int length = sql.length();
+        for (parseIndex++; parseIndex < length; parseIndex++) {
+            if (sql.charAt(parseIndex) == q) {
+                if (parseIndex + 1 < length && sql.charAt(parseIndex + 1) == q) {
+                    parseIndex++;
+                } else {
+                    parseIndex++;
+                    return;
+                }
+            }
+        }
+        throw getSyntaxError();
+    }
+
+    /**
+     * Read a string literal, either a standard one or one with C-style escapes
+     * (E'...').
+     */
+    private String readLiteral() {
+        skipWhitespace();
+        boolean escapes = false;
+        int length = sql.length();
+        if (parseIndex + 1 < length && (sql.charAt(parseIndex) == 'E' || sql.charAt(parseIndex) == 'e')
+                && sql.charAt(parseIndex + 1) == '\'') {
+            escapes = true;
+            parseIndex++;
+        }
+        if (parseIndex >= length || sql.charAt(parseIndex) != '\'') {
+            throw getSyntaxError();
+        }
+        StringBuilder builder = new StringBuilder();
+        for (parseIndex++; parseIndex < length; parseIndex++) {
+            char c = sql.charAt(parseIndex);
+            if (c == '\'') {
+                if (parseIndex + 1 < length && sql.charAt(parseIndex + 1) == '\'') {
+                    parseIndex++;
+                } else {
+                    parseIndex++;
+                    return builder.toString();
+                }
+            } else if (c == '\\' && escapes && parseIndex + 1 < length) {
+                c = unescape(sql.charAt(++parseIndex));
+            }
+            builder.append(c);
+        }
+        throw getSyntaxError();
+    }
+
+    private char readCharacter() {
+        String s = readLiteral();
+        if (s.length() != 1) {
+            throw DbException.getInvalidValueException("COPY option", s);
+        }
+        return s.charAt(0);
+    }
+
+    private DbException getSyntaxError() {
+        return DbException.getSyntaxError(sql, parseIndex);
+    }
+
+    private static char unescape(char c) {
+        switch (c) {
+        case 'b':
+            return '\b';
+        case 'f':
+            return '\f';
+        case 'n':
+            return '\n';
+        case 'r':
+            return '\r';
+        case 't':
+            return '\t';
+        case 'v':
+            return 11;
+        default:
+            return c;
+        }
+    }
+
+    boolean isFrom() {
+        return from;
+    }
+
+    int getFormat() {
+        return format;
+    }
+
+    boolean hasHeader() {
+        return header;
+    }
+
+    /**
+     * Get the encoding of the COPY data.
+     *
+     * @param defaultEncoding the client encoding
+     * @return the encoding
+     */
+    Charset getEncoding(Charset defaultEncoding) {
+        return encoding != null ? encoding : defaultEncoding;
+    }
+
+    /**
+     * Get the query that returns the copied rows, or that describes the
+     * columns of COPY FROM.
+     *
+     * @return the query
+     */
+    String getQuery() {
+        if (query != null) {
+            return query;
+        }
+        return "SELECT " + (columns != null ? columns : "*") + " FROM " + table;
+    }
+
+    /**
+     * Get the statement that inserts a batch of rows.
+     *
+     * @param columnCount the number of columns
+     * @param rowCount the number of rows
+     * @return the INSERT statement with parameters for all values
+     */
+    String getInsert(int columnCount, int rowCount) {
+        StringBuilder builder = new StringBuilder("INSERT INTO ").append(table);
+        if (columns != null) {
+            builder.append('(').append(columns).append(')');
+        }
+        builder.append(" VALUES ");
+        for (int i = 0; i < rowCount; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append('(');
+            for (int j = 0; j < columnCount; j++) {
+                if (j > 0) {
+                    builder.append(", ");
+                }
+                builder.append('?');
+            }
+            builder.append(')');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Start reading rows in the text or CSV format.
+     *
+     * @param reader the reader
+     */
+    void startReading(Reader reader) throws IOException {
+        this.reader = reader;
+        if (header) {
+            readRow(null);
+        }
+    }
+
+    /**
+     * Read the next row in the text or CSV format.
+     *
+     * @param values the empty list to which the values are added, null is
+     *            added for NULL values, or null to skip the row
+     * @return false if the end of the data is reached
+     */
+    boolean readRow(ArrayList<String> values) throws IOException {
+        ArrayList<String> list = values != null ? values : new ArrayList<>();
+        boolean csv = format == FORMAT_CSV;
+        while (true) {
+            field.setLength(0);
+            boolean quoted = false, inQuotes = false, endOfRow = false;
+            int c;
+            while (true) {
+                c = readChar();
+                if (c < 0) {
+                    if (inQuotes) {
+                        throw DbException.get(ErrorCode.GENERAL_ERROR_1, "unterminated CSV quoted field");
+                    }
+                    if (list.isEmpty() && field.length() == 0 && !quoted) {
+                        return false;
+                    }
+                    endOfRow = true;
+                    break;
+                } else if (inQuotes) {
+                    if (c == escape && escape != quote) {
+                        int next = peekChar();
+                        if (next == quote || next == escape) {
+                            c = readChar();
+                        }
+                    } else if (c == quote) {
+                        if (escape == quote && peekChar() == quote) {
+                            readChar();
+                        } else {
+                            inQuotes = false;
+                            continue;
+                        }
+                    }
+                } else if (c == delimiter) {
+                    break;
+                } else if (c == '\n' || c == '\r') {
+                    if (c == '\r' && peekChar() == '\n') {
+                        readChar();
+                    }
+                    endOfRow = true;
+                    break;
+                } else if (csv) {
+                    if (c == quote) {
+                        inQuotes = quoted = true;
+                        continue;
+                    }
+                } else if (c == '\\') {
+                    field.append('\\');
+                    c = readChar();
+                    if (c < 0) {
+                        throw DbException.get(ErrorCode.GENERAL_ERROR_1, "unexpected end of COPY data");
+                    }
+                }
+                field.append((char) c);
+            }
+            String value = field.toString();
+            if (endOfRow && list.isEmpty() && !quoted && value.equals("\\.")) {
+                return false;
+            }
+            if (!quoted && value.equals(nullString)) {
+                value = null;
+            } else if (!csv) {
+                value = unescapeText(value);
+            }
+            list.add(value);
+            if (endOfRow) {
+                break;
+            }
+        }
+        return true;
+    }
+
+    private int readChar() throws IOException {
+        if (bufferPos == bufferEnd && !fillBuffer()) {
+            return -1;
+        }
+        return buffer[bufferPos++];
+    }
+
+    private int peekChar() throws IOException {
+        if (bufferPos == bufferEnd && !fillBuffer()) {
+            return -1;
+        }
+        return buffer[bufferPos];
+    }
+
+    private boolean fillBuffer() throws IOException {
+        int n = reader.read(buffer, 0, buffer.length);
+        if (n <= 0) {
+            return false;
+        }
+        bufferPos = 0;
+        bufferEnd = n;
+        return true;
+    }
+
+    private static String unescapeText(String s) {
+        int length = s.length();
+        if (s.indexOf('\\') < 0) {
+            return s;
+        }
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c != '\\' || ++i == length) {
+                builder.append(c);
+                continue;
+            }
+            c = s.charAt(i);
+            if (c >= '0' && c <= '7') {
+                int v = 0;
+                for (int end = Math.min(i + 3, length); i < end && s.charAt(i) >= '0' && s.charAt(i) <= '7'; i++) {
+                    v = v * 8 + s.charAt(i) - '0';
+                }
+                i--;
+                builder.append((char) v);
+            } else if (c == 'x' && i + 1 < length && Character.digit(s.charAt(i + 1), 16) >= 0) {
+                int v = Character.digit(s.charAt(++i), 16);
+                if (i + 1 < length && Character.digit(s.charAt(i + 1), 16) >= 0) {
+                    v = v * 16 + Character.digit(s.charAt(++i), 16);
+                }
+                builder.append((char) v);
+            } else {
+                builder.append(unescape(c));
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Append a row in the text or CSV format, including the line terminator.
+     *
+     * @param builder the target
+     * @param values the values, null for NULL values
+     */
+    void appendRow(StringBuilder builder, String[] values) {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                builder.append(delimiter);
+            }
+            String v = values[i];
+            if (v == null) {
+                builder.append(nullString);
+            } else if (format == FORMAT_CSV) {
+                appendCsv(builder, v);
+            } else {
+                appendText(builder, v);
+            }
+        }
+        builder.append('\n');
+    }
+
+    private void appendText(StringBuilder builder, String v) {
+        for (int i = 0, length = v.length(); i < length; i++) {
+            char c = v.charAt(i);
+            switch (c) {
+            case '\\':
+                builder.append("\\\\");
+                break;
+            case '\b':
+                builder.append("\\b");
+                break;
+            case '\f':
+                builder.append("\\f");
+                break;
+            case '\n':
+                builder.append("\\n");
+                break;
+            case '\r':
+                builder.append("\\r");
+                break;
+            case '\t':
+                builder.append("\\t");
+                break;
+            case 11:
+                builder.append("\\v");
+                break;
+            default:
+                if (c == delimiter) {
+                    builder.append('\\');
+                }
+                builder.append(c);
+            }
+        }
+    }
+
+    private void appendCsv(StringBuilder builder, String v) {
+        boolean needsQuotes = v.equals(nullString) || v.startsWith("\\.");
+        for (int i = 0, length = v.length(); !needsQuotes && i < length; i++) {
+            char c = v.charAt(i);
+            needsQuotes = c == delimiter || c == quote || c == '\n' || c == '\r';
+        }
+        if (!needsQuotes) {
+            builder.append(v);
+            return;
+        }
+        builder.append(quote);
+        for (int i = 0, length = v.length(); i < length; i++) {
+            char c = v.charAt(i);
+            if (c == quote || c == escape) {
+                builder.append(escape);
+            }
+            builder.append(c);
+        }
+        builder.append(quote);
+    }
+
+    /**
+     * Decode a bytea value in the hex (\x...) or the escape format.
+     *
+     * @param s the text
+     * @return the bytes
+     */
+    static byte[] decodeBytea(String s) {
+        if (s.startsWith("\\x")) {
+            return StringUtils.convertHexToBytes(s.substring(2));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(s.length());
+        for (int i = 0, length = s.length(); i < length; i++) {
+            char c = s.charAt(i);
+            if (c == '\\' && i + 1 < length) {
+                c = s.charAt(++i);
+                if (c != '\\' && i + 2 < length) {
+                    c = (char) Integer.parseInt(s.substring(i, i + 3), 8);
+                    i += 2;
+                }
+            }
+            out.write(c);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * The data of the CopyData messages of COPY FROM STDIN, up to the CopyDone
+     * or CopyFail message.
+     */
+    static final class CopyInputStream extends InputStream {
+
+        private final DataInputStream in;
+        private final Charset encoding;
+        private int remaining;
+        private boolean done;
+
+        CopyInputStream(DataInputStream in, Charset encoding) {
+            this.in = in;
+            this.encoding = encoding;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!next()) {
+                return -1;
+            }
+            remaining--;
+            return in.readUnsignedByte();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!next()) {
+                return -1;
+            }
+            int n = in.read(b, off, Math.min(len, remaining));
+            if (n < 0) {
+                throw new EOFException();
+            }
+            remaining -= n;
+            return n;
+        }
+
+        private boolean next() throws IOException {
+            while (remaining == 0) {
+                if (done) {
+                    return false;
+                }
+                int type = in.read();
+                if (type < 0) {
+                    throw new EOFException();
+                }
+                int length = in.readInt() - 4;
+                switch (type) {
+                case 'd':
+                    remaining = length;
+                    break;
+                case 'c':
+                    done = true;
+                    skip(length);
+                    break;
+                case 'f': {
+                    done = true;
+                    byte[] data = Utils.newBytes(length);
+                    in.readFully(data);
+                    String message = new String(data, 0, Math.max(length - 1, 0), encoding);
+                    throw DbException.get(ErrorCode.GENERAL_ERROR_1, "COPY from stdin failed: " + message);
+                }
+                case 'H':
+                case 'S':
+                    skip(length);
+                    break;
+                default:
+                    done = true;
+                    skip(length);
+                    throw DbException.get(ErrorCode.GENERAL_ERROR_1,
+                            "unexpected message type " + (char) type + " during COPY from stdin");
+                }
+            }
+            return true;
+        }
+
+        private void skip(int n) throws IOException {
+            while (n > 0) {
+                int skipped = in.skipBytes(n);
+                if (skipped <= 0) {
+                    in.readByte();
+                    skipped = 1;
+                }
+                n -= skipped;
+            }
+        }
+
+        /**
+         * Skip the remaining data up to the CopyDone message.
+         *
+         * @throws DbException if the client sent CopyFail
+         */
+        void finish() throws IOException {
+            while (next()) {
+                skip(remaining);
+                remaining = 0;
+            }
+        }
+
+        /**
+         * Skip the remaining data up to the CopyDone or CopyFail message.
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                finish();
+            } catch (DbException e) {
+                // the client gave up, too
+            }
+        }
+
+    }
+
+}
@@ -16,7 +16,9 @@
 import java.util.concurrent.atomic.AtomicInteger;
 import org.h2.api.ErrorCode;
 import org.h2.message.DbException;
+import org.h2.server.ConnectionDispatcher;
 import org.h2.server.Service;
+import org.h2.util.IOUtils;
 import org.h2.util.NetUtils;
 import org.h2.util.Tool;
 import org.h2.util.Utils;
@@ -82,6 +84,9 @@ public class PgServer implements Service {
     private boolean isDaemon;
     private boolean ifExists = true;
     private boolean virtualThreads;
+    private int workerThreads;
+    private int maxConnections;
+    private volatile ConnectionDispatcher dispatcher;
     private String key, keyDatabase;
 
     @Override
@@ -102,6 +107,10 @@ public void init(String... args) {
                 isDaemon = true;
             } else if (Tool.isOption(a,  "-pgVirtualThreads")) {
                 virtualThreads = Utils.parseBoolean(args[++i], virtualThreads, true);
+            } else if (Tool.isOption(a, "-pgWorkerThreads")) {
+                workerThreads = Integer.decode(args[++i]);
+            } else if (Tool.isOption(a, "-pgMaxConnections")) {
+                maxConnections = Integer.decode(args[++i]);
             } else if (Tool.isOption(a, "-ifExists")) {
                 ifExists = true;
             } else if (Tool.isOption(a, "-ifNotExists")) {
@@ -176,32 +185,62 @@ private boolean allow(Socket socket) {
     public void start() {
         stop = false;
         try {
-            serverSocket = NetUtils.createServerSocket(port, false);
+            serverSocket = createServerSocket(port);
         } catch (DbException e) {
             if (!portIsSet) {
-                serverSocket = NetUtils.createServerSocket(0, false);
+                serverSocket = createServerSocket(0);
             } else {
                 throw e;
             }
         }
         port = serverSocket.getLocalPort();
+        if (workerThreads > 0) {
+            try {
+                dispatcher = new ConnectionDispatcher(serverSocket.getChannel(), this::createConnection,
+                        workerThreads, maxConnections, isDaemon);
+            } catch (IOException e) {
+                serverSocket = NetUtils.closeSilently(serverSocket);
+                throw DbException.convertIOException(e, null);
+            }
+        }
+    }
+
+    private ServerSocket createServerSocket(int port) {
+        if (workerThreads > 0) {
+            return NetUtils.createServerSocketChannel(port).socket();
+        }
+        return NetUtils.createServerSocket(port, false);
+    }
+
+    private PgServerThread createConnection(Socket s) {
+        if (!allow(s)) {
+            trace("Connection not allowed");
+            IOUtils.closeSilently(s);
+            return null;
+        }
+        Utils10.setTcpQuickack(s, true);
+        PgServerThread c = new PgServerThread(s, this);
+        running.add(c);
+        c.setProcessId(pid.incrementAndGet());
+        return c;
     }
 
     @Override
     public void listen() {
         String threadName = Thread.currentThread().getName();
+        ConnectionDispatcher dispatcher = this.dispatcher;
+        if (dispatcher != null) {
+            if (!stop) {
+                dispatcher.run();
+            }
+            return;
+        }
         try {
             while (!stop) {
                 Socket s = serverSocket.accept();
-                if (!allow(s)) {
-                    trace("Connection not allowed");
-                    s.close();
-                } else {
-                    Utils10.setTcpQuickack(s, true);
-                    PgServerThread c = new PgServerThread(s, this);
-                    running.add(c);
-                    int id = pid.incrementAndGet();
-                    c.setProcessId(id);
+                PgServerThread c = createConnection(s);
+                if (c != null) {
+                    int id = c.getProcessId();
                     Thread thread;
                     if (virtualThreads) {
                         thread = Utils21.newVirtualThread(c);
@@ -221,11 +260,25 @@ public void listen() {
         }
     }
 
+    /**
+     * Get the dispatcher that serves the connections, or {@code null} if each
+     * connection is served by its own thread.
+     *
+     * @return the dispatcher, or {@code null}
+     */
+    public ConnectionDispatcher getDispatcher() {
+        return dispatcher;
+    }
+
     @Override
     public void stop() {
         // TODO server: combine with tcp server
         if (!stop) {
             stop = true;
+            ConnectionDispatcher dispatcher = this.dispatcher;
+            if (dispatcher != null) {
+                dispatcher.stop();
+            }
             if (serverSocket != null) {
                 try {
                     serverSocket.close();
@@ -5,6 +5,8 @@
  */
 package org.h2.server.pg;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
@@ -12,6 +14,7 @@
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.StringReader;
 import java.math.BigDecimal;
@@ -21,6 +24,7 @@
 import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -39,6 +43,7 @@
 import org.h2.message.DbException;
 import org.h2.result.ResultInterface;
 import org.h2.schema.Schema;
+import org.h2.server.ConnectionDispatcher;
 import org.h2.table.Column;
 import org.h2.table.Table;
 import org.h2.util.DateTimeUtils;
@@ -54,6 +59,7 @@
 import org.h2.value.Value;
 import org.h2.value.ValueArray;
 import org.h2.value.ValueBigint;
+import org.h2.value.ValueBoolean;
 import org.h2.value.ValueDate;
 import org.h2.value.ValueDecfloat;
 import org.h2.value.ValueDouble;
@@ -70,12 +76,17 @@
 import org.h2.value.ValueVarchar;
 
 /**
- * One server thread is opened for each client.
+ * One server thread is opened for each client, unless the connections are
+ * served by a {@link ConnectionDispatcher}.
  */
-public final class PgServerThread implements Runnable {
+public final class PgServerThread implements Runnable, ConnectionDispatcher.Connection {
 
     private static final boolean INTEGER_DATE_TYPES = false;
 
+    private static final int COPY_BATCH_ROWS = 256;
+
+    private static final int COPY_BATCH_VALUES = 8_192;
+
     private static final Pattern SHOULD_QUOTE = Pattern.compile(".*[\",\\\\{}].*");
 
     private static String pgTimeZone(String value) {
@@ -109,6 +120,7 @@ private static String convertTimeZone(String value, String prefix) {
     private DataOutputStream dataOut;
     private Thread thread;
     private boolean initDone;
+    private boolean admitted;
     private String userName;
     private String databaseName;
     private int processId;
@@ -131,10 +143,7 @@ private static String convertTimeZone(String value, String prefix) {
     @Override
     public void run() {
         try {
-            server.trace("Connect");
-            InputStream ins = socket.getInputStream();
-            out = socket.getOutputStream();
-            dataInRaw = new DataInputStream(ins);
+            connect();
             while (!stop) {
                 process();
                 out.flush();
@@ -149,6 +158,75 @@ public void run() {
         }
     }
 
+    /**
+     * Process the startup messages up to the authentication request. A cancel
+     * request is served immediately. This method is used if the connection
+     * is served by a {@link ConnectionDispatcher}.
+     *
+     * @return whether the connection requests a session
+     */
+    @Override
+    public boolean handshake() {
+        try {
+            connect();
+            do {
+                process();
+                out.flush();
+            } while (!stop && !initDone);
+            if (!stop) {
+                return true;
+            }
+        } catch (EOFException e) {
+            // more or less normal disconnect
+        } catch (Exception e) {
+            server.traceError(e);
+        }
+        server.trace("Disconnect");
+        close();
+        return false;
+    }
+
+    /**
+     * Process the messages that have arrived without waiting for further
+     * messages. This method is used if the connection is served by a
+     * {@link ConnectionDispatcher}.
+     *
+     * @return whether the connection is still open
+     */
+    @Override
+    public boolean processAvailable() {
+        try {
+            if (!admitted) {
+                admitted = true;
+                if (dataInRaw.available() == 0) {
+                    // the password message was not read ahead
+                    return true;
+                }
+            }
+            do {
+                process();
+                out.flush();
+            } while (!stop && dataInRaw.available() > 0);
+            if (!stop) {
+                return true;
+            }
+        } catch (EOFException e) {
+            // more or less normal disconnect
+        } catch (Exception e) {
+            server.traceError(e);
+        }
+        server.trace("Disconnect");
+        close();
+        return false;
+    }
+
+    private void connect() throws IOException {
+        server.trace("Connect");
+        InputStream ins = new BufferedInputStream(socket.getInputStream());
+        out = new BufferedOutputStream(socket.getOutputStream());
+        dataInRaw = new DataInputStream(ins);
+    }
+
     private String readString() throws IOException {
         ByteArrayOutputStream buff = new ByteArrayOutputStream();
         while (true) {
@@ -465,6 +543,17 @@ private void process() throws IOException {
                     break;
                 }
                 s = getSQL(s);
+                if (PgCopy.isCopy(s)) {
+                    try {
+                        copy(PgCopy.parse(s));
+                    } catch (Exception e) {
+                        sendErrorOrCancelResponse(e);
+                        break;
+                    } finally {
+                        setActiveRequest(null);
+                    }
+                    continue;
+                }
                 try (CommandInterface command = session.prepareLocal(s)) {
                     setActiveRequest(command);
                     if (command.isQuery()) {
@@ -529,6 +618,276 @@ private void executeQuery(Prepared prepared, CommandInterface prep, int[] result
         }
     }
 
+    private void copy(PgCopy copy) throws IOException {
+        if (copy.isFrom()) {
+            copyIn(copy);
+        } else {
+            copyOut(copy);
+        }
+    }
+
+    private void copyIn(PgCopy copy) throws IOException {
+        int columnCount;
+        int[] pgTypes;
+        try (CommandInterface command = session.prepareLocal(copy.getQuery())) {
+            ResultInterface meta = command.getMetaData();
+            columnCount = meta.getVisibleColumnCount();
+            pgTypes = new int[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                pgTypes[i] = PgServer.convertType(meta.getColumnType(i));
+            }
+        }
+        boolean binary = copy.getFormat() == PgCopy.FORMAT_BINARY;
+        startMessage('G');
+        write(binary ? 1 : 0);
+        writeShort(columnCount);
+        for (int i = 0; i < columnCount; i++) {
+            writeShort(binary ? 1 : 0);
+        }
+        sendMessage();
+        // the client waits for CopyInResponse before it sends the data
+        out.flush();
+        Charset encoding = copy.getEncoding(getEncoding());
+        PgCopy.CopyInputStream in = new PgCopy.CopyInputStream(dataInRaw, encoding);
+        boolean autoCommit = session.getAutoCommit();
+        SessionLocal.Savepoint savepoint = null;
+        long rowCount = 0;
+        try {
+            // all rows are inserted or none
+            if (autoCommit) {
+                session.setAutoCommit(false);
+            } else {
+                savepoint = session.setSavepoint();
+            }
+            int batchSize = Math.max(1, Math.min(COPY_BATCH_ROWS, COPY_BATCH_VALUES / Math.max(columnCount, 1)));
+            Value[] values = new Value[batchSize * columnCount];
+            ArrayList<String> row = null;
+            if (binary) {
+                dataIn = new DataInputStream(in);
+                readCopyBinaryHeader();
+            } else {
+                copy.startReading(new InputStreamReader(in, encoding));
+                row = new ArrayList<>(columnCount);
+            }
+            CommandInterface insert = null;
+            try {
+                int rows = 0;
+                while (binary ? readCopyBinaryRow(pgTypes, values, rows * columnCount)
+                        : readCopyTextRow(copy, row, pgTypes, values, rows * columnCount)) {
+                    if (++rows == batchSize) {
+                        if (insert == null) {
+                            insert = session.prepareLocal(copy.getInsert(columnCount, rows));
+                        }
+                        insertRows(insert, values, rows * columnCount);
+                        rowCount += rows;
+                        rows = 0;
+                    }
+                }
+                if (rows > 0) {
+                    try (CommandInterface last = session.prepareLocal(copy.getInsert(columnCount, rows))) {
+                        insertRows(last, values, rows * columnCount);
+                    }
+                    rowCount += rows;
+                }
+            } finally {
+                if (insert != null) {
+                    insert.close();
+                }
+            }
+            in.finish();
+            if (autoCommit) {
+                session.commit(false);
+            }
+        } catch (IOException | RuntimeException e) {
+            if (autoCommit) {
+                session.rollback();
+            } else if (savepoint != null) {
+                session.rollbackTo(savepoint);
+            }
+            in.close();
+            throw e;
+        } finally {
+            if (autoCommit) {
+                session.setAutoCommit(true);
+            }
+        }
+        sendCopyComplete(rowCount);
+    }
+
+    private void readCopyBinaryHeader() throws IOException {
+        byte[] signature = new byte[PgCopy.BINARY_SIGNATURE.length];
+        readFully(signature);
+        if (!Arrays.equals(signature, PgCopy.BINARY_SIGNATURE)) {
+            throw DbException.get(ErrorCode.GENERAL_ERROR_1, "COPY file signature not recognized");
+        }
+        int flags = readInt();
+        if ((flags & 0x1_0000) != 0) {
+            throw DbException.getUnsupportedException("COPY with OIDs");
+        }
+        readFully(Utils.newBytes(readInt()));
+    }
+
+    private boolean readCopyBinaryRow(int[] pgTypes, Value[] values, int offset) throws IOException {
+        int count = readShort();
+        if (count == -1) {
+            return false;
+        } else if (count != pgTypes.length) {
+            throw DbException.get(ErrorCode.COLUMN_COUNT_DOES_NOT_MATCH);
+        }
+        for (int i = 0; i < count; i++) {
+            values[offset + i] = readValue(pgTypes[i], false);
+        }
+        return true;
+    }
+
+    private boolean readCopyTextRow(PgCopy copy, ArrayList<String> row, int[] pgTypes, Value[] values, int offset)
+            throws IOException {
+        row.clear();
+        if (!copy.readRow(row)) {
+            return false;
+        } else if (row.size() != pgTypes.length) {
+            throw DbException.get(ErrorCode.COLUMN_COUNT_DOES_NOT_MATCH);
+        }
+        for (int i = 0; i < pgTypes.length; i++) {
+            String s = row.get(i);
+            Value v;
+            if (s == null) {
+                v = ValueNull.INSTANCE;
+            } else if (pgTypes[i] == PgServer.PG_TYPE_BYTEA) {
+                v = ValueVarbinary.getNoCopy(PgCopy.decodeBytea(s));
+            } else {
+                v = getTextValue(s, pgTypes[i]);
+            }
+            values[offset + i] = v;
+        }
+        return true;
+    }
+
+    private void insertRows(CommandInterface insert, Value[] values, int count) {
+        ArrayList<? extends ParameterInterface> parameters = insert.getParameters();
+        for (int i = 0; i < count; i++) {
+            parameters.get(i).setValue(values[i], true);
+        }
+        setActiveRequest(insert);
+        insert.executeUpdate(null);
+    }
+
+    private void copyOut(PgCopy copy) throws IOException {
+        boolean lazy = session.isLazyQueryExecution();
+        session.setLazyQueryExecution(true);
+        try (CommandInterface command = session.prepareLocal(copy.getQuery())) {
+            if (!command.isQuery()) {
+                throw DbException.get(ErrorCode.METHOD_ONLY_ALLOWED_FOR_QUERY);
+            }
+            setActiveRequest(command);
+            try (ResultInterface result = command.executeQuery(0, false)) {
+                int columnCount = result.getVisibleColumnCount();
+                int[] pgTypes = new int[columnCount];
+                for (int i = 0; i < columnCount; i++) {
+                    pgTypes[i] = PgServer.convertType(result.getColumnType(i));
+                }
+                boolean binary = copy.getFormat() == PgCopy.FORMAT_BINARY;
+                startMessage('H');
+                write(binary ? 1 : 0);
+                writeShort(columnCount);
+                for (int i = 0; i < columnCount; i++) {
+                    writeShort(binary ? 1 : 0);
+                }
+                sendMessage();
+                long rowCount = 0;
+                if (binary) {
+                    // the header is sent with the first row, the trailer
+                    // separately, like PostgreSQL does
+                    while (result.next()) {
+                        startMessage('d');
+                        if (rowCount++ == 0) {
+                            writeCopyBinaryHeader();
+                        }
+                        Value[] row = result.currentRow();
+                        writeShort(columnCount);
+                        for (int i = 0; i < columnCount; i++) {
+                            writeDataColumn(row[i], pgTypes[i], !hasBinaryCopyFormat(pgTypes[i]));
+                        }
+                        sendMessage();
+                    }
+                    startMessage('d');
+                    if (rowCount == 0) {
+                        writeCopyBinaryHeader();
+                    }
+                    writeShort(-1);
+                    sendMessage();
+                } else {
+                    Charset encoding = copy.getEncoding(getEncoding());
+                    StringBuilder builder = new StringBuilder();
+                    String[] values = new String[columnCount];
+                    if (copy.hasHeader()) {
+                        for (int i = 0; i < columnCount; i++) {
+                            values[i] = result.getColumnName(i);
+                        }
+                        copy.appendRow(builder, values);
+                        sendCopyData(builder, encoding);
+                    }
+                    while (result.next()) {
+                        Value[] row = result.currentRow();
+                        for (int i = 0; i < columnCount; i++) {
+                            Value v = row[i];
+                            values[i] = v == ValueNull.INSTANCE ? null : getText(v, pgTypes[i]);
+                        }
+                        builder.setLength(0);
+                        copy.appendRow(builder, values);
+                        sendCopyData(builder, encoding);
+                        rowCount++;
+                    }
+                }
+                startMessage('c');
+                sendMessage();
+                sendCopyComplete(rowCount);
+            }
+        } finally {
+            session.setLazyQueryExecution(lazy);
+        }
+    }
+
+    private void writeCopyBinaryHeader() throws IOException {
+        write(PgCopy.BINARY_SIGNATURE);
+        // flags and header extension length
+        writeInt(0);
+        writeInt(0);
+    }
+
+    /**
+     * Whether values of this type are copied in the binary format. The types
+     * that are not read and written in the binary format here are copied as
+     * text, which is their binary format for character strings.
+     */
+    private static boolean hasBinaryCopyFormat(int pgType) {
+        switch (pgType) {
+        case PgServer.PG_TYPE_BOOL:
+        case PgServer.PG_TYPE_INT2:
+        case PgServer.PG_TYPE_INT4:
+        case PgServer.PG_TYPE_INT8:
+        case PgServer.PG_TYPE_FLOAT4:
+        case PgServer.PG_TYPE_FLOAT8:
+        case PgServer.PG_TYPE_NUMERIC:
+        case PgServer.PG_TYPE_BYTEA:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    private void sendCopyData(StringBuilder builder, Charset encoding) throws IOException {
+        startMessage('d');
+        write(builder.toString().getBytes(encoding));
+        sendMessage();
+    }
+
+    private void sendCopyComplete(long rowCount) throws IOException {
+        startMessage('C');
+        writeString("COPY " + rowCount);
+        sendMessage();
+    }
+
     private String getSQL(String s) {
         String lower = StringUtils.toLowerEnglish(s);
         if (lower.startsWith("show max_identifier_length")) {
@@ -602,72 +961,9 @@ private void writeDataColumn(Value v, int pgType, boolean text) throws IOExcepti
         }
         if (text) {
             // plain text
-            switch (pgType) {
-            case PgServer.PG_TYPE_BOOL:
-                writeInt(1);
-                dataOut.writeByte(v.getBoolean() ? 't' : 'f');
-                break;
-            case PgServer.PG_TYPE_BYTEA: {
-                byte[] bytes = v.getBytesNoCopy();
-                int length = bytes.length;
-                int cnt = length;
-                for (int i = 0; i < length; i++) {
-                    byte b = bytes[i];
-                    if (b < 32 || b > 126) {
-                        cnt += 3;
-                    } else if (b == 92) {
-                        cnt++;
-                    }
-                }
-                byte[] data = new byte[cnt];
-                for (int i = 0, j = 0; i < length; i++) {
-                    byte b = bytes[i];
-                    if (b < 32 || b > 126) {
-                        data[j++] = '\\';
-                        data[j++] = (byte) (((b >>> 6) & 3) + '0');
-                        data[j++] = (byte) (((b >>> 3) & 7) + '0');
-                        data[j++] = (byte) ((b & 7) + '0');
-                    } else if (b == 92) {
-                        data[j++] = '\\';
-                        data[j++] = '\\';
-                    } else {
-                        data[j++] = b;
-                    }
-                }
-                writeInt(data.length);
-                write(data);
-                break;
-            }
-            case PgServer.PG_TYPE_INT2_ARRAY:
-            case PgServer.PG_TYPE_INT4_ARRAY:
-            case PgServer.PG_TYPE_VARCHAR_ARRAY:
-                ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                baos.write('{');
-                Value[] values = ((ValueArray) v).getList();
-                Charset encoding = getEncoding();
-                for (int i = 0; i < values.length; i++) {
-                    if (i > 0) {
-                        baos.write(',');
-                    }
-                    String s = values[i].getString();
-                    if (SHOULD_QUOTE.matcher(s).matches()) {
-                        List<String> ss = new ArrayList<>();
-                        for (String s0 : s.split("\\\\")) {
-                            ss.add(s0.replace("\"", "\\\""));
-                        }
-                        s = "\"" + String.join("\\\\", ss) + "\"";
-                    }
-                    baos.write(s.getBytes(encoding));
-                }
-                baos.write('}');
-                writeInt(baos.size());
-                write(baos);
-                break;
-            default:
-                byte[] data = v.getString().getBytes(getEncoding());
-                writeInt(data.length);
-                write(data);
-            }
+            byte[] data = getText(v, pgType).getBytes(getEncoding());
+            writeInt(data.length);
+            write(data);
         } else {
             // binary
             switch (pgType) {
@@ -741,6 +1037,53 @@ private void writeDataColumn(Value v, int pgType, boolean text) throws IOExcepti
         }
     }
 
+    private static String getText(Value v, int pgType) {
+        switch (pgType) {
+        case PgServer.PG_TYPE_BOOL:
+            return v.getBoolean() ? "t" : "f";
+        case PgServer.PG_TYPE_BYTEA: {
+            byte[] bytes = v.getBytesNoCopy();
+            StringBuilder builder = new StringBuilder(bytes.length);
+            for (byte b : bytes) {
+                if (b < 32 || b > 126) {
+                    builder.append('\\') //
+                            .append((char) (((b >>> 6) & 3) + '0')) //
+                            .append((char) (((b >>> 3) & 7) + '0')) //
+                            .append((char) ((b & 7) + '0'));
+                } else if (b == 92) {
+                    builder.append("\\\\");
+                } else {
+                    builder.append((char) b);
+                }
+            }
+            return builder.toString();
+        }
+        case PgServer.PG_TYPE_INT2_ARRAY:
+        case PgServer.PG_TYPE_INT4_ARRAY:
+        case PgServer.PG_TYPE_VARCHAR_ARRAY: {
+            StringBuilder builder = new StringBuilder().append('{');
+            Value[] values = ((ValueArray) v).getList();
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    builder.append(',');
+                }
+                String s = values[i].getString();
+                if (SHOULD_QUOTE.matcher(s).matches()) {
+                    List<String> ss = new ArrayList<>();
+                    for (String s0 : s.split("\\\\")) {
+                        ss.add(s0.replace("\"", "\\\""));
+                    }
+                    s = "\"" + String.join("\\\\", ss) + "\"";
+                }
+                builder.append(s);
+            }
+            return builder.append('}').toString();
+        }
+        default:
+            return v.getString();
+        }
+    }
+
     private static final int[] POWERS10 = {1, 10, 100, 1000, 10000};
     private static final int MAX_GROUP_SCALE = 4;
     private static final int MAX_GROUP_SIZE = POWERS10[4];
@@ -846,6 +1189,10 @@ private void setParameter(ArrayList<? extends ParameterInterface> parameters, in
         } else if (i < formatCodes.length) {
             text = formatCodes[i] == 0;
         }
+        parameters.get(i).setValue(readValue(pgType, text), true);
+    }
+
+    private Value readValue(int pgType, boolean text) throws IOException {
         int paramLen = readInt();
         Value value;
         if (paramLen == -1) {
@@ -854,32 +1201,14 @@ private void setParameter(ArrayList<? extends ParameterInterface> parameters, in
             // plain text
             byte[] data = Utils.newBytes(paramLen);
             readFully(data);
-            String str = new String(data, getEncoding());
-            switch (pgType) {
-            case PgServer.PG_TYPE_DATE: {
-                // Strip timezone offset
-                int idx = str.indexOf(' ');
-                if (idx > 0) {
-                    str = str.substring(0, idx);
-                }
-                break;
-            }
-            case PgServer.PG_TYPE_TIME: {
-                // Strip timezone offset
-                int idx = str.indexOf('+');
-                if (idx <= 0) {
-                    idx = str.indexOf('-');
-                }
-                if (idx > 0) {
-                    str = str.substring(0, idx);
-                }
-                break;
-            }
-            }
-            value = ValueVarchar.get(str, session);
+            value = getTextValue(new String(data, getEncoding()), pgType);
         } else {
             // binary
             switch (pgType) {
+            case PgServer.PG_TYPE_BOOL:
+                checkParamLength(1, paramLen);
+                value = ValueBoolean.get(readByte() != 0);
+                break;
             case PgServer.PG_TYPE_INT2:
                 checkParamLength(2, paramLen);
                 value = ValueSmallint.get(readShort());
@@ -916,7 +1245,32 @@ private void setParameter(ArrayList<? extends ParameterInterface> parameters, in
                 value = ValueVarchar.get(new String(d, getEncoding()), session);
             }
         }
-        parameters.get(i).setValue(value, true);
+        return value;
+    }
+
+    private Value getTextValue(String str, int pgType) {
+        switch (pgType) {
+        case PgServer.PG_TYPE_DATE: {
+            // Strip timezone offset
+            int idx = str.indexOf(' ');
+            if (idx > 0) {
+                str = str.substring(0, idx);
+            }
+            break;
+        }
+        case PgServer.PG_TYPE_TIME: {
+            // Strip timezone offset
+            int idx = str.indexOf('+');
+            if (idx <= 0) {
+                idx = str.indexOf('-');
+            }
+            if (idx > 0) {
+                str = str.substring(0, idx);
+            }
+            break;
+        }
+        }
+        return ValueVarchar.get(str, session);
     }
 
     private static void checkParamLength(int expected, int got) {
@@ -1267,7 +1621,6 @@ private void sendMessage() throws IOException {
         write(messageType);
         writeInt(outBuffer.size() + 4);
         write(outBuffer);
-        dataOut.flush();
     }
 
     private void sendParameterStatus(String param, String value)
@@ -7,16 +7,23 @@
 
 import java.io.IOException;
 import java.io.InputStream;
+import org.h2.engine.Constants;
 import org.h2.engine.SessionRemote;
 import org.h2.message.DbException;
 import org.h2.mvstore.DataUtils;
 
 /**
  * An input stream used by the client side of a tcp connection to fetch LOB data
- * on demand from the server.
+ * on demand from the server. The data is fetched in chunks that grow while the
+ * LOB is read, so that a large LOB needs only few round trips.
  */
 public class LobStorageRemoteInputStream extends InputStream {
 
+    /**
+     * The maximum number of bytes the server sends for one request.
+     */
+    public static final int MAX_READ_LENGTH = 1024 * 1024;
+
     private final SessionRemote sessionRemote;
 
     /**
@@ -27,21 +34,39 @@ public class LobStorageRemoteInputStream extends InputStream {
     private final byte[] hmac;
 
     /**
-     * The position.
+     * The length in bytes, or -1 if unknown.
+     */
+    private final long octetLength;
+
+    /**
+     * The position of the next chunk.
      */
     private long pos;
 
-    public LobStorageRemoteInputStream(SessionRemote handler, long lobId, byte[] hmac) {
+    private byte[] buffer;
+
+    private int bufferPos;
+
+    private int bufferLength;
+
+    /**
+     * The number of bytes to request with the next chunk.
+     */
+    private int chunkSize = 2 * Constants.IO_BUFFER_SIZE;
+
+    public LobStorageRemoteInputStream(SessionRemote handler, long lobId, byte[] hmac, long octetLength) {
         this.sessionRemote = handler;
         this.lobId = lobId;
         this.hmac = hmac;
+        this.octetLength = octetLength;
     }
 
     @Override
     public int read() throws IOException {
-        byte[] buff = new byte[1];
-        int len = read(buff, 0, 1);
-        return len < 0 ? len : (buff[0] & 255);
+        if (bufferPos >= bufferLength && !fillBuffer()) {
+            return -1;
+        }
+        return buffer[bufferPos++] & 255;
     }
 
     @Override
@@ -55,15 +80,64 @@ public int read(byte[] buff, int off, int length) throws IOException {
         if (length == 0) {
             return 0;
         }
+        if (bufferPos >= bufferLength) {
+            if (length >= chunkSize) {
+                // large reads don't need to be copied
+                length = readChunk(buff, off, Math.min(length, MAX_READ_LENGTH));
+                return length == 0 ? -1 : length;
+            }
+            if (!fillBuffer()) {
+                return -1;
+            }
+        }
+        length = Math.min(length, bufferLength - bufferPos);
+        System.arraycopy(buffer, bufferPos, buff, off, length);
+        bufferPos += length;
+        return length;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0) {
+            return 0;
+        }
+        int buffered = bufferLength - bufferPos;
+        if (n <= buffered) {
+            bufferPos += (int) n;
+            return n;
+        }
+        bufferPos = bufferLength;
+        if (octetLength < 0) {
+            return buffered + super.skip(n - buffered);
+        }
+        // the server skips to the position of the next chunk
+        n = Math.max(Math.min(n - buffered, octetLength - pos), 0);
+        pos += n;
+        return buffered + n;
+    }
+
+    @Override
+    public int available() {
+        return bufferLength - bufferPos;
+    }
+
+    private boolean fillBuffer() throws IOException {
+        if (buffer == null || buffer.length < chunkSize) {
+            buffer = new byte[chunkSize];
+        }
+        bufferPos = 0;
+        bufferLength = readChunk(buffer, 0, chunkSize);
+        return bufferLength > 0;
+    }
+
+    private int readChunk(byte[] buff, int off, int length) throws IOException {
         try {
             length = sessionRemote.readLob(lobId, hmac, pos, buff, off, length);
         } catch (DbException e) {
             throw DataUtils.convertToIOException(e);
         }
-        if (length == 0) {
-            return -1;
-        }
         pos += length;
+        chunkSize = Math.min(chunkSize * 2, MAX_READ_LENGTH);
         return length;
     }
 
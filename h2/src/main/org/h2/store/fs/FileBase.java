@@ -5,6 +5,7 @@
  */
 package org.h2.store.fs;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.MappedByteBuffer;
@@ -90,4 +91,46 @@ public long write(ByteBuffer[] srcs, int offset, int length)
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * Read data at the specified positions until the buffers are full. The
+     * default implementation reads the positions one after another, an
+     * implementation may issue all reads at once.
+     *
+     * @param positions the file positions
+     * @param dst the buffers to read into
+     * @throws IOException if reading failed or the end of file was reached
+     */
+    public void readFully(long[] positions, ByteBuffer[] dst) throws IOException {
+        for (int i = 0; i < dst.length; i++) {
+            readFully(positions[i], dst[i]);
+        }
+    }
+
+    /**
+     * Read data at the specified position until the buffer is full.
+     *
+     * @param position the file position
+     * @param dst the buffer to read into
+     * @throws IOException if reading failed or the end of file was reached
+     */
+    protected final void readFully(long position, ByteBuffer dst) throws IOException {
+        while (dst.hasRemaining()) {
+            int len = read(dst, position);
+            if (len < 0) {
+                throw new EOFException();
+            }
+            position += len;
+        }
+    }
+
+    /**
+     * Check whether {@link #readFully(long[], ByteBuffer[])} performs the reads
+     * concurrently, so a batch of reads takes about as long as a single read.
+     *
+     * @return true if the reads are performed concurrently
+     */
+    public boolean isConcurrentReadSupported() {
+        return false;
+    }
+
 }
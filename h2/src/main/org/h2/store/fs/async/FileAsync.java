@@ -5,11 +5,13 @@
  */
 package org.h2.store.fs.async;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.AsynchronousFileChannel;
 import java.nio.channels.FileLock;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import org.h2.store.fs.FileBaseDefault;
@@ -61,6 +63,38 @@ public int read(ByteBuffer dst, long position) throws IOException {
         return complete(channel.read(dst, position));
     }
 
+    @Override
+    public void readFully(long[] positions, ByteBuffer[] dst) throws IOException {
+        int count = dst.length;
+        ArrayList<Future<Integer>> futures = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            futures.add(channel.read(dst[i], positions[i]));
+        }
+        IOException exception = null;
+        // all reads need to be completed before the buffers can be released
+        for (int i = 0; i < count; i++) {
+            try {
+                int len = complete(futures.get(i));
+                if (len < 0) {
+                    throw new EOFException();
+                }
+                readFully(positions[i] + len, dst[i]);
+            } catch (IOException e) {
+                if (exception == null) {
+                    exception = e;
+                }
+            }
+        }
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    @Override
+    public boolean isConcurrentReadSupported() {
+        return true;
+    }
+
     @Override
     public int write(ByteBuffer src, long position) throws IOException {
         return complete(channel.write(src, position));
@@ -75,6 +75,7 @@ public final class Column implements HasSQL, Typed, ColumnTemplate {
     private boolean isGeneratedAlways;
     private GeneratedColumnResolver generatedTableFilter;
     private int selectivity;
+    private ColumnStatistics statistics;
     private String comment;
     private boolean primaryKey;
     private boolean visible = true;
@@ -582,6 +583,9 @@ private String getCreateSQL(StringBuilder builder, boolean forMeta) {
         if (selectivity != 0) {
             builder.append(" SELECTIVITY ").append(selectivity);
         }
+        if (forMeta && statistics != null) {
+            statistics.toValue().getSQL(builder.append(" STATISTICS "), DEFAULT_SQL_FLAGS);
+        }
         if (comment != null) {
             StringUtils.quoteStringSQL(builder.append(" COMMENT "), comment);
         }
@@ -731,6 +735,24 @@ public void setSelectivity(int selectivity) {
         this.selectivity = selectivity;
     }
 
+    /**
+     * Get the statistics of values of the column collected by ANALYZE.
+     *
+     * @return the statistics, or {@code null} if they are not available
+     */
+    public ColumnStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Set the statistics of values of the column.
+     *
+     * @param statistics the statistics, or {@code null}
+     */
+    public void setStatistics(ColumnStatistics statistics) {
+        this.statistics = statistics;
+    }
+
     @Override
     public String getDefaultSQL() {
         return defaultExpression == null ? null
@@ -859,6 +881,7 @@ public void copy(Column source) {
         generatedTableFilter = source.generatedTableFilter;
         isGeneratedAlways = source.isGeneratedAlways;
         selectivity = source.selectivity;
+        statistics = source.statistics;
         primaryKey = source.primaryKey;
         visible = source.visible;
     }
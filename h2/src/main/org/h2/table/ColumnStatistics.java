@@ -0,0 +1,354 @@
+/*
+ * Copyright 2004-2025 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.table;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.h2.engine.CastDataProvider;
+import org.h2.engine.SessionLocal;
+import org.h2.message.DbException;
+import org.h2.value.DataType;
+import org.h2.value.TypeInfo;
+import org.h2.value.Value;
+import org.h2.value.ValueArray;
+import org.h2.value.ValueBigint;
+import org.h2.value.ValueNull;
+import org.h2.value.ValueRow;
+
+/**
+ * Statistics of values of a column collected by ANALYZE from a sample of rows:
+ * the number of NULL values, the most common values with their number of
+ * occurrences, and an equi-depth histogram of other values.
+ */
+public final class ColumnStatistics {
+
+    /**
+     * The maximum number of buckets in a histogram.
+     */
+    static final int HISTOGRAM_BUCKETS = 32;
+
+    /**
+     * The maximum number of the most common values.
+     */
+    static final int MOST_COMMON_VALUES = 10;
+
+    /**
+     * The maximum size of a value to keep in statistics, larger values are not
+     * stored in metadata.
+     */
+    private static final int MAX_VALUE_MEMORY = 256;
+
+    private final long sampleSize;
+
+    private final long nullCount;
+
+    private final long distinctCount;
+
+    /**
+     * The bounds of buckets, each bucket has approximately the same number of
+     * non-NULL values, or {@code null} if there is no histogram.
+     */
+    private final Value[] histogram;
+
+    private final Value[] mostCommonValues;
+
+    private final long[] mostCommonCounts;
+
+    private ColumnStatistics(long sampleSize, long nullCount, long distinctCount, Value[] histogram,
+            Value[] mostCommonValues, long[] mostCommonCounts) {
+        this.sampleSize = sampleSize;
+        this.nullCount = nullCount;
+        this.distinctCount = distinctCount;
+        this.histogram = histogram;
+        this.mostCommonValues = mostCommonValues;
+        this.mostCommonCounts = mostCommonCounts;
+    }
+
+    /**
+     * Check whether statistics can be collected for values of the specified
+     * data type.
+     *
+     * @param valueType the value type
+     * @return whether statistics can be collected
+     */
+    public static boolean isSupported(int valueType) {
+        switch (valueType) {
+        case Value.JAVA_OBJECT:
+        case Value.GEOMETRY:
+        case Value.JSON:
+        case Value.ARRAY:
+        case Value.ROW:
+            return false;
+        default:
+            return !DataType.isLargeObject(valueType);
+        }
+    }
+
+    /**
+     * Create statistics from a sample of values.
+     *
+     * @param session the session
+     * @param values the non-NULL values from the sample, will be sorted
+     * @param nullCount the number of NULL values in the sample
+     * @return the statistics
+     */
+    public static ColumnStatistics create(SessionLocal session, Value[] values, long nullCount) {
+        Arrays.sort(values, session);
+        int length = values.length;
+        ArrayList<Value> runValues = new ArrayList<>();
+        ArrayList<Integer> runCounts = new ArrayList<>();
+        for (int i = 0; i < length;) {
+            Value v = values[i];
+            int j = i + 1;
+            while (j < length && session.compare(values[j], v) == 0) {
+                j++;
+            }
+            runValues.add(v);
+            runCounts.add(j - i);
+            i = j;
+        }
+        int distinct = runValues.size();
+        Integer[] order = new Integer[distinct];
+        for (int i = 0; i < distinct; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(runCounts.get(b), runCounts.get(a)));
+        ArrayList<Value> common = new ArrayList<>();
+        ArrayList<Long> commonCounts = new ArrayList<>();
+        for (int i = 0; i < distinct && common.size() < MOST_COMMON_VALUES; i++) {
+            int index = order[i];
+            long count = runCounts.get(index);
+            // only values occurring more often than an average value
+            if (count < 2 || count * distinct <= length) {
+                break;
+            }
+            Value v = runValues.get(index);
+            if (v.getMemory() <= MAX_VALUE_MEMORY) {
+                common.add(v);
+                commonCounts.add(count);
+            }
+        }
+        long[] counts = new long[common.size()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = commonCounts.get(i);
+        }
+        Value[] histogram = null;
+        if (length >= 2) {
+            int buckets = Math.min(HISTOGRAM_BUCKETS, length - 1);
+            histogram = new Value[buckets + 1];
+            for (int i = 0; i <= buckets; i++) {
+                Value v = values[(int) ((long) i * (length - 1) / buckets)];
+                if (v.getMemory() > MAX_VALUE_MEMORY) {
+                    histogram = null;
+                    break;
+                }
+                histogram[i] = v;
+            }
+        }
+        return new ColumnStatistics(length + nullCount, nullCount, distinct, histogram,
+                common.toArray(new Value[0]), counts);
+    }
+
+    /**
+     * Read statistics from a value created by {@link #toValue()}.
+     *
+     * @param provider the cast information provider
+     * @param type the data type of the column
+     * @param value the value
+     * @return the statistics, or {@code null} if they can't be used with the
+     *         specified data type
+     */
+    public static ColumnStatistics fromValue(CastDataProvider provider, TypeInfo type, Value value) {
+        try {
+            Value[] list = ((ValueRow) value).getList();
+            Value h = list[3];
+            Value[] histogram = h == ValueNull.INSTANCE ? null : convert(provider, type, h);
+            Value[] mostCommonValues = convert(provider, type, list[4]);
+            Value[] c = ((ValueArray) list[5]).getList();
+            long[] mostCommonCounts = new long[c.length];
+            for (int i = 0; i < c.length; i++) {
+                mostCommonCounts[i] = c[i].getLong();
+            }
+            if (mostCommonCounts.length != mostCommonValues.length) {
+                return null;
+            }
+            return new ColumnStatistics(list[0].getLong(), list[1].getLong(), list[2].getLong(), histogram,
+                    mostCommonValues, mostCommonCounts);
+        } catch (DbException | ClassCastException | IndexOutOfBoundsException e) {
+            // the data type of the column was changed
+            return null;
+        }
+    }
+
+    private static Value[] convert(CastDataProvider provider, TypeInfo type, Value array) {
+        Value[] values = ((ValueArray) array).getList().clone();
+        for (int i = 0; i < values.length; i++) {
+            values[i] = values[i].convertTo(type, provider);
+        }
+        return values;
+    }
+
+    /**
+     * Returns these statistics as a value for metadata.
+     *
+     * @return the value
+     */
+    public Value toValue() {
+        Value[] counts = new Value[mostCommonCounts.length];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = ValueBigint.get(mostCommonCounts[i]);
+        }
+        return ValueRow.get(new Value[] { ValueBigint.get(sampleSize), ValueBigint.get(nullCount),
+                ValueBigint.get(distinctCount),
+                histogram != null ? ValueArray.get(histogram, null) : ValueNull.INSTANCE,
+                ValueArray.get(mostCommonValues, null), ValueArray.get(counts, null) });
+    }
+
+    /**
+     * Estimate the fraction of rows where the column is equal to the specified
+     * value.
+     *
+     * @param session the session
+     * @param v the value
+     * @return the estimated fraction of rows
+     */
+    public double getEqualFraction(SessionLocal session, Value v) {
+        if (v == ValueNull.INSTANCE || sampleSize == 0L) {
+            return 0d;
+        }
+        long other = sampleSize - nullCount;
+        for (int i = 0; i < mostCommonValues.length; i++) {
+            if (session.compare(mostCommonValues[i], v) == 0) {
+                return (double) mostCommonCounts[i] / sampleSize;
+            }
+            other -= mostCommonCounts[i];
+        }
+        if (histogram != null && (session.compare(v, histogram[0]) < 0
+                || session.compare(v, histogram[histogram.length - 1]) > 0)) {
+            return 0d;
+        }
+        long otherDistinct = Math.max(distinctCount - mostCommonValues.length, 1L);
+        return (double) other / otherDistinct / sampleSize;
+    }
+
+    /**
+     * Estimate the fraction of rows where the column is between the specified
+     * bounds.
+     *
+     * @param session the session
+     * @param min the lower bound, or {@code null}
+     * @param max the upper bound, or {@code null}
+     * @return the estimated fraction of rows, or -1 if it can't be estimated
+     */
+    public double getRangeFraction(SessionLocal session, Value min, Value max) {
+        if (sampleSize == 0L) {
+            return 0d;
+        }
+        if (histogram == null) {
+            return -1d;
+        }
+        if (min == ValueNull.INSTANCE || max == ValueNull.INSTANCE) {
+            return 0d;
+        }
+        double from = min != null ? getPosition(session, min, false) : 0d;
+        double to = max != null ? getPosition(session, max, true) : 1d;
+        return Math.max(to - from, 0d) * (sampleSize - nullCount) / sampleSize;
+    }
+
+    /**
+     * Returns the estimated fraction of non-NULL values that are smaller than
+     * the specified value (or smaller or equal, if {@code upper} is set).
+     */
+    private double getPosition(SessionLocal session, Value v, boolean upper) {
+        int buckets = histogram.length - 1;
+        double position = 0d;
+        for (int i = 0; i < buckets; i++) {
+            Value low = histogram[i], high = histogram[i + 1];
+            int c = session.compare(v, high);
+            if (c > 0 || upper && c == 0) {
+                position++;
+                continue;
+            }
+            c = session.compare(v, low);
+            if (c > 0 || upper && c == 0) {
+                position += interpolate(low, high, v);
+            }
+            break;
+        }
+        return position / buckets;
+    }
+
+    private static double interpolate(Value low, Value high, Value v) {
+        if (DataType.isNumericType(low.getValueType()) && DataType.isNumericType(v.getValueType())) {
+            double l = low.getDouble(), h = high.getDouble();
+            if (h > l) {
+                return Math.min(Math.max((v.getDouble() - l) / (h - l), 0d), 1d);
+            }
+        }
+        return 0.5d;
+    }
+
+    /**
+     * Returns the number of rows in the sample.
+     *
+     * @return the number of rows in the sample
+     */
+    public long getSampleSize() {
+        return sampleSize;
+    }
+
+    /**
+     * Returns the fraction of NULL values in the sample.
+     *
+     * @return the fraction of NULL values
+     */
+    public double getNullFraction() {
+        return sampleSize != 0L ? (double) nullCount / sampleSize : 0d;
+    }
+
+    /**
+     * Returns the number of distinct non-NULL values in the sample.
+     *
+     * @return the number of distinct values
+     */
+    public long getDistinctCount() {
+        return distinctCount;
+    }
+
+    /**
+     * Returns the bounds of histogram buckets.
+     *
+     * @return the bounds of histogram buckets, or {@code null}
+     */
+    public Value[] getHistogram() {
+        return histogram;
+    }
+
+    /**
+     * Returns the most common values.
+     *
+     * @return the most common values
+     */
+    public Value[] getMostCommonValues() {
+        return mostCommonValues;
+    }
+
+    /**
+     * Returns the fractions of rows with the most common values.
+     *
+     * @return the fractions of rows
+     */
+    public double[] getMostCommonFrequencies() {
+        int length = mostCommonCounts.length;
+        double[] frequencies = new double[length];
+        for (int i = 0; i < length; i++) {
+            frequencies[i] = (double) mostCommonCounts[i] / sampleSize;
+        }
+        return frequencies;
+    }
+
+}
@@ -64,6 +64,7 @@
 import org.h2.value.ExtTypeInfoRow;
 import org.h2.value.TypeInfo;
 import org.h2.value.Value;
+import org.h2.value.ValueArray;
 import org.h2.value.ValueBigint;
 import org.h2.value.ValueBoolean;
 import org.h2.value.ValueDouble;
@@ -127,7 +128,9 @@ public final class InformationSchemaTable extends MetaTable {
 
     // Extensions
 
-    private static final int CONSTANTS = VIEWS + 1;
+    private static final int COLUMN_STATISTICS = VIEWS + 1;
+
+    private static final int CONSTANTS = COLUMN_STATISTICS + 1;
 
     private static final int ENUM_VALUES = CONSTANTS + 1;
 
@@ -654,6 +657,26 @@ public InformationSchemaTable(Schema schema, int id, int type) {
             indexColumnName = "TABLE_NAME";
             break;
         // Extensions
+        case COLUMN_STATISTICS: {
+            setMetaTableName("COLUMN_STATISTICS");
+            isView = false;
+            TypeInfo varcharArray = TypeInfo.getTypeInfo(Value.ARRAY, -1L, 0, TypeInfo.TYPE_VARCHAR);
+            cols = new Column[] {
+                    column("TABLE_CATALOG"), //
+                    column("TABLE_SCHEMA"), //
+                    column("TABLE_NAME"), //
+                    column("COLUMN_NAME"), //
+                    column("SAMPLE_SIZE", TypeInfo.TYPE_BIGINT), //
+                    column("NULL_FRACTION", TypeInfo.TYPE_DOUBLE), //
+                    column("DISTINCT_COUNT", TypeInfo.TYPE_BIGINT), //
+                    column("MOST_COMMON_VALUES", varcharArray), //
+                    column("MOST_COMMON_FREQUENCIES",
+                            TypeInfo.getTypeInfo(Value.ARRAY, -1L, 0, TypeInfo.TYPE_DOUBLE)), //
+                    column("HISTOGRAM_BOUNDS", varcharArray), //
+            };
+            indexColumnName = "TABLE_NAME";
+            break;
+        }
         case CONSTANTS:
             setMetaTableName("CONSTANTS");
             isView = false;
@@ -949,6 +972,9 @@ public ArrayList<Row> generateRows(SessionLocal session, SearchRow first, Search
             views(session, indexFrom, indexTo, rows, catalog);
             break;
         // Extensions
+        case COLUMN_STATISTICS:
+            columnStatistics(session, indexFrom, indexTo, rows, catalog);
+            break;
         case CONSTANTS:
             constants(session, indexFrom, indexTo, rows, catalog);
             break;
@@ -2329,6 +2355,58 @@ private void views(SessionLocal session, ArrayList<Row> rows, String catalog, Ta
         );
     }
 
+    private void columnStatistics(SessionLocal session, Value indexFrom, Value indexTo, ArrayList<Row> rows,
+            String catalog) {
+        getAllTables(session, indexFrom, indexTo).forEach(table -> {
+            for (Column c : table.getColumns()) {
+                ColumnStatistics statistics = c.getStatistics();
+                if (statistics != null) {
+                    columnStatistics(session, rows, catalog, table, c, statistics);
+                }
+            }
+        });
+    }
+
+    private void columnStatistics(SessionLocal session, ArrayList<Row> rows, String catalog, Table table, Column c,
+            ColumnStatistics statistics) {
+        Value[] histogram = statistics.getHistogram();
+        double[] frequencies = statistics.getMostCommonFrequencies();
+        Value[] f = new Value[frequencies.length];
+        for (int i = 0; i < f.length; i++) {
+            f[i] = ValueDouble.get(frequencies[i]);
+        }
+        add(session, rows,
+                // TABLE_CATALOG
+                catalog,
+                // TABLE_SCHEMA
+                table.getSchema().getName(),
+                // TABLE_NAME
+                table.getName(),
+                // COLUMN_NAME
+                c.getName(),
+                // SAMPLE_SIZE
+                ValueBigint.get(statistics.getSampleSize()),
+                // NULL_FRACTION
+                ValueDouble.get(statistics.getNullFraction()),
+                // DISTINCT_COUNT
+                ValueBigint.get(statistics.getDistinctCount()),
+                // MOST_COMMON_VALUES
+                toStringArray(statistics.getMostCommonValues()),
+                // MOST_COMMON_FREQUENCIES
+                ValueArray.get(TypeInfo.TYPE_DOUBLE, f, session),
+                // HISTOGRAM_BOUNDS
+                histogram != null ? toStringArray(histogram) : null
+        );
+    }
+
+    private static Value toStringArray(Value[] values) {
+        Value[] strings = new Value[values.length];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = ValueVarchar.get(values[i].getString());
+        }
+        return ValueArray.get(TypeInfo.TYPE_VARCHAR, strings, null);
+    }
+
     private void constants(SessionLocal session, Value indexFrom, Value indexTo, ArrayList<Row> rows, String catalog) {
         String mainSchemaName = database.getMainSchema().getName();
         String collation = database.getCompareMode().getName();
@@ -2798,6 +2876,7 @@ private void settings(SessionLocal session, ArrayList<Row> rows) {
                 add(session, rows, "property." + s, Utils.getProperty(s, ""));
             }
         }
+        add(session, rows, "MAX_PARALLEL_WORKERS", Integer.toString(session.getMaxParallelWorkers()));
         add(session, rows, "QUERY_TIMEOUT", Integer.toString(session.getQueryTimeout()));
         add(session, rows, "TIME ZONE", session.currentTimeZone().getId());
         add(session, rows, "TRUNCATE_LARGE_LENGTH", session.isTruncateLargeLength() ? "TRUE" : "FALSE");
@@ -25,6 +25,7 @@ public class Plan {
     private final HashMap<TableFilter, PlanItem> planItems = new HashMap<>();
     private final Expression[] allConditions;
     private final TableFilter[] allFilters;
+    private final int lastFilterOffset;
 
     /**
      * Create a query plan with the given order.
@@ -41,8 +42,10 @@ public Plan(TableFilter[] filters, int count, Expression condition) {
         if (condition != null) {
             allCond.add(condition);
         }
+        int offset = 0;
         for (int i = 0; i < count; i++) {
             TableFilter f = filters[i];
+            offset = all.size();
             f.visit(f1 -> {
                 all.add(f1);
                 if (f1.getJoinCondition() != null) {
@@ -52,6 +55,7 @@ public Plan(TableFilter[] filters, int count, Expression condition) {
         }
         allConditions = allCond.toArray(new Expression[0]);
         allFilters = all.toArray(new TableFilter[0]);
+        lastFilterOffset = offset;
     }
 
     /**
@@ -101,24 +105,53 @@ public void removeUnusableIndexConditions() {
      * @return the cost
      */
     public double calculateCost(SessionLocal session, AllColumnsForPlan allColumnsSet, boolean isSelectCommand) {
+        return calculateCost(session, allColumnsSet, isSelectCommand, 0, 1, null);
+    }
+
+    /**
+     * Calculate the cost of this query plan from the known cost of the same
+     * plan without its last table. Only the last table is evaluated, so plan
+     * items of other tables are not available after this call.
+     *
+     * @param session the session
+     * @param allColumnsSet calculates all columns on-demand
+     * @param outerCost the cost of the plan without its last table
+     * @param first the plan item of the first table, as returned by
+     *            {@link #getItem(TableFilter)} of a plan that starts with the
+     *            same table
+     * @return the cost
+     */
+    public double calculateLastCost(SessionLocal session, AllColumnsForPlan allColumnsSet, boolean isSelectCommand,
+            double outerCost, PlanItem first) {
+        return calculateCost(session, allColumnsSet, isSelectCommand, lastFilterOffset, outerCost, first);
+    }
+
+    private double calculateCost(SessionLocal session, AllColumnsForPlan allColumnsSet, boolean isSelectCommand,
+            int start, double cost, PlanItem first) {
         Trace t = session.getTrace();
         if (t.isDebugEnabled()) {
             t.debug("Plan       : calculate cost for plan {0}", Arrays.toString(allFilters));
         }
-        double cost = 1;
+        for (int i = 0; i < start; i++) {
+            setEvaluatable(allFilters[i], true);
+        }
         boolean invalidPlan = false;
-        for (int i = 0; i < allFilters.length; i++) {
+        for (int i = start; i < allFilters.length; i++) {
             TableFilter tableFilter = allFilters[i];
             if (t.isDebugEnabled()) {
                 t.debug("Plan       :   for table filter {0}", tableFilter);
             }
-            PlanItem item = tableFilter.getBestPlanItem(session, allFilters, i, allColumnsSet, isSelectCommand);
+            PlanItem item = tableFilter.getBestPlanItem(session, allFilters, i, allColumnsSet, isSelectCommand,
+                    first);
+            if (i == 0) {
+                first = item;
+            }
             planItems.put(tableFilter, item);
             if (t.isDebugEnabled()) {
                 t.debug("Plan       :   best plan item cost {0} index {1}",
                         item.cost, item.getIndex().getPlanSQL());
             }
-            cost += cost * item.cost;
+            cost += item.getJoinCost(cost);
             setEvaluatable(tableFilter, true);
             Expression on = tableFilter.getJoinCondition();
             if (on != null) {
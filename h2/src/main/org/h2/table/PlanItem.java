@@ -5,7 +5,10 @@
  */
 package org.h2.table;
 
+import java.util.ArrayList;
+
 import org.h2.index.Index;
+import org.h2.index.IndexCondition;
 
 /**
  * The plan item describes the index to be used, and the estimated cost when
@@ -22,6 +25,14 @@ public class PlanItem {
     private Index index;
     private PlanItem joinPlan;
     private PlanItem nestedJoinPlan;
+    private ArrayList<IndexCondition> hashJoinConditions;
+    private double hashJoinBuildCost;
+    private double hashJoinProbeCost;
+    private boolean hashJoin;
+    private IndexCondition mergeJoinCondition;
+    private double mergeJoinScanCost;
+    private double mergeJoinProbeCost;
+    private boolean mergeJoin;
 
     void setMasks(int[] masks) {
         this.masks = masks;
@@ -55,4 +66,77 @@ void setNestedJoinPlan(PlanItem nestedJoinPlan) {
         this.nestedJoinPlan = nestedJoinPlan;
     }
 
+    /**
+     * Allow a hash join for this item.
+     *
+     * @param conditions the equality conditions to use as join keys
+     * @param buildCost the cost to read all rows of the table once
+     * @param probeCost the cost of one lookup in the hash table
+     */
+    void setHashJoin(ArrayList<IndexCondition> conditions, double buildCost, double probeCost) {
+        hashJoinConditions = conditions;
+        hashJoinBuildCost = buildCost;
+        hashJoinProbeCost = probeCost;
+    }
+
+    /**
+     * Get the conditions to use as keys of a hash join.
+     *
+     * @return the conditions, or {@code null} if a hash join is not used
+     */
+    ArrayList<IndexCondition> getHashJoinConditions() {
+        return hashJoin ? hashJoinConditions : null;
+    }
+
+    /**
+     * Allow a merge join for this item.
+     *
+     * @param condition the equality condition to use as a join key
+     * @param scanCost the cost to read all rows of the index once
+     * @param probeCost the cost to read rows with the next join key
+     */
+    void setMergeJoin(IndexCondition condition, double scanCost, double probeCost) {
+        mergeJoinCondition = condition;
+        mergeJoinScanCost = scanCost;
+        mergeJoinProbeCost = probeCost;
+    }
+
+    /**
+     * Get the condition to use as a key of a merge join.
+     *
+     * @return the condition, or {@code null} if a merge join is not used
+     */
+    IndexCondition getMergeJoinCondition() {
+        return mergeJoin ? mergeJoinCondition : null;
+    }
+
+    /**
+     * Calculate the cost of joining this item with the rows of the previous
+     * tables. A hash join or a merge join is used instead of a nested loop if
+     * it is allowed and cheaper.
+     *
+     * @param outerCost the cost of the previous tables
+     * @return the cost of the join
+     */
+    double getJoinCost(double outerCost) {
+        double nestedLoopCost = outerCost * cost;
+        hashJoin = false;
+        mergeJoin = false;
+        if (hashJoinConditions != null) {
+            double hashJoinCost = hashJoinBuildCost + outerCost * hashJoinProbeCost;
+            if (hashJoinCost < nestedLoopCost) {
+                hashJoin = true;
+                return hashJoinCost;
+            }
+        }
+        if (mergeJoinCondition != null) {
+            double mergeJoinCost = mergeJoinScanCost + outerCost * mergeJoinProbeCost;
+            if (mergeJoinCost < nestedLoopCost) {
+                mergeJoin = true;
+                return mergeJoinCost;
+            }
+        }
+        return nestedLoopCost;
+    }
+
 }
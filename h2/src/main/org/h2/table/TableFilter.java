@@ -14,15 +14,21 @@
 import org.h2.api.ErrorCode;
 import org.h2.command.query.AllColumnsForPlan;
 import org.h2.command.query.Select;
+import org.h2.engine.Constants;
 import org.h2.engine.Database;
 import org.h2.engine.Right;
 import org.h2.engine.SessionLocal;
 import org.h2.expression.Expression;
+import org.h2.expression.ExpressionColumn;
 import org.h2.expression.condition.Comparison;
 import org.h2.expression.condition.ConditionAndOr;
+import org.h2.index.HashJoinCursor;
 import org.h2.index.Index;
 import org.h2.index.IndexCondition;
 import org.h2.index.IndexCursor;
+import org.h2.index.IndexSort;
+import org.h2.index.MergeJoinCursor;
+import org.h2.index.ProjectionIndex;
 import org.h2.message.DbException;
 import org.h2.result.Row;
 import org.h2.result.SearchRow;
@@ -85,6 +91,18 @@ public class TableFilter implements ColumnResolver {
      */
     private final IndexCursor cursor;
 
+    /**
+     * The cursor used instead of the index cursor if this table is the build
+     * side of a hash join, or {@code null}.
+     */
+    private HashJoinCursor hashJoin;
+
+    /**
+     * The cursor used instead of the index cursor if this table is the inner
+     * side of a merge join, or {@code null}.
+     */
+    private MergeJoinCursor mergeJoin;
+
     /**
      * The index conditions used for direct index lookup (start or end).
      */
@@ -212,6 +230,23 @@ public void lock(SessionLocal s) {
      */
     public PlanItem getBestPlanItem(SessionLocal s, TableFilter[] filters, int filter,
             AllColumnsForPlan allColumnsSet, boolean isSelectCommand) {
+        return getBestPlanItem(s, filters, filter, allColumnsSet, isSelectCommand, null);
+    }
+
+    /**
+     * Get the best plan item (index, cost) to use for the current join
+     * order.
+     *
+     * @param s the session
+     * @param filters all joined table filters
+     * @param filter the current table filter index
+     * @param allColumnsSet the set of all columns
+     * @param first the plan item of the first table filter, or {@code null}
+     *            if this is the first table filter or if it is unknown
+     * @return the best plan item
+     */
+    PlanItem getBestPlanItem(SessionLocal s, TableFilter[] filters, int filter,
+            AllColumnsForPlan allColumnsSet, boolean isSelectCommand, PlanItem first) {
         PlanItem item1 = null;
         SortOrder sortOrder = null;
         if (select != null) {
@@ -261,26 +296,122 @@ public PlanItem getBestPlanItem(SessionLocal s, TableFilter[] filters, int filte
             item = item1;
         }
 
+        if (filter == 0 && filters != null && filters[0] == this) {
+            first = item;
+        } else if (filter > 0 && nestedJoin == null) {
+            if (item.getIndex().getIndexType().isScan()) {
+                setHashJoinCost(s, item);
+            } else if (first != null) {
+                setMergeJoinCost(s, item, filters[0], first.getIndex());
+            }
+        }
+
         if (nestedJoin != null) {
             setEvaluatable(true);
-            item.setNestedJoinPlan(nestedJoin.getBestPlanItem(s, filters, filter, allColumnsSet, isSelectCommand));
+            item.setNestedJoinPlan(
+                    nestedJoin.getBestPlanItem(s, filters, filter, allColumnsSet, isSelectCommand, first));
             // TODO optimizer: calculate cost of a join: should use separate
             // expected row number and lookup cost
-            item.cost += item.cost * item.getNestedJoinPlan().cost;
+            item.cost += item.getNestedJoinPlan().getJoinCost(item.cost);
         }
         if (join != null) {
             setEvaluatable(true);
             do {
                 filter++;
             } while (filters[filter] != join);
-            item.setJoinPlan(join.getBestPlanItem(s, filters, filter, allColumnsSet, isSelectCommand));
+            item.setJoinPlan(join.getBestPlanItem(s, filters, filter, allColumnsSet, isSelectCommand, first));
             // TODO optimizer: calculate cost of a join: should use separate
             // expected row number and lookup cost
-            item.cost += item.cost * item.getJoinPlan().cost;
+            item.cost += item.getJoinPlan().getJoinCost(item.cost);
         }
         return item;
     }
 
+    /**
+     * Allow a hash join for the specified plan item if there are equality
+     * conditions with the previous tables that can be used as join keys.
+     *
+     * @param s the session
+     * @param item the plan item with the scan index
+     */
+    private void setHashJoinCost(SessionLocal s, PlanItem item) {
+        Database db = s.getDatabase();
+        if (!db.getSettings().optimizeHashJoin || select == null || select.getForUpdate() != null
+                || table.getTableType() != TableType.TABLE) {
+            return;
+        }
+        ArrayList<IndexCondition> conditions = null;
+        int totalSelectivity = 0;
+        for (IndexCondition condition : indexConditions) {
+            if (condition.isEvaluatable() && HashJoinCursor.isHashJoinCondition(db, condition)) {
+                if (conditions == null) {
+                    conditions = Utils.newSmallArrayList();
+                }
+                conditions.add(condition);
+                totalSelectivity = 100 - ((100 - totalSelectivity) *
+                        (100 - condition.getColumn().getSelectivity()) / 100);
+            }
+        }
+        if (conditions != null) {
+            long rowCount = table.getRowCountApproximation(s);
+            if (rowCount < Constants.COST_ROW_OFFSET) {
+                // small tables are scanned quickly, building the hash table
+                // doesn't pay off
+                return;
+            }
+            long distinctRows = Math.max(rowCount * totalSelectivity / 100, 1);
+            // a probe costs as much as an equality lookup in the scan index,
+            // see Index.getCostRangeIndex() and MVPrimaryIndex.getCost(), so a
+            // usable secondary index is still preferred
+            long rowsCost = 2 + Math.max(rowCount / distinctRows, 1);
+            item.setHashJoin(conditions, item.cost, 10 * (rowsCost + 20));
+        }
+    }
+
+    /**
+     * Allow a merge join for the specified plan item if rows of the first
+     * table are sorted by a column used in an equality condition with the
+     * first column of the index.
+     *
+     * @param s the session
+     * @param item the plan item with the index
+     * @param outer the first table filter
+     * @param outerIndex the index of the first table filter in this plan
+     */
+    private void setMergeJoinCost(SessionLocal s, PlanItem item, TableFilter outer, Index outerIndex) {
+        if (!s.getDatabase().getSettings().optimizeMergeJoin || select == null || select.getForUpdate() != null) {
+            return;
+        }
+        long rowCount = table.getRowCountApproximation(s);
+        if (rowCount < Constants.COST_ROW_OFFSET) {
+            // small indexes are cached, lookups are cheap enough
+            return;
+        }
+        Index index = item.getIndex();
+        IndexSort outerSort = new IndexSort(outerIndex, false);
+        IndexCondition mergeJoinCondition = null;
+        for (IndexCondition condition : indexConditions) {
+            if (!condition.isEvaluatable()) {
+                continue;
+            }
+            if (mergeJoinCondition == null && MergeJoinCursor.isMergeJoinCondition(index, condition, outer)
+                    && outerSort.isAscending(((ExpressionColumn) condition.getExpression()).getColumn())) {
+                mergeJoinCondition = condition;
+            } else if (condition.isCompoundColumns() || index.getColumnIndex(condition.getColumn()) >= 0) {
+                // the merge join can't use other conditions for this index
+                return;
+            }
+        }
+        if (mergeJoinCondition != null) {
+            rowCount += Constants.COST_ROW_OFFSET;
+            long distinctRows = Math.max(rowCount * mergeJoinCondition.getColumn().getSelectivity() / 100, 1);
+            // one pass over the index and sequential reads of rows with the
+            // same key instead of a new lookup for each outer row
+            item.setMergeJoin(mergeJoinCondition, 10 * rowCount,
+                    10 * (2 + Math.max(rowCount / distinctRows, 1)));
+        }
+    }
+
     /**
      * Set what plan item (index, cost, masks) to use.
      *
@@ -293,6 +424,14 @@ public void setPlanItem(PlanItem item) {
             return;
         }
         setIndex(item.getIndex(), false);
+        ArrayList<IndexCondition> hashJoinConditions = item.getHashJoinConditions();
+        if (hashJoinConditions != null) {
+            hashJoin = new HashJoinCursor(index, hashJoinConditions);
+        }
+        IndexCondition mergeJoinCondition = item.getMergeJoinCondition();
+        if (mergeJoinCondition != null) {
+            mergeJoin = new MergeJoinCursor(index, mergeJoinCondition);
+        }
         masks = item.getMasks();
         if (nestedJoin != null) {
             if (item.getNestedJoinPlan() != null) {
@@ -373,6 +512,10 @@ public void prepare() {
                             // The first column of the index always matches.
                             continue;
                         }
+                        if (index.isFindSkippingByColumnBounds() && (condition.isStart() || condition.isEnd())) {
+                            // The index can skip rows using bounds of any column.
+                            continue;
+                        }
                         if (columnIndex < 0 || condition.getCompareType() == Comparison.IN_LIST ) {
                             // The index does not contain the column, or this is an IN() condition which can be used
                             // only if the first index column is the searched one.
@@ -412,6 +555,13 @@ public void prepare() {
     public void startQuery(SessionLocal s) {
         this.session = s;
         scanCount = 0;
+        cursor.resetSkippedPageCount();
+        if (hashJoin != null) {
+            hashJoin.reset();
+        }
+        if (mergeJoin != null) {
+            mergeJoin.reset();
+        }
         if (nestedJoin != null) {
             nestedJoin.startQuery(s);
         }
@@ -420,6 +570,56 @@ public void startQuery(SessionLocal s) {
         }
     }
 
+    /**
+     * Release the rows collected for a hash join or a merge join, if any. This
+     * method does not process joined tables.
+     */
+    public void endQuery() {
+        if (hashJoin != null) {
+            hashJoin.reset();
+        }
+        if (mergeJoin != null) {
+            mergeJoin.reset();
+        }
+    }
+
+    /**
+     * Disable the merge join if rows of the specified first table filter are
+     * not sorted by the join key any more, for example, because its index was
+     * changed to avoid sorting of results.
+     *
+     * @param top the first table filter
+     */
+    public void checkMergeJoin(TableFilter top) {
+        if (mergeJoin != null
+                && !new IndexSort(top.index, top.cursor.isReverse()).isAscending(mergeJoin.getOuterColumn())) {
+            mergeJoin = null;
+        }
+    }
+
+    /**
+     * Read only the columns used by the query if the index of this table filter
+     * can read only some columns of the rows.
+     *
+     * @param allColumnsSet the columns used by the query
+     */
+    public void setColumnsToRead(AllColumnsForPlan allColumnsSet) {
+        boolean[] projection = null;
+        if (index instanceof ProjectionIndex) {
+            projection = new boolean[table.getColumns().length];
+            ArrayList<Column> columns = allColumnsSet.get(table);
+            if (columns != null) {
+                for (Column column : columns) {
+                    int columnId = column.getColumnId();
+                    if (columnId >= 0) {
+                        projection[columnId] = true;
+                    }
+                }
+            }
+        }
+        cursor.setProjection(projection);
+    }
+
     /**
      * Reset to the current position.
      */
@@ -443,7 +643,13 @@ public boolean next() {
         if (state == AFTER_LAST) {
             return false;
         } else if (state == BEFORE_FIRST) {
-            cursor.find(session, indexConditions);
+            if (hashJoin != null) {
+                hashJoin.find(session);
+            } else if (mergeJoin != null) {
+                mergeJoin.find(session);
+            } else {
+                cursor.find(session, indexConditions);
+            }
             if (!cursor.isAlwaysFalse()) {
                 if (nestedJoin != null) {
                     nestedJoin.reset();
@@ -474,7 +680,23 @@ public boolean next() {
                 if ((++scanCount & 4095) == 0) {
                     checkTimeout();
                 }
-                if (cursor.next()) {
+                if (hashJoin != null) {
+                    if (hashJoin.next()) {
+                        current = hashJoin.get();
+                        currentSearchRow = current;
+                        state = FOUND;
+                    } else {
+                        state = AFTER_LAST;
+                    }
+                } else if (mergeJoin != null) {
+                    if (mergeJoin.next()) {
+                        current = mergeJoin.get();
+                        currentSearchRow = current;
+                        state = FOUND;
+                    } else {
+                        state = AFTER_LAST;
+                    }
+                } else if (cursor.next()) {
                     currentSearchRow = cursor.getSearchRow();
                     current = null;
                     state = FOUND;
@@ -526,6 +748,35 @@ public boolean next() {
         return false;
     }
 
+    /**
+     * Read the next rows of this table filter into the specified array. This
+     * method may be used instead of {@link #next()} only for a single table
+     * filter without joins and filter conditions.
+     *
+     * @param rows the array to fill
+     * @return the number of rows, it is less than the length of the array only
+     *         if there are no more rows
+     */
+    public int nextBatch(Row[] rows) {
+        if (state == AFTER_LAST) {
+            return 0;
+        } else if (state == BEFORE_FIRST) {
+            cursor.find(session, indexConditions);
+            state = FOUND;
+        }
+        if (cursor.isAlwaysFalse()) {
+            state = AFTER_LAST;
+            return 0;
+        }
+        checkTimeout();
+        int count = cursor.next(rows);
+        scanCount += count;
+        if (count < rows.length) {
+            state = AFTER_LAST;
+        }
+        return count;
+    }
+
     public boolean isNullRow() {
         return state == NULL_ROW;
     }
@@ -825,13 +1076,22 @@ public StringBuilder getPlanSQL(StringBuilder builder, boolean isJoin, int sqlFl
         if (index != null && (sqlFlags & HasSQL.ADD_PLAN_INFORMATION) != 0) {
             builder.append('\n');
             StringBuilder planBuilder = new StringBuilder().append("/* ").append(index.getPlanSQL());
-            if (!indexConditions.isEmpty()) {
+            ArrayList<IndexCondition> conditions = indexConditions;
+            if (hashJoin != null) {
+                planBuilder.append(" HASH JOIN");
+                conditions = hashJoin.getConditions();
+            } else if (mergeJoin != null) {
+                planBuilder.append(" MERGE JOIN");
+                conditions = new ArrayList<>(1);
+                conditions.add(mergeJoin.getCondition());
+            }
+            if (!conditions.isEmpty()) {
                 planBuilder.append(": ");
-                for (int i = 0, size = indexConditions.size(); i < size; i++) {
+                for (int i = 0, size = conditions.size(); i < size; i++) {
                     if (i > 0) {
                         planBuilder.append("\n    AND ");
                     }
-                    planBuilder.append(indexConditions.get(i).getSQL(
+                    planBuilder.append(conditions.get(i).getSQL(
                             HasSQL.TRACE_SQL_FLAGS | HasSQL.ADD_PLAN_INFORMATION));
                 }
             }
@@ -861,6 +1121,10 @@ public StringBuilder getPlanSQL(StringBuilder builder, boolean isJoin, int sqlFl
             if (scanCount > 0) {
                 builder.append("\n    /* scanCount: ").append(scanCount).append(" */");
             }
+            long skippedPageCount = cursor.getSkippedPageCount();
+            if (skippedPageCount > 0) {
+                builder.append("\n    /* skippedPageCount: ").append(skippedPageCount).append(" */");
+            }
         }
         return builder;
     }
@@ -886,8 +1150,19 @@ public Index getIndex() {
         return index;
     }
 
+    /**
+     * Get the index conditions of this table filter.
+     *
+     * @return the index conditions
+     */
+    public ArrayList<IndexCondition> getIndexConditions() {
+        return indexConditions;
+    }
+
     public void setIndex(Index index, boolean reverse) {
         this.index = index;
+        hashJoin = null;
+        mergeJoin = null;
         cursor.setIndex(index, reverse);
     }
 
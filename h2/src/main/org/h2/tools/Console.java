@@ -144,6 +144,10 @@ public void runTool(String... args) throws SQLException {
                     // no parameters
                 } else if ("-tcpVirtualThreads".equals(arg)) {
                     i++;
+                } else if ("-tcpWorkerThreads".equals(arg)) {
+                    i++;
+                } else if ("-tcpMaxConnections".equals(arg)) {
+                    i++;
                 } else if ("-tcpSSL".equals(arg)) {
                     // no parameters
                 } else if ("-tcpPort".equals(arg)) {
@@ -169,6 +173,10 @@ public void runTool(String... args) throws SQLException {
                     // no parameters
                 } else if ("-pgVirtualThreads".equals(arg)) {
                     i++;
+                } else if ("-pgWorkerThreads".equals(arg)) {
+                    i++;
+                } else if ("-pgMaxConnections".equals(arg)) {
+                    i++;
                 } else if ("-pgPort".equals(arg)) {
                     i++;
                 } else {
@@ -96,6 +96,10 @@ public Server(Service service, String... args) throws SQLException {
      * <td>Use a daemon thread</td></tr>
      * <tr><td>[-tcpVirtualThreads &lt;true|false&gt;]</td>
      * <td>Use virtual threads (on Java 21+ only)</td></tr>
+     * <tr><td>[-tcpWorkerThreads &lt;count&gt;]</td>
+     * <td>Serve connections with a pool of worker threads (not with -tcpSSL)</td></tr>
+     * <tr><td>[-tcpMaxConnections &lt;count&gt;]</td>
+     * <td>The maximum number of connections (with -tcpWorkerThreads)</td></tr>
      * <tr><td>[-tcpPort &lt;port&gt;]</td>
      * <td>The port (default: 9092)</td></tr>
      * <tr><td>[-tcpSSL]</td>
@@ -114,6 +118,10 @@ public Server(Service service, String... args) throws SQLException {
      * <td>Use a daemon thread</td></tr>
      * <tr><td>[-pgVirtualThreads &lt;true|false&gt;]</td>
      * <td>Use virtual threads (on Java 21+ only)</td></tr>
+     * <tr><td>[-pgWorkerThreads &lt;count&gt;]</td>
+     * <td>Serve connections with a pool of worker threads</td></tr>
+     * <tr><td>[-pgMaxConnections &lt;count&gt;]</td>
+     * <td>The maximum number of connections (with -pgWorkerThreads)</td></tr>
      * <tr><td>[-pgPort &lt;port&gt;]</td>
      * <td>The port (default: 5435)</td></tr>
      * <tr><td>[-properties "&lt;dir&gt;"]</td>
@@ -182,6 +190,10 @@ private void verifyArgs(String... args) throws SQLException {
                     // no parameters
                 } else if ("-tcpVirtualThreads".equals(arg)) {
                     i++;
+                } else if ("-tcpWorkerThreads".equals(arg)) {
+                    i++;
+                } else if ("-tcpMaxConnections".equals(arg)) {
+                    i++;
                 } else if ("-tcpSSL".equals(arg)) {
                     // no parameters
                 } else if ("-tcpPort".equals(arg)) {
@@ -204,6 +216,10 @@ private void verifyArgs(String... args) throws SQLException {
                     // no parameters
                 } else if ("-pgVirtualThreads".equals(arg)) {
                     i++;
+                } else if ("-pgWorkerThreads".equals(arg)) {
+                    i++;
+                } else if ("-pgMaxConnections".equals(arg)) {
+                    i++;
                 } else if ("-pgPort".equals(arg)) {
                     i++;
                 } else {
@@ -292,6 +308,10 @@ public void runTool(String... args) throws SQLException {
                     // no parameters
                 } else if ("-tcpDaemon".equals(arg)) {
                     // no parameters
+                } else if ("-tcpWorkerThreads".equals(arg)) {
+                    i++;
+                } else if ("-tcpMaxConnections".equals(arg)) {
+                    i++;
                 } else if ("-tcpSSL".equals(arg)) {
                     // no parameters
                 } else if ("-tcpPort".equals(arg)) {
@@ -315,6 +335,10 @@ public void runTool(String... args) throws SQLException {
                     // no parameters
                 } else if ("-pgDaemon".equals(arg)) {
                     // no parameters
+                } else if ("-pgWorkerThreads".equals(arg)) {
+                    i++;
+                } else if ("-pgMaxConnections".equals(arg)) {
+                    i++;
                 } else if ("-pgPort".equals(arg)) {
                     i++;
                 } else {
@@ -496,6 +520,7 @@ static Server createWebServer(String[] args, String key, boolean allowSecureCrea
      * </pre>
      * Supported options are:
      * -tcpPort, -tcpSSL, -tcpPassword, -tcpAllowOthers, -tcpDaemon,
+     * -tcpWorkerThreads, -tcpMaxConnections,
      * -trace, -ifExists, -ifNotExists, -baseDir, -key.
      * See the main method for details.
      * <p>
@@ -524,6 +549,7 @@ public static Server createTcpServer(String... args) throws SQLException {
      * </pre>
      * Supported options are:
      * -pgPort, -pgAllowOthers, -pgDaemon,
+     * -pgWorkerThreads, -pgMaxConnections,
      * -trace, -ifExists, -ifNotExists, -baseDir, -key.
      * See the main method for details.
      * <p>
@@ -13,6 +13,7 @@
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.UnknownHostException;
+import java.nio.channels.ServerSocketChannel;
 
 import org.h2.api.ErrorCode;
 import org.h2.engine.SysProperties;
@@ -173,6 +174,22 @@ public static ServerSocket createServerSocket(int port, boolean ssl) {
         }
     }
 
+    /**
+     * Create a server socket channel for non-blocking accept. The system
+     * property h2.bindAddress is used if set.
+     *
+     * @param port the port to listen on
+     * @return the server socket channel
+     */
+    public static ServerSocketChannel createServerSocketChannel(int port) {
+        try {
+            return createServerSocketChannelTry(port);
+        } catch (Exception e) {
+            // try again
+            return createServerSocketChannelTry(port);
+        }
+    }
+
     /**
      * Get the bind address if the system property h2.bindAddress is set, or
      * null if not.
@@ -210,6 +227,22 @@ private static ServerSocket createServerSocketTry(int port, boolean ssl) {
         }
     }
 
+    private static ServerSocketChannel createServerSocketChannelTry(int port) {
+        ServerSocketChannel channel = null;
+        try {
+            channel = ServerSocketChannel.open();
+            channel.bind(new InetSocketAddress(getBindAddress(), port));
+            return channel;
+        } catch (BindException be) {
+            IOUtils.closeSilently(channel);
+            throw DbException.get(ErrorCode.EXCEPTION_OPENING_PORT_2,
+                    be, Integer.toString(port), be.toString());
+        } catch (IOException e) {
+            IOUtils.closeSilently(channel);
+            throw DbException.convertIOException(e, "port: " + port);
+        }
+    }
+
     /**
      * Check if a socket is connected to a local address.
      *
@@ -764,6 +764,25 @@ public static ThreadPoolExecutor createSingleThreadExecutor(String threadName, B
                                         });
     }
 
+    /**
+     * Creates a thread pool with the specified number of daemon threads. Idle
+     * threads are terminated after a while.
+     *
+     * @param threadName the name of threads
+     * @param threads the maximum number of threads
+     * @return the new executor
+     */
+    public static ThreadPoolExecutor createThreadPool(String threadName, int threads) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 10L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread thread = new Thread(r, threadName);
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
     /**
      * Makes sure that all currently submitted tasks are processed before this method returns.
      * It is assumed that there will be no new submissions to this executor, once this method has started.
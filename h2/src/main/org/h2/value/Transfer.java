@@ -25,6 +25,8 @@
 
 import org.h2.api.ErrorCode;
 import org.h2.api.IntervalQualifier;
+import org.h2.compress.LZFInputStream;
+import org.h2.compress.LZFOutputStream;
 import org.h2.engine.Constants;
 import org.h2.engine.Session;
 import org.h2.message.DbException;
@@ -208,6 +210,35 @@ public void init() throws IOException {
         }
     }
 
+    /**
+     * Get the number of bytes that can be read without blocking.
+     *
+     * @return the number of bytes
+     * @throws IOException on failure
+     */
+    public int available() throws IOException {
+        return in.available();
+    }
+
+    /**
+     * Compress all data that is sent and received from now on. Both sides of
+     * the connection must call this method at the same point of the protocol.
+     * Pending changes are written.
+     *
+     * @throws IOException on failure
+     */
+    public void setCompressed() throws IOException {
+        lock();
+        try {
+            out = new DataOutputStream(new LZFOutputStream(out));
+            // the other side reads the header before it sends anything
+            out.flush();
+            in = new DataInputStream(new LZFInputStream(in));
+        } finally {
+            unlock();
+        }
+    }
+
     /**
      * Write pending changes.
      * @throws IOException on failure
@@ -95,6 +95,7 @@ public void test() throws Exception {
         testReadManyLobs();
         testLobSkip();
         testLobSkipPastEnd();
+        testNetworkCompression();
         testCreateIndexOnLob();
         testBlobInputStreamSeek(true);
         testBlobInputStreamSeek(false);
@@ -383,6 +384,52 @@ private void testLobSkipPastEnd() throws Exception {
         conn.close();
     }
 
+    private void testNetworkCompression() throws Exception {
+        deleteDb("lob");
+        Connection conn = getConnection("lob;NETWORK_COMPRESSION=TRUE");
+        Statement stat = conn.createStatement();
+        stat.execute("create table test(id int primary key, b blob, c clob)");
+        byte[] data = new byte[1_500_000];
+        Random random = new Random(1);
+        for (int i = 0; i < data.length; i++) {
+            // alternate random and compressible blocks
+            data[i] = (byte) ((i / 1000 & 1) == 0 ? random.nextInt() : i % 7);
+        }
+        String text = new String(new char[100_000]).replace((char) 0, 'x');
+        PreparedStatement prep = conn.prepareStatement("insert into test values(?, ?, ?)");
+        for (int i = 0; i < 3; i++) {
+            prep.setInt(1, i);
+            prep.setBytes(2, data);
+            prep.setString(3, text + i);
+            prep.execute();
+        }
+        ResultSet rs = stat.executeQuery("select * from test order by id");
+        for (int i = 0; i < 3; i++) {
+            assertTrue(rs.next());
+            assertEquals(i, rs.getInt(1));
+            InputStream in = rs.getBinaryStream(2);
+            assertEquals(1000, in.skip(1000));
+            assertEquals(data[1000], (byte) in.read());
+            byte[] d2 = new byte[data.length];
+            d2[1000] = data[1000];
+            for (int pos = 1001, l; pos < d2.length; pos += l) {
+                l = in.read(d2, pos, Math.min(pos % 70_000 + 1, d2.length - pos));
+                assertTrue(l > 0);
+            }
+            assertEquals(-1, in.read());
+            assertEquals(Arrays.copyOfRange(data, 1000, data.length), Arrays.copyOfRange(d2, 1000, d2.length));
+            assertEquals(text + i, rs.getString(3));
+        }
+        assertFalse(rs.next());
+        rs = stat.executeQuery("select x, space(x) from system_range(1, 2000)");
+        for (int i = 1; i <= 2000; i++) {
+            assertTrue(rs.next());
+            assertEquals(i, rs.getString(2).length());
+        }
+        stat.execute("drop table test");
+        conn.close();
+    }
+
     private void testCreateIndexOnLob() throws Exception {
         if (config.memory) {
             return;
@@ -1130,7 +1177,7 @@ private void testUpdateLob() throws SQLException {
         prep.execute();
         prep.close();
         prep = conn.prepareStatement("INSERT INTO p(id) VALUES(?);");
-        for (int i = 0; i < 10; i++) {
+        for (int i = 0; i < 3; i++) {
             prep.setInt(1, i);
             prep.execute();
         }
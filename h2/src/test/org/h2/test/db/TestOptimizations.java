@@ -72,9 +72,16 @@ public void test() throws Exception {
         }
         testOptimizeInJoinSelect();
         testOptimizeInJoin();
+        testHashJoin();
+        testMergeJoin();
+        testVectorizedExecution();
+        testZoneMaps();
+        testParallelAggregation();
+        testJoinOrder();
         testMultiColumnRangeQuery();
         testDistinctOptimization();
         testQueryCacheTimestamp();
+        testPlanCache();
         if (!config.lazy) {
             testQueryCacheSpeed();
         }
@@ -620,6 +627,259 @@ private void testOptimizeInJoin() throws SQLException {
         conn.close();
     }
 
+    private void testHashJoin() throws SQLException {
+        deleteDb("optimizations");
+        Connection conn = getConnection("optimizations");
+        Statement stat = conn.createStatement();
+        stat.execute("create table a(id int primary key, x int)");
+        stat.execute("create table b(id int primary key, y int)");
+        stat.execute("insert into a select x, mod(x, 10) from system_range(1, 1000)");
+        stat.execute("insert into b select x, mod(x, 20) from system_range(1, 500)");
+        stat.execute("insert into b values (0, null)");
+        long count = 0, sum = 0;
+        for (int a = 1; a <= 1000; a++) {
+            for (int b = 1; b <= 500; b++) {
+                if (a % 10 == b % 20) {
+                    count++;
+                    sum += a + b;
+                }
+            }
+        }
+        String sql = "select count(*), sum(a.id + b.id) from a join b on a.x = b.y";
+        ResultSet rs = stat.executeQuery("explain " + sql);
+        rs.next();
+        assertContains(rs.getString(1), "HASH JOIN");
+        assertResult(count + "", stat, sql);
+        rs = stat.executeQuery(sql);
+        rs.next();
+        assertEquals(sum, rs.getLong(2));
+        // unmatched rows of B and the row with NULL
+        assertResult(count + 251 + "", stat, "select count(*) from b left join a on a.x = b.y");
+        // the build side is moved to a temporary file
+        stat.execute("set max_memory_rows 100");
+        rs = stat.executeQuery(sql);
+        rs.next();
+        assertEquals(count, rs.getLong(1));
+        assertEquals(sum, rs.getLong(2));
+        assertResult(count + 251 + "", stat, "select count(*) from b left join a on a.x = b.y");
+        conn.close();
+    }
+
+    private void testMergeJoin() throws SQLException {
+        deleteDb("optimizations");
+        Connection conn = getConnection("optimizations");
+        Statement stat = conn.createStatement();
+        stat.execute("create table a(id int primary key, x int)");
+        stat.execute("create table b(id int primary key, y int)");
+        stat.execute("create index b_y on b(y)");
+        stat.execute("insert into a select x, mod(x, 10) from system_range(1, 20000)");
+        stat.execute("insert into b select x, x / 2 from system_range(1, 2000)");
+        stat.execute("insert into b values (0, null), (2001, 30000)");
+        long count = 0, sum = 0;
+        for (int b = 1; b <= 2000; b++) {
+            count++;
+            sum += b + b / 2;
+        }
+        // B.Y = 0 has no matching row in A
+        count--;
+        sum--;
+        String sql = "select count(*), sum(a.id + b.id) from b join a on a.id = b.y";
+        ResultSet rs = stat.executeQuery("explain " + sql);
+        rs.next();
+        assertContains(rs.getString(1), "MERGE JOIN");
+        rs = stat.executeQuery(sql);
+        rs.next();
+        assertEquals(count, rs.getLong(1));
+        assertEquals(sum, rs.getLong(2));
+        // unmatched rows of B and the row with NULL
+        assertResult(count + 3 + "", stat, "select count(*) from b left join a on a.id = b.y");
+        // rows of B may be read in descending order, they can't be merged
+        // with rows of A
+        sql = "select b.y, a.id from b join a on a.id = b.y order by b.y desc";
+        rs = stat.executeQuery("explain " + sql);
+        rs.next();
+        assertFalse(rs.getString(1).contains("MERGE JOIN"));
+        rs = stat.executeQuery(sql);
+        for (int y = 1000; y >= 1; y--) {
+            for (int i = y == 1000 ? 1 : 2; i > 0; i--) {
+                assertTrue(rs.next());
+                assertEquals(y, rs.getInt(1));
+                assertEquals(y, rs.getInt(2));
+            }
+        }
+        assertFalse(rs.next());
+        conn.close();
+    }
+
+    private void testJoinOrder() throws SQLException {
+        deleteDb("optimizations");
+        Connection conn = getConnection("optimizations");
+        Statement stat = conn.createStatement();
+        int count = 12;
+        // a chain of tables, each one referencing the next one
+        StringBuilder from = new StringBuilder(), where = new StringBuilder("t1.x = 10");
+        for (int i = 1; i <= count; i++) {
+            stat.execute("create table t" + i + "(id int primary key, x int, r int)");
+            stat.execute("create index t" + i + "_x on t" + i + "(x)");
+            stat.execute("insert into t" + i + " select x, x, x + 1 from system_range(1, " + i * 100 + ")");
+            if (i > 1) {
+                from.append(", ");
+                where.append(" and t").append(i).append(".id = t").append(i - 1).append(".r");
+            }
+            // tables are listed in reverse order
+            from.append('t').append(count + 1 - i);
+        }
+        String sql = "select count(*) from " + from + " where " + where;
+        ResultSet rs = stat.executeQuery("explain " + sql);
+        rs.next();
+        String plan = rs.getString(1);
+        assertTrue(plan, plan.indexOf("PUBLIC.T1_X: X = 10") < plan.indexOf("\"PUBLIC\".\"T2\""));
+        assertFalse(plan, plan.contains("tableScan"));
+        rs = stat.executeQuery("explain " + sql);
+        rs.next();
+        assertEquals(plan, rs.getString(1));
+        assertSingleValue(stat, sql, 1);
+        // all tables are connected, too many sub-plans for the dynamic
+        // programming
+        where.setLength(0);
+        where.append("t1.x = 10");
+        for (int i = 2; i <= count; i++) {
+            for (int j = 1; j < i; j++) {
+                where.append(" and t").append(i).append(".x = t").append(j).append(".x");
+            }
+        }
+        sql = "select count(*) from " + from + " where " + where;
+        rs = stat.executeQuery("explain " + sql);
+        rs.next();
+        plan = rs.getString(1);
+        assertFalse(plan, plan.contains("tableScan"));
+        assertSingleValue(stat, sql, 1);
+        conn.close();
+    }
+
+    private void testVectorizedExecution() throws SQLException {
+        deleteDb("optimizations");
+        Connection conn = getConnection("optimizations");
+        Statement stat = conn.createStatement();
+        stat.execute("create table test(id int primary key, i int, b bigint, d double, dt date)");
+        stat.execute("insert into test select x, nullif(mod(x, 1000), 7), "
+                + "casewhen(mod(x, 5) = 0, null, 4000000000000000000 + x), "
+                + "mod(x, 200) / 4e0 - 10, date '2020-01-01' + mod(x, 400) from system_range(1, 5000)");
+        String[] queries = {
+                "select count(*), count(i), sum(i), avg(i), min(i), max(i) from test",
+                "select count(b), sum(b), avg(b), min(b), max(b) from test where i > 10 and i <= 900",
+                "select sum(d), avg(d), min(d), max(d), count(d) from test where d < 20.5 or not (i < 990)",
+                "select min(dt), max(dt), count(*) from test where dt >= date '2020-02-01' and dt < date '2020-05-01'",
+                "select sum(i + 1) * 2, max(i * 2) + 1, min(id - i) from test where d <> 0",
+                "select count(*), sum(i) from test where d is null or i > 500",
+                "select id, i, d from test where i >= 100 and d < 0 and mod(id, 3) = 0 order by id",
+                "select id, dt from test where i = 500 or b > 4000000000000004000 limit 10",
+                "select id from test where b + 1 > 4000000000000004000 and i < 10",
+        };
+        ArrayList<String> expected = new ArrayList<>();
+        for (String sql : queries) {
+            expected.add(getResult(stat.executeQuery(sql)));
+        }
+        PreparedStatement prep = conn.prepareStatement("select count(*), sum(d) from test where i >= ? and i < ?");
+        prep.setInt(1, 100);
+        prep.setInt(2, 200);
+        String expectedPrepared = getResult(prep.executeQuery());
+        conn.close();
+        conn = getConnection("optimizations;VECTORIZED_EXECUTION=TRUE");
+        stat = conn.createStatement();
+        for (int i = 0; i < queries.length; i++) {
+            assertEquals(queries[i], expected.get(i), getResult(stat.executeQuery(queries[i])));
+        }
+        prep = conn.prepareStatement("select count(*), sum(d) from test where i >= ? and i < ?");
+        prep.setInt(1, 100);
+        prep.setInt(2, 200);
+        assertEquals(expectedPrepared, getResult(prep.executeQuery()));
+        assertThrows(ErrorCode.NUMERIC_VALUE_OUT_OF_RANGE_1, stat).executeQuery("select sum(b * 3) from test");
+        conn.close();
+    }
+
+    private void testZoneMaps() throws SQLException {
+        deleteDb("optimizations");
+        Connection conn = getConnection("optimizations;ZONE_MAPS=TRUE");
+        Statement stat = conn.createStatement();
+        stat.execute("create table test(a int, b varchar)");
+        stat.execute("insert into test select x, 'v' || x from system_range(1, 10000)");
+        Connection conn2 = getConnection("optimizations");
+        conn2.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+        conn2.setAutoCommit(false);
+        Statement stat2 = conn2.createStatement();
+        assertSingleValue(stat2, "select count(*) from test where a between 5000 and 5010", 11);
+        assertSingleValue(stat, "select count(*) from test where a between 5000 and 5010", 11);
+        ResultSet rs = stat.executeQuery("explain analyze select * from test where a between 5000 and 5010");
+        rs.next();
+        assertContains(rs.getString(1), "/* skippedPageCount: 9 */");
+        stat.execute("update test set a = 5005 where a = 1");
+        stat.execute("insert into test(_rowid_, a) values (-5, 5001)");
+        assertSingleValue(stat, "select count(*) from test where a between 5000 and 5010", 13);
+        // the snapshot of an older transaction doesn't use the zone map
+        assertSingleValue(stat2, "select count(*) from test where a between 5000 and 5010", 11);
+        assertSingleValue(stat, "select count(*) from test where a between 5000 and 5010 and _rowid_ < 100", 2);
+        assertSingleValue(stat, "select count(*) from test where b = 'v7000' and a > 6000", 1);
+        stat.execute("delete from test where a > 9000");
+        assertSingleValue(stat, "select count(*) from test where a > 8990", 10);
+        stat.execute("truncate table test");
+        stat.execute("insert into test values (7, 'x')");
+        assertSingleValue(stat, "select count(*) from test where a = 7", 1);
+        conn2.close();
+        conn.close();
+    }
+
+    private void testParallelAggregation() throws SQLException {
+        deleteDb("optimizations");
+        Connection conn = getConnection("optimizations");
+        Statement stat = conn.createStatement();
+        stat.execute("create table test(id int primary key, k int, v bigint, d double, s varchar, "
+                + "c varchar_ignorecase)");
+        stat.execute("insert into test select x, mod(x, 17), nullif(mod(x * 7, 1000), 3), mod(x, 100) / 8e0, "
+                + "'s' || mod(x, 5), casewhen(mod(x, 2) = 0, 'C', 'c') || mod(x, 3) from system_range(1, 50000)");
+        String[] queries = {
+                "select count(*), count(v), sum(v), avg(v), min(v), max(v), sum(d), min(d) from test",
+                "select k, count(*), sum(v), avg(d), max(v) - min(v) from test where v > 100 group by k order by k",
+                "select s, k, count(v) from test where d < 5 or id > 45000 group by s, k order by s, k",
+                "select k, sum(v) from test group by k having count(*) > 2941 order by k",
+                "select count(*), sum(v) from test where id < 0",
+                "select k, count(*) from test where id < 0 group by k",
+                // groups of different values that are equal ignoring case
+                "select count(*), sum(v) from test group by c order by 2",
+        };
+        ArrayList<String> expected = new ArrayList<>();
+        for (String sql : queries) {
+            expected.add(getResult(stat.executeQuery(sql)));
+        }
+        ResultSet rs = stat.executeQuery("explain " + queries[1]);
+        rs.next();
+        assertFalse(rs.getString(1).contains("/* parallel"));
+        stat.execute("set max_parallel_workers 4");
+        for (int i = 0; i < queries.length; i++) {
+            assertEquals(queries[i], expected.get(i), getResult(stat.executeQuery(queries[i])));
+        }
+        rs = stat.executeQuery("explain " + queries[1]);
+        rs.next();
+        assertContains(rs.getString(1), "/* parallel: 4 workers */");
+        rs = stat.executeQuery("explain select k, count(*) from test where mod(id, 2) = 0 group by k");
+        rs.next();
+        assertFalse(rs.getString(1).contains("/* parallel"));
+        assertThrows(ErrorCode.INVALID_VALUE_2, stat).execute("set max_parallel_workers 0");
+        conn.close();
+    }
+
+    private static String getResult(ResultSet rs) throws SQLException {
+        StringBuilder builder = new StringBuilder();
+        int columnCount = rs.getMetaData().getColumnCount();
+        while (rs.next()) {
+            for (int i = 1; i <= columnCount; i++) {
+                builder.append(rs.getString(i)).append(' ');
+            }
+            builder.append('\n');
+        }
+        return builder.toString();
+    }
+
     private void testMinMaxNullOptimization() throws SQLException {
         deleteDb("optimizations");
         Connection conn = getConnection("optimizations");
@@ -786,6 +1046,57 @@ private void testQueryCacheTimestamp() throws Exception {
         conn.close();
     }
 
+    private void testPlanCache() throws SQLException {
+        deleteDb("optimizations");
+        Connection conn = getConnection("optimizations");
+        Connection conn2 = getConnection("optimizations");
+        Statement stat = conn.createStatement();
+        stat.execute("create table a(id int primary key, x int)");
+        stat.execute("create table b(id int primary key, y int)");
+        stat.execute("insert into a select x, x from system_range(1, 100)");
+        stat.execute("insert into b select x, x from system_range(1, 1000)");
+        String sql = "select count(*) from b, a where a.id = b.y and a.x < ?";
+        long hits = getPlanCacheInfo(stat, "HITS"), misses = getPlanCacheInfo(stat, "MISSES");
+        PreparedStatement prep = conn.prepareStatement(sql);
+        assertEquals(misses + 1, getPlanCacheInfo(stat, "MISSES"));
+        // another session uses the same join order
+        PreparedStatement prep2 = conn2.prepareStatement(sql);
+        assertEquals(hits + 1, getPlanCacheInfo(stat, "HITS"));
+        prep.setInt(1, 10);
+        prep2.setInt(1, 10);
+        ResultSet rs = prep.executeQuery();
+        rs.next();
+        assertEquals(9, rs.getInt(1));
+        rs = prep2.executeQuery();
+        rs.next();
+        assertEquals(9, rs.getInt(1));
+        ResultSet plan = conn.createStatement().executeQuery("explain " + sql);
+        plan.next();
+        ResultSet plan2 = conn2.createStatement().executeQuery("explain " + sql);
+        plan2.next();
+        assertEquals(plan.getString(1), plan2.getString(1));
+        // a different schema search path uses a different entry
+        conn2.createStatement().execute("set schema_search_path public");
+        misses = getPlanCacheInfo(stat, "MISSES");
+        conn2.prepareStatement(sql);
+        assertEquals(misses + 1, getPlanCacheInfo(stat, "MISSES"));
+        // changes of metadata clear the cache
+        stat.execute("create index a_x on a(x)");
+        misses = getPlanCacheInfo(stat, "MISSES");
+        conn.prepareStatement(sql);
+        assertEquals(misses + 1, getPlanCacheInfo(stat, "MISSES"));
+        assertEquals(1, getPlanCacheInfo(stat, "SIZE"));
+        conn2.close();
+        conn.close();
+    }
+
+    private static long getPlanCacheInfo(Statement stat, String name) throws SQLException {
+        ResultSet rs = stat.executeQuery("select setting_value from information_schema.settings "
+                + "where setting_name = 'info.PLAN_CACHE_" + name + '\'');
+        rs.next();
+        return rs.getLong(1);
+    }
+
     private void testQueryCacheSpeed() throws SQLException {
         deleteDb("optimizations");
         Connection conn = getConnection("optimizations");
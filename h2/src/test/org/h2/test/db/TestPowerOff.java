@@ -13,7 +13,9 @@
 import java.util.Random;
 
 import org.h2.api.ErrorCode;
+import org.h2.engine.Constants;
 import org.h2.engine.Database;
+import org.h2.store.fs.FileUtils;
 import org.h2.test.TestBase;
 import org.h2.test.TestDb;
 import org.h2.util.JdbcUtils;
@@ -57,6 +59,7 @@ public void test() throws SQLException {
         url += ";FILE_LOCK=NO;TRACE_LEVEL_FILE=0";
         testLobCrash();
         testSummaryCrash();
+        testRedoLog();
         testCrash();
         testShutdown();
         testMemoryTables();
@@ -142,6 +145,60 @@ private void testSummaryCrash() throws SQLException {
         conn.close();
     }
 
+    private void testRedoLog() throws SQLException {
+        if (config.networked) {
+            return;
+        }
+        deleteDb(dir, DB_NAME);
+        Connection conn = getConnection(url + ";REDO_LOG=TRUE");
+        Statement stat = conn.createStatement();
+        stat.execute("SET WRITE_DELAY 1000000");
+        stat.execute("CREATE TABLE TEST(ID INT PRIMARY KEY, NAME VARCHAR, DATA CLOB)");
+        stat.execute("CREATE INDEX TEST_NAME ON TEST(NAME)");
+        for (int i = 0; i < 20; i++) {
+            stat.execute("INSERT INTO TEST(ID, NAME) VALUES(" + i + ", 'Hello')");
+        }
+        conn.setAutoCommit(false);
+        stat.execute("UPDATE TEST SET NAME = 'World' WHERE ID < 5");
+        stat.execute("DELETE FROM TEST WHERE ID >= 15");
+        conn.commit();
+        stat.execute("INSERT INTO TEST VALUES(20, 'Lob', SPACE(10000))");
+        conn.commit();
+        stat.execute("INSERT INTO TEST(ID, NAME) VALUES(21, 'Hello')");
+        conn.commit();
+        // the LOB cleaner changes a map that is not logged in the background,
+        // the next commit makes a checkpoint and truncates the log in this case
+        String redoFileName = dir + "/" + DB_NAME + Constants.SUFFIX_REDO_FILE;
+        for (int i = 0; i < 100 && FileUtils.size(redoFileName) == 0; i++) {
+            stat.execute("UPDATE TEST SET NAME = 'Hello' WHERE ID = 21");
+            conn.commit();
+        }
+        stat.execute("INSERT INTO TEST(ID, NAME) VALUES(22, 'Uncommitted')");
+        assertTrue(FileUtils.size(redoFileName) > 0);
+        stat.execute("SHUTDOWN IMMEDIATELY");
+        JdbcUtils.closeSilently(conn);
+
+        // the log is applied even if it isn't enabled
+        conn = getConnection(url);
+        stat = conn.createStatement();
+        ResultSet rs = stat.executeQuery("SELECT NAME, COUNT(*) FROM TEST GROUP BY NAME ORDER BY NAME");
+        assertTrue(rs.next());
+        assertEquals("Hello", rs.getString(1));
+        assertEquals(11, rs.getInt(2));
+        assertTrue(rs.next());
+        assertEquals("Lob", rs.getString(1));
+        assertEquals(1, rs.getInt(2));
+        assertTrue(rs.next());
+        assertEquals("World", rs.getString(1));
+        assertEquals(5, rs.getInt(2));
+        assertFalse(rs.next());
+        rs = stat.executeQuery("SELECT LENGTH(DATA) FROM TEST WHERE ID = 20");
+        assertTrue(rs.next());
+        assertEquals(10000, rs.getInt(1));
+        assertFalse(FileUtils.exists(redoFileName));
+        conn.close();
+    }
+
     private void testCrash() throws SQLException {
         if (config.networked) {
             return;
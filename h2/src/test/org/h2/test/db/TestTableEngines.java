@@ -9,6 +9,7 @@
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Savepoint;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -29,6 +30,7 @@
 import org.h2.index.IndexType;
 import org.h2.index.SingleRowCursor;
 import org.h2.message.DbException;
+import org.h2.mvstore.db.MVColumnarTableEngine;
 import org.h2.result.Row;
 import org.h2.result.SearchRow;
 import org.h2.result.SortOrder;
@@ -68,6 +70,9 @@ public void test() throws Exception {
         testSchemaEngineParams();
         testSimpleQuery();
         testMultiColumnTreeSetIndex();
+        testColumnarTableEngine();
+        testColumnarZoneMaps();
+        testColumnarTransactions();
     }
 
     private void testAdminPrivileges() throws SQLException {
@@ -142,6 +147,131 @@ private void testSchemaEngineParams() throws SQLException {
         deleteDb("tableEngine");
     }
 
+    private void testColumnarTableEngine() throws SQLException {
+        deleteDb("tableEngine");
+        Connection conn = getConnection("tableEngine");
+        Statement stat = conn.createStatement();
+        String engine = " ENGINE \"" + MVColumnarTableEngine.class.getName() + '"';
+        stat.execute("CREATE TABLE T(ID BIGINT, D DATE, CATEGORY VARCHAR, FLAG BOOLEAN, AMOUNT DOUBLE, "
+                + "NAME VARCHAR_IGNORECASE)" + engine);
+        stat.execute("INSERT INTO T SELECT X, DATEADD(DAY, X / 100, DATE '2020-01-01'), 'C' || MOD(X, 7), "
+                + "X < 1000, X * 0.5, CASE WHEN MOD(X, 2) = 0 THEN 'a' ELSE 'A' END FROM SYSTEM_RANGE(1, 5000)");
+        assertSingleValue(stat, "SELECT COUNT(*) FROM T", 5000);
+        assertResult("5000", stat, "SELECT COUNT(ID) FROM T");
+        assertResult("12502500", stat, "SELECT SUM(ID) FROM T");
+        assertResult("6251250", stat, "SELECT CAST(SUM(AMOUNT) AS BIGINT) FROM T");
+        assertResult("2020-02-20", stat, "SELECT MAX(D) FROM T");
+        assertResult("714", stat, "SELECT COUNT(*) FROM T WHERE CATEGORY = 'C3'");
+        assertResult("999", stat, "SELECT COUNT(*) FROM T WHERE FLAG");
+        assertResult("2500", stat, "SELECT COUNT(*) FROM T WHERE NAME = 'a' AND CAST(NAME AS VARCHAR) = 'a'");
+        assertResult("4999", stat, "SELECT ID FROM T ORDER BY ID DESC OFFSET 1 ROW FETCH FIRST 1 ROW ONLY");
+        assertResult("1250", stat, "SELECT COUNT(*) FROM T JOIN SYSTEM_RANGE(1, 2500) R ON T.ID = R.X WHERE MOD(R.X, 2) = 0");
+        stat.execute("DELETE FROM T WHERE MOD(ID, 10) = 0");
+        assertSingleValue(stat, "SELECT COUNT(*) FROM T", 4500);
+        assertResult("0", stat, "SELECT COUNT(*) FROM T WHERE MOD(ID, 10) = 0");
+        stat.execute("UPDATE T SET CATEGORY = 'X' WHERE ID = 5");
+        assertResult("5 X", stat, "SELECT ID || ' ' || CATEGORY FROM T WHERE CATEGORY = 'X'");
+        assertSingleValue(stat, "SELECT COUNT(*) FROM T", 4500);
+        stat.execute("INSERT INTO T(ID) VALUES 6000");
+        assertResult(null, stat, "SELECT CATEGORY FROM T WHERE ID = 6000");
+        assertThrows(ErrorCode.FEATURE_NOT_SUPPORTED_1, stat).execute("CREATE INDEX IDX ON T(ID)");
+        assertThrows(ErrorCode.FEATURE_NOT_SUPPORTED_1, stat).execute("ALTER TABLE T ADD COLUMN X INT");
+        assertThrows(ErrorCode.FEATURE_NOT_SUPPORTED_1, stat).execute("CREATE TABLE L(B BLOB)" + engine);
+        conn.close();
+        if (!config.memory) {
+            conn = getConnection("tableEngine");
+            stat = conn.createStatement();
+            assertSingleValue(stat, "SELECT COUNT(*) FROM T", 4501);
+            assertResult("11256000", stat, "SELECT SUM(ID) FROM T");
+            assertResult("5 X", stat, "SELECT ID || ' ' || CATEGORY FROM T WHERE CATEGORY = 'X'");
+            conn.close();
+        }
+        conn = getConnection("tableEngine");
+        stat = conn.createStatement();
+        stat.execute("TRUNCATE TABLE T");
+        assertSingleValue(stat, "SELECT COUNT(*) FROM T", 0);
+        stat.execute("DROP TABLE T");
+        conn.close();
+        deleteDb("tableEngine");
+    }
+
+    private void testColumnarZoneMaps() throws SQLException {
+        deleteDb("tableEngine");
+        Connection conn = getConnection("tableEngine");
+        Statement stat = conn.createStatement();
+        stat.execute("CREATE TABLE T(ID BIGINT, D DATE, V VARCHAR, J JSON) ENGINE \""
+                + MVColumnarTableEngine.class.getName() + '"');
+        stat.execute("INSERT INTO T SELECT X, DATEADD(DAY, X / 1024, DATE '2020-01-01'), "
+                + "CASE WHEN X < 2048 THEN 'V' || X END, JSON '1' FROM SYSTEM_RANGE(0, 10239)");
+        assertResult("100", stat, "SELECT COUNT(*) FROM T WHERE ID >= 3000 AND ID < 3100");
+        assertResult("1024", stat, "SELECT COUNT(*) FROM T WHERE D = DATE '2020-01-06'");
+        assertResult("1", stat, "SELECT COUNT(*) FROM T WHERE V = 'V5'");
+        assertResult("0", stat, "SELECT COUNT(*) FROM T WHERE ID > 20000");
+        assertResult("8192", stat, "SELECT COUNT(*) FROM T WHERE V IS NULL");
+        assertResult("10240", stat, "SELECT COUNT(*) FROM T WHERE J IS NOT NULL");
+        assertResult("1024", stat, "SELECT COUNT(*) FROM T WHERE ID IN (SELECT X FROM SYSTEM_RANGE(0, 1023))");
+        ResultSet rs = stat.executeQuery("EXPLAIN ANALYZE SELECT COUNT(*) FROM T WHERE ID BETWEEN 3000 AND 3100");
+        rs.next();
+        assertContains(rs.getString(1), "/* skippedPageCount: 8 */");
+        rs = stat.executeQuery("EXPLAIN ANALYZE SELECT COUNT(*) FROM T WHERE V > 'V1' AND V < 'W'");
+        rs.next();
+        assertContains(rs.getString(1), "/* skippedPageCount: 8 */");
+        stat.execute("DELETE FROM T WHERE ID BETWEEN 5000 AND 5010");
+        assertResult("89", stat, "SELECT COUNT(*) FROM T WHERE ID BETWEEN 5000 AND 5099");
+        stat.execute("INSERT INTO T(ID) SELECT X FROM SYSTEM_RANGE(20001, 20100)");
+        assertResult("100", stat, "SELECT COUNT(*) FROM T WHERE ID > 20000");
+        stat.execute("DROP TABLE T");
+        conn.close();
+        deleteDb("tableEngine");
+    }
+
+    private void testColumnarTransactions() throws SQLException {
+        deleteDb("tableEngine");
+        Connection conn = getConnection("tableEngine");
+        Connection conn2 = getConnection("tableEngine");
+        Statement stat = conn.createStatement();
+        Statement stat2 = conn2.createStatement();
+        stat.execute("CREATE TABLE T(ID BIGINT, V INT) ENGINE \"" + MVColumnarTableEngine.class.getName() + '"');
+        conn.setAutoCommit(false);
+        stat.execute("INSERT INTO T SELECT X, X FROM SYSTEM_RANGE(1, 3000)");
+        assertSingleValue(stat, "SELECT COUNT(*) FROM T", 3000);
+        assertSingleValue(stat2, "SELECT COUNT(*) FROM T", 0);
+        conn.rollback();
+        assertSingleValue(stat, "SELECT COUNT(*) FROM T", 0);
+        stat.execute("INSERT INTO T SELECT X, X FROM SYSTEM_RANGE(1, 2500)");
+        conn.commit();
+        assertSingleValue(stat2, "SELECT COUNT(*) FROM T", 2500);
+        // rows of complete segments and of the last segment
+        stat.execute("DELETE FROM T WHERE ID <= 1500 OR ID > 2400");
+        assertSingleValue(stat, "SELECT COUNT(*) FROM T", 900);
+        assertSingleValue(stat2, "SELECT COUNT(*) FROM T", 2500);
+        conn.rollback();
+        assertSingleValue(stat, "SELECT COUNT(*) FROM T", 2500);
+        stat.execute("INSERT INTO T VALUES (3001, 1)");
+        Savepoint sp = conn.setSavepoint();
+        stat.execute("INSERT INTO T VALUES (3002, 2)");
+        stat.execute("DELETE FROM T WHERE ID = 1");
+        conn.rollback(sp);
+        conn.commit();
+        assertSingleValue(stat2, "SELECT COUNT(*) FROM T", 2501);
+        assertSingleValue(stat2, "SELECT COUNT(*) FROM T WHERE ID IN (1, 3001)", 2);
+        conn.setAutoCommit(true);
+        // a failed statement is undone
+        assertThrows(ErrorCode.DIVISION_BY_ZERO_1, stat)
+                .execute("INSERT INTO T SELECT X + 5000, 1 / (2000 - X) FROM SYSTEM_RANGE(1, 3000)");
+        assertSingleValue(stat, "SELECT COUNT(*) FROM T", 2501);
+        assertSingleValue(stat, "SELECT SUM(V) FROM T", 3126251);
+        conn2.close();
+        conn.close();
+        if (!config.memory) {
+            conn = getConnection("tableEngine");
+            stat = conn.createStatement();
+            assertSingleValue(stat, "SELECT COUNT(*) FROM T", 2501);
+            conn.close();
+        }
+        deleteDb("tableEngine");
+    }
+
     private void testSimpleQuery() throws SQLException {
 
         deleteDb("tableEngine");
@@ -92,6 +92,8 @@ public void test() throws Exception {
         testColumnLabelColumnName();
         testAbsolute();
         testFetchSize();
+        testFetchAhead();
+        testAdaptiveFetchSize();
         testOwnUpdates();
         testUpdatePrimaryKey();
         testFindColumn();
@@ -433,6 +435,49 @@ private void testFetchSize() throws SQLException {
         assertEquals(a + 1, b);
     }
 
+    private void testFetchAhead() throws SQLException {
+        stat.execute("CREATE TABLE TEST(ID INT PRIMARY KEY) AS SELECT X FROM SYSTEM_RANGE(1, 1000)");
+        Statement s2 = conn.createStatement();
+        s2.setFetchSize(7);
+        stat.setFetchSize(10);
+        ResultSet rs1 = stat.executeQuery("SELECT ID FROM TEST ORDER BY ID");
+        ResultSet rs2 = s2.executeQuery("SELECT ID FROM TEST ORDER BY ID DESC");
+        for (int i = 1; i <= 1000; i++) {
+            assertTrue(rs1.next());
+            assertEquals(i, rs1.getInt(1));
+            assertTrue(rs2.next());
+            assertEquals(1001 - i, rs2.getInt(1));
+            if (i % 97 == 0) {
+                try (ResultSet rs = conn.createStatement().executeQuery("SELECT COUNT(*) FROM TEST")) {
+                    rs.next();
+                    assertEquals(1000, rs.getInt(1));
+                }
+            }
+        }
+        assertFalse(rs1.next());
+        assertFalse(rs2.next());
+        rs1 = stat.executeQuery("SELECT ID FROM TEST ORDER BY ID");
+        for (int i = 1; i <= 15; i++) {
+            assertTrue(rs1.next());
+        }
+        rs1.close();
+        stat.setFetchSize(0);
+        stat.execute("DROP TABLE TEST");
+    }
+
+    private void testAdaptiveFetchSize() throws SQLException {
+        stat.execute("CREATE TABLE TEST(ID INT PRIMARY KEY, V VARCHAR) "
+                + "AS SELECT X, REPEAT('x', MOD(X, 50)) FROM SYSTEM_RANGE(1, 20000)");
+        ResultSet rs = stat.executeQuery("SELECT * FROM TEST ORDER BY ID");
+        for (int i = 1; i <= 20000; i++) {
+            assertTrue(rs.next());
+            assertEquals(i, rs.getInt(1));
+            assertEquals(i % 50, rs.getString(2).length());
+        }
+        assertFalse(rs.next());
+        stat.execute("DROP TABLE TEST");
+    }
+
     private void testOwnUpdates() throws SQLException {
         DatabaseMetaData meta = conn.getMetaData();
         for (int i = 0; i < 3; i++) {
@@ -138,16 +138,19 @@ SELECT COLUMN_NAME, DATA_TYPE, DOMAIN_NAME, MAXIMUM_CARDINALITY, DTD_IDENTIFIER
 
 SELECT OBJECT_NAME, OBJECT_TYPE, COLLECTION_TYPE_IDENTIFIER, DATA_TYPE, MAXIMUM_CARDINALITY, DTD_IDENTIFIER
     FROM INFORMATION_SCHEMA.ELEMENT_TYPES;
-> OBJECT_NAME OBJECT_TYPE COLLECTION_TYPE_IDENTIFIER DATA_TYPE MAXIMUM_CARDINALITY DTD_IDENTIFIER
-> ----------- ----------- -------------------------- --------- ------------------- --------------
-> D2          DOMAIN      TYPE                       BIGINT    null                TYPE_
-> TEST        TABLE       1                          ROW       null                1_
-> TEST        TABLE       1__2                       INTEGER   null                1__2_
-> TEST        TABLE       2                          ARRAY     2                   2_
-> TEST        TABLE       2_                         BIGINT    null                2__
-> TEST        TABLE       3_2                        INTEGER   null                3_2_
-> TEST        TABLE       5                          BIGINT    null                5_
-> rows: 7
+> OBJECT_NAME       OBJECT_TYPE COLLECTION_TYPE_IDENTIFIER DATA_TYPE         MAXIMUM_CARDINALITY DTD_IDENTIFIER
+> ----------------- ----------- -------------------------- ----------------- ------------------- --------------
+> COLUMN_STATISTICS TABLE       10                         CHARACTER VARYING null                10_
+> COLUMN_STATISTICS TABLE       8                          CHARACTER VARYING null                8_
+> COLUMN_STATISTICS TABLE       9                          DOUBLE PRECISION  null                9_
+> D2                DOMAIN      TYPE                       BIGINT            null                TYPE_
+> TEST              TABLE       1                          ROW               null                1_
+> TEST              TABLE       1__2                       INTEGER           null                1__2_
+> TEST              TABLE       2                          ARRAY             2                   2_
+> TEST              TABLE       2_                         BIGINT            null                2__
+> TEST              TABLE       3_2                        INTEGER           null                3_2_
+> TEST              TABLE       5                          BIGINT            null                5_
+> rows: 10
 
 SELECT OBJECT_NAME, OBJECT_TYPE, ROW_IDENTIFIER, FIELD_NAME, ORDINAL_POSITION, DATA_TYPE, MAXIMUM_CARDINALITY,
     DTD_IDENTIFIER
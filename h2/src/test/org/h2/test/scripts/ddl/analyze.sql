@@ -65,3 +65,61 @@ SELECT SELECTIVITY FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME = 'TEST' AND
 
 DROP TABLE TEST;
 > ok
+
+CREATE TABLE TEST(ID INT PRIMARY KEY, A INT, B VARCHAR);
+> ok
+
+CREATE INDEX TEST_A ON TEST(A);
+> ok
+
+CREATE INDEX TEST_B ON TEST(B);
+> ok
+
+INSERT INTO TEST SELECT X, CASE WHEN X <= 900 THEN 1 ELSE X END, CASE WHEN X > 100 THEN 'v' || MOD(X, 10) END
+    FROM SYSTEM_RANGE(1, 1000);
+> update count: 1000
+
+ANALYZE TABLE TEST;
+> ok
+
+SELECT COLUMN_NAME, SAMPLE_SIZE, NULL_FRACTION, DISTINCT_COUNT, MOST_COMMON_VALUES, MOST_COMMON_FREQUENCIES,
+    CARDINALITY(HISTOGRAM_BOUNDS) BUCKETS FROM INFORMATION_SCHEMA.COLUMN_STATISTICS WHERE TABLE_NAME = 'TEST'
+    ORDER BY COLUMN_NAME;
+> COLUMN_NAME SAMPLE_SIZE NULL_FRACTION DISTINCT_COUNT MOST_COMMON_VALUES MOST_COMMON_FREQUENCIES BUCKETS
+> ----------- ----------- ------------- -------------- ------------------ ----------------------- -------
+> A           1000        0.0           101            [1]                [0.9]                   33
+> B           1000        0.1           10             []                 []                      33
+> ID          1000        0.0           1000           []                 []                      33
+> rows (ordered): 3
+
+EXPLAIN SELECT * FROM TEST WHERE A = 1 AND B = 'v5';
+>> SELECT "PUBLIC"."TEST"."ID", "PUBLIC"."TEST"."A", "PUBLIC"."TEST"."B" FROM "PUBLIC"."TEST" /* PUBLIC.TEST_B: B = 'v5' */ WHERE ("A" = 1) AND ("B" = 'v5')
+
+EXPLAIN SELECT * FROM TEST WHERE A = 950 AND B = 'v5';
+>> SELECT "PUBLIC"."TEST"."ID", "PUBLIC"."TEST"."A", "PUBLIC"."TEST"."B" FROM "PUBLIC"."TEST" /* PUBLIC.TEST_A: A = 950 */ WHERE ("A" = 950) AND ("B" = 'v5')
+
+EXPLAIN SELECT * FROM TEST WHERE A IN (1, 950) AND B = 'v5';
+>> SELECT "PUBLIC"."TEST"."ID", "PUBLIC"."TEST"."A", "PUBLIC"."TEST"."B" FROM "PUBLIC"."TEST" /* PUBLIC.TEST_B: B = 'v5' */ WHERE ("A" IN(1, 950)) AND ("B" = 'v5')
+
+EXPLAIN SELECT * FROM TEST WHERE A > 990 AND B = 'v5';
+>> SELECT "PUBLIC"."TEST"."ID", "PUBLIC"."TEST"."A", "PUBLIC"."TEST"."B" FROM "PUBLIC"."TEST" /* PUBLIC.TEST_A: A > 990 */ WHERE ("A" > 990) AND ("B" = 'v5')
+
+EXPLAIN SELECT * FROM TEST WHERE A BETWEEN 0 AND 500 AND B = 'v5';
+>> SELECT "PUBLIC"."TEST"."ID", "PUBLIC"."TEST"."A", "PUBLIC"."TEST"."B" FROM "PUBLIC"."TEST" /* PUBLIC.TEST_B: B = 'v5' */ WHERE ("A" BETWEEN 0 AND 500) AND ("B" = 'v5')
+
+@reconnect
+
+SELECT DISTINCT_COUNT FROM INFORMATION_SCHEMA.COLUMN_STATISTICS WHERE TABLE_NAME = 'TEST' AND COLUMN_NAME = 'A';
+>> 101
+
+TRUNCATE TABLE TEST;
+> update count: 1000
+
+ANALYZE TABLE TEST;
+> ok
+
+SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMN_STATISTICS WHERE TABLE_NAME = 'TEST';
+>> 0
+
+DROP TABLE TEST;
+> ok
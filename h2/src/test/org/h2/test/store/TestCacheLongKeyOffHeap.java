@@ -0,0 +1,130 @@
+/*
+ * Copyright 2004-2025 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.test.store;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.h2.mvstore.cache.CacheLongKeyOffHeap;
+import org.h2.test.TestBase;
+import org.h2.util.Task;
+
+/**
+ * Tests the off-heap cache.
+ */
+public class TestCacheLongKeyOffHeap extends TestBase {
+
+    /**
+     * Run just this test.
+     *
+     * @param a ignored
+     */
+    public static void main(String... a) throws Exception {
+        TestBase.createCaller().init().testFromMain();
+    }
+
+    @Override
+    public void test() throws Exception {
+        testGetPut();
+        testEviction();
+        testConcurrent();
+    }
+
+    private void testGetPut() {
+        CacheLongKeyOffHeap test = new CacheLongKeyOffHeap(1024 * 1024);
+        assertEquals(1024 * 1024, test.getMaxMemory());
+        assertNull(test.get(1));
+        ByteBuffer data = createData(1, 100);
+        data.position(10);
+        test.put(1, data);
+        assertEquals(10, data.position());
+        assertEquals(90, test.getUsedMemory());
+        ByteBuffer buff = test.get(1);
+        assertEquals(90, buff.remaining());
+        assertTrue(buff.hasArray());
+        data.position(10);
+        assertEquals(data, buff);
+        // the data is copied
+        buff.put(0, (byte) -1);
+        assertEquals(data, test.get(1));
+        // existing entries are not replaced
+        test.put(1, createData(2, 100));
+        assertEquals(data, test.get(1));
+        // too large
+        test.put(2, ByteBuffer.allocate(1024 * 1024));
+        assertNull(test.get(2));
+        test.remove(1);
+        assertNull(test.get(1));
+        assertEquals(3, test.getHits());
+        assertEquals(3, test.getMisses());
+        test.put(1, createData(1, 100));
+        test.put(3, createData(3, 100));
+        test.clear();
+        assertNull(test.get(1));
+        assertNull(test.get(3));
+        assertEquals(0, test.getUsedMemory());
+    }
+
+    private void testEviction() {
+        // two segments of 1 KB
+        CacheLongKeyOffHeap test = new CacheLongKeyOffHeap(2048);
+        for (int i = 0; i < 35; i++) {
+            test.put(i, createData(i, 100));
+        }
+        // a segment is cleared when it is reused
+        for (int i = 0; i < 35; i++) {
+            ByteBuffer buff = test.get(i);
+            if (i < 20) {
+                assertNull(buff);
+            } else {
+                assertEquals(createData(i, 100), buff);
+            }
+        }
+        assertTrue(test.getUsedMemory() <= test.getMaxMemory());
+    }
+
+    private void testConcurrent() throws Exception {
+        CacheLongKeyOffHeap test = new CacheLongKeyOffHeap(64 * 1024);
+        AtomicBoolean stopped = new AtomicBoolean();
+        Task[] tasks = new Task[4];
+        for (int i = 0; i < tasks.length; i++) {
+            int x = i;
+            tasks[i] = new Task() {
+                @Override
+                public void call() {
+                    Random random = new Random(x);
+                    while (!stopped.get()) {
+                        int key = random.nextInt(1000);
+                        int length = 10 + key % 500;
+                        ByteBuffer buff = test.get(key);
+                        if (buff == null) {
+                            test.put(key, createData(key, length));
+                        } else if (!createData(key, length).equals(buff)) {
+                            throw new AssertionError("key " + key);
+                        }
+                    }
+                }
+            };
+            tasks[i].execute();
+        }
+        Thread.sleep(1000);
+        stopped.set(true);
+        for (Task t : tasks) {
+            t.get();
+        }
+        assertTrue(test.getHits() > 0);
+    }
+
+    private static ByteBuffer createData(int key, int length) {
+        ByteBuffer buff = ByteBuffer.allocate(length);
+        for (int i = 0; i < length; i++) {
+            buff.put((byte) (key * 31 + i));
+        }
+        buff.flip();
+        return buff;
+    }
+
+}
@@ -5,9 +5,11 @@
  */
 package org.h2.test.store;
 
+import java.io.StringWriter;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -24,9 +26,12 @@
 import org.h2.mvstore.MVMap;
 import org.h2.mvstore.MVStore;
 import org.h2.mvstore.MVStoreException;
+import org.h2.mvstore.MVStoreTool;
 import org.h2.mvstore.OffHeapStore;
+import org.h2.mvstore.Page;
 import org.h2.mvstore.RandomAccessStore;
 import org.h2.mvstore.type.DataType;
+import org.h2.mvstore.type.LongDataType;
 import org.h2.mvstore.type.ObjectDataType;
 import org.h2.mvstore.type.StringDataType;
 import org.h2.store.fs.FilePath;
@@ -61,6 +66,12 @@ public void test() throws Exception {
         testEntrySet();
         testCompressEmptyPage();
         testCompressed();
+        testCompressDictionary();
+        testParallelSerialization();
+        testReadBatch();
+        testReadAhead();
+        testMemoryMapped();
+        testOffHeapCache();
         testFileFormatExample();
         testMaxChunkLength();
         testCacheInfo();
@@ -68,6 +79,7 @@ public void test() throws Exception {
         testVersionsToKeep();
         testVersionsToKeep2();
         testRemoveMap();
+        testLongKeys();
         testIsEmpty();
         testOffHeapStorage();
         testNewerWriteVersion();
@@ -105,6 +117,7 @@ public void test() throws Exception {
         testLargeImport();
         testBtreeStore();
         testCompact();
+        testAutoCompactRate();
         testCompactMapNotOpen();
         testReuseSpace();
         testRandom();
@@ -264,6 +277,273 @@ private void testCompressed() {
         }
     }
 
+    private void testCompressDictionary() {
+        String fileName = getBaseDir() + "/" + getTestName();
+        long lastSize = 0;
+        int dataId = 0, metaId = 0;
+        for (int i = 0; i < 2; i++) {
+            FileUtils.delete(fileName);
+            MVStore.Builder builder = new MVStore.Builder().fileName(fileName).pageSplitSize(1024).compress();
+            if (i == 1) {
+                builder.compressDictionary();
+            }
+            try (MVStore s = builder.open()) {
+                s.setRetentionTime(0);
+                MVMap<Integer, String> map = s.openMap("data");
+                MVMap<Integer, String> other = s.openMap("other",
+                        new MVMap.Builder<Integer, String>().compressDictionary(false));
+                for (int j = 0; j < 20_000; j++) {
+                    map.put(j, "customer " + j + ", Alice Smith, 12 Main Street, Springfield, United States");
+                    other.put(j, "value " + j);
+                    if (j % 1000 == 0) {
+                        s.commit();
+                    }
+                }
+                s.commit();
+                s.compactFile(10_000);
+                Map<String, String> layout = s.getLayoutMap();
+                if (i == 1) {
+                    assertTrue(layout.containsKey(DataUtils.LAYOUT_DICTIONARY + Integer.toHexString(map.getId())));
+                }
+                assertFalse(layout.containsKey(DataUtils.LAYOUT_DICTIONARY + Integer.toHexString(other.getId())));
+                dataId = map.getId();
+                metaId = s.getMetaMap().getId();
+            }
+            long size = FileUtils.size(fileName);
+            if (i == 1) {
+                assertTrue(size + " " + lastSize, size < lastSize);
+                StringWriter dump = new StringWriter();
+                MVStoreTool.dump(fileName, dump, true);
+                String text = dump.toString();
+                assertFalse(text, text.contains("ERROR"));
+                assertContains(text, " with dictionary, map " + Integer.toHexString(dataId) + ",");
+                // the layout and meta maps remain readable by older versions
+                assertFalse(text.contains(" with dictionary, map 0,"));
+                assertFalse(text.contains(" with dictionary, map " + Integer.toHexString(metaId) + ","));
+            }
+            lastSize = size;
+            try (MVStore s = new MVStore.Builder().fileName(fileName).open()) {
+                MVMap<Integer, String> map = s.openMap("data");
+                MVMap<Integer, String> other = s.openMap("other");
+                for (int j = 0; j < 20_000; j++) {
+                    assertEquals("customer " + j + ", Alice Smith, 12 Main Street, Springfield, United States",
+                            map.get(j));
+                    assertEquals("value " + j, other.get(j));
+                }
+                s.removeMap(map);
+            }
+            try (MVStore s = new MVStore.Builder().fileName(fileName).open()) {
+                // the dictionary is removed together with the map
+                for (String key : s.getLayoutMap().keySet()) {
+                    assertFalse(key, key.startsWith(DataUtils.LAYOUT_DICTIONARY));
+                }
+            }
+        }
+    }
+
+    private void testParallelSerialization() {
+        String fileName = getBaseDir() + "/" + getTestName();
+        for (int level = 0; level <= 2; level++) {
+            FileUtils.delete(fileName);
+            MVStore.Builder builder = new MVStore.Builder().fileName(fileName).
+                    serializationThreads(4).pageSplitSize(1024);
+            if (level == 1) {
+                builder.compress();
+            } else if (level == 2) {
+                builder.compressHigh();
+            }
+            try (MVStore s = builder.open()) {
+                MVMap<Integer, String> map = s.openMap("data");
+                MVMap<Integer, String> map2 = s.openMap("data2");
+                for (int i = 0; i < 20_000; i++) {
+                    map.put(i, "value " + i);
+                    if ((i & 1) == 0) {
+                        map2.put(i, "x" + i);
+                    }
+                }
+                s.commit();
+                boolean parallel = false;
+                for (Thread t : Thread.getAllStackTraces().keySet()) {
+                    parallel |= t.getName().equals("H2-page-serialization");
+                }
+                assertTrue(parallel);
+                for (int i = 0; i < 20_000; i += 3) {
+                    map.remove(i);
+                }
+            }
+            try (MVStore s = new MVStore.Builder().fileName(fileName).open()) {
+                MVMap<Integer, String> map = s.openMap("data");
+                MVMap<Integer, String> map2 = s.openMap("data2");
+                assertEquals(13_333, map.size());
+                assertEquals(10_000, map2.size());
+                for (int i = 0; i < 20_000; i++) {
+                    assertEquals(i % 3 == 0 ? null : "value " + i, map.get(i));
+                    assertEquals((i & 1) == 0 ? "x" + i : null, map2.get(i));
+                }
+            }
+        }
+    }
+
+    private void testReadBatch() {
+        String fileName = getBaseDir() + "/" + getTestName();
+        FileUtils.delete(fileName);
+        try (MVStore s = new MVStore.Builder().fileName(fileName).pageSplitSize(1024).open()) {
+            MVMap<Integer, String> map = s.openMap("data");
+            for (int i = 0; i < 10_000; i++) {
+                map.put(i, "value " + i);
+            }
+        }
+        try (MVStore s = new MVStore.Builder().fileName("async:" + fileName).cacheSize(1).open()) {
+            assertTrue(s.getFileStore().getReadBatchSize() > 1);
+            MVMap<Integer, String> map = s.openMap("data");
+            Cursor<Integer, String> cursor = map.cursor(100);
+            for (int i = 100; i < 10_000; i++) {
+                assertTrue(cursor.hasNext());
+                assertEquals(i, cursor.next().intValue());
+                assertEquals("value " + i, cursor.getValue());
+            }
+            assertFalse(cursor.hasNext());
+        }
+        try (MVStore s = new MVStore.Builder().fileName("async:" + fileName).cacheSize(1).open()) {
+            MVMap<Integer, String> map = s.openMap("data");
+            Cursor<Integer, String> cursor = map.cursor(map.getRoot(), 9_000, null, true);
+            for (int i = 9_000; i >= 0; i--) {
+                assertTrue(cursor.hasNext());
+                assertEquals(i, cursor.next().intValue());
+                assertEquals("value " + i, cursor.getValue());
+            }
+            assertFalse(cursor.hasNext());
+        }
+        try (MVStore s = new MVStore.Builder().fileName(fileName).open()) {
+            assertEquals(0, s.getFileStore().getReadBatchSize());
+        }
+    }
+
+    private void testMemoryMapped() {
+        String fileName = getBaseDir() + "/" + getTestName();
+        FileUtils.delete(fileName);
+        try (MVStore s = new MVStore.Builder().fileName(fileName).memoryMapped().pageSplitSize(1024).open()) {
+            MVMap<Integer, String> map = s.openMap("data");
+            for (int i = 0; i < 10_000; i++) {
+                map.put(i, "value " + i);
+            }
+        }
+        try (MVStore s = new MVStore.Builder().fileName(fileName).memoryMapped().cacheSize(1).open()) {
+            MVMap<Integer, String> map = s.openMap("data");
+            for (int i = 0; i < 10_000; i++) {
+                assertEquals("value " + i, map.get(i));
+            }
+            for (int i = 0; i < 10_000; i += 2) {
+                map.remove(i);
+            }
+            for (int i = 10_000; i < 20_000; i++) {
+                map.put(i, "new value " + i);
+            }
+            s.commit();
+            // moves chunks within the mapped file
+            s.compactFile(10_000);
+            for (int i = 0; i < 20_000; i++) {
+                assertEquals(i < 10_000 ? (i & 1) == 0 ? null : "value " + i : "new value " + i, map.get(i));
+            }
+        }
+        try (MVStore s = new MVStore.Builder().fileName(fileName).memoryMapped().cacheSize(1).readOnly().open()) {
+            MVMap<Integer, String> map = s.openMap("data");
+            assertEquals(15_000, map.size());
+            for (int i = 1; i < 20_000; i += 2) {
+                assertEquals(i < 10_000 ? "value " + i : "new value " + i, map.get(i));
+            }
+        }
+        FileUtils.delete(fileName);
+        try (MVStore s = new MVStore.Builder().fileName(fileName).memoryMapped().encryptionKey("007".toCharArray())
+                .open()) {
+            s.openMap("data").put(1, "value");
+        }
+        try (MVStore s = new MVStore.Builder().fileName(fileName).memoryMapped().encryptionKey("007".toCharArray())
+                .cacheSize(1).open()) {
+            assertEquals("value", s.openMap("data").get(1));
+        }
+    }
+
+    private void testOffHeapCache() {
+        String fileName = getBaseDir() + "/" + getTestName();
+        FileUtils.delete(fileName);
+        try (MVStore s = new MVStore.Builder().fileName(fileName).open()) {
+            MVMap<Integer, String> map = s.openMap("data");
+            for (int i = 0; i < 100_000; i++) {
+                map.put(i, "value " + i);
+            }
+        }
+        try (MVStore s = new MVStore.Builder().fileName(fileName).cacheSize(1).offHeapCacheSize(8).open()) {
+            FileStore<?> fileStore = s.getFileStore();
+            assertEquals(8, fileStore.getOffHeapCacheSize());
+            MVMap<Integer, String> map = s.openMap("data");
+            for (int i = 0; i < 100_000; i++) {
+                assertEquals("value " + i, map.get(i));
+            }
+            assertTrue(fileStore.getCacheHitRatio() < 100);
+            long readCount = fileStore.getReadCount();
+            // pages evicted from the page cache are read from the off-heap cache
+            for (int i = 0; i < 100_000; i++) {
+                assertEquals("value " + i, map.get(i));
+            }
+            assertEquals(readCount, fileStore.getReadCount());
+            assertTrue(fileStore.getOffHeapCacheHitRatio() > 0);
+            assertTrue(fileStore.getOffHeapCacheSizeUsed() > 0);
+            HashMap<String, String> info = new HashMap<>();
+            fileStore.populateInfo(info::put);
+            assertEquals(Integer.toString(fileStore.getOffHeapCacheHitRatio()),
+                    info.get("info.OFF_HEAP_CACHE_HIT_RATIO"));
+            for (int i = 0; i < 100_000; i += 2) {
+                map.remove(i);
+            }
+            s.commit();
+            s.compactFile(10_000);
+            for (int i = 0; i < 100_000; i++) {
+                assertEquals((i & 1) == 0 ? null : "value " + i, map.get(i));
+            }
+        }
+        try (MVStore s = new MVStore.Builder().fileName(fileName).open()) {
+            assertEquals(0, s.getFileStore().getOffHeapCacheSize());
+        }
+    }
+
+    private void testReadAhead() throws InterruptedException {
+        String fileName = getBaseDir() + "/" + getTestName();
+        FileUtils.delete(fileName);
+        try (MVStore s = new MVStore.Builder().fileName(fileName).pageSplitSize(1024).open()) {
+            MVMap<Integer, String> map = s.openMap("data");
+            for (int i = 0; i < 10_000; i++) {
+                map.put(i, "value " + i);
+            }
+        }
+        try (MVStore s = new MVStore.Builder().fileName(fileName).cacheSize(1).open()) {
+            MVMap<Integer, String> map = s.openMap("data");
+            Page<Integer, String> parent = map.getRootPage();
+            while (!parent.getChildPage(0).isLeaf()) {
+                parent = parent.getChildPage(0);
+            }
+            assertTrue(parent.getRawChildPageCount() > 7);
+            int keys = parent.getChildPage(0).getKeyCount() + parent.getChildPage(1).getKeyCount();
+            Cursor<Integer, String> cursor = map.cursor(null);
+            for (int i = 0; i < keys; i++) {
+                assertEquals(i, cursor.next().intValue());
+            }
+            FileStore<?> fileStore = s.getFileStore();
+            long readCount = fileStore.getReadCount();
+            // the third leaf is read, and the following four leaves are read ahead
+            assertTrue(cursor.hasNext());
+            for (int i = 0; i < 100 && fileStore.getReadCount() < readCount + 5; i++) {
+                Thread.sleep(50);
+            }
+            assertEquals(readCount + 5, fileStore.getReadCount());
+            for (int i = keys; i < 10_000; i++) {
+                assertEquals(i, cursor.next().intValue());
+                assertEquals("value " + i, cursor.getValue());
+            }
+            assertFalse(cursor.hasNext());
+        }
+    }
+
     private void testFileFormatExample() {
         String fileName = getBaseDir() + "/" + getTestName();
         FileUtils.delete(fileName);
@@ -379,6 +659,42 @@ private void testRemoveMap() {
         }
     }
 
+    private void testLongKeys() {
+        String fileName = getBaseDir() + "/" + getTestName();
+        FileUtils.delete(fileName);
+        MVMap.Builder<Long, Long> builder = new MVMap.Builder<Long, Long>().
+                keyType(LongDataType.INSTANCE).valueType(LongDataType.INSTANCE);
+        try (MVStore s = new MVStore.Builder().
+                fileName(fileName).
+                pageSplitSize(1000).
+                open()) {
+            MVMap<Long, Long> map = s.openMap("data", builder);
+            for (long i = 0; i < 10_000; i++) {
+                map.put(i * 3, i);
+            }
+            for (long i = 0; i < 10_000; i += 2) {
+                map.remove(i * 3);
+            }
+            s.commit();
+            assertEquals(5_000, map.size());
+            assertEquals(3L, map.ceilingKey(1L).longValue());
+        }
+        try (MVStore s = new MVStore.Builder().
+                fileName(fileName).
+                open()) {
+            MVMap<Long, Long> map = s.openMap("data", builder);
+            assertEquals(5_000, map.size());
+            long expected = 3;
+            for (Long key : map.keySet()) {
+                assertEquals(expected, key.longValue());
+                assertEquals(expected / 3, map.get(key).longValue());
+                expected += 6;
+            }
+            assertEquals(29_997L, map.lastKey().longValue());
+            assertNull(map.get(6L));
+        }
+    }
+
     private void testIsEmpty() {
         try (MVStore s = new MVStore.Builder().
                 pageSplitSize(50).
@@ -1754,6 +2070,44 @@ private static int getChunkCount(MVStore s) {
         return chunkCount;
     }
 
+    private void testAutoCompactRate() throws InterruptedException {
+        String fileName = getBaseDir() + "/" + getTestName();
+        FileUtils.delete(fileName);
+        long start = System.nanoTime();
+        try (MVStore s = new MVStore.Builder().fileName(fileName).autoCompactRate(64).open()) {
+            s.setRetentionTime(0);
+            MVMap<Integer, String> m = s.openMap("data");
+            MVMap<Integer, String> m2 = s.openMap("temp");
+            String value = new String(new char[100]).replace((char) 0, 'x');
+            for (int i = 0; i < 20_000; i++) {
+                m.put(i, value);
+                m2.put(i, value);
+                if (i % 1000 == 0) {
+                    s.commit();
+                }
+            }
+            s.commit();
+            // about half of the data in each chunk is live
+            m2.clear();
+            s.commit();
+            FileStore<?> fileStore = s.getFileStore();
+            assertEquals(64, fileStore.getAutoCompactRate());
+            for (int i = 0; i < 500 && fileStore.getCompactBytes() == 0; i++) {
+                Thread.sleep(10);
+            }
+            assertTrue(fileStore.getCompactBytes() > 0);
+            Thread.sleep(500);
+            // at most one second worth of data in advance, plus the last page
+            long bytes = fileStore.getCompactBytes();
+            double seconds = (System.nanoTime() - start) / 1e9;
+            assertTrue(bytes + " in " + seconds + " s", bytes <= 64 * 1024 * (seconds + 2));
+            assertTrue(fileStore.getCompactThroughput() > 0);
+            for (int i = 0; i < 20_000; i++) {
+                assertEquals(value, m.get(i));
+            }
+        }
+    }
+
     private void testCompact() {
         String fileName = getBaseDir() + "/" + getTestName();
         FileUtils.delete(fileName);
@@ -25,6 +25,9 @@
 import org.h2.mvstore.MVStore;
 import org.h2.mvstore.MVStoreException;
 import org.h2.mvstore.WriteBuffer;
+import org.h2.mvstore.tx.Transaction;
+import org.h2.mvstore.tx.TransactionMap;
+import org.h2.mvstore.tx.TransactionStore;
 import org.h2.mvstore.type.ObjectDataType;
 import org.h2.store.fs.FilePath;
 import org.h2.store.fs.FileUtils;
@@ -55,6 +58,9 @@ public void test() throws Exception {
         testConcurrentDataType();
         testConcurrentAutoCommitAndChange();
         testConcurrentReplaceAndRead();
+        testConcurrentDisjointWrite();
+        testConcurrentCombinedWrite();
+        testConcurrentTransactionalWrite();
         testConcurrentChangeAndCompact();
         testConcurrentChangeAndGetVersion();
         testConcurrentFree();
@@ -284,6 +290,178 @@ public void call() {
         s.close();
     }
 
+    private void testConcurrentDisjointWrite() {
+        try (MVStore s = new MVStore.Builder().open()) {
+            MVMap<Integer, Integer> map = s.openMap("data");
+            int count = 20_000;
+            Task[] tasks = new Task[8];
+            for (int t = 0; t < tasks.length; t++) {
+                int base = t * count;
+                tasks[t] = new Task() {
+                    @Override
+                    public void call() {
+                        for (int i = base; i < base + count; i++) {
+                            map.put(i, i);
+                            // the change may be applied by another thread,
+                            // but it has to be visible here
+                            if (map.get(i) != i) {
+                                throw new AssertionError(i);
+                            }
+                        }
+                        for (int i = base; i < base + count; i++) {
+                            if (map.putIfAbsent(i, -1) != i || !map.replace(i, i, i + 1)) {
+                                throw new AssertionError(i);
+                            }
+                        }
+                        for (int i = base; i < base + count; i += 2) {
+                            if (map.remove(i) != i + 1) {
+                                throw new AssertionError(i);
+                            }
+                        }
+                    }
+                }.execute();
+            }
+            for (Task task : tasks) {
+                task.get();
+            }
+            assertEquals(tasks.length * count / 2, map.size());
+            for (int i = 0; i < tasks.length * count; i++) {
+                assertEquals(i % 2 == 0 ? null : i + 1, map.get(i));
+            }
+        }
+    }
+
+    private void testConcurrentCombinedWrite() throws InterruptedException {
+        try (MVStore s = new MVStore.Builder().open()) {
+            MVMap<Integer, Integer> map = s.openMap("data");
+            CountDownLatch locked = new CountDownLatch(1);
+            // slow enough to fail updating the root without locking it,
+            // and then to keep it locked for a while
+            MVMap.DecisionMaker<Integer> slow = new MVMap.DecisionMaker<Integer>() {
+                private int calls;
+
+                @Override
+                public MVMap.Decision decide(Integer existingValue, Integer providedValue) {
+                    try {
+                        if (++calls >= 4) {
+                            locked.countDown();
+                            Thread.sleep(200);
+                        } else {
+                            Thread.sleep(10);
+                        }
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                    return MVMap.Decision.PUT;
+                }
+            };
+            Task writer = new Task() {
+                @Override
+                public void call() {
+                    for (int i = 0; locked.getCount() > 0; i++) {
+                        map.put(1000 + i % 100, i);
+                    }
+                }
+            }.execute();
+            while (map.isEmpty()) {
+                Thread.yield();
+            }
+            Task slowWriter = new Task() {
+                @Override
+                public void call() {
+                    map.operate(1, 1, slow);
+                }
+            }.execute();
+            locked.await();
+            // the changes below are applied by the slow writer
+            Task[] tasks = {
+                    new Task() {
+                        @Override
+                        public void call() throws Exception {
+                            if (map.put(2, 2) != null || map.get(2) != 2) {
+                                throw new Exception();
+                            }
+                        }
+                    },
+                    new Task() {
+                        @Override
+                        public void call() throws Exception {
+                            map.operate(3, 3, new MVMap.DecisionMaker<Integer>() {
+                                @Override
+                                public MVMap.Decision decide(Integer existingValue, Integer providedValue) {
+                                    throw new IllegalStateException();
+                                }
+                            });
+                        }
+                    },
+                    new Task() {
+                        @Override
+                        public void call() throws Exception {
+                            if (map.putIfAbsent(1000, -1) == null) {
+                                throw new Exception();
+                            }
+                        }
+                    }
+            };
+            for (Task task : tasks) {
+                task.execute();
+            }
+            slowWriter.get();
+            writer.get();
+            tasks[0].get();
+            assertTrue(tasks[1].getException() instanceof IllegalStateException);
+            tasks[2].get();
+            assertEquals(1, map.get(1).intValue());
+            assertEquals(2, map.get(2).intValue());
+            assertFalse(map.containsKey(3));
+            assertTrue(map.get(1000) >= 0);
+        }
+    }
+
+    private void testConcurrentTransactionalWrite() {
+        try (MVStore s = new MVStore.Builder().open()) {
+            TransactionStore ts = new TransactionStore(s);
+            ts.init();
+            int count = 2_000;
+            Task[] tasks = new Task[8];
+            for (int t = 0; t < tasks.length; t++) {
+                int base = t * count;
+                tasks[t] = new Task() {
+                    @Override
+                    public void call() {
+                        for (int i = base; i < base + count; i += 100) {
+                            Transaction tx = ts.begin();
+                            TransactionMap<Integer, Integer> map = tx.openMap("data");
+                            for (int j = i; j < i + 100; j++) {
+                                map.put(j, j);
+                                if (map.get(j) != j) {
+                                    throw new AssertionError(j);
+                                }
+                            }
+                            // the undo log written by the decision makers
+                            // is used to roll back every other transaction
+                            if (i / 100 % 2 == 0) {
+                                tx.commit();
+                            } else {
+                                tx.rollback();
+                            }
+                        }
+                    }
+                }.execute();
+            }
+            for (Task task : tasks) {
+                task.get();
+            }
+            Transaction tx = ts.begin();
+            TransactionMap<Integer, Integer> map = tx.openMap("data");
+            assertEquals(tasks.length * count / 2, map.sizeAsLong());
+            for (int i = 0; i < tasks.length * count; i++) {
+                assertEquals(i / 100 % 2 == 0 ? (Integer) i : null, map.get(i));
+            }
+            tx.commit();
+        }
+    }
+
     private void testConcurrentChangeAndCompact() throws InterruptedException {
         String fileName = "memFS:" + getTestName();
         FileUtils.delete(fileName);
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2004-2025 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.test.store;
+
+import org.h2.mvstore.AppendOnlyMultiFileStore;
+import org.h2.mvstore.DataUtils;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.h2.store.fs.FileUtils;
+import org.h2.test.TestBase;
+
+/**
+ * Tests the append-only multi-file store with hot and cold directories.
+ */
+public class TestMVStoreMultiFile extends TestBase {
+
+    /**
+     * Run just this test.
+     *
+     * @param a ignored
+     */
+    public static void main(String... a) throws Exception {
+        TestBase.createCaller().init().testFromMain();
+    }
+
+    @Override
+    public void test() throws Exception {
+        testRollover();
+        testColdDirectory();
+        testColdDirectoryRateLimited();
+        testRemoveEmptyFiles();
+        testCrashRecovery();
+        testRollback();
+        testEncrypted();
+    }
+
+    private String getFileName() {
+        return getBaseDir() + "/" + getTestName() + "/data";
+    }
+
+    private String getColdDirectory() {
+        return getBaseDir() + "/" + getTestName() + "/cold";
+    }
+
+    private void deleteFiles() {
+        FileUtils.deleteRecursive(getBaseDir() + "/" + getTestName(), true);
+        FileUtils.createDirectories(getColdDirectory());
+    }
+
+    private MVStore.Builder builder() {
+        return new MVStore.Builder().
+                fileName(getFileName()).
+                maxFileSize(64).
+                coldDirectory(getColdDirectory()).
+                hotFileCount(2).
+                autoCommitDisabled();
+    }
+
+    private static AppendOnlyMultiFileStore getFileStore(MVStore s) {
+        return (AppendOnlyMultiFileStore) s.getFileStore();
+    }
+
+    private static void write(MVStore s, int start, int count) {
+        MVMap<Integer, String> map = s.openMap("data");
+        for (int i = start; i < start + count; i++) {
+            map.put(i, "value " + i + " " + new String(new char[200]));
+            if (i % 50 == 0) {
+                s.commit();
+            }
+        }
+        s.commit();
+    }
+
+    private void verify(MVStore s, int count) {
+        MVMap<Integer, String> map = s.openMap("data");
+        assertEquals(count, map.size());
+        for (int i = 0; i < count; i++) {
+            assertTrue(map.get(i).startsWith("value " + i + " "));
+        }
+    }
+
+    private void testRollover() {
+        deleteFiles();
+        try (MVStore s = builder().open()) {
+            write(s, 0, 2000);
+            assertTrue(getFileStore(s).getFileCount() > 2);
+            assertTrue(FileUtils.exists(getFileName() + ".1"));
+            assertTrue(FileUtils.exists(getFileName() + ".2"));
+            verify(s, 2000);
+        }
+        try (MVStore s = builder().open()) {
+            verify(s, 2000);
+            write(s, 2000, 100);
+        }
+        try (MVStore s = builder().readOnly().open()) {
+            verify(s, 2100);
+        }
+    }
+
+    private void testColdDirectory() {
+        deleteFiles();
+        try (MVStore s = builder().open()) {
+            write(s, 0, 2000);
+            AppendOnlyMultiFileStore fileStore = getFileStore(s);
+            s.compactFile(10_000);
+            int cold = fileStore.getColdFileCount();
+            assertTrue(cold > 0);
+            assertTrue(fileStore.getFileCount() - cold <= 2);
+            assertEquals(cold, FileUtils.newDirectoryStream(getColdDirectory()).size());
+            verify(s, 2000);
+        }
+        try (MVStore s = builder().open()) {
+            assertTrue(getFileStore(s).getColdFileCount() > 0);
+            verify(s, 2000);
+        }
+    }
+
+    private void testColdDirectoryRateLimited() throws InterruptedException {
+        deleteFiles();
+        // files of several copy blocks
+        try (MVStore s = builder().maxFileSize(256).autoCompactRate(1).open()) {
+            write(s, 0, 4000);
+            s.setAutoCommitDelay(10);
+            // the first block uses up the budget of a minute
+            String temp = null;
+            for (int i = 0; i < 500 && temp == null; i++) {
+                Thread.sleep(10);
+                for (String name : FileUtils.newDirectoryStream(getColdDirectory())) {
+                    temp = name;
+                }
+            }
+            assertNotNull(temp);
+            assertTrue(temp, temp.endsWith(".temp"));
+            Thread.sleep(200);
+            assertEquals(0, getFileStore(s).getColdFileCount());
+            s.setAutoCommitDelay(0);
+            // explicit compaction is not limited and completes the copy
+            s.compactFile(10_000);
+            assertFalse(FileUtils.exists(temp));
+            assertTrue(getFileStore(s).getColdFileCount() > 0);
+            verify(s, 4000);
+        }
+        try (MVStore s = builder().maxFileSize(256).open()) {
+            verify(s, 4000);
+        }
+    }
+
+    private void testRemoveEmptyFiles() {
+        deleteFiles();
+        try (MVStore s = builder().open()) {
+            write(s, 0, 2000);
+            int files = getFileStore(s).getFileCount();
+            s.setVersionsToKeep(0);
+            s.openMap("data").clear();
+            s.commit();
+            s.compactFile(10_000);
+            assertTrue(getFileStore(s).getFileCount() < files);
+            assertFalse(FileUtils.exists(getFileName() + ".1"));
+        }
+    }
+
+    private void testCrashRecovery() {
+        deleteFiles();
+        MVStore s = builder().open();
+        write(s, 0, 1000);
+        s.closeImmediately();
+        s = builder().open();
+        verify(s, 1000);
+        write(s, 1000, 500);
+        s.close();
+        try (MVStore s2 = builder().open()) {
+            verify(s2, 1500);
+        }
+    }
+
+    private void testRollback() {
+        deleteFiles();
+        try (MVStore s = builder().open()) {
+            write(s, 0, 100);
+            long version = s.getCurrentVersion();
+            write(s, 100, 1000);
+            int files = getFileStore(s).getFileCount();
+            s.rollbackTo(version);
+            assertTrue(getFileStore(s).getFileCount() < files);
+            verify(s, 100);
+            write(s, 100, 50);
+        }
+        try (MVStore s = builder().open()) {
+            verify(s, 150);
+        }
+    }
+
+    private void testEncrypted() {
+        deleteFiles();
+        try (MVStore s = builder().encryptionKey("007".toCharArray()).open()) {
+            write(s, 0, 2000);
+            s.compactFile(10_000);
+            assertTrue(getFileStore(s).getColdFileCount() > 0);
+        }
+        try (MVStore s = builder().encryptionKey("007".toCharArray()).open()) {
+            verify(s, 2000);
+        }
+        assertThrows(DataUtils.ERROR_FILE_CORRUPT, () -> builder().encryptionKey("008".toCharArray()).open());
+    }
+
+}
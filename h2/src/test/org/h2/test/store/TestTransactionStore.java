@@ -31,6 +31,7 @@
 import org.h2.mvstore.type.StringDataType;
 import org.h2.store.fs.FileUtils;
 import org.h2.test.TestBase;
+import org.h2.test.utils.FilePathReorderWrites;
 import org.h2.util.Task;
 
 /**
@@ -66,6 +67,8 @@ public void test() throws Exception {
         testCompareWithPostgreSQL();
         testStoreMultiThreadedReads();
         testCommitAfterMapRemoval();
+        testRedoLog();
+        testRedoLogPowerOff();
         testDeadLock();
     }
 
@@ -927,6 +930,171 @@ private void testCommitAfterMapRemoval() {
         }
     }
 
+    private void testRedoLog() throws Exception {
+        String fileName = getBaseDir() + "/testRedoLog.h3";
+        String logName = getBaseDir() + "/testRedoLog.redo";
+        FileUtils.delete(fileName);
+        FileUtils.delete(logName);
+        MVStore s = new MVStore.Builder().fileName(fileName).autoCommitDisabled().open();
+        TransactionStore ts = new TransactionStore(s);
+        ts.init();
+        ts.openRedoLog(logName);
+        Transaction t = ts.begin();
+        TransactionMap<Long, String> map = t.openMap("test", LongDataType.INSTANCE, StringDataType.INSTANCE);
+        for (long i = 0; i < 10; i++) {
+            map.put(i, "A" + i);
+        }
+        t.openMap("cleared", LongDataType.INSTANCE, StringDataType.INSTANCE).put(1L, "A");
+        // open undo logs for concurrent transactions
+        Transaction[] other = new Transaction[4];
+        for (int i = 0; i < other.length; i++) {
+            other[i] = ts.begin();
+        }
+        for (Transaction tx : other) {
+            tx.rollback();
+        }
+        // new maps are stored at commit
+        t.commit();
+        long version = s.getCurrentVersion();
+        t = ts.begin();
+        map = t.openMap("test", LongDataType.INSTANCE, StringDataType.INSTANCE);
+        map.put(1L, "B1");
+        map.put(1L, "C1");
+        map.remove(2L);
+        map.put(20L, "B20");
+        t.commit();
+        TransactionStore store = ts;
+        Task[] tasks = new Task[4];
+        for (int i = 0; i < tasks.length; i++) {
+            long start = 100 * (i + 1);
+            tasks[i] = new Task() {
+                @Override
+                public void call() {
+                    for (long k = start; k < start + 50; k++) {
+                        Transaction tx = store.begin();
+                        tx.openMap("test", LongDataType.INSTANCE, StringDataType.INSTANCE).put(k, "D" + k);
+                        tx.commit();
+                    }
+                }
+            }.execute();
+        }
+        for (Task task : tasks) {
+            task.get();
+        }
+        // changes of committed transactions are only in the redo log
+        assertEquals(version, s.getCurrentVersion());
+        t = ts.begin();
+        t.openMap("cleared", LongDataType.INSTANCE, StringDataType.INSTANCE).clear();
+        t.commit();
+        t = ts.begin();
+        t.openMap("test", LongDataType.INSTANCE, StringDataType.INSTANCE).put(3L, "E3");
+        t.commit();
+        Transaction open = ts.begin();
+        open.openMap("test", LongDataType.INSTANCE, StringDataType.INSTANCE).put(4L, "F4");
+        assertTrue(FileUtils.size(logName) > 0);
+        ts.closeImmediately();
+        s.closeImmediately();
+
+        s = MVStore.open(fileName);
+        ts = new TransactionStore(s);
+        ts.init();
+        ts.openRedoLog(logName);
+        assertTrue(ts.getOpenTransactions().isEmpty());
+        t = ts.begin();
+        map = t.openMap("test", LongDataType.INSTANCE, StringDataType.INSTANCE);
+        assertEquals("A0", map.get(0L));
+        assertEquals("C1", map.get(1L));
+        assertNull(map.get(2L));
+        assertEquals("E3", map.get(3L));
+        assertEquals("A4", map.get(4L));
+        assertEquals("B20", map.get(20L));
+        for (long k = 100; k < 500; k += 100) {
+            assertEquals("D" + k, map.get(k));
+            assertEquals("D" + (k + 49), map.get(k + 49));
+        }
+        assertEquals(10 + 200, map.sizeAsLong());
+        assertTrue(t.openMap("cleared", LongDataType.INSTANCE, StringDataType.INSTANCE).isEmpty());
+        t.commit();
+        ts.close();
+        s.close();
+        assertFalse(FileUtils.exists(logName));
+        FileUtils.delete(fileName);
+    }
+
+    private void testRedoLogPowerOff() throws Exception {
+        String fileName = getBaseDir() + "/testRedoLogPowerOff.h3";
+        String logName = getBaseDir() + "/testRedoLogPowerOff.redo";
+        FilePathReorderWrites fs = FilePathReorderWrites.register();
+        boolean failed = false;
+        for (int count = 1;; count++) {
+            FileUtils.delete(fileName);
+            FileUtils.delete(logName);
+            MVStore s = new MVStore.Builder().fileName(fileName).autoCommitDisabled().open();
+            TransactionStore ts = new TransactionStore(s);
+            ts.init();
+            // the file system only wraps existing files
+            FileUtils.createFile(logName);
+            ts.openRedoLog("reorder:" + logName);
+            Transaction t = ts.begin();
+            t.openMap("test", LongDataType.INSTANCE, StringDataType.INSTANCE).put(1L, "A1");
+            t.openMap("other", LongDataType.INSTANCE, StringDataType.INSTANCE);
+            t.commit();
+            t = ts.begin();
+            t.openMap("test", LongDataType.INSTANCE, StringDataType.INSTANCE).put(1L, "B1");
+            t.commit();
+            long size = FileUtils.size(logName);
+            // a chunk written in the background doesn't need a checkpoint
+            s.commit();
+            t = ts.begin();
+            t.openMap("test", LongDataType.INSTANCE, StringDataType.INSTANCE).put(2L, "B2");
+            t.commit();
+            assertTrue(FileUtils.size(logName) > size);
+            // the change of the other map forces a checkpoint, which can fail
+            // after the store is synchronized, but before the log is truncated
+            fs.setPowerOffCountdown(count, count);
+            boolean crashed = false;
+            try {
+                t = ts.begin();
+                TransactionMap<Long, String> map = t.openMap("test", LongDataType.INSTANCE, StringDataType.INSTANCE);
+                map.put(1L, "C1");
+                map.put(3L, "C3");
+                t.openMap("other", LongDataType.INSTANCE, StringDataType.INSTANCE).putCommitted(1L, "C");
+                t.commit();
+            } catch (MVStoreException e) {
+                crashed = true;
+            }
+            fs.setPowerOffCountdown(0, 0);
+            ts.closeImmediately();
+            s.closeImmediately();
+
+            s = MVStore.open(fileName);
+            ts = new TransactionStore(s);
+            ts.init();
+            ts.openRedoLog(logName);
+            t = ts.begin();
+            TransactionMap<Long, String> map = t.openMap("test", LongDataType.INSTANCE, StringDataType.INSTANCE);
+            assertEquals("B2", map.get(2L));
+            if ("C".equals(t.openMap("other", LongDataType.INSTANCE, StringDataType.INSTANCE).get(1L))) {
+                assertEquals("C1", map.get(1L));
+                assertEquals("C3", map.get(3L));
+            } else {
+                assertEquals("B1", map.get(1L));
+                assertNull(map.get(3L));
+            }
+            t.commit();
+            ts.close();
+            s.close();
+            if (!crashed) {
+                break;
+            }
+            failed = true;
+        }
+        assertTrue(failed);
+        FileUtils.delete(fileName);
+        FileUtils.delete(logName);
+        FileUtils.delete(logName + ".copy");
+    }
+
     private void testDeadLock() {
         int threadCount = 2;
         for (int i = 1; i < threadCount; i++) {
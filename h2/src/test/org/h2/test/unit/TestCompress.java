@@ -16,10 +16,12 @@
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
 import java.util.concurrent.TimeUnit;
 
 import org.h2.compress.CompressLZF;
+import org.h2.compress.CompressLZFDictionary;
 import org.h2.compress.Compressor;
 import org.h2.engine.Constants;
 import org.h2.store.fs.FileUtils;
@@ -71,6 +73,7 @@ public void test() throws Exception {
         }
         test(4000000);
         testVariableEnd();
+        testDictionary();
     }
 
     private void testVariableSizeInt() {
@@ -140,6 +143,53 @@ private void testVariableEnd() {
         }
     }
 
+    private void testDictionary() {
+        Random r = new Random(1);
+        List<byte[]> samples = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            samples.add(createRecords(r, 10));
+        }
+        byte[] dictionary = CompressLZFDictionary.train(samples, 4096);
+        assertTrue(dictionary.length > 0 && dictionary.length <= 4096);
+        CompressLZFDictionary comp = new CompressLZFDictionary(dictionary);
+        assertEquals(Compressor.LZF_DICTIONARY, comp.getAlgorithm());
+        CompressLZF lzf = new CompressLZF();
+        int lzfLength = 0, dictionaryLength = 0;
+        for (int i = 0; i < 100; i++) {
+            byte[] in = createRecords(r, 1 + i % 10);
+            byte[] out = new byte[in.length * 2 + 10];
+            lzfLength += lzf.compress(in, 0, in.length, out, 0);
+            int len = comp.compress(in, 0, in.length, out, 5);
+            dictionaryLength += len - 5;
+            byte[] test = new byte[in.length + 3];
+            // expansion does not need the same instance
+            new CompressLZFDictionary(dictionary).expand(out, 5, len - 5, test, 3, in.length);
+            assertEquals(in, Arrays.copyOfRange(test, 3, test.length));
+        }
+        assertTrue(dictionaryLength + " " + lzfLength, dictionaryLength < lzfLength / 2);
+        // samples without common sequences
+        samples.clear();
+        samples.add(new byte[] { 1, 2, 3 });
+        assertEquals(0, CompressLZFDictionary.train(samples, 4096).length);
+        comp = new CompressLZFDictionary(new byte[0]);
+        byte[] in = createRecords(r, 2);
+        byte[] out = new byte[in.length * 2];
+        int len = comp.compress(in, 0, in.length, out, 0);
+        byte[] test = new byte[in.length];
+        comp.expand(out, 0, len, test, 0, in.length);
+        assertEquals(in, test);
+    }
+
+    private static byte[] createRecords(Random r, int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append("{\"id\": ").append(r.nextInt(100_000)).append(", \"status\": \"")
+                    .append(r.nextBoolean() ? "active" : "inactive").append("\", \"country\": \"")
+                    .append(r.nextBoolean() ? "Switzerland" : "United States").append("\"}\n");
+        }
+        return builder.toString().getBytes();
+    }
+
     private void testDatabase() throws Exception {
         deleteDb("memFS:compress");
         Connection conn = getConnection("memFS:compress");
@@ -5,6 +5,7 @@
  */
 package org.h2.test.unit;
 
+import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -28,6 +29,7 @@
 import org.h2.message.DbException;
 import org.h2.mvstore.DataUtils;
 import org.h2.mvstore.cache.FilePathCache;
+import org.h2.store.fs.FileBase;
 import org.h2.store.fs.FilePath;
 import org.h2.store.fs.FileUtils;
 import org.h2.store.fs.encrypt.FilePathEncrypt;
@@ -557,6 +559,20 @@ private void testPositionedReadWrite(String fsBase) throws IOException {
         for (int i = 0; i < 4000; i++) {
             assertEquals((byte) i, buff.get());
         }
+        if (fc instanceof FileBase) {
+            FileBase fb = (FileBase) fc;
+            ByteBuffer[] buffers = { ByteBuffer.allocate(100), ByteBuffer.allocate(1), ByteBuffer.allocate(3000) };
+            fb.readFully(new long[] { 2096, 96, 1000 }, buffers);
+            for (int i = 0; i < 100; i++) {
+                assertEquals((byte) (2000 + i), buffers[0].get(i));
+            }
+            assertEquals(0, buffers[1].get(0));
+            for (int i = 0; i < 3000; i++) {
+                assertEquals((byte) (904 + i), buffers[2].get(i));
+            }
+            ByteBuffer[] beyondEnd = { ByteBuffer.allocate(100), ByteBuffer.allocate(100) };
+            assertThrows(EOFException.class, () -> fb.readFully(new long[] { 96, 4050 }, beyondEnd));
+        }
         buff = ByteBuffer.allocate(0);
         assertTrue(fc.read(buff, 8000) <= 0);
         assertEquals(0, fc.position());
@@ -5,7 +5,16 @@
  */
 package org.h2.test.unit;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
 import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
@@ -71,6 +80,7 @@ public void test() throws Exception {
         testPrepareWithUnspecifiedType();
         testOtherPgClients();
         testArray();
+        testCopy();
     }
 
     private boolean getPgJdbcDriver() {
@@ -910,4 +920,94 @@ private void testArray() throws Exception {
         }
     }
 
+    private void testCopy() throws Exception {
+        if (!getPgJdbcDriver()) {
+            return;
+        }
+
+        Server server = createPgServer(
+                "-ifNotExists", "-pgPort", "5535", "-pgDaemon", "-key", "pgserver", "mem:pgserver");
+        try (
+                Connection conn = DriverManager.getConnection(
+                        "jdbc:postgresql://localhost:5535/pgserver", "sa", "sa");
+                Statement stat = conn.createStatement();
+        ) {
+            stat.execute("CREATE TABLE test (id int primary key, name varchar, data bytea, flag boolean)");
+            assertEquals(3L, copyIn(conn, "COPY test FROM STDIN", new StringReader(
+                    "1\tone\t\\\\x0102\tt\n" +
+                    "2\ttab\\there\t\\N\tf\n" +
+                    "3\t\\N\t\\N\t\\N\n")));
+            assertEquals(3L, copyIn(conn, "COPY test (id, name) FROM STDIN WITH (FORMAT csv, HEADER)",
+                    new StringReader("id,name\n4,\"a,b\"\n5,\"\"\n6,\n")));
+            try (ResultSet rs = stat.executeQuery("SELECT name FROM test ORDER BY id")) {
+                String[] expected = { "one", "tab\there", null, "a,b", "", null };
+                for (String name : expected) {
+                    assertTrue(rs.next());
+                    assertEquals(name, rs.getString(1));
+                }
+                assertFalse(rs.next());
+            }
+
+            StringWriter writer = new StringWriter();
+            assertEquals(3L, copyOut(conn, "COPY (SELECT * FROM test WHERE id <= 3 ORDER BY id) TO STDOUT", writer));
+            assertEquals("1\tone\t\\\\001\\\\002\tt\n" +
+                    "2\ttab\\there\t\\N\tf\n" +
+                    "3\t\\N\t\\N\t\\N\n", writer.toString());
+            writer = new StringWriter();
+            assertEquals(3L, copyOut(conn,
+                    "COPY (SELECT id, name FROM test WHERE id >= 4 ORDER BY id) TO STDOUT WITH CSV HEADER", writer));
+            assertEquals("id,name\n4,\"a,b\"\n5,\"\"\n6,\n", writer.toString());
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            assertEquals(6L, copyOut(conn, "COPY test TO STDOUT (FORMAT binary)", out));
+            stat.execute("CREATE TABLE test2 AS SELECT * FROM test WITH NO DATA");
+            assertEquals(6L, copyIn(conn, "COPY test2 FROM STDIN (FORMAT binary)",
+                    new ByteArrayInputStream(out.toByteArray())));
+            try (ResultSet rs = stat.executeQuery(
+                    "SELECT COUNT(*) FROM (SELECT * FROM test EXCEPT SELECT * FROM test2)")) {
+                assertTrue(rs.next());
+                assertEquals(0, rs.getInt(1));
+            }
+
+            // a failed COPY does not insert any rows
+            try {
+                copyIn(conn, "COPY test (id) FROM STDIN", new StringReader("10\n11\n1\n12\n"));
+                fail();
+            } catch (SQLException e) {
+                // expected
+            }
+            try (ResultSet rs = stat.executeQuery("SELECT COUNT(*) FROM test")) {
+                assertTrue(rs.next());
+                assertEquals(6, rs.getInt(1));
+            }
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static long copyIn(Connection conn, String sql, Object in) throws Exception {
+        return copy(conn, "copyIn", sql, in, in instanceof Reader ? Reader.class : InputStream.class);
+    }
+
+    private static long copyOut(Connection conn, String sql, Object out) throws Exception {
+        return copy(conn, "copyOut", sql, out, out instanceof Writer ? Writer.class : OutputStream.class);
+    }
+
+    private static long copy(Connection conn, String methodName, String sql, Object data, Class<?> dataClass)
+            throws Exception {
+        Class<?> baseConnection = Class.forName("org.postgresql.core.BaseConnection");
+        Object copyManager = Class.forName("org.postgresql.copy.CopyManager").getConstructor(baseConnection)
+                .newInstance(conn.unwrap(baseConnection));
+        try {
+            return (Long) copyManager.getClass().getMethod(methodName, String.class, dataClass)
+                    .invoke(copyManager, sql, data);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            throw e;
+        }
+    }
+
 }
@@ -5,8 +5,10 @@
  */
 package org.h2.test.unit;
 
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -34,6 +36,7 @@ public static void main(String... a) throws Exception {
     public void test() throws IOException {
         testLZFStreams();
         testLZFStreamClose();
+        testLZFStreamFlush();
     }
 
     private static byte[] getRandomBytes(Random random) {
@@ -68,6 +71,35 @@ private void testLZFStreamClose() throws IOException {
         FileUtils.delete(getBaseDir() + "/temp");
     }
 
+    private void testLZFStreamFlush() throws IOException {
+        ByteArrayOutputStream buff = new ByteArrayOutputStream();
+        LZFOutputStream out = new LZFOutputStream(new BufferedOutputStream(buff));
+        out.write("Hello".getBytes());
+        out.flush();
+        int len = buff.size();
+        assertTrue(len > 4);
+        out.write("World".getBytes());
+        out.flush();
+        // a socket that has no more data to read
+        InputStream in = new FilterInputStream(new ByteArrayInputStream(buff.toByteArray(), 0, len)) {
+            @Override
+            public int available() {
+                return 0;
+            }
+        };
+        LZFInputStream lzf = new LZFInputStream(in);
+        assertEquals(0, lzf.available());
+        byte[] b = new byte[100];
+        assertEquals(2, lzf.read(b, 0, 2));
+        assertEquals(3, lzf.available());
+        assertEquals(3, lzf.read(b, 2, 98));
+        assertEquals("Hello", new String(b, 0, 5));
+        assertEquals(0, lzf.available());
+        lzf = new LZFInputStream(new ByteArrayInputStream(buff.toByteArray()));
+        assertEquals(10, lzf.read(b));
+        assertEquals("HelloWorld", new String(b, 0, 10));
+    }
+
     private void testLZFStreams() throws IOException {
         Random random = new Random(1);
         int max = getSize(100, 1000);
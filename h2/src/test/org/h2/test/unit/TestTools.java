@@ -40,6 +40,8 @@
 import java.util.UUID;
 import org.h2.api.ErrorCode;
 import org.h2.engine.SysProperties;
+import org.h2.server.ConnectionDispatcher;
+import org.h2.server.TcpServer;
 import org.h2.store.FileLister;
 import org.h2.store.fs.FileUtils;
 import org.h2.test.TestBase;
@@ -108,6 +110,8 @@ public void test() throws Exception {
         }
         testChangeFileEncryptionWithWrongPassword();
         testServer();
+        testServerWorkerThreads();
+        testServerWorkerThreadsBlocked();
         testScriptRunscript();
         testBackupRestore();
         testRecover();
@@ -1141,6 +1145,123 @@ private void testServer() throws SQLException {
         }
     }
 
+    private void testServerWorkerThreads() throws Exception {
+        deleteDb("test");
+        Server tcpServer = Server.createTcpServer("-ifNotExists", "-baseDir", getBaseDir(),
+                "-tcpWorkerThreads", "2", "-tcpMaxConnections", "8").start();
+        try {
+            String url = "jdbc:h2:tcp://localhost:" + tcpServer.getPort() + "/test";
+            ConnectionDispatcher dispatcher = ((TcpServer) tcpServer.getService()).getDispatcher();
+            Connection[] conns = new Connection[8];
+            for (int i = 0; i < conns.length; i++) {
+                conns[i] = getConnection(url, "sa", "");
+            }
+            assertEquals(8, dispatcher.getConnectionCount());
+            conns[0].createStatement().execute("CREATE TABLE TEST(ID INT PRIMARY KEY, CONN INT)");
+            Task[] tasks = new Task[conns.length];
+            for (int i = 0; i < conns.length; i++) {
+                Connection conn = conns[i];
+                int id = i;
+                tasks[i] = new Task() {
+                    @Override
+                    public void call() throws Exception {
+                        PreparedStatement prep = conn.prepareStatement("INSERT INTO TEST VALUES(?, ?)");
+                        for (int j = 0; j < 100; j++) {
+                            prep.setInt(1, id * 100 + j);
+                            prep.setInt(2, id);
+                            prep.execute();
+                        }
+                    }
+                }.execute();
+            }
+            for (Task t : tasks) {
+                t.get();
+            }
+            ResultSet rs = conns[1].createStatement().executeQuery("SELECT COUNT(*) FROM TEST");
+            rs.next();
+            assertEquals(800, rs.getInt(1));
+            assertTrue(dispatcher.getDispatchCount() > conns.length);
+            // connections over the limit wait until another one is closed
+            Task connect = new Task() {
+                @Override
+                public void call() throws Exception {
+                    getConnection(url, "sa", "").close();
+                }
+            }.execute();
+            Thread.sleep(100);
+            assertFalse(connect.isFinished());
+            conns[7].close();
+            connect.get();
+            for (int i = 0; i < 7; i++) {
+                conns[i].close();
+            }
+        } finally {
+            tcpServer.stop();
+        }
+        deleteDb("test");
+    }
+
+    private void testServerWorkerThreadsBlocked() throws Exception {
+        deleteDb("test");
+        Server tcpServer = Server.createTcpServer("-ifNotExists", "-baseDir", getBaseDir(),
+                "-tcpWorkerThreads", "2", "-tcpMaxConnections", "6").start();
+        try {
+            String url = "jdbc:h2:tcp://localhost:" + tcpServer.getPort() + "/test;LOCK_TIMEOUT=30000";
+            ConnectionDispatcher dispatcher = ((TcpServer) tcpServer.getService()).getDispatcher();
+            Connection[] conns = new Connection[6];
+            for (int i = 0; i < conns.length; i++) {
+                conns[i] = getConnection(url, "sa", "");
+            }
+            Connection owner = conns[0];
+            owner.createStatement().execute("CREATE TABLE TEST(ID INT PRIMARY KEY, V INT) AS VALUES (1, 0)");
+            owner.setAutoCommit(false);
+            owner.createStatement().execute("UPDATE TEST SET V = V + 1");
+            // more statements wait for the lock than there are workers
+            Task[] waiters = new Task[4];
+            for (int i = 0; i < waiters.length; i++) {
+                Connection conn = conns[i + 1];
+                waiters[i] = new Task() {
+                    @Override
+                    public void call() throws Exception {
+                        conn.createStatement().execute("UPDATE TEST SET V = V + 1");
+                    }
+                }.execute();
+            }
+            Thread.sleep(300);
+            // the cancel request is served while the workers are blocked
+            Statement stat = conns[5].createStatement();
+            Task query = new Task() {
+                @Override
+                public void call() throws Exception {
+                    stat.executeQuery("SELECT SUM(X) FROM SYSTEM_RANGE(1, 100000000000)");
+                }
+            }.execute();
+            // a statement can only be canceled after it was prepared
+            while (!query.isFinished()) {
+                stat.cancel();
+                Thread.sleep(50);
+            }
+            assertEquals(ErrorCode.STATEMENT_WAS_CANCELED, ((SQLException) query.getException()).getErrorCode());
+            // the commit doesn't wait for the lock timeout of the waiters
+            long start = System.nanoTime();
+            owner.commit();
+            for (Task t : waiters) {
+                t.get();
+            }
+            assertSmaller(System.nanoTime() - start, 10_000_000_000L);
+            assertTrue(dispatcher.getWorkerCount() > 2);
+            ResultSet rs = conns[5].createStatement().executeQuery("SELECT V FROM TEST");
+            rs.next();
+            assertEquals(5, rs.getInt(1));
+            for (Connection conn : conns) {
+                conn.close();
+            }
+        } finally {
+            tcpServer.stop();
+        }
+        deleteDb("test");
+    }
+
     /**
      * A simple Clob implementation.
      */